@@ -0,0 +1,83 @@
+import primitive.IntArrayList;
+import primitive.IntList;
+import primitive.IntListIterator;
+import primitive.LongArrayList;
+
+public class PrimitiveListExample {
+    public static void main(String[] args) {
+        // ===================================================
+        // 1️⃣ Creating a Primitive List
+        // ===================================================
+        // IntArrayList stores values in an int[] -> no Integer boxing
+        // Same operations as ListExample, with int in place of Integer
+
+        IntArrayList numbers = new IntArrayList();
+        numbers.add(30);
+        numbers.add(10);
+        numbers.add(20);
+        numbers.add(10); // duplicates allowed
+        System.out.println("Original List: " + numbers);
+
+        // ===================================================
+        // 2️⃣ List-Specific Methods
+        // ===================================================
+        // get(int) / set(int, int)
+        // indexOf(int) / lastIndexOf(int)
+        // subList(int, int) -> view, writes through
+        // replaceAll(IntUnaryOperator) / sort()
+
+        System.out.println("Element at index 1 (get): " + numbers.get(1));
+
+        numbers.set(2, 25);
+        System.out.println("After set index 2 to 25: " + numbers);
+
+        System.out.println("First index of 10 (indexOf): " + numbers.indexOf(10));
+        System.out.println("Last index of 10 (lastIndexOf): " + numbers.lastIndexOf(10));
+
+        IntList subList = numbers.subList(1, 3);
+        System.out.println("SubList from index 1 to 3: " + subList);
+
+        numbers.replaceAll(x -> x * 2);
+        System.out.println("After replaceAll (x * 2): " + numbers);
+
+        numbers.sort();
+        System.out.println("After sort(): " + numbers);
+
+        // ===================================================
+        // 3️⃣ Index vs Value Removal
+        // ===================================================
+        // removeAt(int index)    -> List.remove(int index)
+        // removeValue(int value) -> List.remove(Object o)
+
+        numbers.removeAt(0);
+        System.out.println("After removeAt(0): " + numbers);
+
+        numbers.removeValue(50);
+        System.out.println("After removeValue(50): " + numbers);
+
+        // ===================================================
+        // 4️⃣ Primitive ListIterator
+        // ===================================================
+        // nextInt()/previousInt() instead of next()/previous()
+        // add/set/remove behave like ListIteratorExample
+
+        IntListIterator iterator = numbers.listIterator();
+        iterator.nextInt();
+        iterator.add(99);
+        System.out.println("After iterator add 99: " + numbers);
+
+        System.out.print("Backward traversal: ");
+        IntListIterator backward = numbers.listIterator(numbers.size());
+        while (backward.hasPrevious()) {
+            System.out.print(backward.previousInt() + " ");
+        }
+        System.out.println();
+
+        // ===================================================
+        // 5️⃣ LongArrayList
+        // ===================================================
+        LongArrayList timestamps = LongArrayList.of(1_700_000_000_000L, 1_600_000_000_000L);
+        timestamps.sort();
+        System.out.println("Sorted timestamps: " + timestamps + ", sum = " + timestamps.stream().sum());
+    }
+}
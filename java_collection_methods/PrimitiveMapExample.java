@@ -0,0 +1,62 @@
+import primitive.IntIntMap;
+import primitive.LongObjectMap;
+import primitive.ObjectIntMap;
+
+public class PrimitiveMapExample {
+    public static void main(String[] args) {
+        // ===================================================
+        // 1️⃣ Adding / Updating Entries
+        // ===================================================
+        // ObjectIntMap<K> -> HashMap<K, Integer> without Node/Integer objects
+        // put() / putAll() / putIfAbsent() as in MapExample
+
+        ObjectIntMap<String> map = new ObjectIntMap<>();
+        map.put("Apple", 10);
+        map.put("Banana", 20);
+        map.putIfAbsent("Cherry", 15);
+        map.put("Apple", 25);
+        System.out.println("After additions: " + map);
+
+        // ===================================================
+        // 2️⃣ Retrieving Values
+        // ===================================================
+        // get() returns 0 for an absent key -> use getOrDefault()/containsKey()
+
+        System.out.println("Apple value: " + map.get("Apple"));
+        System.out.println("Pear value (default -1): " + map.getOrDefault("Pear", -1));
+
+        // ===================================================
+        // 3️⃣ Compute / Merge (no allocation)
+        // ===================================================
+        // compute() sees 0 for an absent key
+        // merge() -> counter updates without boxing
+
+        map.compute("Apple", (k, v) -> v + 10);
+        map.computeIfAbsent("Pear", k -> 5);
+        map.computeIfPresent("Banana", (k, v) -> v + 5);
+        map.merge("Pear", 10, Integer::sum);
+        map.replaceAll((k, v) -> v * 2);
+        System.out.println("After compute/merge/replaceAll: " + map);
+
+        map.remove("Cherry");
+        System.out.println("After remove Cherry: " + map);
+
+        // ===================================================
+        // 4️⃣ IntIntMap / LongObjectMap
+        // ===================================================
+        // IntIntMap -> int keys and values in two int[] arrays
+        // LongObjectMap -> long keys; null result from compute/merge removes (as in Map)
+
+        IntIntMap histogram = new IntIntMap();
+        for (int score : new int[] {3, 5, 3, 0, 5, 3}) {
+            histogram.merge(score, 1, Integer::sum);
+        }
+        System.out.println("Histogram: " + histogram);
+
+        LongObjectMap<String> users = new LongObjectMap<>();
+        users.put(1001L, "alice");
+        users.put(1002L, "bob");
+        users.computeIfPresent(1002L, (id, name) -> null); // removes bob
+        System.out.println("Users: " + users);
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import primitive.IntSet;
+
+public class PrimitiveSetExample {
+    public static void main(String[] args) {
+        // ===================================================
+        // 1️⃣ Creating / Adding
+        // ===================================================
+        // IntSet -> Set<Integer> stored as compressed bitmaps
+        // add(int) / contains(int) without boxing
+        // addRange(from, to) -> consecutive ids as a few runs
+
+        IntSet premium = IntSet.of(7, 42, 1001, 1002, 1003);
+        premium.add(99);
+        premium.addRange(5000, 5010);
+        System.out.println("Premium users: " + premium);
+        System.out.println("Contains 42? " + premium.contains(42));
+
+        // ===================================================
+        // 2️⃣ Set Algebra (new sets, inputs unchanged)
+        // ===================================================
+        // and() -> intersection, or() -> union
+        // andNot() -> difference, xor() -> symmetric difference
+
+        IntSet active = IntSet.of(42, 99, 1002, 5003, 8000);
+        System.out.println("Premium AND active: " + IntSet.and(premium, active));
+        System.out.println("Premium OR active: " + IntSet.or(premium, active));
+        System.out.println("Premium AND NOT active: " + IntSet.andNot(premium, active));
+        System.out.println("Premium XOR active: " + IntSet.xor(premium, active));
+
+        // ===================================================
+        // 3️⃣ Counting Without Building the Result
+        // ===================================================
+        // andCardinality() -> size of the intersection
+        // intersects() -> stops at the first common element
+
+        System.out.println("Active premium users: " + IntSet.andCardinality(premium, active));
+        System.out.println("Any overlap with {1, 2, 3}? " + IntSet.intersects(premium, IntSet.of(1, 2, 3)));
+
+        // ===================================================
+        // 4️⃣ In Place / As a Set<Integer>
+        // ===================================================
+        // retainAll/addAll/removeAll with another IntSet -> in-place and/or/andNot
+        // with any other collection -> element by element, as in SetExample
+
+        IntSet copy = IntSet.copyOf(premium);
+        copy.retainAll(active);
+        System.out.println("retainAll(active): " + copy);
+
+        Set<Integer> boxed = new HashSet<>(Arrays.asList(7, 99, 123));
+        copy = IntSet.copyOf(premium);
+        copy.removeAll(boxed);
+        System.out.println("removeAll(HashSet): " + copy + ", first=" + copy.first() + ", last=" + copy.last());
+        System.out.println("As int[]: " + Arrays.toString(copy.toIntArray()));
+    }
+}
@@ -0,0 +1,77 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import probabilistic.BloomFilter;
+import probabilistic.CuckooFilter;
+import probabilistic.FilteredSet;
+import probabilistic.Hasher;
+import probabilistic.HyperLogLog;
+
+public class ProbabilisticSetExample {
+    public static void main(String[] args) throws IOException {
+        // ===================================================
+        // 1️⃣ BloomFilter (contains -> "absent" or "maybe")
+        // ===================================================
+        // copyOf() -> sized for the collection at a false-positive rate
+        // mightContain() -> false is certain, true is wrong ~1% of the time
+
+        List<String> fruits = List.of("Apple", "Banana", "Cherry", "Mango", "Peach");
+        BloomFilter<String> bloom = BloomFilter.copyOf(fruits, Hasher.strings(), 0.01);
+        System.out.println("Might contain Apple? " + bloom.mightContain("Apple"));
+        System.out.println("Might contain Durian? " + bloom.mightContain("Durian"));
+        System.out.println("Might contain all of [Apple, Mango]? " + bloom.mightContainAll(List.of("Apple", "Mango")));
+        System.out.println(bloom);
+
+        // ===================================================
+        // 2️⃣ CuckooFilter (supports remove)
+        // ===================================================
+        CuckooFilter<String> cuckoo = CuckooFilter.copyOf(fruits, Hasher.strings());
+        cuckoo.remove("Banana");
+        System.out.println("After remove, might contain Banana? " + cuckoo.mightContain("Banana"));
+        System.out.println("Elements: " + cuckoo.approximateElementCount());
+
+        // ===================================================
+        // 3️⃣ Merging Shards / Serialization
+        // ===================================================
+        // merge() -> filter of the union (same size and hasher)
+        // writeTo() / readFrom() -> about bitSize() / 8 bytes
+
+        BloomFilter<String> shardA = BloomFilter.create(Hasher.strings(), 1000, 0.01);
+        BloomFilter<String> shardB = BloomFilter.create(Hasher.strings(), 1000, 0.01);
+        shardA.add("Apple");
+        shardB.add("Kiwi");
+        shardA.merge(shardB);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        shardA.writeTo(bytes);
+        BloomFilter<String> copy = BloomFilter.readFrom(new ByteArrayInputStream(bytes.toByteArray()), Hasher.strings());
+        System.out.println("Serialized bytes: " + bytes.size() + ", copy might contain Kiwi? " + copy.mightContain("Kiwi"));
+
+        // ===================================================
+        // 4️⃣ FilteredSet (filter in front of a large set)
+        // ===================================================
+        // contains() -> asks the filter first, the set only on "maybe"
+
+        Set<String> catalog = new TreeSet<>(fruits); // stands for a set on disk
+        Set<String> fast = new FilteredSet<>(catalog, CuckooFilter.copyOf(catalog, Hasher.strings()));
+        System.out.println("Contains Cherry? " + fast.contains("Cherry"));
+        System.out.println("Contains Durian? " + fast.contains("Durian"));
+        fast.add("Kiwi");
+        fast.remove("Peach");
+        System.out.println("FilteredSet: " + fast);
+
+        // ===================================================
+        // 5️⃣ HyperLogLog (approximate distinct count)
+        // ===================================================
+        // cardinality() -> distinct elements added, within ~0.8% at precision 14
+
+        HyperLogLog<Long> visitors = new HyperLogLog<>(Hasher.longs());
+        for (long i = 0; i < 1_000_000; i++) {
+            visitors.add(i % 250_000); // 250 000 distinct visitors, each seen 4 times
+        }
+        System.out.println("Distinct visitors (approx. 250000): " + visitors.cardinality());
+        System.out.printf("Standard error: %.2f%%%n", 100 * visitors.relativeStandardError());
+    }
+}
@@ -0,0 +1,122 @@
+import java.time.DayOfWeek;
+import java.util.*;
+
+import concurrent.ConcurrentReferenceMap;
+import map.DenseMap;
+
+public class SpecialMapExample {
+    public static void main(String[] args) {
+        // ===================================================
+        // 1️⃣ EnumMap / DenseMap (dense array, key -> index)
+        // ===================================================
+        // EnumMap -> one array slot per enum constant, no hashing
+        // DenseMap -> same layout for any key with a small int code
+
+        Map<DayOfWeek, Integer> shifts = new EnumMap<>(DayOfWeek.class);
+        shifts.merge(DayOfWeek.MONDAY, 1, Integer::sum);
+        shifts.merge(DayOfWeek.MONDAY, 1, Integer::sum);
+        shifts.merge(DayOfWeek.FRIDAY, 1, Integer::sum);
+        System.out.println("EnumMap shifts: " + shifts);
+
+        DenseMap<DayOfWeek, Integer> denseShifts = DenseMap.forEnum(DayOfWeek.class);
+        denseShifts.putAll(shifts);
+        denseShifts.computeIfPresent(DayOfWeek.FRIDAY, (d, n) -> n + 2);
+        denseShifts.computeIfAbsent(DayOfWeek.SUNDAY, d -> 0);
+        System.out.println("DenseMap shifts: " + denseShifts);
+
+        DenseMap<Integer, String> httpStatus = new DenseMap<>(code -> code - 100, 500); // codes 100..599
+        httpStatus.put(200, "OK");
+        httpStatus.put(404, "Not Found");
+        httpStatus.put(503, "Service Unavailable");
+        System.out.println("Status 404: " + httpStatus.get(404));
+        System.out.println("Status 999 (absent): " + httpStatus.getOrDefault(999, "?"));
+
+        // ===================================================
+        // 2️⃣ IdentityHashMap / ConcurrentReferenceMap.identity()
+        // ===================================================
+        // keys compared with == and hashed with System.identityHashCode()
+        // equal but distinct keys are different entries
+
+        String a = new String("key");
+        String b = new String("key");
+        Map<String, Integer> identity = new IdentityHashMap<>();
+        identity.put(a, 1);
+        identity.put(b, 2);
+        System.out.println("IdentityHashMap size (two equal keys): " + identity.size());
+
+        ConcurrentReferenceMap<String, Integer> concurrentIdentity = ConcurrentReferenceMap.identity();
+        concurrentIdentity.putAll(identity);
+        concurrentIdentity.merge(a, 10, Integer::sum);
+        System.out.println("a -> " + concurrentIdentity.get(a) + ", b -> " + concurrentIdentity.get(b));
+        System.out.println("Lookup with a third equal string: " + concurrentIdentity.get("key"));
+
+        // ===================================================
+        // 3️⃣ WeakHashMap / ConcurrentReferenceMap.weakKeys()
+        // ===================================================
+        // entry goes away once nothing else references its key
+        // WeakHashMap -> not thread-safe, needs Collections.synchronizedMap()
+        // weakKeys() -> striped locks, atomic computeIfAbsent()
+
+        Map<Object, String> weak = Collections.synchronizedMap(new WeakHashMap<>());
+        ConcurrentReferenceMap<Object, String> metadata = ConcurrentReferenceMap.weakKeys();
+        Object request = new Object();
+        weak.put(request, "trace-1");
+        metadata.computeIfAbsent(request, r -> "trace-1");
+        metadata.computeIfAbsent(request, r -> "trace-2"); // present -> not called
+        System.out.println("Metadata for request: " + metadata.get(request));
+
+        for (int i = 0; i < 10_000; i++) {
+            metadata.put(new Object(), "garbage-" + i); // keys unreachable right away
+        }
+        System.out.println("Entries before GC: " + metadata.size());
+        for (int attempt = 0; attempt < 10 && metadata.size() > 1; attempt++) {
+            System.gc(); // cleared keys reach the map's reference queue shortly after
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            metadata.expungeStaleEntries();
+        }
+        System.out.println("Entries after GC (usually 1): " + metadata.size());
+        System.out.println("Request still mapped: " + metadata.containsKey(request));
+
+        // ===================================================
+        // 4️⃣ Atomic Compute / Merge from Many Threads
+        // ===================================================
+        // the function runs under the key's stripe lock, as in ConcurrentHashMap
+
+        ConcurrentReferenceMap<Thread.State, Integer> counts = ConcurrentReferenceMap.identity();
+        Thread[] workers = new Thread[4];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    counts.merge(Thread.State.RUNNABLE, 1, Integer::sum);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        System.out.println("Merged count (expect 4000): " + counts.get(Thread.State.RUNNABLE));
+
+        // ===================================================
+        // 5️⃣ Iteration / Views
+        // ===================================================
+        // DenseMap iterates in code order; removal through the iterator works
+
+        for (Iterator<Map.Entry<DayOfWeek, Integer>> it = denseShifts.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<DayOfWeek, Integer> e = it.next();
+            if (e.getValue() == 0) {
+                it.remove();
+            }
+        }
+        System.out.println("DenseMap after removing zeros: " + denseShifts);
+        concurrentIdentity.forEach((k, v) -> System.out.println("identity entry " + k + " -> " + v));
+    }
+}
@@ -0,0 +1,148 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.*;
+
+import concurrent.ParkingArrayBlockingQueue;
+import concurrent.ParkingLinkedBlockingQueue;
+
+/**
+ * Load generator for blocking queues with many idle consumers: a pool of
+ * {@code consumers} threads blocks in {@code take()} (then drains up to
+ * {@code batch - 1} more), and each invocation hands them {@code messages}
+ * messages and waits until all are consumed. Most of the cost is waking
+ * parked consumers, which is what tens of thousands of virtual-thread
+ * consumers on one queue do all day.
+ *
+ * <ul>
+ *   <li>{@code LinkedBlockingQueue}, {@code ArrayBlockingQueue}: one
+ *       {@code ReentrantLock} with {@code Condition}s; the linked one also
+ *       allocates a node per element.</li>
+ *   <li>{@code ParkingLinkedBlockingQueue}, {@code ParkingArrayBlockingQueue}:
+ *       lock-free storage, consumers parked on a waiter stack.</li>
+ * </ul>
+ * Bounded queues hold 1024 elements, so the producer blocks too.
+ *
+ * <p>{@code threads=virtual} needs JDK 21 or later (the build targets 17,
+ * so virtual threads are created reflectively):
+ * <pre>
+ * java -jar target/benchmarks.jar BlockingQueueBenchmark
+ * java -jar target/benchmarks.jar BlockingQueueBenchmark -p threads=platform,virtual
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BlockingQueueBenchmark {
+
+    @Param({"LinkedBlockingQueue", "ArrayBlockingQueue", "ParkingLinkedBlockingQueue", "ParkingArrayBlockingQueue"})
+    public String impl;
+
+    @Param({"platform"})
+    public String threads;
+
+    @Param({"100", "10000"})
+    public int consumers;
+
+    @Param({"1", "16"})
+    public int batch;
+
+    @Param({"10000"})
+    public int messages;
+
+    private BlockingQueue<Long> queue;
+    private final List<Thread> pool = new ArrayList<>();
+    private final AtomicLong consumed = new AtomicLong();
+    private volatile long target;
+    private volatile Thread producer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = switch (impl) {
+            case "LinkedBlockingQueue" -> new LinkedBlockingQueue<>();
+            case "ArrayBlockingQueue" -> new ArrayBlockingQueue<>(1024);
+            case "ParkingLinkedBlockingQueue" -> new ParkingLinkedBlockingQueue<>();
+            case "ParkingArrayBlockingQueue" -> new ParkingArrayBlockingQueue<>(1024);
+            default -> throw new IllegalArgumentException(impl);
+        };
+        ThreadFactory factory = switch (threads) {
+            case "platform" -> r -> {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                return t;
+            };
+            case "virtual" -> virtualThreads();
+            default -> throw new IllegalArgumentException(threads);
+        };
+        for (int i = 0; i < consumers; i++) {
+            Thread t = factory.newThread(this::consume);
+            pool.add(t);
+            t.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        for (Thread t : pool) {
+            t.interrupt();
+        }
+        for (Thread t : pool) {
+            t.join();
+        }
+        pool.clear();
+    }
+
+    private void consume() {
+        List<Long> drained = new ArrayList<>(batch);
+        try {
+            for (;;) {
+                queue.take();
+                int n = 1;
+                if (batch > 1) {
+                    drained.clear();
+                    n += queue.drainTo(drained, batch - 1);
+                }
+                if (consumed.addAndGet(n) == target) {
+                    LockSupport.unpark(producer);
+                }
+            }
+        } catch (InterruptedException e) {
+            // tear-down
+        }
+    }
+
+    @Benchmark
+    public long handOff() throws InterruptedException {
+        producer = Thread.currentThread();
+        long goal = consumed.get() + messages;
+        target = goal;
+        for (long i = 0; i < messages; i++) {
+            queue.put(i);
+        }
+        while (consumed.get() < goal) {
+            LockSupport.park(this);
+        }
+        return goal;
+    }
+
+    private static ThreadFactory virtualThreads() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need JDK 21 or later", e);
+        }
+    }
+}
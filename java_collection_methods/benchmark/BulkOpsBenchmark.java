@@ -0,0 +1,123 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import concurrent.BulkOps;
+
+/**
+ * {@link BulkOps} against the sequential JDK methods the examples use:
+ * {@code ArrayList.removeIf} ({@code CollectionExample}),
+ * {@code replaceAll} and {@code sort} ({@code ListExample}), and
+ * {@code Arrays.sort} for primitive keys.
+ *
+ * <p>Every invocation works on a fresh copy made in an untimed
+ * per-invocation setup. {@code threads=0} uses the common pool; on a machine
+ * with one core pass e.g. {@code -p threads=4} to measure the parallel
+ * algorithms (radix sort, split merges) without real parallelism.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar BulkOpsBenchmark -p size=10000000
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BulkOpsBenchmark {
+
+    @Param({"JDK", "BulkOps"})
+    public String impl;
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    @Param({"0"})
+    public int threads;
+
+    private BulkOps ops;
+    private String[] fruits;
+    private int[] intKeys;
+    private long[] longKeys;
+
+    private List<String> list;
+    private int[] ints;
+    private long[] longs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ops = threads == 0 ? BulkOps.common() : new BulkOps(new ForkJoinPool(threads));
+        SplittableRandom random = new SplittableRandom(42);
+        String[] names = {"Orange", "Apple", "Banana", "Olive", "Cherry"};
+        fruits = new String[size];
+        intKeys = new int[size];
+        longKeys = new long[size];
+        for (int i = 0; i < size; i++) {
+            fruits[i] = names[random.nextInt(names.length)] + "-" + random.nextInt(size);
+            intKeys[i] = random.nextInt();
+            longKeys[i] = random.nextLong();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        list = new ArrayList<>(Arrays.asList(fruits));
+        ints = intKeys.clone();
+        longs = longKeys.clone();
+    }
+
+    @Benchmark
+    public boolean removeIf() {
+        return impl.equals("JDK")
+                ? list.removeIf(f -> f.startsWith("O"))
+                : ops.removeIf(list, f -> f.startsWith("O"));
+    }
+
+    @Benchmark
+    public List<String> replaceAll() {
+        if (impl.equals("JDK")) {
+            list.replaceAll(String::toUpperCase);
+        } else {
+            ops.replaceAll(list, String::toUpperCase);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<String> sortStrings() {
+        if (impl.equals("JDK")) {
+            list.sort(null);
+        } else {
+            ops.sort(list, null);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public int[] sortInts() {
+        if (impl.equals("JDK")) {
+            Arrays.sort(ints);
+        } else {
+            ops.sort(ints);
+        }
+        return ints;
+    }
+
+    @Benchmark
+    public long[] sortLongs() {
+        if (impl.equals("JDK")) {
+            Arrays.sort(longs);
+        } else {
+            ops.sort(longs);
+        }
+        return longs;
+    }
+}
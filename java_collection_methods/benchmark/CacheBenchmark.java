@@ -0,0 +1,87 @@
+package benchmark;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cache throughput on the {@code zipf} trace of {@link CacheTraces}:
+ * {@link cache.BoundedCache} against the access-ordered
+ * {@code LinkedHashMap} LRU wrapped in {@code Collections.synchronizedMap},
+ * the thread-safe form of the map_implementations.md recipe (an
+ * access-ordered map reorders on every {@code get}, so even reads need the
+ * lock).
+ *
+ * <p>{@code getOrLoad}: {@code get}, then {@code put} on a miss, with the
+ * cache warmed by one pass over the trace; each thread replays the trace
+ * from its own offset. Hit rates per trace come from {@link CacheHitRate}.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar CacheBenchmark -t 8
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CacheBenchmark {
+
+    private static final int TRACE_LENGTH = 1 << 21;
+
+    @Param({"BoundedCache", "SynchronizedLru"})
+    public String impl;
+
+    @Param({"10000"})
+    public int size;
+
+    private Map<Integer, Integer> cache;
+    private Integer[] trace;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cache = switch (impl) {
+            case "BoundedCache" -> CacheHitRate.newCache("BoundedCache", size);
+            case "SynchronizedLru" -> Collections.synchronizedMap(CacheHitRate.newCache("LinkedHashMap LRU", size));
+            default -> throw new IllegalArgumentException(impl);
+        };
+        int[] keys = CacheTraces.trace("zipf", TRACE_LENGTH, size, 42);
+        trace = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            trace[i] = keys[i]; // boxed once, outside the measurement
+        }
+        for (Integer key : trace) {
+            getOrLoad(key);
+        }
+    }
+
+    /** Each thread replays the trace from its own offset. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup
+        public void setUp() {
+            next = (int) (Thread.currentThread().getId() * 0x9E3779B9L) & (TRACE_LENGTH - 1);
+        }
+    }
+
+    @Benchmark
+    public Integer getOrLoad(Cursor cursor) {
+        Integer key = trace[cursor.next];
+        cursor.next = (cursor.next + 1) & (TRACE_LENGTH - 1);
+        return getOrLoad(key);
+    }
+
+    private Integer getOrLoad(Integer key) {
+        Integer value = cache.get(key);
+        if (value == null) {
+            cache.put(key, key);
+            value = key;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import cache.BoundedCache;
+
+/**
+ * Replays the {@link CacheTraces} through {@link BoundedCache} and an
+ * access-ordered {@code LinkedHashMap} LRU of the same size (the
+ * map_implementations.md recipe) and prints a markdown table of hit rates.
+ * Every request is {@code get}, then {@code put} on a miss.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar benchmark.CacheHitRate [--sizes 1000,10000] [--requests 2000000]
+ * </pre>
+ */
+public class CacheHitRate {
+
+    private static final String[] IMPLS = {"BoundedCache", "LinkedHashMap LRU"};
+
+    public static void main(String[] args) {
+        int[] sizes = {1_000, 10_000, 100_000};
+        int requests = 2_000_000;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sizes" -> sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--requests" -> requests = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        StringBuilder md = new StringBuilder("| Trace | Cache size |");
+        for (String impl : IMPLS) {
+            md.append(' ').append(impl).append(" |");
+        }
+        md.append("\n| --- | --- |").append(" --- |".repeat(IMPLS.length)).append('\n');
+        for (String name : CacheTraces.NAMES) {
+            for (int size : sizes) {
+                int[] trace = CacheTraces.trace(name, requests, size, 42);
+                md.append("| ").append(name).append(" | ").append(size).append(" |");
+                for (String impl : IMPLS) {
+                    md.append(String.format(" %.1f%% |", 100 * hitRate(newCache(impl, size), trace)));
+                }
+                md.append('\n');
+            }
+        }
+        System.out.print(md);
+    }
+
+    static Map<Integer, Integer> newCache(String impl, int size) {
+        return switch (impl) {
+            case "BoundedCache" -> BoundedCache.builder().maximumSize(size).build();
+            case "LinkedHashMap LRU" -> new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                    return size() > size;
+                }
+            };
+            default -> throw new IllegalArgumentException(impl);
+        };
+    }
+
+    private static double hitRate(Map<Integer, Integer> cache, int[] trace) {
+        long hits = 0;
+        for (int key : trace) {
+            if (cache.get(key) != null) {
+                hits++;
+            } else {
+                cache.put(key, key);
+            }
+        }
+        return (double) hits / trace.length;
+    }
+}
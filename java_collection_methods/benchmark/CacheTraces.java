@@ -0,0 +1,82 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic access traces for the cache benchmarks: arrays of key ids in
+ * request order.
+ * <ul>
+ *   <li>{@code zipf}: skewed popularity (Zipf, exponent 0.99), the usual
+ *       model of web and database lookups.</li>
+ *   <li>{@code scan}: the same Zipf traffic interrupted by bursts of
+ *       one-off keys (a batch job, a crawler), each half the cache size and
+ *       together 20% of the requests.</li>
+ *   <li>{@code loop}: a key range 1.5× the cache size read round-robin,
+ *       where LRU always evicts the key needed next.</li>
+ * </ul>
+ */
+final class CacheTraces {
+
+    static final String[] NAMES = {"zipf", "scan", "loop"};
+
+    private static final int UNIVERSE = 1 << 20;
+    private static final double SKEW = 0.99;
+
+    private CacheTraces() {
+    }
+
+    static int[] trace(String name, int length, int cacheSize, long seed) {
+        return switch (name) {
+            case "zipf" -> zipf(length, seed);
+            case "scan" -> scan(length, cacheSize, seed);
+            case "loop" -> loop(length, cacheSize + cacheSize / 2);
+            default -> throw new IllegalArgumentException(name);
+        };
+    }
+
+    private static int[] zipf(int length, long seed) {
+        double[] cumulative = new double[UNIVERSE];
+        double sum = 0;
+        for (int i = 0; i < UNIVERSE; i++) {
+            sum += 1 / Math.pow(i + 1, SKEW);
+            cumulative[i] = sum;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] trace = new int[length];
+        for (int i = 0; i < length; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            int key = rank >= 0 ? rank : -rank - 1;
+            trace[i] = mix(key); // popular keys are not numerically adjacent
+        }
+        return trace;
+    }
+
+    private static int[] scan(int length, int cacheSize, long seed) {
+        int[] popular = zipf(length, seed);
+        int[] trace = new int[length];
+        int burst = Math.max(1, cacheSize / 2);
+        int oneOff = UNIVERSE; // beyond every Zipf key
+        for (int i = 0, p = 0; i < length; ) {
+            for (int j = 0; j < 4 * burst && i < length; j++) {
+                trace[i++] = popular[p++];
+            }
+            for (int j = 0; j < burst && i < length; j++) {
+                trace[i++] = mix(oneOff++);
+            }
+        }
+        return trace;
+    }
+
+    private static int[] loop(int length, int range) {
+        int[] trace = new int[length];
+        for (int i = 0; i < length; i++) {
+            trace[i] = mix(i % range);
+        }
+        return trace;
+    }
+
+    private static int mix(int key) {
+        return key * 0x9E3779B9; // a bijection on int
+    }
+}
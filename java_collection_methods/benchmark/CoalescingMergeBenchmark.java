@@ -0,0 +1,93 @@
+package benchmark;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import concurrent.CoalescingWriter;
+
+/**
+ * Counter merges from many threads, MapExample's
+ * {@code merge(key, 1, Long::sum)}: straight into a
+ * {@code ConcurrentHashMap}, or through a {@link CoalescingWriter} in front
+ * of the same map, which buffers {@code maxBatchSize} keys per thread and
+ * flushes every 10 ms.
+ *
+ * <p>{@code keys} is the number of distinct counters each thread picks
+ * from at random: 16 is a few hot counters, where direct merges contend on
+ * the same bins; 100 000 spreads them out, so a buffer coalesces less
+ * before it fills. Thread count is JMH's {@code -t};
+ * {@link CoalescingMergeScaling} runs 1 to 64 threads and prints a table:
+ * <pre>
+ * java -jar target/benchmarks.jar CoalescingMergeBenchmark -t 8
+ * java -cp target/benchmarks.jar benchmark.CoalescingMergeScaling
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CoalescingMergeBenchmark {
+
+    private static final Long ONE = 1L;
+
+    @Param({"ConcurrentHashMap", "CoalescingWriter"})
+    public String impl;
+
+    @Param({"16", "100000"})
+    public int keys;
+
+    @Param({"4096"})
+    public int maxBatchSize;
+
+    private ConcurrentHashMap<Integer, Long> map;
+    private CoalescingWriter<Integer, Long> writer;
+    private Keys elements;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = new ConcurrentHashMap<>();
+        elements = new Keys(keys);
+        if (impl.equals("CoalescingWriter")) {
+            writer = CoalescingWriter.builder()
+                    .maxBatchSize(maxBatchSize)
+                    .maxDelay(Duration.ofMillis(10))
+                    .build(map, Long::sum);
+        } else if (!impl.equals("ConcurrentHashMap")) {
+            throw new IllegalArgumentException(impl);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    /** Each thread walks its own random sequence over the shared keys. */
+    @State(Scope.Thread)
+    public static class Probe {
+        private SplittableRandom random;
+
+        @Setup
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    public void merge(Probe probe) {
+        Integer key = elements.element(probe.random.nextInt(keys));
+        if (writer != null) {
+            writer.merge(key, ONE);
+        } else {
+            map.merge(key, ONE, Long::sum);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package benchmark;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import immutable.CompactMap;
+import immutable.CompactSet;
+
+/**
+ * Read-only lookups in immutable collections: {@link CompactSet} /
+ * {@link CompactMap} (minimal perfect hash) against the JDK's
+ * {@code Set.copyOf} / {@code Map.copyOf} (ImmutableCollections, linear
+ * probing at load 0.5).
+ *
+ * <p>Keys are {@code "route-<i>"} strings, the config/routing-table case.
+ * Half of the probes are present and half are absent ({@code "miss-<i>"}).
+ * Probe strings are pre-built with their hash codes cached, so the numbers
+ * measure the table, not {@code String.hashCode()}.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar CompactCollectionsBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CompactCollectionsBenchmark {
+
+    private static final int PROBES = 1 << 12;
+
+    @Param({"Compact", "JDK"})
+    public String impl;
+
+    @Param({"10", "100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private Set<String> set;
+    private Map<String, Integer> map;
+    private final String[] probes = new String[PROBES];
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Set<String> keys = new HashSet<>(size * 2);
+        Map<String, Integer> entries = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            String key = "route-" + i;
+            keys.add(key);
+            entries.put(key, i);
+        }
+        switch (impl) {
+            case "Compact" -> {
+                set = CompactSet.copyOf(keys);
+                map = CompactMap.copyOf(entries);
+            }
+            case "JDK" -> {
+                set = Set.copyOf(keys);
+                map = Map.copyOf(entries);
+            }
+            default -> throw new IllegalArgumentException(impl);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < PROBES; i++) {
+            String probe = (i & 1) == 0 ? "route-" + random.nextInt(size) : "miss-" + random.nextInt(size);
+            probe.hashCode(); // cache it
+            probes[i] = probe;
+        }
+    }
+
+    private String nextProbe() {
+        String probe = probes[cursor];
+        cursor = (cursor + 1) & (PROBES - 1);
+        return probe;
+    }
+
+    @Benchmark
+    public boolean setContains() {
+        return set.contains(nextProbe());
+    }
+
+    @Benchmark
+    public Integer mapGet() {
+        return map.get(nextProbe());
+    }
+}
@@ -0,0 +1,143 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs {@link ListBenchmark}, {@link SetBenchmark} and {@link MapBenchmark}
+ * with the GC profiler and prints the measured counterpart of the
+ * "Quick Operation Complexity Summary" table from collection_framework.md:
+ * one time table (ns/op) and one allocation table (B/op and MB/s) per size.
+ *
+ * <pre>
+ * mvn -B package
+ * java -cp target/benchmarks.jar benchmark.ComplexityTable [--sizes 100,10000] [--quick] [--out results.md]
+ * </pre>
+ *
+ * {@code --quick} shortens warmup/measurement for a smoke run; the numbers are
+ * only meaningful for collection choices without it.
+ */
+public class ComplexityTable {
+
+    private static final String[] COLLECTIONS = {"ArrayList", "LinkedList", "HashSet", "TreeSet", "HashMap", "TreeMap"};
+
+    // benchmark method name -> row label used in collection_framework.md
+    private static final Map<String, String> OPERATIONS = new LinkedHashMap<>();
+
+    static {
+        OPERATIONS.put("add", "**add()**");
+        OPERATIONS.put("removeObject", "**remove(Object)**");
+        OPERATIONS.put("contains", "**contains()**");
+        OPERATIONS.put("getIndex", "**get(index)**");
+        OPERATIONS.put("getKey", "**get(key)**");
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String sizes = null;
+        boolean quick = false;
+        Path out = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sizes" -> sizes = args[++i];
+                case "--quick" -> quick = true;
+                case "--out" -> out = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(ListBenchmark.class.getSimpleName())
+                .include(SetBenchmark.class.getSimpleName())
+                .include(MapBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class);
+        if (sizes != null) {
+            options.param("size", sizes.split(","));
+        }
+        if (quick) {
+            options.warmupIterations(1).warmupTime(TimeValue.milliseconds(200))
+                    .measurementIterations(2).measurementTime(TimeValue.milliseconds(200));
+        }
+
+        Collection<RunResult> results = new Runner(options.build()).run();
+        String table = render(results);
+        if (out == null) {
+            System.out.print(table);
+        } else {
+            Files.writeString(out, table, StandardCharsets.UTF_8);
+            System.out.println("Wrote " + out.toAbsolutePath());
+        }
+    }
+
+    static String render(Collection<RunResult> results) {
+        // size -> "operation/collection" -> result
+        SortedMap<Integer, Map<String, RunResult>> bySize = new TreeMap<>();
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            String operation = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+            int size = Integer.parseInt(result.getParams().getParam("size"));
+            String impl = result.getParams().getParam("impl");
+            bySize.computeIfAbsent(size, s -> new HashMap<>()).put(operation + "/" + impl, result);
+        }
+
+        StringBuilder md = new StringBuilder();
+        for (Map.Entry<Integer, Map<String, RunResult>> entry : bySize.entrySet()) {
+            md.append("#### **n = ").append(String.format("%,d", entry.getKey())).append("**\n\n");
+            md.append("Time (ns/op):\n\n");
+            table(md, entry.getValue(), ComplexityTable::time);
+            md.append("\nAllocation (B/op · MB/s):\n\n");
+            table(md, entry.getValue(), ComplexityTable::allocation);
+            md.append('\n');
+        }
+        return md.toString();
+    }
+
+    private static void table(StringBuilder md, Map<String, RunResult> cells, Function<RunResult, String> cell) {
+        md.append("| Operation |");
+        for (String collection : COLLECTIONS) {
+            md.append(' ').append(collection).append(" |");
+        }
+        md.append("\n| --- |");
+        md.append(" --- |".repeat(COLLECTIONS.length)).append('\n');
+        for (Map.Entry<String, String> operation : OPERATIONS.entrySet()) {
+            md.append("| ").append(operation.getValue()).append(" |");
+            for (String collection : COLLECTIONS) {
+                RunResult result = cells.get(operation.getKey() + "/" + collection);
+                md.append(' ').append(result == null ? "N/A" : cell.apply(result)).append(" |");
+            }
+            md.append('\n');
+        }
+    }
+
+    private static String time(RunResult result) {
+        return format(result.getPrimaryResult().getScore());
+    }
+
+    private static String allocation(RunResult result) {
+        Result<?> norm = result.getSecondaryResults().get("gc.alloc.rate.norm");
+        Result<?> rate = result.getSecondaryResults().get("gc.alloc.rate");
+        if (norm == null || rate == null) {
+            return "?";
+        }
+        return format(norm.getScore()) + " · " + format(rate.getScore());
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "?";
+        }
+        return value >= 100 ? String.format("%,.0f", value) : String.format("%.1f", value);
+    }
+}
@@ -0,0 +1,120 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import concurrent.ChunkedCopyOnWriteList;
+
+/**
+ * Thread-safe lists at varying read/write ratios:
+ * {@link ChunkedCopyOnWriteList} against {@code CopyOnWriteArrayList}, which
+ * list_implementations.md recommends for read-heavy lists, and
+ * {@code Collections.synchronizedList(new ArrayList<>())}.
+ *
+ * <p>{@code mixed}: {@code writePercent}% of operations insert or remove
+ * (evenly) at a random index, so the list stays at about {@code size}; the
+ * rest {@code get} a random index. {@code iterate}/{@code write}: one group
+ * where three threads each sum the whole list while a fourth keeps replacing
+ * random elements ({@code writePercent} does not apply). {@code synchronizedList}
+ * iterates under its lock, as its documentation requires, and so stalls the
+ * writer.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar ConcurrentListBenchmark.mixed -t 4
+ * java -jar target/benchmarks.jar ConcurrentListBenchmark.iterate -p writePercent=0
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ConcurrentListBenchmark {
+
+    @Param({"ChunkedCopyOnWriteList", "CopyOnWriteArrayList", "synchronizedList"})
+    public String impl;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"0", "1", "10", "50"})
+    public int writePercent;
+
+    private List<Integer> list;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Integer> initial = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            initial.add(i);
+        }
+        list = switch (impl) {
+            case "ChunkedCopyOnWriteList" -> new ChunkedCopyOnWriteList<>(initial);
+            case "CopyOnWriteArrayList" -> new CopyOnWriteArrayList<>(initial);
+            case "synchronizedList" -> Collections.synchronizedList(new ArrayList<>(initial));
+            default -> throw new IllegalArgumentException(impl);
+        };
+    }
+
+    /** Each thread walks its own random sequence. */
+    @State(Scope.Thread)
+    public static class Probe {
+        private SplittableRandom random;
+
+        @Setup
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    public Integer mixed(Probe probe) {
+        SplittableRandom random = probe.random;
+        if (random.nextInt(100) >= writePercent) {
+            return list.get(random.nextInt(size / 2)); // removals keep at least size / 2 elements
+        }
+        try {
+            int n = list.size();
+            if (random.nextBoolean() || n < size / 2 + 64) {
+                list.add(random.nextInt(n + 1), n);
+                return n;
+            }
+            return list.remove(random.nextInt(n));
+        } catch (IndexOutOfBoundsException e) {
+            return null; // another thread removed meanwhile
+        }
+    }
+
+    @Benchmark
+    @Group("iterate")
+    @GroupThreads(3)
+    public long iterate() {
+        long sum = 0;
+        if (list instanceof ChunkedCopyOnWriteList<?> || list instanceof CopyOnWriteArrayList<?>) {
+            for (Integer v : list) {
+                sum += v;
+            }
+            return sum;
+        }
+        synchronized (list) {
+            for (Integer v : list) {
+                sum += v;
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @Group("iterate")
+    @GroupThreads(1)
+    public Integer write(Probe probe) {
+        return list.set(probe.random.nextInt(size), probe.random.nextInt());
+    }
+}
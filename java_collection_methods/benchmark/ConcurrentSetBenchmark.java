@@ -0,0 +1,108 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import concurrent.StripedHashSet;
+
+/**
+ * Contended set access: {@link StripedHashSet} against
+ * {@code ConcurrentHashMap.newKeySet()} and
+ * {@code Collections.synchronizedSet(new HashSet<>())}, the two options
+ * set_implementations.md recommends.
+ *
+ * <p>{@code contains}: read-only probes of a set of {@code size} elements.
+ * {@code mixed}: 90% {@code contains}, 5% {@code add}, 5% {@code remove} of
+ * random keys, so the set stays at about {@code size}. {@code bulkAddRemove}:
+ * {@code addAll} then {@code removeAll} of 100 000 fresh keys per call, the
+ * case where StripedHashSet partitions by stripe and uses fork-join.
+ *
+ * <p>Thread count is JMH's {@code -t}; {@link ConcurrentSetScaling} runs the
+ * whole 1–64 thread sweep and prints a table:
+ * <pre>
+ * java -jar target/benchmarks.jar ConcurrentSetBenchmark -t 8
+ * java -cp target/benchmarks.jar benchmark.ConcurrentSetScaling
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ConcurrentSetBenchmark {
+
+    static final int BULK = 100_000;
+
+    @Param({"StripedHashSet", "newKeySet", "synchronizedSet"})
+    public String impl;
+
+    @Param({"100000"})
+    public int size;
+
+    private Set<Integer> set;
+    private Keys keys;
+    private List<Integer> bulk;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        set = switch (impl) {
+            case "StripedHashSet" -> new StripedHashSet<>(size);
+            case "newKeySet" -> ConcurrentHashMap.newKeySet(size);
+            case "synchronizedSet" -> Collections.synchronizedSet(new HashSet<>(size));
+            default -> throw new IllegalArgumentException(impl);
+        };
+        keys = new Keys(2 * size);
+        for (int i = 0; i < size; i++) {
+            set.add(keys.element(2 * i)); // even keys present, odd keys absent
+        }
+        bulk = new ArrayList<>(BULK);
+        for (int i = 0; i < BULK; i++) {
+            bulk.add(-1 - i); // disjoint from the resident keys
+        }
+    }
+
+    /** Each thread walks its own random sequence over the shared keys. */
+    @State(Scope.Thread)
+    public static class Probe {
+        private SplittableRandom random;
+
+        @Setup
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    public boolean contains(Probe probe) {
+        return set.contains(keys.element(probe.random.nextInt(2 * size)));
+    }
+
+    @Benchmark
+    public boolean mixed(Probe probe) {
+        Integer key = keys.element(probe.random.nextInt(2 * size));
+        int op = probe.random.nextInt(20);
+        if (op == 0) {
+            return set.add(key);
+        }
+        if (op == 1) {
+            return set.remove(key);
+        }
+        return set.contains(key);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(2 * BULK)
+    public boolean bulkAddRemove() {
+        return set.addAll(bulk) & set.removeAll(bulk);
+    }
+}
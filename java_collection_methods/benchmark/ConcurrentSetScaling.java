@@ -0,0 +1,78 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the {@code contains} and {@code mixed} benchmarks of
+ * {@link ConcurrentSetBenchmark} at 1, 2, 4, … 64 threads and prints one
+ * markdown throughput table (ops/µs, higher is better) per benchmark.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar benchmark.ConcurrentSetScaling [--threads 1,4,16] [--quick]
+ * </pre>
+ */
+public class ConcurrentSetScaling {
+
+    private static final String[] IMPLS = {"StripedHashSet", "newKeySet", "synchronizedSet"};
+    private static final String[] BENCHMARKS = {"contains", "mixed"};
+
+    public static void main(String[] args) throws RunnerException {
+        int[] threads = {1, 2, 4, 8, 16, 32, 64};
+        boolean quick = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads" -> threads = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--quick" -> quick = true;
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        // benchmark -> threads -> impl -> ops/µs
+        Map<String, Map<Integer, Map<String, Double>>> scores = new TreeMap<>();
+        for (int t : threads) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(ConcurrentSetBenchmark.class.getSimpleName() + "\\.(" + String.join("|", BENCHMARKS) + ")$")
+                    .threads(t);
+            if (quick) {
+                options.warmupIterations(1).warmupTime(TimeValue.milliseconds(200))
+                        .measurementIterations(2).measurementTime(TimeValue.milliseconds(200));
+            }
+            Collection<RunResult> results = new Runner(options.build()).run();
+            for (RunResult result : results) {
+                String benchmark = result.getParams().getBenchmark();
+                scores.computeIfAbsent(benchmark.substring(benchmark.lastIndexOf('.') + 1), b -> new TreeMap<>())
+                        .computeIfAbsent(t, x -> new TreeMap<>())
+                        .put(result.getParams().getParam("impl"), result.getPrimaryResult().getScore());
+            }
+        }
+
+        StringBuilder md = new StringBuilder();
+        for (Map.Entry<String, Map<Integer, Map<String, Double>>> benchmark : scores.entrySet()) {
+            md.append("#### **").append(benchmark.getKey()).append("** (ops/µs)\n\n| Threads |");
+            for (String impl : IMPLS) {
+                md.append(' ').append(impl).append(" |");
+            }
+            md.append("\n| --- |").append(" --- |".repeat(IMPLS.length)).append('\n');
+            for (Map.Entry<Integer, Map<String, Double>> row : benchmark.getValue().entrySet()) {
+                md.append("| ").append(row.getKey()).append(" |");
+                for (String impl : IMPLS) {
+                    Double score = row.getValue().get(impl);
+                    md.append(' ').append(score == null ? "N/A" : String.format("%.1f", score)).append(" |");
+                }
+                md.append('\n');
+            }
+            md.append('\n');
+        }
+        System.out.print(md);
+    }
+}
@@ -0,0 +1,62 @@
+package benchmark;
+
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import map.DenseMap;
+
+/**
+ * Small coded keys: {@link DenseMap#forEnum} against {@code EnumMap}, the
+ * JDK's dense map for enums, and {@code HashMap}, keyed by the 16
+ * {@code ChronoUnit} constants.
+ *
+ * <p>{@code get} looks up a random unit; {@code merge} counts it with
+ * {@code merge(unit, 1, Integer::sum)}, MapExample's counting idiom.
+ * {@code DenseMap} should stay within a few nanoseconds of {@code EnumMap}:
+ * what it adds is the same layout for keys that are not enums.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DenseMapBenchmark {
+
+    private static final ChronoUnit[] UNITS = ChronoUnit.values();
+
+    @Param({"DenseMap", "EnumMap", "HashMap"})
+    public String impl;
+
+    private Map<ChronoUnit, Integer> map;
+    private Keys keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = switch (impl) {
+            case "DenseMap" -> DenseMap.forEnum(ChronoUnit.class);
+            case "EnumMap" -> new EnumMap<>(ChronoUnit.class);
+            case "HashMap" -> new HashMap<>();
+            default -> throw new IllegalArgumentException(impl);
+        };
+        for (ChronoUnit unit : UNITS) {
+            map.put(unit, 0);
+        }
+        keys = new Keys(UNITS.length);
+    }
+
+    @Benchmark
+    public Integer get() {
+        return map.get(UNITS[keys.nextIndex()]);
+    }
+
+    @Benchmark
+    public Integer merge() {
+        return map.merge(UNITS[keys.nextIndex()], 1, Integer::sum);
+    }
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import java.util.SplittableRandom;
+
+import probabilistic.BloomFilter;
+import probabilistic.CuckooFilter;
+import probabilistic.Hasher;
+import probabilistic.HyperLogLog;
+import probabilistic.MembershipFilter;
+
+/**
+ * Measures what the {@code probabilistic} structures promise and prints two
+ * markdown tables: for each filter, the bits per element and the
+ * false-positive rate predicted and measured over {@code --probes} absent
+ * keys; for {@link HyperLogLog}, the relative error of
+ * {@code cardinality()} at each precision, against its standard error.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar benchmark.FilterAccuracy [--size 1000000] [--probes 10000000]
+ * </pre>
+ */
+public class FilterAccuracy {
+
+    private static final int[] PRECISIONS = {10, 12, 14, 16};
+    private static final long[] CARDINALITIES = {100, 10_000, 1_000_000, 100_000_000};
+
+    public static void main(String[] args) {
+        int size = 1_000_000;
+        int probes = 10_000_000;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--size" -> size = Integer.parseInt(args[++i]);
+                case "--probes" -> probes = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        long[] keys = new SplittableRandom(42).longs(size).toArray();
+        StringBuilder md = new StringBuilder("| Filter | Bits per element | Expected fpp | Measured fpp |\n| --- | --- | --- | --- |\n");
+        row(md, "BloomFilter 1%", BloomFilter.create(Hasher.longs(), size, 0.01), keys, probes);
+        row(md, "BloomFilter 0.1%", BloomFilter.create(Hasher.longs(), size, 0.001), keys, probes);
+        row(md, "CuckooFilter", CuckooFilter.create(Hasher.longs(), size), keys, probes);
+
+        md.append("\n| Distinct |");
+        for (int p : PRECISIONS) {
+            md.append(" p=").append(p).append(String.format(" (SE %.2f%%) |", 104 / Math.sqrt(1 << p)));
+        }
+        md.append("\n| --- |").append(" --- |".repeat(PRECISIONS.length)).append('\n');
+        for (long n : CARDINALITIES) {
+            md.append("| ").append(n).append(" |");
+            for (int p : PRECISIONS) {
+                HyperLogLog<Long> sketch = new HyperLogLog<>(Hasher.longs(), p);
+                for (long i = 0; i < n; i++) {
+                    sketch.add(i);
+                }
+                md.append(String.format(" %+.2f%% |", 100.0 * (sketch.cardinality() - n) / n));
+            }
+            md.append('\n');
+        }
+        System.out.print(md);
+    }
+
+    private static void row(StringBuilder md, String name, MembershipFilter<Long> filter, long[] keys, int probes) {
+        for (long key : keys) {
+            filter.add(key);
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        long positives = 0;
+        for (int i = 0; i < probes; i++) {
+            positives += filter.mightContain(random.nextLong()) ? 1 : 0; // absent with overwhelming probability
+        }
+        md.append(String.format("| %s | %.1f | %.4f%% | %.4f%% |%n", name, (double) filter.bitSize() / keys.length,
+                100 * filter.expectedFpp(), 100.0 * positives / probes));
+    }
+}
@@ -0,0 +1,121 @@
+package benchmark;
+
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import probabilistic.BloomFilter;
+import probabilistic.CuckooFilter;
+import probabilistic.FilteredSet;
+import probabilistic.Hasher;
+import probabilistic.MembershipFilter;
+
+/**
+ * Lookups that are mostly negative, SetExample's {@code contains} against
+ * a large set: {@code hitPercent}% of the probes are present.
+ * <ul>
+ *   <li>{@code HashSet}, {@code TreeSet}: the set alone; {@code TreeSet}
+ *       stands for an expensive probe (a B-tree, a file, a remote set).</li>
+ *   <li>{@code BloomFilter} (1%), {@code CuckooFilter}: the filter alone,
+ *       the cost of a definite "absent".</li>
+ *   <li>{@code FilteredTreeSet}: a {@link FilteredSet} of the
+ *       {@code TreeSet} behind the Bloom filter, which probes the tree only
+ *       for hits and 1% of the misses.</li>
+ * </ul>
+ * {@link FilterAccuracy} prints the measured false-positive rates, and
+ * the {@code HyperLogLog} errors.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar FilterBenchmark -p size=10000000
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FilterBenchmark {
+
+    private static final int PROBES = 1 << 16;
+
+    @Param({"HashSet", "TreeSet", "BloomFilter", "CuckooFilter", "FilteredTreeSet"})
+    public String impl;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"10"})
+    public int hitPercent;
+
+    private Set<Long> set;
+    private final Long[] probes = new Long[PROBES];
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        long[] keys = random.longs(size).toArray();
+        set = switch (impl) {
+            case "HashSet" -> fill(new HashSet<>(2 * size), keys);
+            case "TreeSet" -> fill(new TreeSet<>(), keys);
+            case "BloomFilter" -> filterView(BloomFilter.create(Hasher.longs(), size, 0.01), keys);
+            case "CuckooFilter" -> filterView(CuckooFilter.create(Hasher.longs(), size), keys);
+            case "FilteredTreeSet" -> {
+                TreeSet<Long> tree = fill(new TreeSet<>(), keys);
+                yield new FilteredSet<>(tree, BloomFilter.copyOf(tree, Hasher.longs(), 0.01));
+            }
+            default -> throw new IllegalArgumentException(impl);
+        };
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = random.nextInt(100) < hitPercent ? keys[random.nextInt(size)] : random.nextLong();
+        }
+    }
+
+    private static <S extends Set<Long>> S fill(S set, long[] keys) {
+        for (long key : keys) {
+            set.add(key);
+        }
+        return set;
+    }
+
+    /** A set whose {@code contains} is the filter's {@code mightContain} alone. */
+    private static Set<Long> filterView(MembershipFilter<Long> filter, long[] keys) {
+        for (long key : keys) {
+            filter.add(key);
+        }
+        return new AbstractSet<>() {
+            @Override
+            public boolean contains(Object o) {
+                return filter.mightContain(o);
+            }
+
+            @Override
+            public Iterator<Long> iterator() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    private Long next() {
+        Long probe = probes[cursor];
+        cursor = (cursor + 1) & (PROBES - 1);
+        return probe;
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return set.contains(next());
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import primitive.IntArrayList;
+import primitive.LongArrayList;
+
+/**
+ * Retained heap size of {@code ArrayList<Integer>} / {@code ArrayList<Long>}
+ * versus {@link IntArrayList} / {@link LongArrayList} holding the same values,
+ * measured by walking the object graph with JOL.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar benchmark.FootprintComparison [sizes...]
+ * </pre>
+ *
+ * Values are distinct and outside the {@code Integer.valueOf} cache (-128..127),
+ * which is what production ids and counters look like. Every list is
+ * constructed with a capacity of exactly {@code n}, so it has no spare slots
+ * and only the per-element cost is compared.
+ */
+public class FootprintComparison {
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0
+                ? new int[] {1_000, 100_000, 10_000_000}
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.println("| Elements | ArrayList<Integer> | IntArrayList | ArrayList<Long> | LongArrayList |");
+        System.out.println("| -------- | ------------------ | ------------ | --------------- | ------------- |");
+        for (int n : sizes) {
+            ArrayList<Integer> boxedInts = new ArrayList<>(n);
+            IntArrayList ints = new IntArrayList(n);
+            ArrayList<Long> boxedLongs = new ArrayList<>(n);
+            LongArrayList longs = new LongArrayList(n);
+            for (int i = 0; i < n; i++) {
+                int value = 1_000 + i;
+                boxedInts.add(value);
+                ints.add(value);
+                boxedLongs.add((long) value);
+                longs.add(value);
+            }
+            System.out.printf("| %,d | %s | %s | %s | %s |%n", n,
+                    size(boxedInts), size(ints), size(boxedLongs), size(longs));
+        }
+    }
+
+    private static String size(Object root) {
+        long bytes = GraphLayout.parseInstance(root).totalSize();
+        int n = root instanceof List ? ((List<?>) root).size()
+                : root instanceof IntArrayList ? ((IntArrayList) root).size() : ((LongArrayList) root).size();
+        return String.format("%s (%.1f B/elem)", human(bytes), (double) bytes / n);
+    }
+
+    private static String human(long bytes) {
+        if (bytes >= 1 << 20) {
+            return String.format("%.1f MB", bytes / (double) (1 << 20));
+        }
+        if (bytes >= 1 << 10) {
+            return String.format("%.1f KB", bytes / (double) (1 << 10));
+        }
+        return bytes + " B";
+    }
+}
@@ -0,0 +1,76 @@
+package benchmark;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import instrument.Instrumented;
+
+/**
+ * Cost of {@link Instrumented} decorators on the cheapest operations they
+ * wrap: {@code HashMap.get}, a {@code put}/{@code remove} pair that keeps
+ * the map at {@code size}, and an {@code ArrayDeque} offer/poll pair.
+ * {@code impl=Plain} is the bare collection.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar InstrumentedBenchmark
+ * java -jar target/benchmarks.jar InstrumentedBenchmark -jvmArgsAppend -Dinstrument.sampleInterval=1
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class InstrumentedBenchmark {
+
+    @Param({"Plain", "Instrumented"})
+    public String impl;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private Map<Integer, Integer> map;
+    private Queue<Integer> queue;
+    private Keys keys;
+    private Integer extra;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = new HashMap<>();
+        queue = new ArrayDeque<>();
+        if (impl.equals("Instrumented")) {
+            map = Instrumented.wrap(map, "InstrumentedBenchmark.map");
+            queue = Instrumented.wrap(queue, "InstrumentedBenchmark.queue");
+        }
+        keys = new Keys(size);
+        for (int i = 0; i < size; i++) {
+            Integer key = keys.element(i);
+            map.put(key, key);
+            queue.offer(key);
+        }
+        extra = size;
+    }
+
+    @Benchmark
+    public Integer get() {
+        return map.get(keys.nextElement());
+    }
+
+    @Benchmark
+    public Integer putRemove() {
+        map.put(extra, extra);
+        return map.remove(extra);
+    }
+
+    @Benchmark
+    public Integer offerPoll() {
+        queue.offer(keys.nextElement());
+        return queue.poll();
+    }
+}
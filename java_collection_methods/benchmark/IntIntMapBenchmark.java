@@ -0,0 +1,79 @@
+package benchmark;
+
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import primitive.IntIntMap;
+
+/**
+ * {@code HashMap<Integer, Integer>} versus {@link IntIntMap}: {@code get} and
+ * the counter update {@code merge(key, 1, Integer::sum)} at load factors
+ * 0.5–0.9. Keys are random ints, so HashMap also boxes every key on lookup
+ * outside the {@code Integer} cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class IntIntMapBenchmark {
+
+    private static final int PROBES = 1 << 12;
+
+    @Param({"HashMap", "IntIntMap"})
+    public String impl;
+
+    @Param({"0.5", "0.6", "0.7", "0.8", "0.9"})
+    public float loadFactor;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private HashMap<Integer, Integer> hashMap;
+    private IntIntMap intIntMap;
+    private int[] hits;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        int[] keys = random.ints(size).toArray();
+        if (impl.equals("HashMap")) {
+            hashMap = new HashMap<>((int) (size / loadFactor) + 1, loadFactor);
+            for (int key : keys) {
+                hashMap.put(key, 0);
+            }
+        } else {
+            intIntMap = new IntIntMap(size, loadFactor);
+            for (int key : keys) {
+                intIntMap.put(key, 0);
+            }
+        }
+        hits = new int[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            hits[i] = keys[random.nextInt(size)];
+        }
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (cursor + 1) & (PROBES - 1);
+        return i;
+    }
+
+    @Benchmark
+    public int get() {
+        int key = hits[next()];
+        return hashMap != null ? hashMap.get(key) : intIntMap.get(key);
+    }
+
+    @Benchmark
+    public int mergeCounter() {
+        int key = hits[next()];
+        return hashMap != null ? hashMap.merge(key, 1, Integer::sum) : intIntMap.merge(key, 1, Integer::sum);
+    }
+}
@@ -0,0 +1,148 @@
+package benchmark;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import primitive.IntSet;
+
+/**
+ * {@link IntSet} against {@code HashSet<Integer>} for the set algebra of
+ * {@code SetExample}/{@code CollectionExample}. Each set holds {@code size}
+ * random ids. {@code HashSet} computes an intersection with
+ * {@code new HashSet<>(a)} and {@code retainAll(b)}, the other operations
+ * likewise; {@code andCardinality} iterates the first set and probes the
+ * second.
+ *
+ * <p>{@code distribution}:
+ * <ul>
+ *   <li>{@code sparse}: ids spread over {@code [0, 2^30)}, a few per
+ *       65,536-id chunk (array containers);</li>
+ *   <li>{@code dense}: ids from {@code [0, 2 * size)}, half of each chunk
+ *       (bitmap containers);</li>
+ *   <li>{@code clustered}: blocks of 1,000 consecutive ids (run
+ *       containers).</li>
+ * </ul>
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar IntSetBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class IntSetBenchmark {
+
+    @Param({"HashSet", "IntSet"})
+    public String impl;
+
+    @Param({"sparse", "dense", "clustered"})
+    public String distribution;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private Set<Integer> hashA;
+    private Set<Integer> hashB;
+    private IntSet intA;
+    private IntSet intB;
+    private int[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        intA = generate(random);
+        intB = generate(random);
+        hashA = new HashSet<>(intA);
+        hashB = new HashSet<>(intB);
+        probes = new int[1 << 16];
+        int[] values = intA.toIntArray();
+        for (int i = 0; i < probes.length; i++) {
+            // half hits, half misses from the same range
+            probes[i] = i % 2 == 0 ? values[random.nextInt(values.length)] : values[random.nextInt(values.length)] + 1;
+        }
+    }
+
+    private IntSet generate(SplittableRandom random) {
+        IntSet set = new IntSet();
+        switch (distribution) {
+            case "sparse" -> {
+                while (set.size() < size) {
+                    set.add(random.nextInt(1 << 30));
+                }
+            }
+            case "dense" -> {
+                while (set.size() < size) {
+                    set.add(random.nextInt(2 * size));
+                }
+            }
+            case "clustered" -> {
+                while (set.size() < size) {
+                    int start = random.nextInt(20 * size) / 1000 * 1000;
+                    set.addRange(start, start + 1000);
+                }
+            }
+            default -> throw new IllegalArgumentException(distribution);
+        }
+        set.runOptimize();
+        return set;
+    }
+
+    @Benchmark
+    public int and() {
+        if (impl.equals("HashSet")) {
+            Set<Integer> result = new HashSet<>(hashA);
+            result.retainAll(hashB);
+            return result.size();
+        }
+        return IntSet.and(intA, intB).size();
+    }
+
+    @Benchmark
+    public int or() {
+        if (impl.equals("HashSet")) {
+            Set<Integer> result = new HashSet<>(hashA);
+            result.addAll(hashB);
+            return result.size();
+        }
+        return IntSet.or(intA, intB).size();
+    }
+
+    @Benchmark
+    public int andNot() {
+        if (impl.equals("HashSet")) {
+            Set<Integer> result = new HashSet<>(hashA);
+            result.removeAll(hashB);
+            return result.size();
+        }
+        return IntSet.andNot(intA, intB).size();
+    }
+
+    @Benchmark
+    public long andCardinality() {
+        if (impl.equals("HashSet")) {
+            long n = 0;
+            for (Integer v : hashA) {
+                if (hashB.contains(v)) {
+                    n++;
+                }
+            }
+            return n;
+        }
+        return IntSet.andCardinality(intA, intB);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean contains() {
+        int probe = probes[next++ & (probes.length - 1)];
+        return impl.equals("HashSet") ? hashA.contains(probe) : intA.contains(probe);
+    }
+}
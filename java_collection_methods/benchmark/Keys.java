@@ -0,0 +1,46 @@
+package benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * Pre-boxed elements and a pre-computed random probe sequence shared by the
+ * benchmarks, so neither boxing nor random number generation shows up in
+ * the measured ns/op or allocation rate.
+ */
+final class Keys {
+
+    private static final int PROBES = 1 << 12;
+    private static final long SEED = 42L;
+
+    private final Integer[] elements;
+    private final int[] probes = new int[PROBES];
+    private int cursor;
+
+    Keys(int size) {
+        elements = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            elements[i] = i;
+        }
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = random.nextInt(size);
+        }
+    }
+
+    /** The i-th element; the same instance every time. */
+    Integer element(int i) {
+        return elements[i];
+    }
+
+    /** A uniformly random index in {@code [0, size)}. */
+    int nextIndex() {
+        int index = probes[cursor];
+        cursor = (cursor + 1) & (PROBES - 1);
+        return index;
+    }
+
+    /** A uniformly random element that is present in the collection. */
+    Integer nextElement() {
+        return elements[nextIndex()];
+    }
+}
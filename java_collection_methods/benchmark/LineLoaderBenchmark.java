@@ -0,0 +1,126 @@
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import ingest.LineLoader;
+import primitive.IntArrayList;
+
+/**
+ * {@link LineLoader} against the usual startup loop, a
+ * {@code BufferedReader.readLine()} per line plus {@code split} and
+ * {@code Integer.parseInt}, over a generated CSV file of {@code lines}
+ * records {@code name,quantity,price} (about 30 bytes each) with
+ * {@code distinctKeys} different names.
+ *
+ * <p>The file is written once per trial and is then in the page cache, so
+ * this measures parsing and collection building, not the disk; on a cold
+ * cache both sides wait for the device and the loader's advantage is
+ * keeping several chunk reads in flight. {@code dedup} switches the loader to
+ * {@link LineLoader.Dedup#LOAD}, which also makes its result much smaller
+ * when names repeat (see {@code -prof gc}).
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar LineLoaderBenchmark -p lines=10000000
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LineLoaderBenchmark {
+
+    @Param({"BufferedReader", "LineLoader"})
+    public String impl;
+
+    @Param({"1000000"})
+    public int lines;
+
+    @Param({"10000"})
+    public int distinctKeys;
+
+    @Param({"false", "true"})
+    public boolean dedup;
+
+    private Path file;
+    private LineLoader loader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("line-loader", ".csv");
+        SplittableRandom random = new SplittableRandom(42);
+        String[] names = {"Orange", "Apple", "Banana", "Olive", "Cherry"};
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < lines; i++) {
+                out.write(names[random.nextInt(names.length)] + "-" + random.nextInt(distinctKeys)
+                        + "," + random.nextInt(1000) + "," + random.nextLong(1_000_000_000L) + "\n");
+            }
+        }
+        loader = LineLoader.builder().dedup(dedup ? LineLoader.Dedup.LOAD : LineLoader.Dedup.NONE).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    /** Every line as a {@code String}. */
+    @Benchmark
+    public List<String> lines() throws IOException {
+        if (impl.equals("LineLoader")) {
+            return loader.lines(file);
+        }
+        List<String> result = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file)) {
+            for (String line; (line = in.readLine()) != null; ) {
+                result.add(line);
+            }
+        }
+        return result;
+    }
+
+    /** {@code name -> quantity}. */
+    @Benchmark
+    public Map<String, Integer> map() throws IOException {
+        if (impl.equals("LineLoader")) {
+            return loader.map(file, line -> line.field(0), line -> line.intField(1));
+        }
+        Map<String, Integer> result = new HashMap<>();
+        try (BufferedReader in = Files.newBufferedReader(file)) {
+            for (String line; (line = in.readLine()) != null; ) {
+                String[] fields = line.split(",");
+                result.put(fields[0], Integer.parseInt(fields[1]));
+            }
+        }
+        return result;
+    }
+
+    /** The quantity column, unboxed. */
+    @Benchmark
+    public IntArrayList ints() throws IOException {
+        if (impl.equals("LineLoader")) {
+            return loader.ints(file, line -> line.intField(1));
+        }
+        IntArrayList result = new IntArrayList();
+        try (BufferedReader in = Files.newBufferedReader(file)) {
+            for (String line; (line = in.readLine()) != null; ) {
+                int from = line.indexOf(',') + 1;
+                result.add(Integer.parseInt(line, from, line.indexOf(',', from), 10));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,73 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the List rows of the "Quick Operation Complexity Summary" table
+ * (collection_framework.md) for ArrayList and LinkedList.
+ *
+ * <p>Every mutating benchmark undoes its own change so the list stays at
+ * {@code size} elements for the whole run:
+ * <ul>
+ *   <li>{@code add} appends one element and removes it from the tail again.</li>
+ *   <li>{@code removeObject} removes a random existing element and appends it back.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ListBenchmark {
+
+    @Param({"ArrayList", "LinkedList"})
+    public String impl;
+
+    @Param({"100", "1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private List<Integer> list;
+    private Keys keys;
+    private Integer extra;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = impl.equals("ArrayList") ? new ArrayList<>() : new LinkedList<>();
+        keys = new Keys(size);
+        for (int i = 0; i < size; i++) {
+            list.add(keys.element(i));
+        }
+        extra = size; // not already in the list, pre-boxed so add() does not allocate it
+    }
+
+    @Benchmark
+    public boolean add() {
+        boolean added = list.add(extra);
+        list.remove(list.size() - 1);
+        return added;
+    }
+
+    @Benchmark
+    public boolean removeObject() {
+        Integer victim = keys.nextElement();
+        boolean removed = list.remove(victim);
+        list.add(victim);
+        return removed;
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return list.contains(keys.nextElement());
+    }
+
+    @Benchmark
+    public Integer getIndex() {
+        return list.get(keys.nextIndex());
+    }
+}
@@ -0,0 +1,111 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import list.GapList;
+
+/**
+ * Replays the {@code ListIteratorExample} editing patterns over a whole list:
+ * each invocation is one full pass with a single {@code ListIterator}.
+ * <ul>
+ *   <li>{@code removeWhileIterating}: remove every "B" and "D" (use case 6C).</li>
+ *   <li>{@code addAfterEach}: insert "Orange" after every "Apple" (the add demo).</li>
+ *   <li>{@code addSetRemove}: next/add, next/set, next/remove around every
+ *       "Apple" (the modification demo, size unchanged).</li>
+ *   <li>{@code iterate}: read-only pass, to show what the gap costs readers.</li>
+ * </ul>
+ *
+ * <p>Each pass rebuilds the list in an untimed per-invocation setup, so the
+ * mode is single-shot. With {@code ArrayList} at 1,000,000 elements a
+ * removing pass takes tens of seconds:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar ListIteratorBenchmark -p size=100000
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ListIteratorBenchmark {
+
+    private static final String[] PATTERN = {"Apple", "B", "Cherry", "D", "E"};
+
+    @Param({"ArrayList", "LinkedList", "GapList"})
+    public String impl;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private List<String> list;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        list = switch (impl) {
+            case "ArrayList" -> new ArrayList<>(size);
+            case "LinkedList" -> new LinkedList<>();
+            case "GapList" -> new GapList<>(size);
+            default -> throw new IllegalArgumentException(impl);
+        };
+        for (int i = 0; i < size; i++) {
+            list.add(PATTERN[i % PATTERN.length]);
+        }
+    }
+
+    @Benchmark
+    public List<String> removeWhileIterating() {
+        ListIterator<String> it = list.listIterator();
+        while (it.hasNext()) {
+            String item = it.next();
+            if (item.equals("B") || item.equals("D")) {
+                it.remove();
+            }
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<String> addAfterEach() {
+        ListIterator<String> it = list.listIterator();
+        while (it.hasNext()) {
+            if (it.next().equals("Apple")) {
+                it.add("Orange");
+            }
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<String> addSetRemove() {
+        ListIterator<String> it = list.listIterator();
+        while (it.hasNext()) {
+            if (it.next().equals("Apple")) {
+                it.add("Orange");
+                it.next();
+                it.set("Mango");
+                it.next();
+                it.remove();
+            }
+        }
+        return list;
+    }
+
+    @Benchmark
+    public int iterate() {
+        int apples = 0;
+        for (String item : list) {
+            if (item.equals("Apple")) {
+                apples++;
+            }
+        }
+        return apples;
+    }
+}
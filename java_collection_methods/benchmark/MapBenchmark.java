@@ -0,0 +1,73 @@
+package benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the Map rows of the "Quick Operation Complexity Summary" table
+ * (collection_framework.md) for HashMap and TreeMap. In the table
+ * {@code add} is {@code put} of a new key and {@code contains} is
+ * {@code containsKey}.
+ *
+ * <p>{@code add} puts an absent key and removes it again;
+ * {@code removeObject} removes a present key and puts it back, so the map
+ * stays at {@code size} entries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MapBenchmark {
+
+    @Param({"HashMap", "TreeMap"})
+    public String impl;
+
+    @Param({"100", "1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Map<Integer, Integer> map;
+    private Keys keys;
+    private Integer extra;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = impl.equals("HashMap") ? new HashMap<>() : new TreeMap<>();
+        keys = new Keys(size);
+        for (int i = 0; i < size; i++) {
+            Integer key = keys.element(i);
+            map.put(key, key);
+        }
+        extra = size;
+    }
+
+    @Benchmark
+    public Integer add() {
+        Integer previous = map.put(extra, extra);
+        map.remove(extra);
+        return previous;
+    }
+
+    @Benchmark
+    public Integer removeObject() {
+        Integer victim = keys.nextElement();
+        Integer removed = map.remove(victim);
+        map.put(victim, victim);
+        return removed;
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return map.containsKey(keys.nextElement());
+    }
+
+    @Benchmark
+    public Integer getKey() {
+        return map.get(keys.nextElement());
+    }
+}
@@ -0,0 +1,101 @@
+package benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import offheap.MappedDeque;
+import offheap.Serializer;
+
+/**
+ * {@link MappedDeque} against {@code ArrayDeque<String>} holding the same
+ * backlog of {@code backlog} 32-character strings.
+ *
+ * <p>{@code addLastPollFirst}: FIFO hand-off, one append and one poll.
+ * {@code pushPop}: LIFO at the head. {@code burst}: append 1 000 then drain
+ * them, which crosses segment boundaries on the mapped deque. With
+ * {@code -prof gc} the heap column shows the point of the off-heap deque:
+ * its live heap does not grow with the backlog.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar MappedDequeBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MappedDequeBenchmark {
+
+    private static final int BURST = 1000;
+    private static final String ELEMENT = "0123456789abcdef0123456789abcdef";
+
+    @Param({"MappedDeque", "ArrayDeque"})
+    public String impl;
+
+    @Param({"0", "1000000"})
+    public int backlog;
+
+    private Path directory;
+    private Deque<String> deque;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        switch (impl) {
+            case "MappedDeque" -> {
+                directory = Files.createTempDirectory("mapped-deque");
+                deque = MappedDeque.open(directory, Serializer.utf8(), 1 << 20);
+            }
+            case "ArrayDeque" -> deque = new ArrayDeque<>();
+            default -> throw new IllegalArgumentException(impl);
+        }
+        for (int i = 0; i < backlog; i++) {
+            deque.addLast(ELEMENT);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (deque instanceof MappedDeque<String> mapped) {
+            mapped.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(p);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public String addLastPollFirst() {
+        deque.addLast(ELEMENT);
+        return deque.pollFirst();
+    }
+
+    @Benchmark
+    public String pushPop() {
+        deque.push(ELEMENT);
+        return deque.pop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void burst(Blackhole bh) {
+        for (int i = 0; i < BURST; i++) {
+            deque.addLast(ELEMENT);
+        }
+        for (int i = 0; i < BURST; i++) {
+            bh.consume(deque.pollLast());
+        }
+    }
+}
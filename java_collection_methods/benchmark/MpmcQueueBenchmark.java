@@ -0,0 +1,129 @@
+package benchmark;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import concurrent.MpmcArrayQueue;
+
+/**
+ * Multi-threaded queue hand-off: {@link MpmcArrayQueue} against
+ * {@code ArrayBlockingQueue}, {@code ConcurrentLinkedQueue} and the
+ * QueueExample {@code LinkedList} behind a lock.
+ *
+ * <p>{@code offerPoll}: every thread offers one element and polls one, so the
+ * queue stays short and producers and consumers contend on both ends. Vary
+ * the thread count with {@code -t}. {@code batch}: the same hand-off 32
+ * elements at a time, through {@code offerAll}/{@code drainTo} for the ring
+ * buffer and {@code addAll}/{@code poll} loops for the others.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar MpmcQueueBenchmark -t 4 -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MpmcQueueBenchmark {
+
+    private static final int CAPACITY = 1 << 14;
+    private static final int BATCH = 32;
+    private static final Integer ELEMENT = 42;
+
+    @Param({"MpmcArrayQueue", "ArrayBlockingQueue", "ConcurrentLinkedQueue", "SynchronizedLinkedList"})
+    public String impl;
+
+    private Queue<Integer> queue;
+    private MpmcArrayQueue<Integer> ring;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ring = null;
+        switch (impl) {
+            case "MpmcArrayQueue" -> queue = ring = new MpmcArrayQueue<>(CAPACITY);
+            case "ArrayBlockingQueue" -> queue = new ArrayBlockingQueue<>(CAPACITY);
+            case "ConcurrentLinkedQueue" -> queue = new ConcurrentLinkedQueue<>();
+            case "SynchronizedLinkedList" -> queue = new SynchronizedQueue<>(new LinkedList<>());
+            default -> throw new IllegalArgumentException(impl);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Batch {
+        final List<Integer> out = Collections.nCopies(BATCH, ELEMENT);
+        final List<Integer> in = new ArrayList<>(BATCH);
+    }
+
+    @Benchmark
+    public Integer offerPoll() {
+        queue.offer(ELEMENT);
+        return queue.poll();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void batch(Batch batch, Blackhole bh) {
+        batch.in.clear();
+        if (ring != null) {
+            ring.offerAll(batch.out);
+            ring.drainTo(batch.in, BATCH);
+        } else {
+            queue.addAll(batch.out);
+            for (int i = 0; i < BATCH; i++) {
+                Integer e = queue.poll();
+                if (e == null) {
+                    break;
+                }
+                batch.in.add(e);
+            }
+        }
+        bh.consume(batch.in);
+    }
+
+    /** QueueExample's LinkedList made thread-safe the simple way: one lock around every call. */
+    static final class SynchronizedQueue<E> extends AbstractQueue<E> {
+        private final Queue<E> delegate;
+
+        SynchronizedQueue(Queue<E> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized boolean offer(E e) {
+            return delegate.offer(e);
+        }
+
+        @Override
+        public synchronized E poll() {
+            return delegate.poll();
+        }
+
+        @Override
+        public synchronized E peek() {
+            return delegate.peek();
+        }
+
+        @Override
+        public synchronized int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
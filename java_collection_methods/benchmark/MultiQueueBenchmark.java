@@ -0,0 +1,69 @@
+package benchmark;
+
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import concurrent.MultiQueue;
+
+/**
+ * A shared scheduler queue under contention: each operation offers a task
+ * with a random priority and polls the most urgent one, so the queue stays
+ * at {@code size}. {@link MultiQueue} (relaxed order, one lock per internal
+ * heap) against {@code PriorityBlockingQueue} (exact order, one lock).
+ * Thread count is JMH's {@code -t}; with one thread this measures the cost
+ * of the relaxation, with several the contention it avoids.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar MultiQueueBenchmark -t 4
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MultiQueueBenchmark {
+
+    @Param({"MultiQueue", "PriorityBlockingQueue"})
+    public String impl;
+
+    @Param({"10000"})
+    public int size;
+
+    private Queue<Long> queue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = switch (impl) {
+            case "MultiQueue" -> new MultiQueue<>();
+            case "PriorityBlockingQueue" -> new PriorityBlockingQueue<>();
+            default -> throw new IllegalArgumentException(impl);
+        };
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < size; i++) {
+            queue.offer(random.nextLong());
+        }
+    }
+
+    /** Each thread draws its own priorities. */
+    @State(Scope.Thread)
+    public static class Producer {
+        private SplittableRandom random;
+
+        @Setup
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    public Long offerPoll(Producer producer) {
+        queue.offer(producer.random.nextLong());
+        return queue.poll();
+    }
+}
@@ -0,0 +1,93 @@
+package benchmark;
+
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import primitive.ObjectIntMap;
+
+/**
+ * {@code HashMap<String, Integer>} versus {@link ObjectIntMap} for the
+ * MapExample workload: {@code get}, {@code getOrDefault} on a missing key, and
+ * the counter update {@code merge(key, 1, Integer::sum)}, at load factors
+ * 0.5–0.9. Run with {@code -prof gc} to see the per-merge {@code Integer}
+ * allocation HashMap pays and ObjectIntMap does not.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ObjectIntMapBenchmark {
+
+    private static final int PROBES = 1 << 12;
+
+    @Param({"HashMap", "ObjectIntMap"})
+    public String impl;
+
+    @Param({"0.5", "0.6", "0.7", "0.8", "0.9"})
+    public float loadFactor;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private HashMap<String, Integer> hashMap;
+    private ObjectIntMap<String> objectIntMap;
+    private String[] hits;
+    private String[] misses;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "key-" + i;
+        }
+        // presized exactly to size so the load factor, not growth slack, sets the fill
+        if (impl.equals("HashMap")) {
+            hashMap = new HashMap<>((int) (size / loadFactor) + 1, loadFactor);
+            for (String key : keys) {
+                hashMap.put(key, 0);
+            }
+        } else {
+            objectIntMap = new ObjectIntMap<>(size, loadFactor);
+            for (String key : keys) {
+                objectIntMap.put(key, 0);
+            }
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        hits = new String[PROBES];
+        misses = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            hits[i] = keys[random.nextInt(size)];
+            misses[i] = "miss-" + random.nextInt(size);
+        }
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (cursor + 1) & (PROBES - 1);
+        return i;
+    }
+
+    @Benchmark
+    public int get() {
+        String key = hits[next()];
+        return hashMap != null ? hashMap.get(key) : objectIntMap.get(key);
+    }
+
+    @Benchmark
+    public int getOrDefaultMiss() {
+        String key = misses[next()];
+        return hashMap != null ? hashMap.getOrDefault(key, -1) : objectIntMap.getOrDefault(key, -1);
+    }
+
+    @Benchmark
+    public int mergeCounter() {
+        String key = hits[next()];
+        return hashMap != null ? hashMap.merge(key, 1, Integer::sum) : objectIntMap.merge(key, 1, Integer::sum);
+    }
+}
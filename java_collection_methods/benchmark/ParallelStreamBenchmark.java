@@ -0,0 +1,116 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import split.Splitters;
+
+/**
+ * A parallel stream over {@code size} elements on a pool of
+ * {@code parallelism} threads, with {@code work} units of
+ * {@link Blackhole#consumeCPU} per element (about 1 ns each), through
+ * each collection's own spliterator or one from {@link Splitters}:
+ * <ul>
+ *   <li>{@code default}: {@code collection.spliterator()};</li>
+ *   <li>{@code balanced}: {@link Splitters#of};</li>
+ *   <li>{@code snapshot}: {@link Splitters#snapshot}.</li>
+ * </ul>
+ * {@code ArrayList} is the reference: its own spliterator already halves
+ * evenly. The maps stream {@code entrySet()}, as MapExample's scans do;
+ * {@code ConcurrentLinkedQueue} stands for QueueExample-style iteration.
+ * {@link ParallelStreamScaling} runs this at 1 to N threads.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar ParallelStreamBenchmark -p parallelism=4
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ParallelStreamBenchmark {
+
+    @Param({"ArrayList", "LinkedList", "ConcurrentLinkedQueue", "LinkedHashMap", "TreeMap"})
+    public String source;
+
+    @Param({"default", "balanced", "snapshot"})
+    public String spliterator;
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"1"})
+    public int parallelism;
+
+    @Param({"50"})
+    public int work;
+
+    private Collection<?> elements;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        elements = switch (source) {
+            case "ArrayList" -> fill(new ArrayList<>(size));
+            case "LinkedList" -> fill(new LinkedList<>());
+            case "ConcurrentLinkedQueue" -> fill(new ConcurrentLinkedQueue<>());
+            case "LinkedHashMap" -> fill(new LinkedHashMap<>()).entrySet();
+            case "TreeMap" -> fill(new TreeMap<>()).entrySet();
+            default -> throw new IllegalArgumentException(source);
+        };
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    private Collection<Integer> fill(Collection<Integer> c) {
+        for (int i = 0; i < size; i++) {
+            c.add(i);
+        }
+        return c;
+    }
+
+    private Map<Integer, Integer> fill(Map<Integer, Integer> m) {
+        for (int i = 0; i < size; i++) {
+            m.put(i, i);
+        }
+        return m;
+    }
+
+    @Benchmark
+    public long sum() {
+        // created inside the pool, so Splitters sizes its batches for this pool
+        return pool.submit(() -> StreamSupport.stream(spliterator(elements), true)
+                .mapToLong(e -> {
+                    Blackhole.consumeCPU(work);
+                    return e.hashCode();
+                })
+                .sum()).join();
+    }
+
+    private <E> Spliterator<E> spliterator(Collection<E> c) {
+        return switch (spliterator) {
+            case "default" -> c.spliterator();
+            case "balanced" -> Splitters.of(c);
+            case "snapshot" -> Splitters.snapshot(c);
+            default -> throw new IllegalArgumentException(spliterator);
+        };
+    }
+}
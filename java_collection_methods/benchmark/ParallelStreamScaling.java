@@ -0,0 +1,85 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs {@link ParallelStreamBenchmark} on pools of 1, 2, 4, … threads up to
+ * the number of cores and prints one markdown table per source: time per
+ * stream (ms, lower is better) and, in brackets, the speed-up over the
+ * same spliterator on one thread.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar benchmark.ParallelStreamScaling [--threads 1,4,16] [--quick]
+ * </pre>
+ */
+public class ParallelStreamScaling {
+
+    private static final String[] SPLITERATORS = {"default", "balanced", "snapshot"};
+
+    public static void main(String[] args) throws RunnerException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] threads = IntStream.iterate(1, t -> t < cores, t -> t * 2).toArray();
+        threads = Arrays.copyOf(threads, threads.length + 1);
+        threads[threads.length - 1] = cores;
+        boolean quick = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads" -> threads = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                case "--quick" -> quick = true;
+                default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        // source -> threads -> spliterator -> ms/op
+        Map<String, Map<Integer, Map<String, Double>>> scores = new TreeMap<>();
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(ParallelStreamBenchmark.class.getSimpleName() + "\\.sum$")
+                .param("parallelism", Arrays.stream(threads).mapToObj(String::valueOf).toArray(String[]::new));
+        if (quick) {
+            options.warmupIterations(1).warmupTime(TimeValue.milliseconds(200))
+                    .measurementIterations(2).measurementTime(TimeValue.milliseconds(200));
+        }
+        Collection<RunResult> results = new Runner(options.build()).run();
+        for (RunResult result : results) {
+            scores.computeIfAbsent(result.getParams().getParam("source"), s -> new TreeMap<>())
+                    .computeIfAbsent(Integer.parseInt(result.getParams().getParam("parallelism")), t -> new TreeMap<>())
+                    .put(result.getParams().getParam("spliterator"), result.getPrimaryResult().getScore());
+        }
+
+        StringBuilder md = new StringBuilder();
+        for (Map.Entry<String, Map<Integer, Map<String, Double>>> source : scores.entrySet()) {
+            Map<String, Double> single = source.getValue().get(1);
+            md.append("#### **").append(source.getKey()).append("** (ms per stream)\n\n| Threads |");
+            for (String spliterator : SPLITERATORS) {
+                md.append(' ').append(spliterator).append(" |");
+            }
+            md.append("\n| --- |").append(" --- |".repeat(SPLITERATORS.length)).append('\n');
+            for (Map.Entry<Integer, Map<String, Double>> row : source.getValue().entrySet()) {
+                md.append("| ").append(row.getKey()).append(" |");
+                for (String spliterator : SPLITERATORS) {
+                    Double score = row.getValue().get(spliterator);
+                    Double base = single == null ? null : single.get(spliterator);
+                    md.append(' ').append(score == null ? "N/A" : String.format("%.2f", score));
+                    if (score != null && base != null) {
+                        md.append(String.format(" (%.1fx)", base / score));
+                    }
+                    md.append(" |");
+                }
+                md.append('\n');
+            }
+            md.append('\n');
+        }
+        System.out.print(md);
+    }
+}
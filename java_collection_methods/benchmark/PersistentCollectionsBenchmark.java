@@ -0,0 +1,112 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import persistent.PersistentList;
+import persistent.PersistentMap;
+
+/**
+ * "Keep the old version, make a changed one": {@link PersistentList} /
+ * {@link PersistentMap} path copying against the defensive
+ * {@code new ArrayList<>(list)} / {@code new HashMap<>(map)} copy the
+ * examples use before each change.
+ *
+ * <p>Each operation produces a new version with one element replaced (or
+ * one entry put) and leaves the previous version intact; the {@code read}
+ * benchmarks show what the trie costs on plain lookups.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar PersistentCollectionsBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PersistentCollectionsBenchmark {
+
+    private static final int INDICES = 1 << 12;
+
+    @Param({"Persistent", "Copy"})
+    public String impl;
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private List<Integer> list;
+    private Map<Integer, Integer> map;
+    private final int[] indices = new int[INDICES];
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Integer> elements = new ArrayList<>(size);
+        Map<Integer, Integer> entries = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            elements.add(i);
+            entries.put(i, i);
+        }
+        switch (impl) {
+            case "Persistent" -> {
+                list = PersistentList.copyOf(elements);
+                map = PersistentMap.copyOf(entries);
+            }
+            case "Copy" -> {
+                list = elements;
+                map = entries;
+            }
+            default -> throw new IllegalArgumentException(impl);
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < INDICES; i++) {
+            indices[i] = random.nextInt(size);
+        }
+    }
+
+    private int nextIndex() {
+        int index = indices[cursor];
+        cursor = (cursor + 1) & (INDICES - 1);
+        return index;
+    }
+
+    @Benchmark
+    public List<Integer> listSetVersion() {
+        int i = nextIndex();
+        if (list instanceof PersistentList<Integer> persistent) {
+            return persistent.with(i, -i);
+        }
+        List<Integer> copy = new ArrayList<>(list);
+        copy.set(i, -i);
+        return copy;
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> mapPutVersion() {
+        int k = nextIndex();
+        if (map instanceof PersistentMap<Integer, Integer> persistent) {
+            return persistent.with(k, -k);
+        }
+        Map<Integer, Integer> copy = new HashMap<>(map);
+        copy.put(k, -k);
+        return copy;
+    }
+
+    @Benchmark
+    public Integer listGet() {
+        return list.get(nextIndex());
+    }
+
+    @Benchmark
+    public Integer mapGet() {
+        return map.get(nextIndex());
+    }
+}
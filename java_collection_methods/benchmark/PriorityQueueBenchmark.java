@@ -0,0 +1,173 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import priority.IndexedPriorityQueue;
+import priority.LongIndexedPriorityQueue;
+
+/**
+ * Dijkstra's shortest paths from vertex 0 of a random graph of
+ * {@code vertices} vertices with {@code degree} weighted out-edges each,
+ * the decrease-key workload {@code java.util.PriorityQueue} handles badly.
+ *
+ * <ul>
+ *   <li>{@code PriorityQueue-remove}: {@code remove(Object)} (a linear scan)
+ *       and re-{@code offer} on every decrease.</li>
+ *   <li>{@code PriorityQueue-lazy}: the usual workaround, offering a
+ *       duplicate and skipping stale entries on {@code poll}; the queue
+ *       grows to the number of decreases.</li>
+ *   <li>{@code IndexedPriorityQueue}: one handle per vertex,
+ *       {@code decreaseKey} in place.</li>
+ *   <li>{@code LongIndexed-2} / {@code LongIndexed-4}:
+ *       {@link LongIndexedPriorityQueue}, vertex ids and {@code long}
+ *       distances, binary and 4-ary heaps.</li>
+ * </ul>
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar PriorityQueueBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PriorityQueueBenchmark {
+
+    @Param({"PriorityQueue-remove", "PriorityQueue-lazy", "IndexedPriorityQueue", "LongIndexed-2", "LongIndexed-4"})
+    public String impl;
+
+    @Param({"20000"})
+    public int vertices;
+
+    @Param({"8"})
+    public int degree;
+
+    /** Adjacency in compressed form: the edges of v are {@code [v * degree, (v + 1) * degree)}. */
+    private int[] targets;
+    private long[] weights;
+    private long[] distance;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        targets = new int[vertices * degree];
+        weights = new long[vertices * degree];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = random.nextInt(vertices);
+            weights[i] = 1 + random.nextInt(1000);
+        }
+        distance = new long[vertices];
+    }
+
+    /** A vertex and its tentative distance, compared by distance. */
+    private record Entry(int vertex, long distance) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(distance, other.distance);
+        }
+    }
+
+    @Benchmark
+    public long shortestPaths() {
+        Arrays.fill(distance, Long.MAX_VALUE);
+        distance[0] = 0;
+        switch (impl) {
+            case "PriorityQueue-remove" -> removeAndOffer();
+            case "PriorityQueue-lazy" -> lazy();
+            case "IndexedPriorityQueue" -> handles();
+            case "LongIndexed-2" -> ids(2);
+            case "LongIndexed-4" -> ids(4);
+            default -> throw new IllegalArgumentException(impl);
+        }
+        long sum = 0;
+        for (long d : distance) {
+            sum += d == Long.MAX_VALUE ? 0 : d;
+        }
+        return sum;
+    }
+
+    private void removeAndOffer() {
+        PriorityQueue<Entry> queue = new PriorityQueue<>();
+        queue.offer(new Entry(0, 0));
+        while (!queue.isEmpty()) {
+            Entry e = queue.poll();
+            for (int i = e.vertex * degree, end = i + degree; i < end; i++) {
+                int t = targets[i];
+                long d = e.distance + weights[i];
+                if (d < distance[t]) {
+                    if (distance[t] != Long.MAX_VALUE) {
+                        queue.remove(new Entry(t, distance[t]));
+                    }
+                    distance[t] = d;
+                    queue.offer(new Entry(t, d));
+                }
+            }
+        }
+    }
+
+    private void lazy() {
+        PriorityQueue<Entry> queue = new PriorityQueue<>();
+        queue.offer(new Entry(0, 0));
+        while (!queue.isEmpty()) {
+            Entry e = queue.poll();
+            if (e.distance > distance[e.vertex]) {
+                continue; // superseded by a later decrease
+            }
+            for (int i = e.vertex * degree, end = i + degree; i < end; i++) {
+                int t = targets[i];
+                long d = e.distance + weights[i];
+                if (d < distance[t]) {
+                    distance[t] = d;
+                    queue.offer(new Entry(t, d));
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void handles() {
+        IndexedPriorityQueue<Entry> queue = new IndexedPriorityQueue<>();
+        IndexedPriorityQueue.Handle<Entry>[] handles =
+                (IndexedPriorityQueue.Handle<Entry>[]) new IndexedPriorityQueue.Handle<?>[vertices];
+        handles[0] = queue.insert(new Entry(0, 0));
+        while (!queue.isEmpty()) {
+            Entry e = queue.poll();
+            for (int i = e.vertex * degree, end = i + degree; i < end; i++) {
+                int t = targets[i];
+                long d = e.distance + weights[i];
+                if (d < distance[t]) {
+                    distance[t] = d;
+                    if (handles[t] == null) {
+                        handles[t] = queue.insert(new Entry(t, d));
+                    } else {
+                        queue.decreaseKey(handles[t], new Entry(t, d));
+                    }
+                }
+            }
+        }
+    }
+
+    private void ids(int arity) {
+        LongIndexedPriorityQueue queue = new LongIndexedPriorityQueue(vertices, arity);
+        queue.insert(0, 0);
+        while (!queue.isEmpty()) {
+            long base = queue.peekPriority();
+            int v = queue.pollId();
+            for (int i = v * degree, end = i + degree; i < end; i++) {
+                int t = targets[i];
+                long d = base + weights[i];
+                if (d < distance[t]) {
+                    distance[t] = d;
+                    queue.update(t, d);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package benchmark;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import concurrent.ConcurrentReferenceMap;
+
+/**
+ * Contended access to a per-object metadata map: {@link ConcurrentReferenceMap}
+ * with weak and with strong (identity) keys, against the locked
+ * {@code Collections.synchronizedMap} wrappers around {@code WeakHashMap}
+ * and {@code IdentityHashMap} it replaces. {@code ConcurrentHashMap} is the
+ * reference: strong keys compared with {@code equals}.
+ *
+ * <p>{@code get}: read-only lookups in a map of {@code size} entries, half
+ * of them misses. {@code mixed}: 90% {@code get}, 5% {@code put}, 5%
+ * {@code remove} of random keys, so the map stays at about {@code size}.
+ * {@code computeIfAbsent}: the metadata cache idiom, on keys that are
+ * present half the time; the absent half is removed again 1 time in 2, so
+ * every call does some writing.
+ *
+ * <p>Every key is retained by the benchmark, so no weak key is cleared
+ * here; {@link WeakKeyChurnBenchmark} measures expunging. Thread count is
+ * JMH's {@code -t}:
+ * <pre>
+ * java -jar target/benchmarks.jar ReferenceMapBenchmark -t 8
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ReferenceMapBenchmark {
+
+    @Param({"ConcurrentReferenceMap.weak", "ConcurrentReferenceMap.identity",
+            "synchronizedWeakHashMap", "synchronizedIdentityHashMap", "ConcurrentHashMap"})
+    public String impl;
+
+    @Param({"100000"})
+    public int size;
+
+    private Map<Integer, Integer> map;
+    private Keys keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = switch (impl) {
+            case "ConcurrentReferenceMap.weak" -> new ConcurrentReferenceMap<>(ConcurrentReferenceMap.KeyStrength.WEAK,
+                    size, 4 * Runtime.getRuntime().availableProcessors());
+            case "ConcurrentReferenceMap.identity" -> new ConcurrentReferenceMap<>(ConcurrentReferenceMap.KeyStrength.STRONG,
+                    size, 4 * Runtime.getRuntime().availableProcessors());
+            case "synchronizedWeakHashMap" -> Collections.synchronizedMap(new WeakHashMap<>(2 * size));
+            case "synchronizedIdentityHashMap" -> Collections.synchronizedMap(new IdentityHashMap<>(size));
+            case "ConcurrentHashMap" -> new ConcurrentHashMap<>(size);
+            default -> throw new IllegalArgumentException(impl);
+        };
+        keys = new Keys(2 * size);
+        for (int i = 0; i < size; i++) {
+            Integer key = keys.element(2 * i); // even keys present, odd keys absent
+            map.put(key, key);
+        }
+    }
+
+    /** Each thread walks its own random sequence over the shared keys. */
+    @State(Scope.Thread)
+    public static class Probe {
+        private SplittableRandom random;
+
+        @Setup
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    public Integer get(Probe probe) {
+        return map.get(keys.element(probe.random.nextInt(2 * size)));
+    }
+
+    @Benchmark
+    public Integer mixed(Probe probe) {
+        Integer key = keys.element(probe.random.nextInt(2 * size));
+        int op = probe.random.nextInt(20);
+        if (op == 0) {
+            return map.put(key, key);
+        }
+        if (op == 1) {
+            return map.remove(key);
+        }
+        return map.get(key);
+    }
+
+    @Benchmark
+    public Integer computeIfAbsent(Probe probe) {
+        int index = probe.random.nextInt(2 * size);
+        Integer key = keys.element(index);
+        Integer value = map.computeIfAbsent(key, k -> k);
+        if ((index & 3) == 1) {
+            map.remove(key);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,141 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.*;
+
+import seq.Seq;
+
+/**
+ * {@link Seq} pipelines against the same pipelines written with
+ * {@code java.util.stream} and as the eager copy chains of
+ * {@code CollectionExample} and {@code MapExample} (copy, {@code removeIf},
+ * {@code replaceAll}, {@code subList}), one new collection per step.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar SeqBenchmark -p size=100000
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SeqBenchmark {
+
+    private static final int BASKET = 10;
+
+    @Param({"Seq", "Stream", "Eager"})
+    public String impl;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private List<String> fruits;
+    private Map<String, Integer> stock;
+    private List<List<String>> baskets;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        String[] names = {"Orange", "Apple", "Banana", "Olive", "Cherry", "Mango", "Grape", "Kiwi"};
+        fruits = new ArrayList<>(size);
+        stock = new HashMap<>();
+        baskets = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            String fruit = names[random.nextInt(names.length)] + "-" + random.nextInt(size);
+            fruits.add(fruit);
+            stock.put(fruit, random.nextInt(100));
+            if (i % BASKET == 0) {
+                baskets.add(new ArrayList<>(BASKET));
+            }
+            baskets.get(baskets.size() - 1).add(fruit);
+        }
+    }
+
+    /** filter, map and limit to a tenth of the input, into a list. */
+    @Benchmark
+    public List<String> filterMapLimit() {
+        int limit = size / 10;
+        switch (impl) {
+            case "Seq":
+                return Seq.of(fruits).filter(f -> f.startsWith("O")).map(String::toUpperCase).limit(limit).toList();
+            case "Stream":
+                return fruits.stream().filter(f -> f.startsWith("O")).map(String::toUpperCase).limit(limit)
+                        .collect(Collectors.toList());
+            default:
+                List<String> copy = new ArrayList<>(fruits);
+                copy.removeIf(f -> !f.startsWith("O"));
+                copy.replaceAll(String::toUpperCase);
+                return new ArrayList<>(copy.subList(0, Math.min(limit, copy.size())));
+        }
+    }
+
+    /** An unboxed {@code int} reduction: lengths of the long names. */
+    @Benchmark
+    public long sumLengths() {
+        switch (impl) {
+            case "Seq":
+                return Seq.of(fruits).mapToInt(String::length).filter(n -> n > 8).sum();
+            case "Stream":
+                return fruits.stream().mapToInt(String::length).filter(n -> n > 8).sum();
+            default:
+                List<Integer> lengths = new ArrayList<>(fruits.size());
+                for (String f : fruits) {
+                    lengths.add(f.length());
+                }
+                lengths.removeIf(n -> n <= 8);
+                long sum = 0;
+                for (int n : lengths) {
+                    sum += n;
+                }
+                return sum;
+        }
+    }
+
+    /** Keys of the map entries whose value passes a filter. */
+    @Benchmark
+    public List<String> lowStock() {
+        switch (impl) {
+            case "Seq":
+                return Seq.entries(stock).filter(e -> e.getValue() < 10).map(Map.Entry::getKey).toList();
+            case "Stream":
+                return stock.entrySet().stream().filter(e -> e.getValue() < 10).map(Map.Entry::getKey)
+                        .collect(Collectors.toList());
+            default:
+                Map<String, Integer> copy = new HashMap<>(stock);
+                copy.values().removeIf(v -> v >= 10);
+                return new ArrayList<>(copy.keySet());
+        }
+    }
+
+    /** Flattens nested lists, maps each element to its fruit name and counts the distinct names. */
+    @Benchmark
+    public long flatMapDistinct() {
+        switch (impl) {
+            case "Seq":
+                return Seq.of(baskets).flatMap(Seq::of).map(SeqBenchmark::name).distinct().count();
+            case "Stream":
+                return baskets.stream().flatMap(List::stream).map(SeqBenchmark::name).distinct().count();
+            default:
+                List<String> flat = new ArrayList<>();
+                for (List<String> basket : baskets) {
+                    flat.addAll(basket);
+                }
+                flat.replaceAll(SeqBenchmark::name);
+                return new HashSet<>(flat).size();
+        }
+    }
+
+    private static String name(String fruit) {
+        return fruit.substring(0, fruit.indexOf('-'));
+    }
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the Set rows of the "Quick Operation Complexity Summary" table
+ * (collection_framework.md) for HashSet and TreeSet.
+ *
+ * <p>{@code add} inserts an absent element and removes it again;
+ * {@code removeObject} removes a present element and re-inserts it, so the
+ * set stays at {@code size} elements.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SetBenchmark {
+
+    @Param({"HashSet", "TreeSet"})
+    public String impl;
+
+    @Param({"100", "1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Set<Integer> set;
+    private Keys keys;
+    private Integer extra;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        set = impl.equals("HashSet") ? new HashSet<>() : new TreeSet<>();
+        keys = new Keys(size);
+        for (int i = 0; i < size; i++) {
+            set.add(keys.element(i));
+        }
+        extra = size;
+    }
+
+    @Benchmark
+    public boolean add() {
+        boolean added = set.add(extra);
+        set.remove(extra);
+        return added;
+    }
+
+    @Benchmark
+    public boolean removeObject() {
+        Integer victim = keys.nextElement();
+        boolean removed = set.remove(victim);
+        set.add(victim);
+        return removed;
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return set.contains(keys.nextElement());
+    }
+}
@@ -0,0 +1,124 @@
+package benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import snapshot.Codec;
+import snapshot.Snapshot;
+
+/**
+ * Warm restart of a {@code Map<Long, String>} of {@code size} ids to one of
+ * {@code categories} repeated strings: {@link Snapshot} against Java
+ * serialization of a {@code HashMap}, the usual way such a map is saved
+ * between runs.
+ *
+ * <p>{@code restartAndLookup} is the case the snapshot exists for: a process
+ * opens the saved map and serves a few lookups. {@code restartAndCopy}
+ * rebuilds a full {@code HashMap} from it (every element decoded), and
+ * {@code save} writes it. Both files stay in the page cache, so reads
+ * measure decoding, not the disk. The file sizes are printed at setup.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar SnapshotBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SnapshotBenchmark {
+
+    @Param({"JavaSerialization", "Snapshot"})
+    public String impl;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"100"})
+    public int categories;
+
+    private HashMap<Long, String> map;
+    private long[] probes;
+    private Path file;
+    private Path saved;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        map = new HashMap<>();
+        while (map.size() < size) {
+            map.put(random.nextLong(1L << 40), "category-" + random.nextInt(categories));
+        }
+        Long[] keys = map.keySet().toArray(new Long[0]);
+        probes = new long[1000];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = keys[random.nextInt(keys.length)];
+        }
+        file = Files.createTempFile("snapshot", ".bin");
+        saved = Files.createTempFile("snapshot-saved", ".bin");
+        save(saved);
+        System.out.println("\n" + impl + " file: " + Files.size(saved) / 1024 + " KB");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(saved);
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        save(file);
+    }
+
+    /** Open the saved map and look up 1,000 ids. */
+    @Benchmark
+    public int restartAndLookup() throws IOException, ClassNotFoundException {
+        Map<Long, String> loaded = load();
+        int found = 0;
+        for (long id : probes) {
+            found += loaded.get(id).length();
+        }
+        return found;
+    }
+
+    /** Open the saved map and copy it into a {@code HashMap}. */
+    @Benchmark
+    public Map<Long, String> restartAndCopy() throws IOException, ClassNotFoundException {
+        Map<Long, String> loaded = load();
+        return loaded instanceof HashMap ? loaded : new HashMap<>(loaded);
+    }
+
+    private void save(Path path) throws IOException {
+        if (impl.equals("Snapshot")) {
+            Snapshot.writeMap(path, map, Codec.longs(), Codec.strings());
+            return;
+        }
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeObject(map);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, String> load() throws IOException, ClassNotFoundException {
+        if (impl.equals("Snapshot")) {
+            return Snapshot.readMap(saved, Codec.longs(), Codec.strings());
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(saved)))) {
+            return (Map<Long, String>) in.readObject();
+        }
+    }
+}
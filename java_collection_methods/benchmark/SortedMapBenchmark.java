@@ -0,0 +1,126 @@
+package benchmark;
+
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import concurrent.BTreeMap;
+
+/**
+ * Sorted maps of {@code size} {@code Integer} keys: {@link BTreeMap}
+ * against {@code TreeMap} and {@code ConcurrentSkipListMap}.
+ *
+ * <p>{@code get}: lookups of random keys, half of them absent (the even
+ * keys are present, the odd ones not). {@code rangeScan}: sums the values
+ * of a {@code subMap} holding {@code scanLength} entries from a random key,
+ * the case where the B+-tree reads whole leaves. {@code mixed}: 90% {@code get},
+ * 5% {@code put}, 5% {@code remove}, so the map stays at about {@code size};
+ * {@code TreeMap} is wrapped in {@code Collections.synchronizedNavigableMap}
+ * there, since it is not thread-safe. Thread count is JMH's {@code -t}.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar SortedMapBenchmark
+ * java -jar target/benchmarks.jar SortedMapBenchmark.mixed -t 8
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SortedMapBenchmark {
+
+    @Param({"TreeMap", "ConcurrentSkipListMap", "BTreeMap"})
+    public String impl;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"100"})
+    public int scanLength;
+
+    private NavigableMap<Integer, Integer> map;
+    private Keys keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = switch (impl) {
+            case "TreeMap" -> new TreeMap<>();
+            case "ConcurrentSkipListMap" -> new ConcurrentSkipListMap<>();
+            case "BTreeMap" -> new BTreeMap<>();
+            default -> throw new IllegalArgumentException(impl);
+        };
+        keys = new Keys(2 * size + 2 * scanLength);
+        SplittableRandom random = new SplittableRandom(42);
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) { // random insertion order, as a long-running map would see
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        for (int i : order) {
+            map.put(keys.element(2 * i), i);
+        }
+    }
+
+    /** Each thread walks its own random sequence over the shared keys. */
+    @State(Scope.Thread)
+    public static class Probe {
+        private SplittableRandom random;
+
+        @Setup
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    public Integer get(Probe probe) {
+        return map.get(keys.element(probe.random.nextInt(2 * size)));
+    }
+
+    @Benchmark
+    public long rangeScan(Probe probe) {
+        int from = 2 * probe.random.nextInt(size);
+        long sum = 0;
+        for (Integer value : map.subMap(keys.element(from), true, keys.element(from + 2 * scanLength), false).values()) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Integer mixed(Probe probe, Writable writable) {
+        Integer key = keys.element(probe.random.nextInt(2 * size));
+        int op = probe.random.nextInt(20);
+        if (op == 0) {
+            return writable.map.put(key, key);
+        }
+        if (op == 1) {
+            return writable.map.remove(key);
+        }
+        return writable.map.get(key);
+    }
+
+    /** The map as written concurrently: {@code TreeMap} synchronized. */
+    @State(Scope.Benchmark)
+    public static class Writable {
+        NavigableMap<Integer, Integer> map;
+
+        @Setup(Level.Trial)
+        public void setUp(SortedMapBenchmark benchmark) {
+            map = benchmark.impl.equals("TreeMap")
+                    ? Collections.synchronizedNavigableMap(benchmark.map) : benchmark.map;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import concurrent.ConcurrentReferenceMap;
+
+/**
+ * GC churn through a weak-key map: every operation puts a fresh key that
+ * nothing else references, as a per-request metadata map sees it, so the
+ * map only stays bounded if cleared keys are expunged. Each thread keeps
+ * its last {@code live} keys reachable in a ring, which is the map's
+ * steady-state size.
+ *
+ * <p>{@code put} is only the insertion; {@code putGet} also reads back a
+ * live key, the usual mix. Compares {@link ConcurrentReferenceMap}'s
+ * per-stripe reference queues with the single queue of a
+ * {@code WeakHashMap} behind one lock. Run with {@code -prof gc} for the
+ * allocation rate and GC time, and with {@code -t} for contention:
+ * <pre>
+ * java -jar target/benchmarks.jar WeakKeyChurnBenchmark -t 4 -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class WeakKeyChurnBenchmark {
+
+    @Param({"ConcurrentReferenceMap", "synchronizedWeakHashMap"})
+    public String impl;
+
+    @Param({"10000"})
+    public int live;
+
+    private Map<Object, Long> map;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        map = switch (impl) {
+            case "ConcurrentReferenceMap" -> ConcurrentReferenceMap.weakKeys();
+            case "synchronizedWeakHashMap" -> Collections.synchronizedMap(new WeakHashMap<>());
+            default -> throw new IllegalArgumentException(impl);
+        };
+    }
+
+    /** The keys one thread still references; older keys are garbage. */
+    @State(Scope.Thread)
+    public static class Ring {
+        private Object[] keys;
+        private int cursor;
+        private long count;
+
+        @Setup
+        public void setUp(WeakKeyChurnBenchmark benchmark) {
+            keys = new Object[benchmark.live];
+        }
+
+        Object next() {
+            Object key = new Object();
+            keys[cursor] = key;
+            cursor = cursor + 1 == keys.length ? 0 : cursor + 1;
+            return key;
+        }
+
+        Object oldest() {
+            return keys[cursor];
+        }
+    }
+
+    @Benchmark
+    public Long put(Ring ring) {
+        return map.put(ring.next(), ++ring.count);
+    }
+
+    @Benchmark
+    public Long putGet(Ring ring) {
+        map.put(ring.next(), ++ring.count);
+        return map.get(ring.oldest());
+    }
+}
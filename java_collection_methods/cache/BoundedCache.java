@@ -0,0 +1,898 @@
+package cache;
+
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import primitive.HashSupport;
+
+/**
+ * Thread-safe bounded cache behind the {@link ConcurrentMap} API, with
+ * W-TinyLFU eviction: the concurrent replacement for an access-ordered
+ * {@code LinkedHashMap} with {@code removeEldestEntry}.
+ *
+ * <p>Entries live in a {@link ConcurrentHashMap}; the eviction policy is
+ * separate and is only updated under one lock:
+ * <ul>
+ *   <li>A new entry enters a small LRU <em>window</em> (1% of the
+ *       maximum). Entries pushed out of the window become candidates for
+ *       the <em>main</em> space, a segmented LRU of a probation part and a
+ *       protected part (80% of main) that entries reach by being read again
+ *       while on probation.</li>
+ *   <li>When the cache is over its maximum, the oldest probation entry and
+ *       the newest candidate are compared by their estimated recent
+ *       frequency ({@link FrequencySketch}, a count-min sketch) and the less
+ *       frequent one is evicted. A one-off scan therefore passes through the
+ *       window without displacing the hot set, which is where plain LRU
+ *       loses its hit rate.</li>
+ * </ul>
+ *
+ * <p>Reads never take the lock: {@code get} looks the entry up and records
+ * the access in one of several striped, lossy {@link ReadBuffer}s (a full
+ * or contended buffer drops the record, a sampling loss that costs a little
+ * hit rate, never correctness). Writes update the map first and then
+ * apply their policy change under the lock, draining the read buffers on the
+ * way; a reader that finds its buffer full drains it if the lock is free.
+ *
+ * <p>Bounds and expiry, all optional (see {@link Builder}):
+ * <ul>
+ *   <li>{@code maximumSize(n)}, or {@code maximumWeight(w, weigher)} to bound
+ *       the sum of per-entry weights instead.</li>
+ *   <li>{@code expireAfterWrite} / {@code expireAfterAccess}: expired entries
+ *       are invisible immediately and physically removed by the next
+ *       maintenance pass.</li>
+ * </ul>
+ * {@link #stats()} reports hits and misses (from {@code get},
+ * {@code getOrDefault} and {@code computeIfAbsent}) and evictions.
+ *
+ * <pre>
+ * BoundedCache&lt;String, Integer&gt; prices = BoundedCache.builder()
+ *         .maximumSize(10_000)
+ *         .expireAfterWrite(Duration.ofMinutes(5))
+ *         .build();
+ * prices.computeIfAbsent("Apple", this::loadPrice);
+ * </pre>
+ *
+ * <p>Like {@code ConcurrentHashMap}, {@code null} keys and values are
+ * rejected, iteration is weakly consistent, and {@code compute}-style
+ * methods are atomic per key. {@link #size()} may still count entries that
+ * have expired but not been removed yet.
+ */
+public class BoundedCache<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    /** Weight of an entry against {@link Builder#maximumWeight}; must be non-negative. */
+    @FunctionalInterface
+    public interface Weigher<K, V> {
+        int weigh(K key, V value);
+    }
+
+    /** Cumulative counters since the cache was built. */
+    public record Stats(long hitCount, long missCount, long evictionCount, long evictionWeight) {
+        public long requestCount() {
+            return hitCount + missCount;
+        }
+
+        /** Fraction of requests that were hits; {@code 1.0} before any request. */
+        public double hitRate() {
+            long requests = requestCount();
+            return requests == 0 ? 1.0 : (double) hitCount / requests;
+        }
+    }
+
+    private static final int NONE = 0;
+    private static final int WINDOW = 1;
+    private static final int PROBATION = 2;
+    private static final int PROTECTED = 3;
+
+    private static final int READ_BUFFER_SIZE = 16;
+    private static final int MAX_READ_BUFFERS = 64;
+    private static final int INITIAL_SKETCH_CAPACITY = 1024;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final Weigher<? super K, ? super V> weigher;
+    private final long expireAfterWriteNanos; // 0: never
+    private final long expireAfterAccessNanos; // 0: never
+    private final LongSupplier ticker;
+    private final ReadBuffer<Node<K, V>>[] readBuffers;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evictionWeight = new LongAdder();
+
+    // policy state, guarded by policyLock
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final NodeDeque<K, V> window = new NodeDeque<>(false);
+    private final NodeDeque<K, V> probation = new NodeDeque<>(false);
+    private final NodeDeque<K, V> protectedSpace = new NodeDeque<>(false);
+    private final NodeDeque<K, V> writeOrder = new NodeDeque<>(true);
+    private final long maximum;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private long windowWeight;
+    private long protectedWeight;
+    private long totalWeight;
+    private Set<Entry<K, V>> entrySet;
+
+    @SuppressWarnings("unchecked")
+    private BoundedCache(Builder<?, ?> builder) {
+        this.weigher = (Weigher<? super K, ? super V>) builder.weigher;
+        this.maximum = builder.maximum;
+        this.windowMaximum = maximum == Long.MAX_VALUE ? maximum : Math.max(maximum > 0 ? 1 : 0, maximum / 100);
+        this.protectedMaximum = (maximum - windowMaximum) / 10 * 8;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+        this.ticker = builder.ticker;
+        this.sketch = new FrequencySketch(Math.min(maximum, INITIAL_SKETCH_CAPACITY));
+        int stripes = Math.min(MAX_READ_BUFFERS, Integer.highestOneBit(4 * Runtime.getRuntime().availableProcessors() - 1) << 1);
+        this.readBuffers = (ReadBuffer<Node<K, V>>[]) new ReadBuffer<?>[stripes];
+        for (int i = 0; i < stripes; i++) {
+            readBuffers[i] = new ReadBuffer<>(READ_BUFFER_SIZE);
+        }
+    }
+
+    public static Builder<Object, Object> builder() {
+        return new Builder<>();
+    }
+
+    // ===================================================
+    // Reads: no lock, access recorded in a read buffer
+    // ===================================================
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = data.get(key);
+        long now = now();
+        if (node == null || hasExpired(node, now)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        afterRead(node, now);
+        return node.value;
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Node<K, V> node = data.get(key);
+        return node != null && !hasExpired(node, now());
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        Objects.requireNonNull(value);
+        long now = now();
+        for (Node<K, V> node : data.values()) {
+            if (value.equals(node.value) && !hasExpired(node, now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        long now = now();
+        data.forEach((k, node) -> {
+            V value = node.value;
+            if (!hasExpired(node, now)) {
+                action.accept(k, value);
+            }
+        });
+    }
+
+    // ===================================================
+    // Writes: atomic per key in the map, then a policy update under the lock
+    // ===================================================
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(value);
+        return remap(key, (k, old) -> value, true).oldValue;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        Objects.requireNonNull(value);
+        return remap(key, (k, old) -> old == null ? value : old, false).oldValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        return remap((K) key, (k, old) -> null, false).oldValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object key, Object value) {
+        if (value == null) {
+            return false;
+        }
+        Outcome<K, V> o = remap((K) key, (k, old) -> value.equals(old) ? null : old, false);
+        return o.oldValue != null && o.newValue == null;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        Objects.requireNonNull(value);
+        return remap(key, (k, old) -> old == null ? null : value, true).oldValue;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Objects.requireNonNull(oldValue);
+        Objects.requireNonNull(newValue);
+        Outcome<K, V> o = remap(key, (k, old) -> oldValue.equals(old) ? newValue : old, false);
+        return oldValue.equals(o.oldValue);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        Node<K, V> node = data.get(key);
+        long now = now();
+        if (node != null && !hasExpired(node, now)) {
+            hits.increment();
+            afterRead(node, now);
+            return node.value;
+        }
+        misses.increment();
+        return remap(key, (k, old) -> old != null ? old : mappingFunction.apply(k), false).newValue;
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        return remap(key, (k, old) -> old == null ? null : remappingFunction.apply(k, old), false).newValue;
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        return remap(key, remappingFunction, false).newValue;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value);
+        Objects.requireNonNull(remappingFunction);
+        return remap(key, (k, old) -> old == null ? value : remappingFunction.apply(old, value), false).newValue;
+    }
+
+    @Override
+    public void clear() {
+        for (K key : data.keySet()) {
+            remove(key);
+        }
+    }
+
+    // ===================================================
+    // Cache-specific operations
+    // ===================================================
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), evictionWeight.sum());
+    }
+
+    /** Applies pending reads, removes expired entries and evicts down to the maximum. */
+    public void cleanUp() {
+        policyLock.lock();
+        try {
+            maintenance();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /** Sum of the weights of the entries (their count without a weigher), after a {@link #cleanUp()}. */
+    public long weightedSize() {
+        policyLock.lock();
+        try {
+            maintenance();
+            return totalWeight;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        Set<Entry<K, V>> es = entrySet;
+        if (es == null) {
+            entrySet = es = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return BoundedCache.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    BoundedCache.this.clear();
+                }
+            };
+        }
+        return es;
+    }
+
+    /** Skips expired entries; {@code setValue} and {@code remove} write through. */
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+        private final Iterator<Node<K, V>> nodes = data.values().iterator();
+        private final long now = now();
+        private Node<K, V> next = advance();
+        private K last;
+
+        private Node<K, V> advance() {
+            while (nodes.hasNext()) {
+                Node<K, V> node = nodes.next();
+                if (!hasExpired(node, now)) {
+                    return node;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = next;
+            next = advance();
+            last = node.key;
+            return new SimpleEntry<>(node.key, node.value) {
+                @Override
+                public V setValue(V value) {
+                    put(getKey(), value);
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            BoundedCache.this.remove(last);
+            last = null;
+        }
+    }
+
+    // ===================================================
+    // Map side: one compute per write
+    // ===================================================
+
+    /** What a {@link #remap} did, for the return value and the policy update. */
+    private static final class Outcome<K, V> {
+        V oldValue;
+        V newValue;
+        Node<K, V> added;
+        Node<K, V> removed;
+        Node<K, V> updated;
+        Node<K, V> read;
+        boolean expired;
+    }
+
+    /**
+     * Replaces the live value for {@code key} (or {@code null}) with
+     * {@code fn}'s result; {@code null} removes the entry. Returning the old
+     * value itself counts as a read unless {@code alwaysWrite}.
+     */
+    private Outcome<K, V> remap(K key, BiFunction<? super K, ? super V, ? extends V> fn, boolean alwaysWrite) {
+        Objects.requireNonNull(key);
+        long now = now();
+        Outcome<K, V> o = new Outcome<>();
+        data.compute(key, (k, prior) -> {
+            V old = null;
+            if (prior != null) {
+                if (hasExpired(prior, now)) {
+                    o.expired = true;
+                } else {
+                    old = prior.value;
+                }
+            }
+            V value = fn.apply(k, old);
+            o.oldValue = old;
+            o.newValue = value;
+            if (value == null || old == null) {
+                o.removed = prior;
+                if (value == null) {
+                    return null;
+                }
+                o.added = new Node<>(k, HashSupport.mix(k.hashCode()), value, weigh(k, value), now);
+                return o.added;
+            }
+            if (value == old && !alwaysWrite) {
+                o.read = prior;
+                return prior;
+            }
+            prior.weight = weigh(k, value);
+            prior.value = value;
+            prior.writeTime = now;
+            prior.accessTime = now;
+            o.updated = prior;
+            return prior;
+        });
+        if (o.added != null || o.removed != null || o.updated != null) {
+            afterWrite(o);
+        } else if (o.read != null) {
+            afterRead(o.read, now);
+        }
+        return o;
+    }
+
+    private int weigh(K key, V value) {
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Negative weight " + weight + " for key " + key);
+        }
+        return weight;
+    }
+
+    private long now() {
+        return expireAfterWriteNanos == 0 && expireAfterAccessNanos == 0 ? 0 : ticker.getAsLong();
+    }
+
+    private boolean hasExpired(Node<K, V> node, long now) {
+        return (expireAfterWriteNanos != 0 && now - node.writeTime >= expireAfterWriteNanos)
+                || (expireAfterAccessNanos != 0 && now - node.accessTime >= expireAfterAccessNanos);
+    }
+
+    private void afterRead(Node<K, V> node, long now) {
+        if (expireAfterAccessNanos != 0) {
+            node.accessTime = now;
+        }
+        int stripe = HashSupport.mix((int) Thread.currentThread().getId()) & (readBuffers.length - 1);
+        if (readBuffers[stripe].offer(node) == ReadBuffer.FULL && policyLock.tryLock()) {
+            try {
+                maintenance();
+            } finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    private void afterWrite(Outcome<K, V> o) {
+        policyLock.lock();
+        try {
+            drainReadBuffers();
+            if (o.removed != null) {
+                onRemove(o.removed, o.expired);
+            }
+            if (o.added != null) {
+                onAdd(o.added);
+            }
+            if (o.updated != null) {
+                onUpdate(o.updated);
+            }
+            expireEntries();
+            evict();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    // ===================================================
+    // Policy side: everything below runs under policyLock
+    // ===================================================
+
+    private void maintenance() {
+        drainReadBuffers();
+        expireEntries();
+        evict();
+    }
+
+    private void drainReadBuffers() {
+        for (ReadBuffer<Node<K, V>> buffer : readBuffers) {
+            buffer.drainTo(this::onAccess);
+        }
+    }
+
+    private void onAdd(Node<K, V> node) {
+        if (node.retired) {
+            return; // removed from the map before its add reached the policy
+        }
+        if (data.size() > sketch.capacity() && sketch.capacity() < maximum) {
+            sketch.ensureCapacity(Math.min(maximum, 2L * data.size()));
+        }
+        sketch.increment(node.hash);
+        node.policyWeight = node.weight;
+        node.queue = WINDOW;
+        window.linkLast(node);
+        windowWeight += node.policyWeight;
+        totalWeight += node.policyWeight;
+        if (expireAfterWriteNanos != 0) {
+            writeOrder.linkLast(node);
+        }
+    }
+
+    private void onUpdate(Node<K, V> node) {
+        if (node.queue == NONE) {
+            return; // its add is still pending and will read the new weight
+        }
+        int delta = node.weight - node.policyWeight;
+        node.policyWeight += delta;
+        totalWeight += delta;
+        if (node.queue == WINDOW) {
+            windowWeight += delta;
+        } else if (node.queue == PROTECTED) {
+            protectedWeight += delta;
+        }
+        onAccess(node);
+        if (expireAfterWriteNanos != 0) {
+            writeOrder.moveToLast(node);
+        }
+    }
+
+    private void onRemove(Node<K, V> node, boolean expired) {
+        node.retired = true;
+        if (node.queue != NONE) {
+            if (expired) {
+                evictions.increment();
+                evictionWeight.add(node.policyWeight);
+            }
+            unlink(node);
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW -> window.moveToLast(node);
+            case PROBATION -> {
+                probation.unlink(node);
+                node.queue = PROTECTED;
+                protectedSpace.linkLast(node);
+                protectedWeight += node.policyWeight;
+                while (protectedWeight > protectedMaximum && protectedSpace.first != node) {
+                    Node<K, V> demoted = protectedSpace.first;
+                    protectedSpace.unlink(demoted);
+                    protectedWeight -= demoted.policyWeight;
+                    demoted.queue = PROBATION;
+                    probation.linkLast(demoted);
+                }
+            }
+            case PROTECTED -> protectedSpace.moveToLast(node);
+            default -> {
+                return; // removed, or its add is still pending
+            }
+        }
+        sketch.increment(node.hash);
+    }
+
+    /** Moves window overflow to probation, then evicts until the total fits. */
+    private void evict() {
+        while (windowWeight > windowMaximum && window.first != null) {
+            Node<K, V> candidate = window.first;
+            window.unlink(candidate);
+            windowWeight -= candidate.policyWeight;
+            candidate.queue = PROBATION;
+            probation.linkLast(candidate);
+        }
+        while (totalWeight > maximum) {
+            Node<K, V> victim = probation.first;
+            Node<K, V> candidate = probation.last;
+            if (victim == null) {
+                victim = protectedSpace.first != null ? protectedSpace.first : window.first;
+            } else if (victim != candidate && admit(candidate.hash, victim.hash)) {
+                // keep the more frequent candidate, evict the probation LRU
+            } else if (victim != candidate) {
+                victim = candidate;
+            }
+            evictEntry(victim);
+        }
+    }
+
+    /** TinyLFU: admit the candidate only if it is more frequent than the victim. */
+    private boolean admit(int candidateHash, int victimHash) {
+        int candidateFrequency = sketch.frequency(candidateHash);
+        int victimFrequency = sketch.frequency(victimHash);
+        if (candidateFrequency > victimFrequency) {
+            return true;
+        }
+        // a warm candidate is occasionally admitted anyway, so an attacker who
+        // inflates one victim's counters (hash flooding) cannot pin it forever
+        return candidateFrequency >= 6 && (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    private void evictEntry(Node<K, V> node) {
+        unlink(node);
+        node.retired = true;
+        if (data.remove(node.key, node)) {
+            evictions.increment();
+            evictionWeight.add(node.policyWeight);
+        }
+    }
+
+    private void expireEntries() {
+        if (expireAfterWriteNanos == 0 && expireAfterAccessNanos == 0) {
+            return;
+        }
+        long now = ticker.getAsLong();
+        if (expireAfterAccessNanos != 0) {
+            expireHeads(window, now);
+            expireHeads(probation, now);
+            expireHeads(protectedSpace, now);
+        }
+        if (expireAfterWriteNanos != 0) {
+            expireHeads(writeOrder, now);
+        }
+    }
+
+    /** Removes expired entries from the head of {@code deque}, oldest first. */
+    private void expireHeads(NodeDeque<K, V> deque, long now) {
+        Node<K, V> node;
+        while ((node = deque.first) != null && hasExpired(node, now)) {
+            Node<K, V> expired = node;
+            boolean[] removed = new boolean[1];
+            data.computeIfPresent(node.key, (k, n) -> {
+                if (n == expired && hasExpired(n, now)) {
+                    removed[0] = true;
+                    return null;
+                }
+                return n;
+            });
+            if (removed[0]) {
+                evictions.increment();
+                evictionWeight.add(node.policyWeight);
+                unlink(node);
+                node.retired = true;
+            } else if (data.get(node.key) != node) {
+                unlink(node); // removed by a writer whose policy update is still pending
+                node.retired = true;
+            } else {
+                deque.moveToLast(node); // refreshed meanwhile
+            }
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW -> {
+                window.unlink(node);
+                windowWeight -= node.policyWeight;
+            }
+            case PROBATION -> probation.unlink(node);
+            case PROTECTED -> {
+                protectedSpace.unlink(node);
+                protectedWeight -= node.policyWeight;
+            }
+            default -> {
+                return;
+            }
+        }
+        totalWeight -= node.policyWeight;
+        node.queue = NONE;
+        if (node.inWriteOrder) {
+            writeOrder.unlink(node);
+        }
+    }
+
+    // ===================================================
+    // Entries and their intrusive deques
+    // ===================================================
+
+    static final class Node<K, V> {
+        final K key;
+        final int hash;
+        volatile V value;
+        volatile int weight;
+        volatile long writeTime;
+        volatile long accessTime;
+
+        // guarded by policyLock
+        int queue;
+        int policyWeight;
+        boolean retired;
+        boolean inWriteOrder;
+        Node<K, V> prev;
+        Node<K, V> next;
+        Node<K, V> writePrev;
+        Node<K, V> writeNext;
+
+        Node(K key, int hash, V value, int weight, long now) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /** Doubly linked list through a node's access links, or its write-order links. */
+    static final class NodeDeque<K, V> {
+        private final boolean writeLinks;
+        Node<K, V> first;
+        Node<K, V> last;
+
+        NodeDeque(boolean writeLinks) {
+            this.writeLinks = writeLinks;
+        }
+
+        void linkLast(Node<K, V> node) {
+            setPrev(node, last);
+            setNext(node, null);
+            if (last == null) {
+                first = node;
+            } else {
+                setNext(last, node);
+            }
+            last = node;
+            if (writeLinks) {
+                node.inWriteOrder = true;
+            }
+        }
+
+        void unlink(Node<K, V> node) {
+            Node<K, V> p = prev(node);
+            Node<K, V> n = next(node);
+            if (p == null) {
+                first = n;
+            } else {
+                setNext(p, n);
+            }
+            if (n == null) {
+                last = p;
+            } else {
+                setPrev(n, p);
+            }
+            setPrev(node, null);
+            setNext(node, null);
+            if (writeLinks) {
+                node.inWriteOrder = false;
+            }
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (node != last) {
+                unlink(node);
+                linkLast(node);
+            }
+        }
+
+        private Node<K, V> prev(Node<K, V> node) {
+            return writeLinks ? node.writePrev : node.prev;
+        }
+
+        private Node<K, V> next(Node<K, V> node) {
+            return writeLinks ? node.writeNext : node.next;
+        }
+
+        private void setPrev(Node<K, V> node, Node<K, V> p) {
+            if (writeLinks) {
+                node.writePrev = p;
+            } else {
+                node.prev = p;
+            }
+        }
+
+        private void setNext(Node<K, V> node, Node<K, V> n) {
+            if (writeLinks) {
+                node.writeNext = n;
+            } else {
+                node.next = n;
+            }
+        }
+    }
+
+    // ===================================================
+    // Builder
+    // ===================================================
+
+    /**
+     * Configures a {@link BoundedCache}. Without a maximum the cache is
+     * unbounded (useful with expiry alone); without expiry entries only
+     * leave by eviction or removal.
+     */
+    public static final class Builder<K, V> {
+        private long maximum = Long.MAX_VALUE;
+        private boolean bounded;
+        private Weigher<?, ?> weigher = (k, v) -> 1;
+        private long expireAfterWriteNanos;
+        private long expireAfterAccessNanos;
+        private LongSupplier ticker = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /** Bounds the number of entries. */
+        public Builder<K, V> maximumSize(long maximumSize) {
+            requireUnbounded();
+            if (maximumSize < 0) {
+                throw new IllegalArgumentException("Negative maximum size: " + maximumSize);
+            }
+            maximum = maximumSize;
+            return this;
+        }
+
+        /** Bounds the sum of {@code weigher}'s weights instead of the number of entries. */
+        @SuppressWarnings("unchecked")
+        public <K1 extends K, V1 extends V> Builder<K1, V1> maximumWeight(long maximumWeight, Weigher<? super K1, ? super V1> weigher) {
+            requireUnbounded();
+            if (maximumWeight < 0) {
+                throw new IllegalArgumentException("Negative maximum weight: " + maximumWeight);
+            }
+            maximum = maximumWeight;
+            this.weigher = Objects.requireNonNull(weigher, "weigher");
+            return (Builder<K1, V1>) this;
+        }
+
+        /** Entries expire this long after they were created or last replaced. */
+        public Builder<K, V> expireAfterWrite(Duration duration) {
+            expireAfterWriteNanos = positiveNanos(duration);
+            return this;
+        }
+
+        /** Entries expire this long after they were last read or written. */
+        public Builder<K, V> expireAfterAccess(Duration duration) {
+            expireAfterAccessNanos = positiveNanos(duration);
+            return this;
+        }
+
+        /** Time source for expiry, in nanoseconds; {@code System::nanoTime} by default. */
+        public Builder<K, V> ticker(LongSupplier ticker) {
+            this.ticker = Objects.requireNonNull(ticker, "ticker");
+            return this;
+        }
+
+        public <K1 extends K, V1 extends V> BoundedCache<K1, V1> build() {
+            return new BoundedCache<>(this);
+        }
+
+        private void requireUnbounded() {
+            if (bounded) {
+                throw new IllegalStateException("Maximum size or weight already set");
+            }
+            bounded = true;
+        }
+
+        private static long positiveNanos(Duration duration) {
+            if (duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("Duration must be positive: " + duration);
+            }
+            return duration.toNanos();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package cache;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often each key was seen
+ * recently: the TinyLFU frequency filter behind {@link BoundedCache}'s
+ * admission decisions.
+ *
+ * <p>Sixteen counters are packed per {@code long}. A key increments one
+ * counter in each of four rows (chosen by independent re-hashes of its hash
+ * code) and its estimate is the smallest of the four, so collisions can only
+ * over-count. Counters saturate at 15. After {@code 10 × capacity}
+ * increments every counter is halved, which ages out keys that were popular
+ * long ago.
+ *
+ * <p>The table starts small and is rebuilt (losing its counts) when the
+ * cache grows past the capacity it was sized for, so a weight-bounded cache
+ * of few heavy entries does not pay for a sketch sized by total weight.
+ * Not thread-safe; the cache only touches it under its policy lock.
+ */
+final class FrequencySketch {
+
+    private static final int MAX_WORDS = 1 << 22; // 64M counters, 32 MB
+    private static final long[] SEEDS = {
+        0x97CB3127E0A6F9D3L, 0xC2B2AE3D27D4EB4FL, 0x9E3779B97F4A7C15L, 0xD6E8FEB86659FD93L
+    };
+    private static final long HALF_MASK = 0x7777_7777_7777_7777L;
+    private static final long ONE_MASK = 0x1111_1111_1111_1111L;
+
+    private long[] table;
+    private int counterBits;
+    private int sampleSize;
+    private int additions;
+
+    FrequencySketch(long capacity) {
+        ensureCapacity(capacity);
+    }
+
+    /** Resizes for about {@code capacity} distinct hot keys if the table is smaller. */
+    void ensureCapacity(long capacity) {
+        int words = (int) Math.min(MAX_WORDS, Math.max(8, Long.highestOneBit(Math.max(1, capacity) - 1) << 1));
+        if (table != null && words <= table.length) {
+            return;
+        }
+        table = new long[words];
+        counterBits = Integer.numberOfTrailingZeros(words) + 4; // 16 counters per word
+        sampleSize = (int) Math.min(Integer.MAX_VALUE / 2, 10L * Math.max(1, capacity));
+        additions = 0;
+    }
+
+    /** Number of keys the table is sized for. */
+    long capacity() {
+        return sampleSize / 10;
+    }
+
+    /** Estimated number of recent occurrences of {@code hash}, in {@code [0, 15]}. */
+    int frequency(int hash) {
+        int min = 15;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int counter = counter(hash, row);
+            min = Math.min(min, (int) (table[counter >>> 4] >>> ((counter & 15) << 2)) & 15);
+        }
+        return min;
+    }
+
+    /** Records one occurrence of {@code hash}. */
+    void increment(int hash) {
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int counter = counter(hash, row);
+            int word = counter >>> 4;
+            int shift = (counter & 15) << 2;
+            if ((table[word] >>> shift & 15) != 15) {
+                table[word] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            age();
+        }
+    }
+
+    /** Halves every counter; odd counters lose their low bit, as in TinyLFU's reset. */
+    private void age() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & HALF_MASK;
+        }
+        additions = (additions - (odd >>> 2)) >>> 1;
+    }
+
+    private int counter(int hash, int row) {
+        long x = (hash + SEEDS[row]) * SEEDS[row];
+        return (int) (x >>> (64 - counterBits));
+    }
+}
@@ -0,0 +1,76 @@
+package cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.Consumer;
+
+/**
+ * Lossy many-producer/single-consumer ring buffer that records cache reads
+ * for {@link BoundedCache}'s policy.
+ *
+ * <p>A producer claims a slot with one CAS on {@code writeCounter} and gives
+ * up instead of retrying when the buffer is full or the CAS loses: a dropped
+ * read only makes the frequency and recency estimates slightly less exact.
+ * The single consumer (the thread holding the policy lock) drains published
+ * slots without any CAS. Cheaper per read than a general MPMC queue, which
+ * needs a sequence number per slot and a CAS on the consumer side too.
+ */
+final class ReadBuffer<E> {
+
+    /** Result of {@link #offer}. */
+    static final int SUCCESS = 0;
+    static final int FULL = 1;
+    static final int FAILED = 2;
+
+    private static final VarHandle WRITE_COUNTER;
+    private static final VarHandle ELEMENT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            WRITE_COUNTER = MethodHandles.lookup().findVarHandle(ReadBuffer.class, "writeCounter", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] buffer;
+    private final int mask;
+    private volatile long writeCounter;
+    private volatile long readCounter; // written only by the consumer
+
+    /** @param capacity power of two */
+    ReadBuffer(int capacity) {
+        buffer = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    int offer(E e) {
+        long head = readCounter;
+        long tail = writeCounter;
+        if (tail - head > mask) {
+            return FULL;
+        }
+        if (!WRITE_COUNTER.compareAndSet(this, tail, tail + 1)) {
+            return FAILED;
+        }
+        ELEMENT.setRelease(buffer, (int) tail & mask, e);
+        return SUCCESS;
+    }
+
+    /** Hands every published element to {@code consumer}; call from one thread at a time. */
+    @SuppressWarnings("unchecked")
+    void drainTo(Consumer<E> consumer) {
+        long head = readCounter;
+        long tail = writeCounter;
+        for (; head < tail; head++) {
+            int slot = (int) head & mask;
+            E e = (E) ELEMENT.getAcquire(buffer, slot);
+            if (e == null) {
+                break; // claimed but not yet published
+            }
+            ELEMENT.setOpaque(buffer, slot, null);
+            consumer.accept(e);
+        }
+        readCounter = head;
+    }
+}
@@ -0,0 +1,1395 @@
+package concurrent;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Concurrent sorted map stored as a B+-tree of wide nodes: a drop-in for
+ * {@code ConcurrentSkipListMap} (and, single-threaded, {@code TreeMap}) with
+ * the same {@link ConcurrentNavigableMap} API, including range views, but
+ * with up to {@value #NODE_CAPACITY} keys per node in one array, so a lookup
+ * touches a handful of nodes instead of one pointer per level per key, and a
+ * range scan copies runs of adjacent entries out of each leaf.
+ *
+ * <p>Every node extends {@link StampedLock}, as the stripes of
+ * {@link StripedHashSet} do, and carries its lower fence key and a link to
+ * its right sibling (a B-link tree):
+ * <ul>
+ *   <li><b>Reads</b> take no lock. Each node is read optimistically and the
+ *       stamp validated before the child pointer is followed; if the key is
+ *       past the node's right sibling's fence, because the node split since
+ *       its parent was read, the reader moves right instead of restarting.
+ *       A read that races a writer on the same node retries that node
+ *       only.</li>
+ *   <li><b>Writes</b> lock one leaf. When the leaf is full, the writer
+ *       descends again, splitting full nodes on the way down while holding
+ *       only the node and its parent, then retries. Writers to different
+ *       leaves never wait for each other.</li>
+ * </ul>
+ * Leaves that fill in ascending key order (appends) split unevenly so they
+ * stay full; random inserts leave them half to fully full.
+ *
+ * <p>As in {@code ConcurrentSkipListMap}: {@code null} keys and values are
+ * rejected; iterators and views are weakly consistent (a scan sees every
+ * entry present throughout it, in order, and never throws
+ * {@code ConcurrentModificationException}); returned entries are immutable
+ * snapshots; {@code size()} of a range view counts its entries; and bulk
+ * operations are not atomic. Nodes are never merged: removing entries, or
+ * {@link #clear()}, leaves the emptied nodes in place, so a map that shrinks
+ * for good should be copied into a new one.
+ */
+public class BTreeMap<K, V> extends AbstractMap<K, V> implements ConcurrentNavigableMap<K, V> {
+
+    /** Keys per node. 64 references fill four cache lines; a leaf scan reads them in order. */
+    public static final int NODE_CAPACITY = 64;
+
+    /** Search keys below and above every key; only used internally. */
+    private static final Object LOWEST = new Object();
+    private static final Object HIGHEST = new Object();
+
+    private final Comparator<? super K> comparator;
+    private volatile Node root = new Leaf(null);
+    private final LongAdder size = new LongAdder();
+    final SubMap<K, V> all = new SubMap<>(this, null, false, null, false, false);
+
+    /** Keys in natural order. */
+    public BTreeMap() {
+        this.comparator = null;
+    }
+
+    public BTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    public BTreeMap(Map<? extends K, ? extends V> m) {
+        this.comparator = null;
+        putAll(m);
+    }
+
+    /** Same order as {@code m}; its entries arrive sorted, so the leaves come out full. */
+    public BTreeMap(SortedMap<K, ? extends V> m) {
+        this.comparator = m.comparator();
+        putAll(m);
+    }
+
+    // ===================================================
+    // Point operations
+    // ===================================================
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Objects.requireNonNull(key);
+        Leaf leaf = leafFor(key, false);
+        for (;;) {
+            long stamp = leaf.stamp();
+            Object value = null;
+            Leaf right = null;
+            try {
+                int count = leaf.count;
+                int i = lowerBound(leaf, count, key);
+                if (i < count && compare(leaf.keys[i], key) == 0) {
+                    value = leaf.values[i];
+                } else if (i == count) {
+                    right = rightOf(leaf, key, false);
+                }
+            } catch (RuntimeException e) {
+                if (leaf.validate(stamp)) {
+                    throw e;
+                }
+                continue;
+            }
+            if (!leaf.validate(stamp)) {
+                continue;
+            }
+            if (right == null) {
+                return (V) value;
+            }
+            leaf = right;
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return update(key, null, value, PUT);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return update(key, null, value, IF_ABSENT);
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        return update(key, null, value, IF_PRESENT);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Objects.requireNonNull(oldValue);
+        return update(key, oldValue, newValue, IF_EQUAL) != null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        return delete(key, null);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        return value != null && delete(key, value) != null;
+    }
+
+    private static final int PUT = 0;
+    private static final int IF_ABSENT = 1;
+    private static final int IF_PRESENT = 2;
+    private static final int IF_EQUAL = 3;
+
+    /** Returns the previous value ({@code null} if absent); for {@code IF_EQUAL}, non-null if replaced. */
+    @SuppressWarnings("unchecked")
+    private V update(K key, Object expected, V value, int mode) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        for (;;) {
+            Leaf leaf = lockLeaf(key);
+            try {
+                int count = leaf.count;
+                int i = lowerBound(leaf, count, key);
+                if (i < count && compare(leaf.keys[i], key) == 0) {
+                    Object old = leaf.values[i];
+                    if (mode == PUT || mode == IF_PRESENT || (mode == IF_EQUAL && expected.equals(old))) {
+                        leaf.values[i] = value;
+                    } else if (mode == IF_EQUAL) {
+                        return null;
+                    }
+                    return (V) old;
+                }
+                if (mode == IF_PRESENT || mode == IF_EQUAL) {
+                    return null;
+                }
+                if (count < NODE_CAPACITY) {
+                    System.arraycopy(leaf.keys, i, leaf.keys, i + 1, count - i);
+                    System.arraycopy(leaf.values, i, leaf.values, i + 1, count - i);
+                    leaf.keys[i] = key;
+                    leaf.values[i] = value;
+                    leaf.count = count + 1;
+                    size.increment();
+                    return null;
+                }
+            } finally {
+                leaf.tryUnlockWrite();
+            }
+            splitFor(key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V delete(Object key, Object expected) {
+        Objects.requireNonNull(key);
+        Leaf leaf = lockLeaf(key);
+        try {
+            int count = leaf.count;
+            int i = lowerBound(leaf, count, key);
+            if (i == count || compare(leaf.keys[i], key) != 0) {
+                return null;
+            }
+            Object old = leaf.values[i];
+            if (expected != null && !expected.equals(old)) {
+                return null;
+            }
+            System.arraycopy(leaf.keys, i + 1, leaf.keys, i, count - i - 1);
+            System.arraycopy(leaf.values, i + 1, leaf.values, i, count - i - 1);
+            leaf.keys[count - 1] = null;
+            leaf.values[count - 1] = null;
+            leaf.count = count - 1;
+            size.decrement();
+            return (V) old;
+        } finally {
+            leaf.tryUnlockWrite();
+        }
+    }
+
+    /** Exact while no other thread is writing. */
+    @Override
+    public int size() {
+        return (int) Math.max(0, Math.min(size.sum(), Integer.MAX_VALUE));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return firstEntry() == null;
+    }
+
+    /** Empties every leaf in turn; entries put meanwhile may survive, as with a loop of removes. */
+    @Override
+    public void clear() {
+        for (Leaf leaf = leafFor(LOWEST, false); leaf != null; ) {
+            long stamp = leaf.writeLock();
+            Leaf next;
+            try {
+                int count = leaf.count;
+                Arrays.fill(leaf.keys, 0, count, null);
+                Arrays.fill(leaf.values, 0, count, null);
+                leaf.count = 0;
+                size.add(-count);
+                next = leaf.next;
+            } finally {
+                leaf.unlockWrite(stamp);
+            }
+            leaf = next;
+        }
+    }
+
+    // ===================================================
+    // Navigation and views (through the unbounded view)
+    // ===================================================
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        return all.firstEntry();
+    }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        return all.lastEntry();
+    }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        return all.pollFirstEntry();
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        return all.pollLastEntry();
+    }
+
+    @Override
+    public K firstKey() {
+        return all.firstKey();
+    }
+
+    @Override
+    public K lastKey() {
+        return all.lastKey();
+    }
+
+    @Override
+    public Map.Entry<K, V> lowerEntry(K key) {
+        return all.lowerEntry(key);
+    }
+
+    @Override
+    public K lowerKey(K key) {
+        return all.lowerKey(key);
+    }
+
+    @Override
+    public Map.Entry<K, V> floorEntry(K key) {
+        return all.floorEntry(key);
+    }
+
+    @Override
+    public K floorKey(K key) {
+        return all.floorKey(key);
+    }
+
+    @Override
+    public Map.Entry<K, V> ceilingEntry(K key) {
+        return all.ceilingEntry(key);
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        return all.ceilingKey(key);
+    }
+
+    @Override
+    public Map.Entry<K, V> higherEntry(K key) {
+        return all.higherEntry(key);
+    }
+
+    @Override
+    public K higherKey(K key) {
+        return all.higherKey(key);
+    }
+
+    @Override
+    public SubMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        return all.subMap(fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    @Override
+    public SubMap<K, V> headMap(K toKey, boolean inclusive) {
+        return all.headMap(toKey, inclusive);
+    }
+
+    @Override
+    public SubMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        return all.tailMap(fromKey, inclusive);
+    }
+
+    @Override
+    public SubMap<K, V> subMap(K fromKey, K toKey) {
+        return all.subMap(fromKey, toKey);
+    }
+
+    @Override
+    public SubMap<K, V> headMap(K toKey) {
+        return all.headMap(toKey);
+    }
+
+    @Override
+    public SubMap<K, V> tailMap(K fromKey) {
+        return all.tailMap(fromKey);
+    }
+
+    @Override
+    public SubMap<K, V> descendingMap() {
+        return all.descendingMap();
+    }
+
+    @Override
+    public BTreeSet<K> keySet() {
+        return all.keySet();
+    }
+
+    @Override
+    public BTreeSet<K> navigableKeySet() {
+        return all.navigableKeySet();
+    }
+
+    @Override
+    public BTreeSet<K> descendingKeySet() {
+        return all.descendingKeySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return all.values();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return all.entrySet();
+    }
+
+    // ===================================================
+    // Tree
+    // ===================================================
+
+    /**
+     * A node and its lock. {@code low} is the smallest key the node may hold
+     * ({@code null} for the leftmost node of a level) and never changes: a
+     * split keeps the left half in place and gives the right half a new
+     * node, so the node's upper bound is {@code next.low}.
+     */
+    private abstract static class Node extends StampedLock {
+        private static final long serialVersionUID = 1L;
+
+        final Object low;
+        final Object[] keys = new Object[NODE_CAPACITY];
+        int count;
+
+        Node(Object low) {
+            this.low = low;
+        }
+
+        /** An optimistic read stamp, waiting out a writer if there is one. */
+        final long stamp() {
+            for (int spins = 0; ; spins++) {
+                long stamp = tryOptimisticRead();
+                if (stamp != 0) {
+                    return stamp;
+                }
+                if (spins < 64) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+        }
+
+        abstract Node next();
+    }
+
+    private static final class Inner extends Node {
+        private static final long serialVersionUID = 1L;
+
+        /** {@code children[i]} holds the keys in {@code [keys[i - 1], keys[i])}. */
+        final Node[] children = new Node[NODE_CAPACITY + 1];
+        Inner next;
+
+        Inner(Object low) {
+            super(low);
+        }
+
+        @Override
+        Node next() {
+            return next;
+        }
+    }
+
+    private static final class Leaf extends Node {
+        private static final long serialVersionUID = 1L;
+
+        final Object[] values = new Object[NODE_CAPACITY];
+        Leaf next;
+
+        Leaf(Object low) {
+            super(low);
+        }
+
+        @Override
+        Node next() {
+            return next;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    int compare(Object a, Object b) {
+        return comparator != null ? comparator.compare((K) a, (K) b) : ((Comparable<Object>) a).compareTo(b);
+    }
+
+    /** First index in {@code [0, count)} whose key is greater than {@code key}, or {@code count}. */
+    private int upperBound(Node node, int count, Object key) {
+        if (key == LOWEST) {
+            return 0;
+        }
+        if (key == HIGHEST) {
+            return count;
+        }
+        Object[] keys = node.keys;
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare(keys[mid], key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /** First index in {@code [0, count)} whose key is not less than {@code key}, or {@code count}. */
+    private int lowerBound(Node node, int count, Object key) {
+        if (key == LOWEST) {
+            return 0;
+        }
+        if (key == HIGHEST) {
+            return count;
+        }
+        Object[] keys = node.keys;
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare(keys[mid], key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The right sibling if {@code key} belongs there (the node split after
+     * it was reached), else null. {@code strict}: looking for the keys just
+     * below {@code key} rather than {@code key} itself.
+     */
+    @SuppressWarnings("unchecked")
+    private <N extends Node> N rightOf(N node, Object key, boolean strict) {
+        Node next = node.next();
+        if (next == null || key == LOWEST) {
+            return null;
+        }
+        if (key != HIGHEST) {
+            int c = compare(key, next.low);
+            if (c < 0 || (c == 0 && strict)) {
+                return null;
+            }
+        }
+        return (N) next;
+    }
+
+    /**
+     * The leaf for {@code key} (or, if {@code strict}, for the keys just
+     * below it), found without locks; it may have split since, see
+     * {@link #rightOf}.
+     */
+    private Leaf leafFor(Object key, boolean strict) {
+        Node node = root;
+        while (node instanceof Inner) {
+            Inner inner = (Inner) node;
+            long stamp = inner.stamp();
+            Node child;
+            try {
+                int count = inner.count;
+                int i = strict ? lowerBound(inner, count, key) : upperBound(inner, count, key);
+                child = i == count ? rightOf(inner, key, strict) : null;
+                if (child == null) {
+                    child = inner.children[i];
+                }
+            } catch (RuntimeException e) {
+                if (inner.validate(stamp)) {
+                    throw e;
+                }
+                continue;
+            }
+            if (inner.validate(stamp)) {
+                node = child;
+            }
+        }
+        return (Leaf) node;
+    }
+
+    /** The leaf for {@code key}, write-locked; release with {@code tryUnlockWrite()}. */
+    private Leaf lockLeaf(Object key) {
+        Leaf leaf = leafFor(key, false);
+        leaf.writeLock();
+        for (;;) {
+            Leaf right;
+            try {
+                right = rightOf(leaf, key, false);
+            } catch (RuntimeException e) {
+                leaf.tryUnlockWrite();
+                throw e;
+            }
+            if (right == null) {
+                return leaf;
+            }
+            right.writeLock(); // left to right, as every blocking acquisition here
+            leaf.tryUnlockWrite();
+            leaf = right;
+        }
+    }
+
+    /**
+     * Descends towards {@code key} with lock coupling (each child's stamp
+     * is taken while its parent's is still valid) and splits the first full
+     * node on the path, or nothing if the path has none by now.
+     */
+    private void splitFor(Object key) {
+        restart:
+        for (;;) {
+            Node node = root;
+            long stamp = node.stamp();
+            if (node != root) {
+                continue;
+            }
+            Inner parent = null;
+            long parentStamp = 0;
+            for (;;) {
+                if (node.count == NODE_CAPACITY) {
+                    if (split(parent, parentStamp, node, stamp, key)) {
+                        return;
+                    }
+                    continue restart;
+                }
+                if (node instanceof Leaf) {
+                    return;
+                }
+                Inner inner = (Inner) node;
+                Node child;
+                try {
+                    child = inner.children[upperBound(inner, inner.count, key)];
+                } catch (RuntimeException e) {
+                    if (inner.validate(stamp)) {
+                        throw e;
+                    }
+                    continue restart;
+                }
+                long childStamp = child.tryOptimisticRead();
+                if (childStamp == 0 || !inner.validate(stamp)) {
+                    continue restart;
+                }
+                parent = inner;
+                parentStamp = stamp;
+                node = child;
+                stamp = childStamp;
+            }
+        }
+    }
+
+    /**
+     * Splits full {@code node}, adding the new right half to {@code parent}
+     * (which is not full: full nodes split on the way down) or to a new
+     * root. False if either stamp is no longer valid.
+     */
+    private boolean split(Inner parent, long parentStamp, Node node, long stamp, Object key) {
+        long parentWrite = 0;
+        if (parent != null && (parentWrite = parent.tryConvertToWriteLock(parentStamp)) == 0) {
+            return false;
+        }
+        long write = node.tryConvertToWriteLock(stamp);
+        if (write == 0 || (parent == null && node != root)) {
+            if (write != 0) {
+                node.unlockWrite(write);
+            }
+            if (parent != null) {
+                parent.unlockWrite(parentWrite);
+            }
+            return false;
+        }
+        try {
+            // Appending at the right edge: keep the left node full.
+            boolean append = node.next() == null && compare(key, node.keys[NODE_CAPACITY - 1]) > 0;
+            Object separator;
+            Node right;
+            if (node instanceof Leaf) {
+                Leaf leaf = (Leaf) node;
+                int mid = append ? NODE_CAPACITY - 1 : NODE_CAPACITY / 2;
+                separator = leaf.keys[mid];
+                Leaf sibling = new Leaf(separator);
+                int moved = NODE_CAPACITY - mid;
+                System.arraycopy(leaf.keys, mid, sibling.keys, 0, moved);
+                System.arraycopy(leaf.values, mid, sibling.values, 0, moved);
+                sibling.count = moved;
+                Arrays.fill(leaf.keys, mid, NODE_CAPACITY, null);
+                Arrays.fill(leaf.values, mid, NODE_CAPACITY, null);
+                leaf.count = mid;
+                sibling.next = leaf.next;
+                leaf.next = sibling;
+                right = sibling;
+            } else {
+                Inner inner = (Inner) node;
+                int mid = append ? NODE_CAPACITY - 2 : NODE_CAPACITY / 2;
+                separator = inner.keys[mid];
+                Inner sibling = new Inner(separator);
+                int moved = NODE_CAPACITY - mid - 1;
+                System.arraycopy(inner.keys, mid + 1, sibling.keys, 0, moved);
+                System.arraycopy(inner.children, mid + 1, sibling.children, 0, moved + 1);
+                sibling.count = moved;
+                Arrays.fill(inner.keys, mid, NODE_CAPACITY, null);
+                Arrays.fill(inner.children, mid + 1, NODE_CAPACITY + 1, null);
+                inner.count = mid;
+                sibling.next = inner.next;
+                inner.next = sibling;
+                right = sibling;
+            }
+            if (parent == null) {
+                Inner top = new Inner(null);
+                top.keys[0] = separator;
+                top.children[0] = node;
+                top.children[1] = right;
+                top.count = 1;
+                root = top;
+            } else {
+                int count = parent.count;
+                int i = upperBound(parent, count, separator);
+                System.arraycopy(parent.keys, i, parent.keys, i + 1, count - i);
+                System.arraycopy(parent.children, i + 1, parent.children, i + 2, count - i);
+                parent.keys[i] = separator;
+                parent.children[i + 1] = right;
+                parent.count = count + 1;
+            }
+            return true;
+        } finally {
+            node.unlockWrite(write);
+            if (parent != null) {
+                parent.unlockWrite(parentWrite);
+            }
+        }
+    }
+
+    // ===================================================
+    // Scans
+    // ===================================================
+
+    /** Entries copied out of one leaf, in ascending order, and where the scan continues. */
+    static final class Batch {
+        final Object[] keys;
+        final Object[] values;
+        int size;
+        /** Ascending scans: the next leaf, or null at the end. */
+        Leaf next;
+        /** Descending scans: the keys left to scan are below this; null at the start of the map. */
+        Object low;
+
+        Batch(int capacity) {
+            this.keys = new Object[capacity];
+            this.values = new Object[capacity];
+        }
+    }
+
+    /** The first entries at or above ({@code inclusive}) or above {@code key}, from the first leaf that has any. */
+    void fillAbove(Object key, boolean inclusive, Batch batch) {
+        fill(leafFor(key, false), key, inclusive, batch);
+    }
+
+    /** All entries of the first non-empty leaf from {@code batch.next} on. */
+    void fillNext(Batch batch) {
+        fill(batch.next, LOWEST, true, batch);
+    }
+
+    private void fill(Leaf leaf, Object key, boolean inclusive, Batch batch) {
+        for (;;) {
+            long stamp = leaf.stamp();
+            int copied;
+            Leaf next;
+            try {
+                int count = leaf.count;
+                int i = inclusive ? lowerBound(leaf, count, key) : upperBound(leaf, count, key);
+                Leaf right = i == count ? rightOf(leaf, key, false) : null;
+                if (right != null) {
+                    if (leaf.validate(stamp)) {
+                        leaf = right;
+                    }
+                    continue;
+                }
+                copied = Math.min(count - i, batch.keys.length);
+                System.arraycopy(leaf.keys, i, batch.keys, 0, copied);
+                System.arraycopy(leaf.values, i, batch.values, 0, copied);
+                next = leaf.next;
+            } catch (RuntimeException e) {
+                if (leaf.validate(stamp)) {
+                    throw e;
+                }
+                continue;
+            }
+            if (!leaf.validate(stamp)) {
+                continue;
+            }
+            if (copied > 0 || next == null) {
+                batch.size = copied;
+                batch.next = next;
+                return;
+            }
+            leaf = next; // every key there is above key
+            key = LOWEST;
+        }
+    }
+
+    /** The last entries at or below ({@code inclusive}) or below {@code key}, from the first leaf leftwards that has any. */
+    void fillBelow(Object key, boolean inclusive, Batch batch) {
+        Leaf leaf = leafFor(key, !inclusive);
+        for (;;) {
+            long stamp = leaf.stamp();
+            int copied;
+            try {
+                int count = leaf.count;
+                int end = inclusive ? upperBound(leaf, count, key) : lowerBound(leaf, count, key);
+                Leaf right = end == count ? rightOf(leaf, key, !inclusive) : null;
+                if (right != null) {
+                    if (leaf.validate(stamp)) {
+                        leaf = right;
+                    }
+                    continue;
+                }
+                copied = Math.min(end, batch.keys.length);
+                System.arraycopy(leaf.keys, end - copied, batch.keys, 0, copied);
+                System.arraycopy(leaf.values, end - copied, batch.values, 0, copied);
+            } catch (RuntimeException e) {
+                if (leaf.validate(stamp)) {
+                    throw e;
+                }
+                continue;
+            }
+            if (!leaf.validate(stamp)) {
+                continue;
+            }
+            if (copied > 0 || leaf.low == null) {
+                batch.size = copied;
+                batch.low = leaf.low;
+                return;
+            }
+            key = leaf.low; // nothing here at or below key: continue below the leaf's fence
+            inclusive = false;
+            leaf = leafFor(key, true);
+        }
+    }
+
+    /** Smallest entry at or above ({@code inclusive}) or above {@code key}; {@code key} may be unbounded. */
+    Map.Entry<K, V> entryAbove(Object key, boolean inclusive) {
+        Batch batch = new Batch(1);
+        fillAbove(key == null ? LOWEST : key, inclusive, batch);
+        return entry(batch);
+    }
+
+    /** Largest entry at or below ({@code inclusive}) or below {@code key}; {@code key} may be unbounded. */
+    Map.Entry<K, V> entryBelow(Object key, boolean inclusive) {
+        Batch batch = new Batch(1);
+        fillBelow(key == null ? HIGHEST : key, inclusive, batch);
+        return entry(batch);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map.Entry<K, V> entry(Batch batch) {
+        return batch.size == 0 ? null : new SimpleImmutableEntry<>((K) batch.keys[0], (V) batch.values[0]);
+    }
+
+    // ===================================================
+    // Range views
+    // ===================================================
+
+    /**
+     * A range of the map, ascending or descending, between optional bounds
+     * ({@code null} = unbounded). Reads and writes go to the map; keys
+     * outside the range read as absent and are rejected by {@code put}.
+     */
+    public static final class SubMap<K, V> extends AbstractMap<K, V> implements ConcurrentNavigableMap<K, V> {
+        private final BTreeMap<K, V> m;
+        private final K lo;
+        private final boolean loInclusive;
+        private final K hi;
+        private final boolean hiInclusive;
+        private final boolean descending;
+
+        SubMap(BTreeMap<K, V> m, K lo, boolean loInclusive, K hi, boolean hiInclusive, boolean descending) {
+            if (lo != null && hi != null && m.compare(lo, hi) > 0) {
+                throw new IllegalArgumentException("inconsistent range");
+            }
+            this.m = m;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+        }
+
+        private boolean unbounded() {
+            return lo == null && hi == null;
+        }
+
+        private boolean tooLow(Object key) {
+            if (lo == null) {
+                return false;
+            }
+            int c = m.compare(key, lo);
+            return c < 0 || (c == 0 && !loInclusive);
+        }
+
+        private boolean tooHigh(Object key) {
+            if (hi == null) {
+                return false;
+            }
+            int c = m.compare(key, hi);
+            return c > 0 || (c == 0 && !hiInclusive);
+        }
+
+        private boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        private void checkRange(Object key) {
+            Objects.requireNonNull(key);
+            if (!inRange(key)) {
+                throw new IllegalArgumentException("key out of range");
+            }
+        }
+
+        // -- Map --
+
+        @Override
+        public V get(Object key) {
+            Objects.requireNonNull(key);
+            return inRange(key) ? m.get(key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            Objects.requireNonNull(key);
+            return inRange(key) && m.containsKey(key);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            checkRange(key);
+            return m.put(key, value);
+        }
+
+        @Override
+        public V putIfAbsent(K key, V value) {
+            checkRange(key);
+            return m.putIfAbsent(key, value);
+        }
+
+        @Override
+        public V replace(K key, V value) {
+            checkRange(key);
+            return m.replace(key, value);
+        }
+
+        @Override
+        public boolean replace(K key, V oldValue, V newValue) {
+            checkRange(key);
+            return m.replace(key, oldValue, newValue);
+        }
+
+        @Override
+        public V remove(Object key) {
+            Objects.requireNonNull(key);
+            return inRange(key) ? m.remove(key) : null;
+        }
+
+        @Override
+        public boolean remove(Object key, Object value) {
+            Objects.requireNonNull(key);
+            return inRange(key) && m.remove(key, value);
+        }
+
+        /** Counts the range; the whole map's size is kept instead. */
+        @Override
+        public int size() {
+            if (unbounded()) {
+                return m.size();
+            }
+            long count = 0;
+            for (Iterator<K> it = keyIterator(); it.hasNext(); it.next()) {
+                count++;
+            }
+            return (int) Math.min(count, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return lowest() == null;
+        }
+
+        @Override
+        public void clear() {
+            if (unbounded()) {
+                m.clear();
+                return;
+            }
+            for (Iterator<K> it = keyIterator(); it.hasNext(); ) {
+                m.remove(it.next());
+            }
+        }
+
+        // -- Navigation in key order, whatever the view's direction --
+
+        private Map.Entry<K, V> lowest() {
+            Map.Entry<K, V> e = m.entryAbove(lo, lo == null || loInclusive);
+            return e == null || tooHigh(e.getKey()) ? null : e;
+        }
+
+        private Map.Entry<K, V> highest() {
+            Map.Entry<K, V> e = m.entryBelow(hi, hi == null || hiInclusive);
+            return e == null || tooLow(e.getKey()) ? null : e;
+        }
+
+        private Map.Entry<K, V> above(K key, boolean inclusive) {
+            Objects.requireNonNull(key);
+            if (tooLow(key)) {
+                return lowest();
+            }
+            Map.Entry<K, V> e = m.entryAbove(key, inclusive);
+            return e == null || tooHigh(e.getKey()) ? null : e;
+        }
+
+        private Map.Entry<K, V> below(K key, boolean inclusive) {
+            Objects.requireNonNull(key);
+            if (tooHigh(key)) {
+                return highest();
+            }
+            Map.Entry<K, V> e = m.entryBelow(key, inclusive);
+            return e == null || tooLow(e.getKey()) ? null : e;
+        }
+
+        private static <K> K key(Map.Entry<K, ?> e) {
+            return e == null ? null : e.getKey();
+        }
+
+        private static <K> K keyOrThrow(Map.Entry<K, ?> e) {
+            if (e == null) {
+                throw new NoSuchElementException();
+            }
+            return e.getKey();
+        }
+
+        private Map.Entry<K, V> poll(boolean first) {
+            for (;;) {
+                Map.Entry<K, V> e = first ? firstEntry() : lastEntry();
+                if (e == null || m.remove(e.getKey(), e.getValue())) {
+                    return e;
+                }
+            }
+        }
+
+        // -- NavigableMap --
+
+        @Override
+        public Comparator<? super K> comparator() {
+            Comparator<? super K> c = m.comparator();
+            if (!descending) {
+                return c;
+            }
+            return c == null ? Collections.reverseOrder() : Collections.reverseOrder(c);
+        }
+
+        @Override
+        public Map.Entry<K, V> firstEntry() {
+            return descending ? highest() : lowest();
+        }
+
+        @Override
+        public Map.Entry<K, V> lastEntry() {
+            return descending ? lowest() : highest();
+        }
+
+        @Override
+        public Map.Entry<K, V> pollFirstEntry() {
+            return poll(true);
+        }
+
+        @Override
+        public Map.Entry<K, V> pollLastEntry() {
+            return poll(false);
+        }
+
+        @Override
+        public K firstKey() {
+            return keyOrThrow(firstEntry());
+        }
+
+        @Override
+        public K lastKey() {
+            return keyOrThrow(lastEntry());
+        }
+
+        @Override
+        public Map.Entry<K, V> lowerEntry(K key) {
+            return descending ? above(key, false) : below(key, false);
+        }
+
+        @Override
+        public K lowerKey(K key) {
+            return key(lowerEntry(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> floorEntry(K key) {
+            return descending ? above(key, true) : below(key, true);
+        }
+
+        @Override
+        public K floorKey(K key) {
+            return key(floorEntry(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> ceilingEntry(K key) {
+            return descending ? below(key, true) : above(key, true);
+        }
+
+        @Override
+        public K ceilingKey(K key) {
+            return key(ceilingEntry(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> higherEntry(K key) {
+            return descending ? below(key, false) : above(key, false);
+        }
+
+        @Override
+        public K higherKey(K key) {
+            return key(higherEntry(key));
+        }
+
+        /** Intersects this view with {@code [from, to]} given in the view's direction; {@code null} = open. */
+        private SubMap<K, V> newSubMap(K from, boolean fromInclusive, K to, boolean toInclusive) {
+            if (descending) {
+                K key = from;
+                from = to;
+                to = key;
+                boolean inclusive = fromInclusive;
+                fromInclusive = toInclusive;
+                toInclusive = inclusive;
+            }
+            if (lo != null) {
+                if (from == null) {
+                    from = lo;
+                    fromInclusive = loInclusive;
+                } else {
+                    int c = m.compare(from, lo);
+                    if (c < 0 || (c == 0 && !loInclusive && fromInclusive)) {
+                        throw new IllegalArgumentException("key out of range");
+                    }
+                }
+            }
+            if (hi != null) {
+                if (to == null) {
+                    to = hi;
+                    toInclusive = hiInclusive;
+                } else {
+                    int c = m.compare(to, hi);
+                    if (c > 0 || (c == 0 && !hiInclusive && toInclusive)) {
+                        throw new IllegalArgumentException("key out of range");
+                    }
+                }
+            }
+            return new SubMap<>(m, from, fromInclusive, to, toInclusive, descending);
+        }
+
+        @Override
+        public SubMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+            return newSubMap(Objects.requireNonNull(fromKey), fromInclusive, Objects.requireNonNull(toKey), toInclusive);
+        }
+
+        @Override
+        public SubMap<K, V> headMap(K toKey, boolean inclusive) {
+            return newSubMap(null, false, Objects.requireNonNull(toKey), inclusive);
+        }
+
+        @Override
+        public SubMap<K, V> tailMap(K fromKey, boolean inclusive) {
+            return newSubMap(Objects.requireNonNull(fromKey), inclusive, null, false);
+        }
+
+        @Override
+        public SubMap<K, V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SubMap<K, V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SubMap<K, V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        @Override
+        public SubMap<K, V> descendingMap() {
+            return new SubMap<>(m, lo, loInclusive, hi, hiInclusive, !descending);
+        }
+
+        // -- Views --
+
+        @Override
+        public BTreeSet<K> keySet() {
+            return new BTreeSet<>(this, false);
+        }
+
+        @Override
+        public BTreeSet<K> navigableKeySet() {
+            return keySet();
+        }
+
+        @Override
+        public BTreeSet<K> descendingKeySet() {
+            return descendingMap().keySet();
+        }
+
+        @Override
+        public Collection<V> values() {
+            return new AbstractCollection<>() {
+                @Override
+                public Iterator<V> iterator() {
+                    return new Scan<>() {
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        V element(Object key, Object value) {
+                            return (V) value;
+                        }
+                    };
+                }
+
+                @Override
+                public Spliterator<V> spliterator() {
+                    return Spliterators.spliteratorUnknownSize(iterator(),
+                            Spliterator.CONCURRENT | Spliterator.NONNULL | Spliterator.ORDERED);
+                }
+
+                @Override
+                public int size() {
+                    return SubMap.this.size();
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return SubMap.this.isEmpty();
+                }
+
+                @Override
+                public void clear() {
+                    SubMap.this.clear();
+                }
+            };
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new Scan<>() {
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        Map.Entry<K, V> element(Object key, Object value) {
+                            return new SimpleImmutableEntry<>((K) key, (V) value);
+                        }
+                    };
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    if (!(o instanceof Map.Entry<?, ?> e) || e.getKey() == null) {
+                        return false;
+                    }
+                    V value = get(e.getKey());
+                    return value != null && value.equals(e.getValue());
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    return o instanceof Map.Entry<?, ?> e && e.getKey() != null
+                            && SubMap.this.remove(e.getKey(), e.getValue());
+                }
+
+                @Override
+                public Spliterator<Map.Entry<K, V>> spliterator() {
+                    return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.CONCURRENT
+                            | Spliterator.NONNULL | Spliterator.ORDERED | Spliterator.DISTINCT);
+                }
+
+                @Override
+                public int size() {
+                    return SubMap.this.size();
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return SubMap.this.isEmpty();
+                }
+
+                @Override
+                public void clear() {
+                    SubMap.this.clear();
+                }
+            };
+        }
+
+        Iterator<K> keyIterator() {
+            return new Scan<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                K element(Object key, Object value) {
+                    return (K) key;
+                }
+            };
+        }
+
+        /**
+         * Iterates the range in the view's direction a leaf at a time: each
+         * batch is copied out of one leaf under one optimistic read, and the
+         * next comes from the leaf's right link (ascending) or a descent
+         * below its fence (descending).
+         */
+        private abstract class Scan<T> implements Iterator<T> {
+            private final Batch batch = new Batch(NODE_CAPACITY);
+            private int index;
+            private Object nextKey;
+            private Object nextValue;
+            private Object lastKey;
+
+            Scan() {
+                if (descending) {
+                    m.fillBelow(hi == null ? HIGHEST : hi, hi == null || hiInclusive, batch);
+                    index = batch.size - 1;
+                } else {
+                    m.fillAbove(lo == null ? LOWEST : lo, lo == null || loInclusive, batch);
+                }
+                advance();
+            }
+
+            abstract T element(Object key, Object value);
+
+            private void advance() {
+                nextKey = null;
+                nextValue = null;
+                for (;;) {
+                    if (descending) {
+                        if (index >= 0) {
+                            Object key = batch.keys[index];
+                            if (!tooLow(key)) {
+                                nextKey = key;
+                                nextValue = batch.values[index];
+                            }
+                            index--;
+                            return;
+                        }
+                        if (batch.low == null || (lo != null && m.compare(batch.low, lo) <= 0)) {
+                            return;
+                        }
+                        m.fillBelow(batch.low, false, batch);
+                        index = batch.size - 1;
+                    } else {
+                        if (index < batch.size) {
+                            Object key = batch.keys[index];
+                            if (!tooHigh(key)) {
+                                nextKey = key;
+                                nextValue = batch.values[index];
+                            }
+                            index++;
+                            return;
+                        }
+                        if (batch.next == null) {
+                            return;
+                        }
+                        m.fillNext(batch);
+                        index = 0;
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextKey != null;
+            }
+
+            @Override
+            public T next() {
+                if (nextKey == null) {
+                    throw new NoSuchElementException();
+                }
+                T element = element(nextKey, nextValue);
+                lastKey = nextKey;
+                advance();
+                return element;
+            }
+
+            @Override
+            public void remove() {
+                if (lastKey == null) {
+                    throw new IllegalStateException();
+                }
+                m.remove(lastKey);
+                lastKey = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package concurrent;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * Concurrent sorted set backed by a {@link BTreeMap}: the B+-tree
+ * counterpart of {@code ConcurrentSkipListSet}, with the same semantics
+ * (weakly consistent iteration, no {@code null} elements, range views that
+ * write through) and the map's cheaper lookups and range scans.
+ *
+ * <p>Also the type of {@link BTreeMap#keySet()} and its range views, which
+ * support removal but not {@code add}.
+ */
+public class BTreeSet<E> extends AbstractSet<E> implements NavigableSet<E> {
+
+    private final BTreeMap.SubMap<E, Object> m;
+    private final boolean addable;
+
+    /** Elements in natural order. */
+    public BTreeSet() {
+        this(new BTreeMap<E, Object>().all, true);
+    }
+
+    public BTreeSet(Comparator<? super E> comparator) {
+        this(new BTreeMap<E, Object>(comparator).all, true);
+    }
+
+    public BTreeSet(Collection<? extends E> elements) {
+        this();
+        addAll(elements);
+    }
+
+    /** Same order as {@code s}; its elements arrive sorted, so the leaves come out full. */
+    public BTreeSet(SortedSet<E> s) {
+        this(s.comparator());
+        addAll(s);
+    }
+
+    @SuppressWarnings("unchecked")
+    BTreeSet(BTreeMap.SubMap<E, ?> m, boolean addable) {
+        this.m = (BTreeMap.SubMap<E, Object>) m;
+        this.addable = addable;
+    }
+
+    @Override
+    public boolean add(E e) {
+        if (!addable) {
+            throw new UnsupportedOperationException();
+        }
+        return m.putIfAbsent(e, Boolean.TRUE) == null;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return m.containsKey(o);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return m.remove(o) != null;
+    }
+
+    /** Counts the elements if this is a range view; see {@link BTreeMap#size()} otherwise. */
+    @Override
+    public int size() {
+        return m.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return m.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        m.clear();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return m.keyIterator();
+    }
+
+    /**
+     * Weakly consistent and {@code CONCURRENT}, with no size: the count
+     * changes under a traversal, so unlike {@code Collection.spliterator()}
+     * it is not {@code SIZED}. {@code SORTED} only in natural order.
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        int chars = Spliterator.CONCURRENT | Spliterator.NONNULL | Spliterator.ORDERED | Spliterator.DISTINCT;
+        return Spliterators.spliteratorUnknownSize(iterator(),
+                comparator() == null ? chars | Spliterator.SORTED : chars);
+    }
+
+    @Override
+    public Iterator<E> descendingIterator() {
+        return m.descendingMap().keyIterator();
+    }
+
+    // ===================================================
+    // Navigation
+    // ===================================================
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return m.comparator();
+    }
+
+    @Override
+    public E first() {
+        return m.firstKey();
+    }
+
+    @Override
+    public E last() {
+        return m.lastKey();
+    }
+
+    @Override
+    public E lower(E e) {
+        return m.lowerKey(e);
+    }
+
+    @Override
+    public E floor(E e) {
+        return m.floorKey(e);
+    }
+
+    @Override
+    public E ceiling(E e) {
+        return m.ceilingKey(e);
+    }
+
+    @Override
+    public E higher(E e) {
+        return m.higherKey(e);
+    }
+
+    @Override
+    public E pollFirst() {
+        Map.Entry<E, Object> e = m.pollFirstEntry();
+        return e == null ? null : e.getKey();
+    }
+
+    @Override
+    public E pollLast() {
+        Map.Entry<E, Object> e = m.pollLastEntry();
+        return e == null ? null : e.getKey();
+    }
+
+    // ===================================================
+    // Range views
+    // ===================================================
+
+    @Override
+    public BTreeSet<E> descendingSet() {
+        return new BTreeSet<>(m.descendingMap(), addable);
+    }
+
+    @Override
+    public BTreeSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+        return new BTreeSet<>(m.subMap(fromElement, fromInclusive, toElement, toInclusive), addable);
+    }
+
+    @Override
+    public BTreeSet<E> headSet(E toElement, boolean inclusive) {
+        return new BTreeSet<>(m.headMap(toElement, inclusive), addable);
+    }
+
+    @Override
+    public BTreeSet<E> tailSet(E fromElement, boolean inclusive) {
+        return new BTreeSet<>(m.tailMap(fromElement, inclusive), addable);
+    }
+
+    @Override
+    public BTreeSet<E> subSet(E fromElement, E toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public BTreeSet<E> headSet(E toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public BTreeSet<E> tailSet(E fromElement) {
+        return tailSet(fromElement, true);
+    }
+}
@@ -0,0 +1,431 @@
+package concurrent;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Fork-join versions of the bulk {@code List} operations the examples call
+ * single-threaded — {@code removeIf}, {@code replaceAll},
+ * {@code sort(Comparator)} — plus parallel radix sorts for {@code int[]} and
+ * {@code long[]}.
+ *
+ * <p>The list operations copy the list with {@code toArray()}, do the
+ * per-element work (predicate, operator, comparisons) in parallel over
+ * chunks of that array, then write the result back with <em>one</em> call
+ * to the list's own {@code removeIf} / {@code replaceAll}, which every JDK
+ * list implements as a single in-order pass:
+ * <ul>
+ *   <li>{@link #removeIf} tests chunks in parallel into a bitset
+ *       ({@code long} words, chunk boundaries on word boundaries so no two
+ *       tasks write the same word), then the list compacts itself by
+ *       reading the bitset.</li>
+ *   <li>{@link #replaceAll} maps chunks in parallel into a result array.</li>
+ *   <li>{@link #sort(List, Comparator)} is a stable parallel merge sort:
+ *       chunks are sorted with {@code Arrays.sort}, then merged pairwise,
+ *       each merge itself split by binary search so the last levels stay
+ *       parallel.</li>
+ *   <li>{@link #sort(int[])} / {@link #sort(long[])} are LSD radix sorts on
+ *       8-bit digits: per-chunk histograms, prefix sums, per-chunk scatter;
+ *       a digit on which all keys agree is skipped.</li>
+ * </ul>
+ * Results are identical to the sequential JDK methods: same elements
+ * removed, same order, same (stable) sort. The predicate, operator and
+ * comparator must be safe to call from several threads and must not touch
+ * the list. Inputs smaller than {@value #PARALLEL_THRESHOLD} elements,
+ * non-{@link RandomAccess} lists, and pools of parallelism 1 use the plain
+ * sequential method, except that the radix sorts also run single-threaded:
+ * on random keys they beat {@code Arrays.sort} even on one core.
+ */
+public final class BulkOps {
+
+    /** Inputs with fewer elements than this run sequentially on the calling thread. */
+    public static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    private static final int MERGE_GRAIN = 1 << 13;
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    private static final BulkOps COMMON = new BulkOps(ForkJoinPool.commonPool());
+
+    private final ForkJoinPool pool;
+
+    /** @param pool pool that runs the parallel phases */
+    public BulkOps(ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool, "pool");
+    }
+
+    /** Bulk operations on {@link ForkJoinPool#commonPool()}. */
+    public static BulkOps common() {
+        return COMMON;
+    }
+
+    // ===================================================
+    // List operations
+    // ===================================================
+
+    /** Same result as {@code list.removeIf(filter)}. */
+    public <E> boolean removeIf(List<E> list, Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        int n = list.size();
+        if (!(list instanceof RandomAccess) || !isParallel(n)) {
+            return list.removeIf(filter);
+        }
+        Object[] a = list.toArray();
+        long[] removed = new long[(n + Long.SIZE - 1) >>> 6];
+        int chunks = chunkCount(n);
+        int[] counts = new int[chunks];
+        forEachIndex(chunks, c -> {
+            int count = 0;
+            for (int i = wordAlignedStart(c, chunks, n), end = wordAlignedStart(c + 1, chunks, n); i < end; i++) {
+                @SuppressWarnings("unchecked") E e = (E) a[i];
+                if (filter.test(e)) {
+                    removed[i >>> 6] |= 1L << i;
+                    count++;
+                }
+            }
+            counts[c] = count;
+        });
+        if (Arrays.stream(counts).sum() == 0) {
+            return false;
+        }
+        int[] next = new int[1];
+        list.removeIf(e -> {
+            int i = next[0]++;
+            return (removed[i >>> 6] & 1L << i) != 0;
+        });
+        checkVisitedAll(next[0], n);
+        return true;
+    }
+
+    /** Same result as {@code list.replaceAll(operator)}. */
+    @SuppressWarnings("unchecked")
+    public <E> void replaceAll(List<E> list, UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        int n = list.size();
+        if (!(list instanceof RandomAccess) || !isParallel(n)) {
+            list.replaceAll(operator);
+            return;
+        }
+        Object[] a = list.toArray();
+        int chunks = chunkCount(n);
+        forEachIndex(chunks, c -> {
+            for (int i = chunkStart(c, chunks, n), end = chunkStart(c + 1, chunks, n); i < end; i++) {
+                a[i] = operator.apply((E) a[i]);
+            }
+        });
+        writeBack(list, a);
+    }
+
+    /** Same result as {@code list.sort(c)}: stable, {@code null} means natural order. */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <E> void sort(List<E> list, Comparator<? super E> c) {
+        int n = list.size();
+        if (!(list instanceof RandomAccess) || !isParallel(n)) {
+            list.sort(c);
+            return;
+        }
+        Comparator<Object> cmp = c == null ? (Comparator) Comparator.naturalOrder() : (Comparator<Object>) c;
+        Object[] a = list.toArray();
+        int leaf = Math.max(PARALLEL_THRESHOLD, n / (pool.getParallelism() << 3));
+        pool.invoke(new SortTask(a, new Object[n], 0, n, false, leaf, cmp));
+        writeBack(list, a);
+    }
+
+    private static <E> void writeBack(List<E> list, Object[] a) {
+        int[] next = new int[1];
+        list.replaceAll(e -> {
+            @SuppressWarnings("unchecked") E r = (E) a[next[0]++];
+            return r;
+        });
+        checkVisitedAll(next[0], a.length);
+    }
+
+    private static void checkVisitedAll(int visited, int n) {
+        if (visited != n) {
+            throw new ConcurrentModificationException("List changed size during a bulk operation");
+        }
+    }
+
+    // ===================================================
+    // Primitive radix sorts
+    // ===================================================
+
+    /** Sorts {@code a} ascending; same result as {@link Arrays#sort(int[])}. */
+    public void sort(int[] a) {
+        int n = a.length;
+        if (n < PARALLEL_THRESHOLD) {
+            Arrays.sort(a);
+            return;
+        }
+        int chunks = chunkCount(n);
+        int[][] offsets = new int[chunks][RADIX];
+        int[] src = a;
+        int[] dst = new int[n];
+        for (int shift = 0; shift < Integer.SIZE; shift += RADIX_BITS) {
+            int[] from = src;
+            int[] to = dst;
+            int digitShift = shift;
+            int signFlip = shift == Integer.SIZE - RADIX_BITS ? RADIX >>> 1 : 0; // negatives first
+            forEachIndex(chunks, c -> {
+                int[] count = offsets[c];
+                Arrays.fill(count, 0);
+                for (int i = chunkStart(c, chunks, n), end = chunkStart(c + 1, chunks, n); i < end; i++) {
+                    count[(from[i] >>> digitShift & (RADIX - 1)) ^ signFlip]++;
+                }
+            });
+            if (!prefixSums(offsets, n)) {
+                continue; // every key has the same digit here
+            }
+            forEachIndex(chunks, c -> {
+                int[] next = offsets[c];
+                for (int i = chunkStart(c, chunks, n), end = chunkStart(c + 1, chunks, n); i < end; i++) {
+                    int x = from[i];
+                    to[next[(x >>> digitShift & (RADIX - 1)) ^ signFlip]++] = x;
+                }
+            });
+            src = to;
+            dst = from;
+        }
+        if (src != a) {
+            System.arraycopy(src, 0, a, 0, n);
+        }
+    }
+
+    /** Sorts {@code a} ascending; same result as {@link Arrays#sort(long[])}. */
+    public void sort(long[] a) {
+        int n = a.length;
+        if (n < PARALLEL_THRESHOLD) {
+            Arrays.sort(a);
+            return;
+        }
+        int chunks = chunkCount(n);
+        int[][] offsets = new int[chunks][RADIX];
+        long[] src = a;
+        long[] dst = new long[n];
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            long[] from = src;
+            long[] to = dst;
+            int digitShift = shift;
+            int signFlip = shift == Long.SIZE - RADIX_BITS ? RADIX >>> 1 : 0;
+            forEachIndex(chunks, c -> {
+                int[] count = offsets[c];
+                Arrays.fill(count, 0);
+                for (int i = chunkStart(c, chunks, n), end = chunkStart(c + 1, chunks, n); i < end; i++) {
+                    count[((int) (from[i] >>> digitShift) & (RADIX - 1)) ^ signFlip]++;
+                }
+            });
+            if (!prefixSums(offsets, n)) {
+                continue;
+            }
+            forEachIndex(chunks, c -> {
+                int[] next = offsets[c];
+                for (int i = chunkStart(c, chunks, n), end = chunkStart(c + 1, chunks, n); i < end; i++) {
+                    long x = from[i];
+                    to[next[((int) (x >>> digitShift) & (RADIX - 1)) ^ signFlip]++] = x;
+                }
+            });
+            src = to;
+            dst = from;
+        }
+        if (src != a) {
+            System.arraycopy(src, 0, a, 0, n);
+        }
+    }
+
+    /**
+     * Turns per-chunk digit counts into each chunk's first output position per
+     * digit (digit-major, so equal digits keep chunk order and the pass is
+     * stable). Returns {@code false} if one digit holds all {@code n} keys.
+     */
+    private static boolean prefixSums(int[][] counts, int n) {
+        int position = 0;
+        for (int d = 0; d < RADIX; d++) {
+            int start = position;
+            for (int[] count : counts) {
+                int k = count[d];
+                count[d] = position;
+                position += k;
+            }
+            if (position - start == n) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ===================================================
+    // Parallel merge sort
+    // ===================================================
+
+    /**
+     * Sorts {@code a[from, to)} into {@code a} or, if {@code intoBuf}, into
+     * {@code buf}: the halves are sorted into the other array and merged
+     * back, so each level moves the data once.
+     */
+    @SuppressWarnings("serial")
+    private static final class SortTask extends RecursiveAction {
+        private final Object[] a;
+        private final Object[] buf;
+        private final int from;
+        private final int to;
+        private final boolean intoBuf;
+        private final int leaf;
+        private final Comparator<Object> c;
+
+        SortTask(Object[] a, Object[] buf, int from, int to, boolean intoBuf, int leaf, Comparator<Object> c) {
+            this.a = a;
+            this.buf = buf;
+            this.from = from;
+            this.to = to;
+            this.intoBuf = intoBuf;
+            this.leaf = leaf;
+            this.c = c;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leaf) {
+                Arrays.sort(a, from, to, c);
+                if (intoBuf) {
+                    System.arraycopy(a, from, buf, from, to - from);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SortTask(a, buf, from, mid, !intoBuf, leaf, c),
+                      new SortTask(a, buf, mid, to, !intoBuf, leaf, c));
+            Object[] src = intoBuf ? a : buf;
+            Object[] dst = intoBuf ? buf : a;
+            new MergeTask(src, from, mid, mid, to, dst, from, c).compute();
+        }
+    }
+
+    /**
+     * Stable merge of {@code src[lo1, hi1)} and {@code src[lo2, hi2)} into
+     * {@code dst} at {@code at}. Large merges split at the middle of the
+     * longer run and a binary search in the shorter one, so ties still take
+     * the left run first.
+     */
+    @SuppressWarnings("serial")
+    private static final class MergeTask extends RecursiveAction {
+        private final Object[] src;
+        private final int lo1;
+        private final int hi1;
+        private final int lo2;
+        private final int hi2;
+        private final Object[] dst;
+        private final int at;
+        private final Comparator<Object> c;
+
+        MergeTask(Object[] src, int lo1, int hi1, int lo2, int hi2, Object[] dst, int at, Comparator<Object> c) {
+            this.src = src;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.dst = dst;
+            this.at = at;
+            this.c = c;
+        }
+
+        @Override
+        protected void compute() {
+            int n1 = hi1 - lo1;
+            int n2 = hi2 - lo2;
+            if (n1 + n2 <= MERGE_GRAIN) {
+                merge();
+                return;
+            }
+            int split1;
+            int split2;
+            if (n1 >= n2) {
+                split1 = (lo1 + hi1) >>> 1;
+                split2 = lowerBound(src[split1], lo2, hi2); // right keys equal to the pivot go after it
+            } else {
+                split2 = (lo2 + hi2) >>> 1;
+                split1 = upperBound(src[split2], lo1, hi1); // left keys equal to the pivot go before it
+            }
+            int mid = at + (split1 - lo1) + (split2 - lo2);
+            invokeAll(new MergeTask(src, lo1, split1, lo2, split2, dst, at, c),
+                      new MergeTask(src, split1, hi1, split2, hi2, dst, mid, c));
+        }
+
+        private void merge() {
+            int i = lo1;
+            int j = lo2;
+            int k = at;
+            while (i < hi1 && j < hi2) {
+                dst[k++] = c.compare(src[j], src[i]) < 0 ? src[j++] : src[i++];
+            }
+            System.arraycopy(src, i, dst, k, hi1 - i);
+            System.arraycopy(src, j, dst, k + (hi1 - i), hi2 - j);
+        }
+
+        /** First index in {@code [lo, hi)} whose key is {@code >= key}. */
+        private int lowerBound(Object key, int lo, int hi) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (c.compare(src[mid], key) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /** First index in {@code [lo, hi)} whose key is {@code > key}. */
+        private int upperBound(Object key, int lo, int hi) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (c.compare(src[mid], key) <= 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    // ===================================================
+    // Chunking
+    // ===================================================
+
+    private boolean isParallel(int n) {
+        return n >= PARALLEL_THRESHOLD && pool.getParallelism() > 1;
+    }
+
+    private int chunkCount(int n) {
+        return Math.max(1, Math.min(pool.getParallelism() * 4, n / (PARALLEL_THRESHOLD / 8)));
+    }
+
+    private static int chunkStart(int chunk, int chunks, int n) {
+        return (int) ((long) n * chunk / chunks);
+    }
+
+    /** Chunk start rounded down to a multiple of 64, so chunks own whole bitset words. */
+    private static int wordAlignedStart(int chunk, int chunks, int n) {
+        return chunk == chunks ? n : chunkStart(chunk, chunks, n) & -Long.SIZE;
+    }
+
+    /** Runs {@code body} for every index in {@code [0, n)}, on the pool unless it has a single thread. */
+    private void forEachIndex(int n, IntConsumer body) {
+        if (n == 1 || pool.getParallelism() == 1) {
+            for (int i = 0; i < n; i++) {
+                body.accept(i);
+            }
+        } else {
+            pool.invoke(new IndexRange(0, n, body));
+        }
+    }
+}
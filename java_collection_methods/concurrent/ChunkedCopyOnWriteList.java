@@ -0,0 +1,913 @@
+package concurrent;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import split.BatchIterable;
+import split.Splitters;
+
+/**
+ * Thread-safe {@link List} whose iterators see a consistent snapshot, like
+ * {@code CopyOnWriteArrayList}, but whose writes copy one chunk instead of
+ * the whole array.
+ *
+ * <p>The elements live in chunks of about {@code sqrt(size)} elements, at
+ * least {@value #MIN_CHUNK} and at most {@value #MAX_CHUNK}. A directory
+ * lists the chunks and the running size at the end of each. Chunks and
+ * directory are never modified once published. A write builds a new
+ * version and publishes it with one volatile write:
+ * <ul>
+ *   <li>the affected chunk is copied;</li>
+ *   <li>the directory is copied;</li>
+ *   <li>every other chunk is shared with the previous version.</li>
+ * </ul>
+ * A write therefore costs O(chunk + size / chunk), about {@code 2 * sqrt(size)}
+ * reference copies: some 2,000 for a million elements, where
+ * {@code CopyOnWriteArrayList} copies a million. Writers take one lock, as in
+ * {@code CopyOnWriteArrayList}.
+ *
+ * <p>Reads take no lock. {@link #get} reads the current version and finds
+ * the chunk by binary search over the directory. {@link #iterator()},
+ * {@link #listIterator(int)}, {@link #spliterator()}, {@link #forEach},
+ * {@code equals}, {@code toString} and the {@code toArray} methods each work
+ * on the version current when they start. They never throw
+ * {@code ConcurrentModificationException}, never see a half-done bulk
+ * operation, and cost nothing extra to set up. The spliterator splits at
+ * chunk boundaries, so parallel streams get equal shares of whole chunks,
+ * and {@link #forEachBatch} copies each batch out of the chunks with
+ * {@code System.arraycopy}. As in
+ * {@code CopyOnWriteArrayList}, iterators do not support
+ * {@code remove}, {@code set} or {@code add}. {@link #snapshot()} returns the
+ * current version itself as an immutable {@code List}.
+ *
+ * <p>Bulk writes copy only what they change:
+ * <ul>
+ *   <li>{@link #addAll(Collection)} appends whole new chunks;</li>
+ *   <li>{@link #removeIf}, {@link #removeAll} and {@link #retainAll} share
+ *       every chunk with no element removed, unless they leave more than
+ *       about twice the chunks the size needs, in which case they re-chunk
+ *       the whole list;</li>
+ *   <li>{@link #replaceAll} and {@link #sort} rebuild everything, as they
+ *       must.</li>
+ * </ul>
+ * {@code subList} is a view of the live list. Like {@code CopyOnWriteArrayList}'s,
+ * it throws {@code ConcurrentModificationException} once the list has been
+ * structurally modified other than through it; {@code set} and
+ * {@code replaceAll} are not structural. {@code null} elements are allowed.
+ */
+public class ChunkedCopyOnWriteList<E> extends AbstractList<E> implements RandomAccess, BatchIterable<E> {
+
+    /** Smallest chunk capacity, used while the list is small. */
+    static final int MIN_CHUNK = 32;
+    /** Largest chunk capacity, reached at about four million elements. */
+    static final int MAX_CHUNK = 2048;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Snapshot<E> state = Snapshot.empty();
+
+    public ChunkedCopyOnWriteList() {
+    }
+
+    public ChunkedCopyOnWriteList(Collection<? extends E> c) {
+        addAll(c);
+    }
+
+    /** Chunk capacity for a list of {@code size} elements; an oversized chunk is split in two. */
+    static int chunkCapacity(int size) {
+        return Math.max(MIN_CHUNK, Math.min(MAX_CHUNK, (int) Math.sqrt(size)));
+    }
+
+    // ===================================================
+    // Reading
+    // ===================================================
+
+    /** The current contents as an immutable list that later writes do not affect. O(1). */
+    public List<E> snapshot() {
+        return state;
+    }
+
+    @Override
+    public E get(int index) {
+        return state.get(index);
+    }
+
+    @Override
+    public int size() {
+        return state.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return state.size == 0;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return state.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return state.lastIndexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return state.indexOf(o) >= 0;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return state.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return state.toArray(a);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return state.iterator();
+    }
+
+    @Override
+    public ListIterator<E> listIterator() {
+        return state.listIterator(0);
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return state.listIterator(index);
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return state.spliterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        state.forEach(action);
+    }
+
+    /** Batches of the version current when the call starts. */
+    @Override
+    public void forEachBatch(int batchSize, IntFunction<E[]> generator, Consumer<? super E[]> action) {
+        Splitters.checkBatchSize(batchSize);
+        Objects.requireNonNull(action);
+        Snapshot<E> s = state;
+        int k = 0;
+        int offset = 0;
+        for (int from = 0; from < s.size; ) {
+            int n = Math.min(batchSize, s.size - from);
+            E[] batch = generator.apply(n);
+            for (int filled = 0; filled < n; ) {
+                Object[] chunk = s.chunks[k];
+                int count = Math.min(chunk.length - offset, n - filled);
+                System.arraycopy(chunk, offset, batch, filled, count);
+                filled += count;
+                offset += count;
+                if (offset == chunk.length) {
+                    k++;
+                    offset = 0;
+                }
+            }
+            from += n;
+            action.accept(batch);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || state.equals(o instanceof ChunkedCopyOnWriteList<?> other ? other.state : o);
+    }
+
+    @Override
+    public int hashCode() {
+        return state.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return state.toString();
+    }
+
+    // ===================================================
+    // Writing
+    // ===================================================
+
+    @Override
+    public boolean add(E e) {
+        lock.lock();
+        try {
+            Snapshot<E> s = state;
+            int n = s.chunks.length;
+            Object[] last = n == 0 ? null : s.chunks[n - 1];
+            if (last != null && last.length < chunkCapacity(s.size + 1)) {
+                Object[] chunk = Arrays.copyOf(last, last.length + 1);
+                chunk[last.length] = e;
+                publish(s.replace(n - 1, n, chunk));
+            } else {
+                publish(s.replace(n, n, new Object[] {e}));
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void add(int index, E e) {
+        lock.lock();
+        try {
+            Snapshot<E> s = state;
+            Objects.checkIndex(index, s.size + 1);
+            if (index == s.size) {
+                add(e);
+                return;
+            }
+            int k = s.chunkOf(index);
+            int offset = index - s.start(k);
+            Object[] old = s.chunks[k];
+            Object[] chunk = new Object[old.length + 1];
+            System.arraycopy(old, 0, chunk, 0, offset);
+            chunk[offset] = e;
+            System.arraycopy(old, offset, chunk, offset + 1, old.length - offset);
+            if (chunk.length > 2 * chunkCapacity(s.size + 1)) {
+                int half = chunk.length >>> 1;
+                publish(s.replace(k, k + 1, Arrays.copyOfRange(chunk, 0, half),
+                        Arrays.copyOfRange(chunk, half, chunk.length)));
+            } else {
+                publish(s.replace(k, k + 1, chunk));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Appends {@code e} unless it is already present; returns whether it was added. */
+    public boolean addIfAbsent(E e) {
+        lock.lock();
+        try {
+            return state.indexOf(e) < 0 && add(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E set(int index, E e) {
+        lock.lock();
+        try {
+            Snapshot<E> s = state;
+            Objects.checkIndex(index, s.size);
+            int k = s.chunkOf(index);
+            Object[] chunk = s.chunks[k].clone();
+            int offset = index - s.start(k);
+            @SuppressWarnings("unchecked")
+            E old = (E) chunk[offset];
+            chunk[offset] = e;
+            Object[][] chunks = s.chunks.clone();
+            chunks[k] = chunk;
+            republish(new Snapshot<>(chunks, s.ends, s.size)); // sizes unchanged: share the running totals
+            return old;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E remove(int index) {
+        lock.lock();
+        try {
+            Snapshot<E> s = state;
+            Objects.checkIndex(index, s.size);
+            int k = s.chunkOf(index);
+            int offset = index - s.start(k);
+            Object[] old = s.chunks[k];
+            @SuppressWarnings("unchecked")
+            E removed = (E) old[offset];
+            Object[] chunk = new Object[old.length - 1];
+            System.arraycopy(old, 0, chunk, 0, offset);
+            System.arraycopy(old, offset + 1, chunk, offset, chunk.length - offset);
+            publish(replaceMerging(s, k, k + 1, chunk, chunkCapacity(s.size - 1)));
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        lock.lock();
+        try {
+            int index = state.indexOf(o);
+            if (index < 0) {
+                return false;
+            }
+            remove(index);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        Object[] elements = c.toArray();
+        if (elements.length == 0) {
+            return false;
+        }
+        lock.lock();
+        try {
+            appendAll(elements);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Fills the last chunk, then appends new full chunks; called with the lock held. */
+    private void appendAll(Object[] elements) {
+        Snapshot<E> s = state;
+        int n = s.chunks.length;
+        int capacity = chunkCapacity(s.size + elements.length);
+        Object[] last = n == 0 ? new Object[0] : s.chunks[n - 1];
+        int room = Math.max(0, capacity - last.length);
+        int take = Math.min(room, elements.length);
+        Object[] filled = Arrays.copyOf(last, last.length + take);
+        System.arraycopy(elements, 0, filled, last.length, take);
+        Object[][] rest = split(elements, take, elements.length, capacity);
+        Object[][] with = new Object[rest.length + 1][];
+        with[0] = filled;
+        System.arraycopy(rest, 0, with, 1, rest.length);
+        publish(s.replace(Math.max(0, n - 1), n, with));
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends E> c) {
+        Object[] elements = c.toArray();
+        lock.lock();
+        try {
+            Snapshot<E> s = state;
+            Objects.checkIndex(index, s.size + 1);
+            if (elements.length == 0) {
+                return false;
+            }
+            if (index == s.size) {
+                appendAll(elements);
+                return true;
+            }
+            int k = s.chunkOf(index);
+            int offset = index - s.start(k);
+            Object[] old = s.chunks[k];
+            Object[] spliced = new Object[old.length + elements.length];
+            System.arraycopy(old, 0, spliced, 0, offset);
+            System.arraycopy(elements, 0, spliced, offset, elements.length);
+            System.arraycopy(old, offset, spliced, offset + elements.length, old.length - offset);
+            int capacity = chunkCapacity(s.size + elements.length);
+            if (spliced.length > 2 * capacity) { // the bound add(int, E) splits at
+                publish(s.replace(k, k + 1, splitEvenly(spliced, capacity)));
+            } else {
+                publish(replaceMerging(s, k, k + 1, spliced, capacity));
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        lock.lock();
+        try {
+            Snapshot<E> s = state;
+            Object[][] kept = new Object[s.chunks.length][];
+            boolean changed = false;
+            for (int k = 0; k < s.chunks.length; k++) {
+                kept[k] = filter(s.chunks[k], filter);
+                changed |= kept[k] != s.chunks[k];
+            }
+            if (changed) {
+                Snapshot<E> next = s.replace(0, s.chunks.length, kept);
+                int capacity = chunkCapacity(next.size);
+                if (next.chunks.length > 2 * next.size / capacity + 1) {
+                    // Thinned out: re-chunk rather than leave every later write to walk a long directory
+                    next = Snapshot.of(splitEvenly(next.toArray(), capacity));
+                }
+                publish(next);
+            }
+            return changed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf(c::contains);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        Objects.requireNonNull(c);
+        return removeIf(e -> !c.contains(e));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(UnaryOperator<E> operator) {
+        Objects.requireNonNull(operator);
+        lock.lock();
+        try {
+            Snapshot<E> s = state;
+            Object[][] chunks = new Object[s.chunks.length][];
+            for (int k = 0; k < chunks.length; k++) {
+                chunks[k] = s.chunks[k].clone();
+                for (int i = 0; i < chunks[k].length; i++) {
+                    chunks[k][i] = operator.apply((E) chunks[k][i]);
+                }
+            }
+            republish(new Snapshot<>(chunks, s.ends, s.size));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        lock.lock();
+        try {
+            Object[] elements = state.toArray();
+            Arrays.sort(elements, (Comparator<Object>) c);
+            publish(Snapshot.of(split(elements, 0, elements.length, chunkCapacity(elements.length))));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            publish(Snapshot.empty());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        lock.lock();
+        try {
+            Snapshot<E> s = state;
+            Objects.checkFromToIndex(fromIndex, toIndex, s.size);
+            if (fromIndex == toIndex) {
+                return;
+            }
+            int first = s.chunkOf(fromIndex);
+            int last = s.chunkOf(toIndex - 1);
+            Object[] head = Arrays.copyOfRange(s.chunks[first], 0, fromIndex - s.start(first));
+            Object[] tail = Arrays.copyOfRange(s.chunks[last], toIndex - s.start(last), s.chunks[last].length);
+            int capacity = chunkCapacity(s.size - (toIndex - fromIndex));
+            if (head.length + tail.length <= capacity) {
+                publish(replaceMerging(s, first, last + 1, concat(head, tail), capacity));
+            } else {
+                publish(s.replace(first, last + 1, head, tail));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Publishes a new version after a structural change; called with the lock held. */
+    private void publish(Snapshot<E> next) {
+        modCount++; // for subList views, as in CopyOnWriteArrayList
+        state = next;
+    }
+
+    /**
+     * Publishes a new version of the same size and positions, as {@code set}
+     * and {@code replaceAll} make; called with the lock held. Not a
+     * structural change, so a subList view stays valid.
+     */
+    private void republish(Snapshot<E> next) {
+        state = next;
+    }
+
+    /**
+     * {@code s} with chunks {@code [from, to)} replaced by {@code chunk}, which
+     * is first merged into a neighbour if it has fallen below half of
+     * {@code capacity} and the two fit in one chunk; called with the lock held.
+     */
+    private static <E> Snapshot<E> replaceMerging(Snapshot<E> s, int from, int to, Object[] chunk, int capacity) {
+        if (chunk.length < capacity / 2 && to < s.chunks.length
+                && chunk.length + s.chunks[to].length <= capacity) {
+            return s.replace(from, to + 1, concat(chunk, s.chunks[to]));
+        }
+        if (chunk.length < capacity / 2 && from > 0
+                && s.chunks[from - 1].length + chunk.length <= capacity) {
+            return s.replace(from - 1, to, concat(s.chunks[from - 1], chunk));
+        }
+        return s.replace(from, to, chunk);
+    }
+
+    private static Object[] concat(Object[] a, Object[] b) {
+        Object[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /** {@code elements[from, to)} cut into chunks of {@code capacity}. */
+    private static Object[][] split(Object[] elements, int from, int to, int capacity) {
+        int n = (to - from + capacity - 1) / capacity;
+        Object[][] chunks = new Object[n][];
+        for (int k = 0; k < n; k++) {
+            int start = from + k * capacity;
+            chunks[k] = Arrays.copyOfRange(elements, start, Math.min(to, start + capacity));
+        }
+        return chunks;
+    }
+
+    /** {@code elements} cut into the fewest chunks of at most {@code capacity}, of equal length give or take one. */
+    private static Object[][] splitEvenly(Object[] elements, int capacity) {
+        int n = (elements.length + capacity - 1) / capacity;
+        Object[][] chunks = new Object[n][];
+        for (int k = 0; k < n; k++) {
+            chunks[k] = Arrays.copyOfRange(elements, (int) ((long) elements.length * k / n),
+                    (int) ((long) elements.length * (k + 1) / n));
+        }
+        return chunks;
+    }
+
+    /** {@code chunk} itself if {@code filter} removes nothing from it, else a filtered copy. */
+    @SuppressWarnings("unchecked")
+    private static <E> Object[] filter(Object[] chunk, Predicate<? super E> filter) {
+        int i = 0;
+        while (i < chunk.length && !filter.test((E) chunk[i])) {
+            i++;
+        }
+        if (i == chunk.length) {
+            return chunk;
+        }
+        Object[] kept = new Object[chunk.length - 1];
+        System.arraycopy(chunk, 0, kept, 0, i);
+        int n = i;
+        for (i++; i < chunk.length; i++) {
+            if (!filter.test((E) chunk[i])) {
+                kept[n++] = chunk[i];
+            }
+        }
+        return n == kept.length ? kept : Arrays.copyOf(kept, n);
+    }
+
+    // ===================================================
+    // Versions
+    // ===================================================
+
+    /**
+     * One immutable version: the chunks, and the running size at the end of
+     * each. Also the list returned by {@link #snapshot()}, and the source of
+     * every iterator.
+     */
+    private static final class Snapshot<E> extends AbstractList<E> implements RandomAccess {
+        private static final Snapshot<?> EMPTY = new Snapshot<>(new Object[0][], new int[0], 0);
+
+        final Object[][] chunks;
+        /** {@code ends[k]}: elements in chunks {@code 0..k}. */
+        final int[] ends;
+        final int size;
+
+        Snapshot(Object[][] chunks, int[] ends, int size) {
+            this.chunks = chunks;
+            this.ends = ends;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <E> Snapshot<E> empty() {
+            return (Snapshot<E>) EMPTY;
+        }
+
+        /** A version made of {@code chunks}, dropping empty ones. */
+        static <E> Snapshot<E> of(Object[][] chunks) {
+            return Snapshot.<E>empty().replace(0, 0, chunks);
+        }
+
+        /** This version with chunks {@code [from, to)} replaced by {@code with}, dropping empty ones. */
+        Snapshot<E> replace(int from, int to, Object[]... with) {
+            int added = 0;
+            for (Object[] chunk : with) {
+                if (chunk.length > 0) {
+                    added++;
+                }
+            }
+            Object[][] next = new Object[chunks.length - (to - from) + added][];
+            System.arraycopy(chunks, 0, next, 0, from);
+            int k = from;
+            for (Object[] chunk : with) {
+                if (chunk.length > 0) {
+                    next[k++] = chunk;
+                }
+            }
+            System.arraycopy(chunks, to, next, k, chunks.length - to);
+            int[] nextEnds = Arrays.copyOf(ends, next.length);
+            int running = from == 0 ? 0 : ends[from - 1];
+            for (k = from; k < next.length; k++) {
+                running += next[k].length;
+                nextEnds[k] = running;
+            }
+            return new Snapshot<>(next, nextEnds, running);
+        }
+
+        /**
+         * Index of the chunk holding element {@code index}. Chunks are of
+         * similar size, so interpolation lands on or next to it; binary
+         * search takes over if it does not.
+         */
+        int chunkOf(int index) {
+            int k = (int) ((long) index * ends.length / size);
+            for (int step = 0; step < 4; step++) {
+                if (ends[k] <= index) {
+                    k++;
+                } else if (k > 0 && ends[k - 1] > index) {
+                    k--;
+                } else {
+                    return k;
+                }
+            }
+            int lo = 0;
+            int hi = ends.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (ends[mid] <= index) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /** Index of the first element of chunk {@code k}. */
+        int start(int k) {
+            return k == 0 ? 0 : ends[k - 1];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            Objects.checkIndex(index, size);
+            int k = chunkOf(index);
+            return (E) chunks[k][index - start(k)];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            int base = 0;
+            for (Object[] chunk : chunks) {
+                for (int i = 0; i < chunk.length; i++) {
+                    if (Objects.equals(o, chunk[i])) {
+                        return base + i;
+                    }
+                }
+                base += chunk.length;
+            }
+            return -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            for (int k = chunks.length - 1; k >= 0; k--) {
+                Object[] chunk = chunks[k];
+                for (int i = chunk.length - 1; i >= 0; i--) {
+                    if (Objects.equals(o, chunk[i])) {
+                        return start(k) + i;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Object[] toArray() {
+            Object[] result = new Object[size];
+            int offset = 0;
+            for (Object[] chunk : chunks) {
+                System.arraycopy(chunk, 0, result, offset, chunk.length);
+                offset += chunk.length;
+            }
+            return result;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEach(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            for (Object[] chunk : chunks) {
+                for (Object e : chunk) {
+                    action.accept((E) e);
+                }
+            }
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Itr<>(this, 0);
+        }
+
+        @Override
+        public Spliterator<E> spliterator() {
+            return new ChunkSpliterator<>(this, 0, size);
+        }
+
+        @Override
+        public ListIterator<E> listIterator(int index) {
+            Objects.checkIndex(index, size + 1);
+            return new Itr<>(this, index);
+        }
+    }
+
+    /** Read-only list iterator over one version, walking its chunks directly. */
+    private static final class Itr<E> implements ListIterator<E> {
+        private final Snapshot<E> snapshot;
+        private int cursor;
+        /** Chunk holding {@code cursor} (or the last chunk when at the end) and the offset in it. */
+        private int chunk;
+        private int offset;
+
+        Itr(Snapshot<E> snapshot, int index) {
+            this.snapshot = snapshot;
+            this.cursor = index;
+            if (snapshot.chunks.length > 0) {
+                chunk = index == snapshot.size ? snapshot.chunks.length - 1 : snapshot.chunkOf(index);
+                offset = index - snapshot.start(chunk);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < snapshot.size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= snapshot.size) {
+                throw new NoSuchElementException();
+            }
+            if (offset == snapshot.chunks[chunk].length) {
+                chunk++;
+                offset = 0;
+            }
+            cursor++;
+            return (E) snapshot.chunks[chunk][offset++];
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E previous() {
+            if (cursor <= 0) {
+                throw new NoSuchElementException();
+            }
+            if (offset == 0) {
+                chunk--;
+                offset = snapshot.chunks[chunk].length;
+            }
+            cursor--;
+            return (E) snapshot.chunks[chunk][--offset];
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void set(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(E e) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Spliterator over elements {@code [index, fence)} of one version. It
+     * splits at the chunk boundary nearest the middle, so each half walks
+     * whole chunks; a range inside one chunk halves its indices.
+     */
+    private static final class ChunkSpliterator<E> implements Spliterator<E> {
+        private final Snapshot<E> snapshot;
+        private int index;
+        private final int fence;
+
+        ChunkSpliterator(Snapshot<E> snapshot, int index, int fence) {
+            this.snapshot = snapshot;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            int lo = index;
+            int mid = (lo + fence) >>> 1;
+            if (mid <= lo) {
+                return null;
+            }
+            int k = snapshot.chunkOf(mid);
+            int start = snapshot.start(k);
+            int boundary = mid - start <= snapshot.ends[k] - mid ? start : snapshot.ends[k];
+            if (boundary > lo && boundary < fence) {
+                mid = boundary;
+            }
+            index = mid;
+            return new ChunkSpliterator<>(snapshot, lo, mid);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            if (index >= fence) {
+                return false;
+            }
+            int k = snapshot.chunkOf(index);
+            action.accept((E) snapshot.chunks[k][index++ - snapshot.start(k)]);
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            int i = index;
+            int hi = fence;
+            if (i >= hi) {
+                return;
+            }
+            index = hi;
+            int k = snapshot.chunkOf(i);
+            int offset = i - snapshot.start(k);
+            while (i < hi) {
+                Object[] chunk = snapshot.chunks[k++];
+                int end = Math.min(chunk.length, offset + hi - i);
+                for (int j = offset; j < end; j++) {
+                    action.accept((E) chunk[j]);
+                }
+                i += end - offset;
+                offset = 0;
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+        }
+    }
+}
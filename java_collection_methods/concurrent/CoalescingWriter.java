@@ -0,0 +1,389 @@
+package concurrent;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+
+import offheap.MappedDeque;
+
+/**
+ * Write-behind front-end for {@code merge} traffic: each thread
+ * pre-aggregates its merges by key in a private buffer, and the buffers
+ * are written to a {@link Sink}, usually a shared map, in batches.
+ *
+ * <pre>
+ * ConcurrentHashMap&lt;String, Long&gt; hits = new ConcurrentHashMap&lt;&gt;();
+ * CoalescingWriter&lt;String, Long&gt; writer = CoalescingWriter.builder()
+ *         .maxBatchSize(4096)
+ *         .maxDelay(Duration.ofMillis(100))
+ *         .build(hits, Long::sum);
+ * writer.merge(page, 1L);        // instead of hits.merge(page, 1L, Long::sum)
+ * writer.close();                // flushes everything still buffered
+ * </pre>
+ *
+ * <p>A million {@code merge(key, 1L, Long::sum)} calls a second on a few
+ * hot keys make every thread fight over the same bins of a
+ * {@code ConcurrentHashMap}. Here a merge goes to an unshared
+ * {@code HashMap}, under a lock that only the flusher ever contends, and a
+ * key merged {@code n} times between flushes reaches the target once. A
+ * thread writes its own buffer out when it holds {@code maxBatchSize}
+ * keys; a background thread flushes every buffer each {@code maxDelay}, so
+ * a merge becomes visible in the target at most about {@code maxDelay}
+ * after it was made (staleness is bounded). {@link #flush()} writes out
+ * everything merged before it was called, and {@link #close()} flushes and
+ * waits for batches still being written.
+ *
+ * <p>Because merges from different threads and flushes reach the target
+ * in no fixed order, the combiner must be associative and commutative:
+ * sums, counts, min, max, set union. Reads go to the target and do not see
+ * buffered merges. A batch whose {@link Sink#write} throws is lost; the
+ * exception propagates to the merging thread that triggered the flush, or
+ * to the flusher thread's uncaught-exception handler. Keys and values must
+ * not be {@code null}.
+ */
+public class CoalescingWriter<K, V> implements Closeable {
+
+    private final Sink<? super K, ? super V> sink;
+    private final BinaryOperator<V> combiner;
+    private final int maxBatchSize;
+    private final ThreadLocal<Buffer<K, V>> local = ThreadLocal.withInitial(this::register);
+    private final Queue<Buffer<K, V>> buffers = new ConcurrentLinkedQueue<>();
+    /** Read-held while a batch is detached and written; {@link #flush()} write-locks it to wait for them. */
+    private final ReentrantReadWriteLock inFlight = new ReentrantReadWriteLock();
+    /** Serializes writes to a sink that is not thread-safe. */
+    private final ReentrantLock sinkLock;
+    private final ScheduledExecutorService flusher;
+    private final AtomicLong retiredMerges = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile boolean closed;
+
+    private CoalescingWriter(Builder builder, Sink<? super K, ? super V> sink, BinaryOperator<V> combiner) {
+        this.sink = Objects.requireNonNull(sink, "sink");
+        this.combiner = Objects.requireNonNull(combiner, "combiner");
+        this.maxBatchSize = builder.maxBatchSize;
+        this.sinkLock = sink.isThreadSafe() ? null : new ReentrantLock();
+        if (builder.maxDelayNanos == 0) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "coalescing-writer-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleAtFixedRate(this::timedFlush, builder.maxDelayNanos, builder.maxDelayNanos,
+                    TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // ===================================================
+    // Merging
+    // ===================================================
+
+    /**
+     * Combines {@code value} into the pending value for {@code key}, as
+     * {@code Map.merge(key, value, combiner)} will do in the target.
+     *
+     * @throws IllegalStateException if the writer is closed
+     */
+    public void merge(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        Buffer<K, V> buffer = local.get();
+        boolean full;
+        synchronized (buffer) {
+            if (closed) {
+                throw new IllegalStateException("CoalescingWriter is closed");
+            }
+            buffer.pending.merge(key, value, combiner);
+            buffer.merges++;
+            full = buffer.pending.size() >= maxBatchSize;
+        }
+        if (full) {
+            flush(buffer);
+        }
+    }
+
+    /**
+     * Writes out every thread's pending merges. Every merge that happened
+     * before this call is in the sink when it returns.
+     */
+    public void flush() {
+        flushAll();
+        awaitInFlight();
+    }
+
+    /**
+     * Stops the timed flushes, flushes, and waits for batches other threads
+     * are still writing. Later merges throw {@code IllegalStateException}.
+     * The sink is not closed.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private Buffer<K, V> register() {
+        Buffer<K, V> buffer = new Buffer<>(Thread.currentThread(), maxBatchSize);
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    private void flushAll() {
+        for (Buffer<K, V> buffer : buffers) {
+            flush(buffer);
+            if (!buffer.owner.isAlive()) {
+                retire(buffer);
+            }
+        }
+    }
+
+    /** Waits for batches that other threads detached earlier and are still writing. */
+    private void awaitInFlight() {
+        inFlight.writeLock().lock();
+        inFlight.writeLock().unlock();
+    }
+
+    private void retire(Buffer<K, V> buffer) {
+        synchronized (buffer) {
+            if (!buffer.pending.isEmpty() || !buffers.remove(buffer)) {
+                return;
+            }
+            retiredMerges.addAndGet(buffer.merges);
+        }
+    }
+
+    private void flush(Buffer<K, V> buffer) {
+        inFlight.readLock().lock();
+        try {
+            HashMap<K, V> batch;
+            synchronized (buffer) {
+                if (buffer.pending.isEmpty()) {
+                    return;
+                }
+                batch = buffer.detach();
+            }
+            write(batch);
+            batch.clear();
+            synchronized (buffer) {
+                buffer.spare = batch; // reuse the table for the next batch
+            }
+        } finally {
+            inFlight.readLock().unlock();
+        }
+    }
+
+    private void write(Map<K, V> batch) {
+        if (sinkLock != null) {
+            sinkLock.lock();
+        }
+        try {
+            sink.write(batch);
+        } finally {
+            if (sinkLock != null) {
+                sinkLock.unlock();
+            }
+        }
+        writes.addAndGet(batch.size());
+        batches.incrementAndGet();
+    }
+
+    private void timedFlush() {
+        try {
+            flushAll();
+        } catch (RuntimeException | Error e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e); // and keep flushing
+        }
+    }
+
+    // ===================================================
+    // Statistics
+    // ===================================================
+
+    /** Number of {@link #merge} calls so far. */
+    public long mergeCount() {
+        long sum = retiredMerges.get();
+        for (Buffer<K, V> buffer : buffers) {
+            synchronized (buffer) {
+                sum += buffer.merges;
+            }
+        }
+        return sum;
+    }
+
+    /** Number of entries written to the sink; {@code mergeCount() / writeCount()} is the coalescing ratio. */
+    public long writeCount() {
+        return writes.get();
+    }
+
+    /** Number of batches written to the sink. */
+    public long batchCount() {
+        return batches.get();
+    }
+
+    /** Number of keys buffered and not yet written, over all threads. */
+    public int pendingCount() {
+        int sum = 0;
+        for (Buffer<K, V> buffer : buffers) {
+            synchronized (buffer) {
+                sum += buffer.pending.size();
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return "CoalescingWriter[merges=" + mergeCount() + ", writes=" + writeCount() + ", batches=" + batchCount()
+                + ", pending=" + pendingCount() + "]";
+    }
+
+    // ===================================================
+    // Buffers, sinks and configuration
+    // ===================================================
+
+    /** One thread's pending merges; guarded by its own monitor, which only flushes contend for. */
+    private static final class Buffer<K, V> {
+        final Thread owner;
+        final int capacity;
+        HashMap<K, V> pending;
+        HashMap<K, V> spare;
+        long merges;
+
+        Buffer(Thread owner, int maxBatchSize) {
+            this.owner = owner;
+            this.capacity = (int) Math.min(1 << 30, maxBatchSize / 0.75 + 1);
+            this.pending = new HashMap<>(capacity);
+        }
+
+        HashMap<K, V> detach() {
+            HashMap<K, V> batch = pending;
+            pending = spare != null ? spare : new HashMap<>(capacity);
+            spare = null;
+            return batch;
+        }
+    }
+
+    /** Where flushed batches go. */
+    @FunctionalInterface
+    public interface Sink<K, V> {
+
+        /**
+         * Applies one batch: at most one pre-combined value per key. The map
+         * is reused once this returns and must not be retained.
+         */
+        void write(Map<? extends K, ? extends V> batch);
+
+        /** Whether {@link #write} may be called by several threads at once; otherwise calls are serialized. */
+        default boolean isThreadSafe() {
+            return false;
+        }
+
+        /**
+         * Merges each entry into {@code target} with {@code combiner}.
+         * Thread-safe if {@code target} is a {@link ConcurrentMap}; a plain
+         * map must then not be used by other threads without locking.
+         */
+        static <K, V> Sink<K, V> mergeInto(Map<K, V> target, BinaryOperator<V> combiner) {
+            Objects.requireNonNull(target, "target");
+            Objects.requireNonNull(combiner, "combiner");
+            boolean concurrent = target instanceof ConcurrentMap;
+            return new Sink<>() {
+                @Override
+                public void write(Map<? extends K, ? extends V> batch) {
+                    batch.forEach((k, v) -> target.merge(k, v, combiner));
+                }
+
+                @Override
+                public boolean isThreadSafe() {
+                    return concurrent;
+                }
+            };
+        }
+
+        /**
+         * Appends one {@code record(key, value)} per entry to a file-backed
+         * {@link MappedDeque} and syncs it once per batch, so the cost of
+         * forcing the file to the device is paid per batch, not per merge.
+         * A consumer folds the records into the store; writes are
+         * serialized, as {@code MappedDeque} is not synchronized.
+         */
+        static <K, V, E> Sink<K, V> appendTo(MappedDeque<E> deque, BiFunction<? super K, ? super V, ? extends E> record) {
+            Objects.requireNonNull(deque, "deque");
+            Objects.requireNonNull(record, "record");
+            return batch -> {
+                batch.forEach((k, v) -> deque.addLast(record.apply(k, v)));
+                deque.sync();
+            };
+        }
+    }
+
+    /**
+     * Configures a {@link CoalescingWriter}. By default a thread writes its
+     * buffer out at 1024 keys and there is no timed flush.
+     */
+    public static final class Builder {
+        private int maxBatchSize = 1024;
+        private long maxDelayNanos;
+
+        private Builder() {
+        }
+
+        /** Number of distinct keys a thread buffers before it writes them out itself. */
+        public Builder maxBatchSize(int maxBatchSize) {
+            if (maxBatchSize < 1) {
+                throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+            }
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /** Flushes every buffer this often, bounding how stale the target can be. */
+        public Builder maxDelay(Duration maxDelay) {
+            if (maxDelay.isNegative() || maxDelay.isZero()) {
+                throw new IllegalArgumentException("Duration must be positive: " + maxDelay);
+            }
+            this.maxDelayNanos = maxDelay.toNanos();
+            return this;
+        }
+
+        /** A writer merging into {@code target} with {@code combiner}. */
+        public <K, V> CoalescingWriter<K, V> build(Map<K, V> target, BinaryOperator<V> combiner) {
+            return new CoalescingWriter<>(this, Sink.mergeInto(target, combiner), combiner);
+        }
+
+        /** A writer pre-combining with {@code combiner} and writing batches to {@code sink}. */
+        public <K, V> CoalescingWriter<K, V> build(Sink<? super K, ? super V> sink, BinaryOperator<V> combiner) {
+            return new CoalescingWriter<>(this, sink, combiner);
+        }
+    }
+}
@@ -0,0 +1,837 @@
+package concurrent;
+
+import java.lang.invoke.VarHandle;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import primitive.HashSupport;
+
+/**
+ * Thread-safe map that compares keys by identity and can hold them weakly
+ * or softly: a concurrent {@link IdentityHashMap}, and a concurrent
+ * {@link WeakHashMap} for metadata attached to objects (per class, per
+ * request, per connection) that must not keep those objects alive.
+ *
+ * <pre>
+ * ConcurrentReferenceMap&lt;Class&lt;?&gt;, Schema&gt; schemas = ConcurrentReferenceMap.weakKeys();
+ * Schema s = schemas.computeIfAbsent(type, Schema::derive);
+ * </pre>
+ *
+ * <p>As in {@link StripedHashSet}, the high bits of a key's spread identity
+ * hash choose a stripe with its own {@link StampedLock}; writers lock one
+ * stripe and {@link #get} is an optimistic read that takes no lock. Each
+ * stripe is one open-addressing table laid out like
+ * {@code IdentityHashMap}'s: keys and values alternate in a single
+ * {@code Object[]}, so there is no entry object and a hit usually reads one
+ * cache line. Weak and soft keys add one {@code Reference} per entry, which
+ * also caches the key's hash.
+ *
+ * <p>Keys are compared with {@code ==} and hashed with
+ * {@link System#identityHashCode} whatever the {@link KeyStrength}. With
+ * weak keys, {@code equals} would be wrong anyway: an equal copy of a key
+ * could look up an entry whose own key is about to be collected.
+ *
+ * <p>Weak and soft keys are expunged per stripe. Each stripe has its own
+ * {@link ReferenceQueue}, and a writer drains its stripe's queue while it
+ * holds that stripe's lock anyway. No lock is shared between stripes, and
+ * the read path never expunges. {@link #size()}, {@link #isEmpty()} and
+ * iteration also expunge stripes with cleared keys; until then a cleared
+ * entry keeps its value reachable. As with {@code WeakHashMap}, a value must
+ * not refer strongly to its own key, or the key is never collected.
+ *
+ * <p>{@code compute}, {@code computeIfAbsent}, {@code computeIfPresent} and
+ * {@code merge} are atomic: the function runs under the stripe's write
+ * lock, as {@code ConcurrentHashMap} runs it under a bin lock. It should be
+ * short. It may read this map, but must not update it; an update that
+ * would deadlock on the stripe throws {@code IllegalStateException}. A
+ * read never waits for a function: while one runs its stripe's table is
+ * left untouched, and readers that find the stripe write-locked read it
+ * like a seqlock, so two functions on different stripes may each read
+ * the other's keys.
+ * Iteration is weakly consistent and never throws
+ * {@code ConcurrentModificationException}. {@code null} keys and values
+ * are rejected.
+ */
+public class ConcurrentReferenceMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    /** How the map holds its keys. */
+    public enum KeyStrength {
+        /** Ordinary references: a concurrent {@code IdentityHashMap}. */
+        STRONG,
+        /** {@link WeakReference}s: an entry goes once nothing else references its key. */
+        WEAK,
+        /** {@link SoftReference}s: as {@code WEAK}, but the GC keeps keys until it needs the memory. */
+        SOFT
+    }
+
+    private static final float LOAD_FACTOR = 0.5f;
+    private static final int MAX_STRIPES = 1 << 16;
+
+    private final KeyStrength strength;
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private Set<Entry<K, V>> entrySet;
+
+    /** Four stripes per available processor. */
+    public ConcurrentReferenceMap(KeyStrength strength) {
+        this(strength, 16, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param strength         how keys are held
+     * @param expectedSize     number of entries to hold without resizing
+     * @param concurrencyLevel number of stripes; rounded up to a power of two
+     */
+    public ConcurrentReferenceMap(KeyStrength strength, int expectedSize, int concurrencyLevel) {
+        if (concurrencyLevel < 1 || concurrencyLevel > MAX_STRIPES) {
+            throw new IllegalArgumentException("Concurrency level must be in [1, " + MAX_STRIPES + "]: " + concurrencyLevel);
+        }
+        this.strength = Objects.requireNonNull(strength, "strength");
+        int stripeCount = concurrencyLevel == 1 ? 1 : Integer.highestOneBit(concurrencyLevel - 1) << 1;
+        int perStripe = HashSupport.tableSize((expectedSize + stripeCount - 1) / stripeCount, LOAD_FACTOR);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(perStripe, strength);
+        }
+        this.stripeShift = Integer.SIZE - Integer.numberOfTrailingZeros(stripeCount);
+    }
+
+    /** A concurrent {@code IdentityHashMap}: strong keys compared with {@code ==}. */
+    public static <K, V> ConcurrentReferenceMap<K, V> identity() {
+        return new ConcurrentReferenceMap<>(KeyStrength.STRONG);
+    }
+
+    /** A concurrent {@code WeakHashMap}, with keys compared with {@code ==}. */
+    public static <K, V> ConcurrentReferenceMap<K, V> weakKeys() {
+        return new ConcurrentReferenceMap<>(KeyStrength.WEAK);
+    }
+
+    /** Like {@link #weakKeys()}, but entries stay until the GC needs the memory. */
+    public static <K, V> ConcurrentReferenceMap<K, V> softKeys() {
+        return new ConcurrentReferenceMap<>(KeyStrength.SOFT);
+    }
+
+    public KeyStrength keyStrength() {
+        return strength;
+    }
+
+    // ===================================================
+    // Reads: optimistic, no lock
+    // ===================================================
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int h = hash(key);
+        Stripe stripe = stripeFor(h);
+        long stamp = stripe.tryOptimisticRead();
+        if (stamp != 0) {
+            Object value = stripe.get(key, h);
+            if (stripe.validate(stamp)) {
+                return (V) value;
+            }
+        }
+        return (V) read(stripe, s -> s.get(key, h));
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /** Sum of the stripe sizes, after expunging cleared keys; exact only while no other thread is writing. */
+    @Override
+    public int size() {
+        long sum = 0;
+        for (Stripe stripe : stripes) {
+            expungeIfPending(stripe);
+            sum += stripe.size;
+        }
+        return (int) Math.min(sum, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Stripe stripe : stripes) {
+            expungeIfPending(stripe);
+            if (stripe.size != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Calls {@code action} for each entry, one stripe copy at a time, outside any lock. */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        for (Stripe stripe : stripes) {
+            Object[] pairs = copy(stripe);
+            for (int i = 0; i < pairs.length; i += 2) {
+                action.accept((K) pairs[i], (V) pairs[i + 1]);
+            }
+        }
+    }
+
+    // ===================================================
+    // Writes: one stripe lock each
+    // ===================================================
+
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V put(K key, V value, boolean onlyIfAbsent) {
+        Objects.requireNonNull(value);
+        int h = hash(key);
+        Stripe stripe = stripeFor(h);
+        long stamp = lock(stripe);
+        try {
+            int i = stripe.slotOf(key, h);
+            if (i < 0) {
+                stripe.insert(~i, key, h, value);
+                return null;
+            }
+            Object old = stripe.table[i + 1];
+            if (!onlyIfAbsent) {
+                stripe.table[i + 1] = value;
+            }
+            return (V) old;
+        } finally {
+            unlock(stripe, stamp);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int h = hash(key);
+        Stripe stripe = stripeFor(h);
+        long stamp = lock(stripe);
+        try {
+            int i = stripe.slotOf(key, h);
+            if (i < 0) {
+                return null;
+            }
+            Object old = stripe.table[i + 1];
+            stripe.delete(i);
+            return (V) old;
+        } finally {
+            unlock(stripe, stamp);
+        }
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        int h = hash(key);
+        Objects.requireNonNull(value);
+        Stripe stripe = stripeFor(h);
+        long stamp = lock(stripe);
+        try {
+            int i = stripe.slotOf(key, h);
+            if (i < 0 || !value.equals(stripe.table[i + 1])) {
+                return false;
+            }
+            stripe.delete(i);
+            return true;
+        } finally {
+            unlock(stripe, stamp);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V replace(K key, V value) {
+        Objects.requireNonNull(value);
+        int h = hash(key);
+        Stripe stripe = stripeFor(h);
+        long stamp = lock(stripe);
+        try {
+            int i = stripe.slotOf(key, h);
+            if (i < 0) {
+                return null;
+            }
+            Object old = stripe.table[i + 1];
+            stripe.table[i + 1] = value;
+            return (V) old;
+        } finally {
+            unlock(stripe, stamp);
+        }
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Objects.requireNonNull(oldValue);
+        Objects.requireNonNull(newValue);
+        int h = hash(key);
+        Stripe stripe = stripeFor(h);
+        long stamp = lock(stripe);
+        try {
+            int i = stripe.slotOf(key, h);
+            if (i < 0 || !oldValue.equals(stripe.table[i + 1])) {
+                return false;
+            }
+            stripe.table[i + 1] = newValue;
+            return true;
+        } finally {
+            unlock(stripe, stamp);
+        }
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        V present = get(key);
+        if (present != null) {
+            return present; // the common hit takes no lock
+        }
+        return remap(key, (k, old) -> old != null ? old : mappingFunction.apply(k));
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        return remap(key, (k, old) -> old == null ? null : remappingFunction.apply(k, old));
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        return remap(key, remappingFunction);
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value);
+        Objects.requireNonNull(remappingFunction);
+        return remap(key, (k, old) -> old == null ? value : remappingFunction.apply(old, value));
+    }
+
+    /**
+     * The {@code compute} family: {@code function} maps the current value
+     * ({@code null} if absent) to the new one ({@code null} to remove), under
+     * the stripe's write lock.
+     */
+    @SuppressWarnings("unchecked")
+    private V remap(K key, BiFunction<? super K, ? super V, ? extends V> function) {
+        int h = hash(key);
+        Stripe stripe = stripeFor(h);
+        long stamp = lock(stripe);
+        try {
+            int i = stripe.slotOf(key, h);
+            V old = i < 0 ? null : (V) stripe.table[i + 1];
+            V value;
+            stripe.beginCall();
+            try {
+                value = function.apply(key, old);
+            } finally {
+                stripe.endCall();
+            }
+            if (value == null) {
+                if (i >= 0) {
+                    stripe.delete(i);
+                }
+            } else if (i >= 0) {
+                stripe.table[i + 1] = value;
+            } else {
+                stripe.insert(~i, key, h, value);
+            }
+            return value;
+        } finally {
+            unlock(stripe, stamp);
+        }
+    }
+
+    /** Applies {@code function} to every entry, one stripe at a time under its write lock. */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        for (Stripe stripe : stripes) {
+            long stamp = lock(stripe);
+            try {
+                Object[] tab = stripe.table;
+                for (int i = 0; i < tab.length; i += 2) {
+                    Object key = tab[i] == null ? null : stripe.keyAt(i);
+                    if (key != null) {
+                        V value;
+                        stripe.beginCall();
+                        try {
+                            value = function.apply((K) key, (V) tab[i + 1]);
+                        } finally {
+                            stripe.endCall();
+                        }
+                        tab[i + 1] = Objects.requireNonNull(value);
+                    }
+                }
+            } finally {
+                unlock(stripe, stamp);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            long stamp = lock(stripe);
+            try {
+                stripe.clear();
+            } finally {
+                unlock(stripe, stamp);
+            }
+        }
+    }
+
+    /** Removes every entry whose key has been cleared by the GC; a no-op for strong keys. */
+    public void expungeStaleEntries() {
+        for (Stripe stripe : stripes) {
+            expungeIfPending(stripe);
+        }
+    }
+
+    // ===================================================
+    // Weakly consistent iteration
+    // ===================================================
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        Set<Entry<K, V>> es = entrySet;
+        if (es == null) {
+            entrySet = es = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return ConcurrentReferenceMap.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    ConcurrentReferenceMap.this.clear();
+                }
+            };
+        }
+        return es;
+    }
+
+    /**
+     * Walks a copy of each stripe's live entries taken under its read lock;
+     * {@code setValue} and {@code remove} write through.
+     */
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+        private int stripeIndex;
+        private Object[] pairs = new Object[0];
+        private int position;
+        private K last;
+
+        @Override
+        public boolean hasNext() {
+            while (position == pairs.length && stripeIndex < stripes.length) {
+                pairs = copy(stripes[stripeIndex++]);
+                position = 0;
+            }
+            return position < pairs.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            K key = (K) pairs[position];
+            V value = (V) pairs[position + 1];
+            position += 2;
+            last = key;
+            return new SimpleEntry<>(key, value) {
+                @Override
+                public V setValue(V value) {
+                    put(getKey(), value);
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentReferenceMap.this.remove(last);
+            last = null;
+        }
+    }
+
+    /** Live keys and values of {@code stripe}, alternating, with keys unwrapped. */
+    private Object[] copy(Stripe stripe) {
+        expungeIfPending(stripe);
+        return read(stripe, Stripe::toArray);
+    }
+
+    /**
+     * Runs {@code reader} on {@code stripe} without ever waiting for a
+     * mapping function: under a read lock when one is free, and otherwise,
+     * while a function holds the write lock, against the table it leaves
+     * untouched, validated by the stripe's call count. Only a writer that is
+     * actually changing the table is waited out.
+     */
+    private static <T> T read(Stripe stripe, Function<? super Stripe, T> reader) {
+        for (;;) {
+            if (stripe.owner == Thread.currentThread()) {
+                return reader.apply(stripe); // from inside a mapping function, which holds the write lock
+            }
+            long stamp = stripe.tryReadLock();
+            if (stamp != 0) {
+                try {
+                    return reader.apply(stripe);
+                } finally {
+                    stripe.unlockRead(stamp);
+                }
+            }
+            int calls = stripe.calls;
+            if ((calls & 1) != 0) {
+                T result;
+                try {
+                    result = reader.apply(stripe);
+                } catch (RuntimeException e) {
+                    if (stripe.calls == calls) {
+                        throw e;
+                    }
+                    continue; // a torn read of a table that changed underneath it
+                }
+                VarHandle.acquireFence();
+                if (stripe.calls == calls) {
+                    return result;
+                }
+            }
+            Thread.yield();
+        }
+    }
+
+    // ===================================================
+    // Striping internals
+    // ===================================================
+
+    private static int hash(Object key) {
+        return HashSupport.mix(System.identityHashCode(Objects.requireNonNull(key)));
+    }
+
+    private Stripe stripeFor(int h) {
+        return stripes[(int) ((h & 0xFFFFFFFFL) >>> stripeShift)];
+    }
+
+    /** Write-locks {@code stripe} and expunges its cleared keys. */
+    private static long lock(Stripe stripe) {
+        if (stripe.owner == Thread.currentThread()) {
+            throw new IllegalStateException("Map updated from inside its own mapping function");
+        }
+        long stamp = stripe.writeLock();
+        stripe.owner = Thread.currentThread();
+        stripe.expunge();
+        return stamp;
+    }
+
+    private static void unlock(Stripe stripe, long stamp) {
+        stripe.owner = null;
+        stripe.unlockWrite(stamp);
+    }
+
+    /**
+     * Expunges {@code stripe} if the GC has cleared any of its keys; takes no
+     * lock otherwise. Skipped while a mapping function holds the stripe, as
+     * waiting for it could deadlock with a function reading this thread's
+     * own stripe; the next writer expunges instead.
+     */
+    private static void expungeIfPending(Stripe stripe) {
+        if (stripe.queue == null || stripe.owner == Thread.currentThread() || (stripe.calls & 1) != 0) {
+            return;
+        }
+        Reference<?> cleared = stripe.queue.poll();
+        if (cleared != null) {
+            long stamp = lock(stripe);
+            try {
+                stripe.expunge(cleared);
+            } finally {
+                unlock(stripe, stamp);
+            }
+        }
+    }
+
+    /** A weak or soft key, with the key's spread hash cached for deletion after the key is gone. */
+    private interface KeyRef {
+        int hash();
+    }
+
+    private static final class WeakKey extends WeakReference<Object> implements KeyRef {
+        private final int hash;
+
+        WeakKey(Object key, int hash, ReferenceQueue<Object> queue) {
+            super(key, queue);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hash() {
+            return hash;
+        }
+    }
+
+    private static final class SoftKey extends SoftReference<Object> implements KeyRef {
+        private final int hash;
+
+        SoftKey(Object key, int hash, ReferenceQueue<Object> queue) {
+            super(key, queue);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hash() {
+            return hash;
+        }
+    }
+
+    /**
+     * A stripe: {@link StripeTable} followed by 128 bytes of padding, so two
+     * stripes' lock words never share a cache line (see {@link StripedHashSet}).
+     */
+    @SuppressWarnings("serial")
+    private static final class Stripe extends StripeTable {
+        long p00, p01, p02, p03, p04, p05, p06, p07;
+        long p10, p11, p12, p13, p14, p15, p16, p17;
+
+        Stripe(int capacity, KeyStrength strength) {
+            super(capacity, strength);
+        }
+    }
+
+    /**
+     * One lock and one linear-probing table. Key slot {@code 2i} holds the
+     * key (or its {@link KeyRef}), slot {@code 2i + 1} the value; a
+     * {@code null} key slot is free.
+     */
+    @SuppressWarnings("serial")
+    private static class StripeTable extends StampedLock {
+        final KeyStrength strength;
+        /** Cleared weak or soft keys of this stripe; {@code null} for strong keys. */
+        final ReferenceQueue<Object> queue;
+        Object[] table;
+        volatile int size; // written under the write lock, read without it by size()
+        int threshold;
+        /** Thread holding the write lock, so a mapping function that updates the map fails instead of deadlocking. */
+        Thread owner;
+        /** Mapping-function calls begun plus ended; odd while one runs and the table stands still. */
+        volatile int calls;
+
+        StripeTable(int capacity, KeyStrength strength) {
+            this.strength = strength;
+            this.queue = strength == KeyStrength.STRONG ? null : new ReferenceQueue<>();
+            allocate(capacity);
+        }
+
+        /** The key in key slot {@code i}, or {@code null} if the GC has cleared it. */
+        Object keyAt(int i) {
+            Object slot = table[i];
+            return queue == null ? slot : ((Reference<?>) slot).get();
+        }
+
+        private int hashAt(Object[] tab, int i) {
+            return queue == null ? hash(tab[i]) : ((KeyRef) tab[i]).hash();
+        }
+
+        /**
+         * Value for {@code key}, or {@code null}. Safe without the lock: it
+         * reads one array and the probe is bounded, so a racing writer can only
+         * produce a wrong answer, which the caller's {@code validate} rejects.
+         */
+        Object get(Object key, int h) {
+            Object[] tab = table;
+            int mask = tab.length - 1;
+            for (int i = (h << 1) & mask, n = 0; n < tab.length; i = (i + 2) & mask, n += 2) {
+                Object slot = tab[i];
+                if (slot == null) {
+                    return null;
+                }
+                if ((queue == null ? slot : ((Reference<?>) slot).get()) == key) {
+                    return tab[i + 1];
+                }
+            }
+            return null;
+        }
+
+        /** Key slot of {@code key}, or {@code ~slot} of the free slot where it would go. Under the write lock. */
+        int slotOf(Object key, int h) {
+            Object[] tab = table;
+            int mask = tab.length - 1;
+            int i = (h << 1) & mask;
+            for (Object slot; (slot = tab[i]) != null; i = (i + 2) & mask) {
+                if ((queue == null ? slot : ((Reference<?>) slot).get()) == key) {
+                    return i;
+                }
+            }
+            return ~i;
+        }
+
+        void insert(int i, Object key, int h, Object value) {
+            table[i] = switch (strength) {
+                case STRONG -> key;
+                case WEAK -> new WeakKey(key, h, queue);
+                case SOFT -> new SoftKey(key, h, queue);
+            };
+            table[i + 1] = value;
+            int n = size + 1;
+            size = n;
+            if (n > threshold) {
+                rehash(table.length);
+            }
+        }
+
+        /** Removes the entry in key slot {@code i}, which the caller found by its key. */
+        void delete(int i) {
+            if (table[i] instanceof KeyRef) {
+                ((Reference<?>) table[i]).clear(); // nothing left to expunge
+            }
+            removeAt(i);
+        }
+
+        /** Drains {@link #queue}; under the write lock. */
+        void expunge() {
+            if (queue != null) {
+                for (Reference<?> cleared; (cleared = queue.poll()) != null; ) {
+                    expunge(cleared);
+                }
+            }
+        }
+
+        /** Removes the entry of {@code cleared}, and of anything else in the queue. */
+        void expunge(Reference<?> cleared) {
+            do {
+                Object[] tab = table;
+                int mask = tab.length - 1;
+                for (int i = (((KeyRef) cleared).hash() << 1) & mask; tab[i] != null; i = (i + 2) & mask) {
+                    if (tab[i] == cleared) {
+                        removeAt(i);
+                        break;
+                    }
+                }
+            } while ((cleared = queue.poll()) != null);
+        }
+
+        /** Before a mapping function runs; the table must not change until {@link #endCall}. */
+        void beginCall() {
+            calls++;
+        }
+
+        /** After a mapping function returns or throws, before the table changes again. */
+        void endCall() {
+            calls++;
+            VarHandle.storeStoreFence(); // the count is written before any change it guards
+        }
+
+        /** Live entries as alternating keys and values. */
+        Object[] toArray() {
+            Object[] tab = table;
+            Object[] out = new Object[2 * size];
+            int n = 0;
+            for (int i = 0; i < tab.length; i += 2) {
+                Object key = tab[i] == null ? null : keyAt(i);
+                if (key != null) {
+                    out[n++] = key;
+                    out[n++] = tab[i + 1];
+                }
+            }
+            return n == out.length ? out : Arrays.copyOf(out, n);
+        }
+
+        void clear() {
+            expunge();
+            Arrays.fill(table, null);
+            size = 0;
+        }
+
+        /** Backward-shift deletion, as in {@link StripedHashSet}, moving key and value together. */
+        private void removeAt(int hole) {
+            Object[] tab = table;
+            int mask = tab.length - 1;
+            size = size - 1;
+            for (int i = (hole + 2) & mask; tab[i] != null; i = (i + 2) & mask) {
+                if (HashSupport.canShift((hashAt(tab, i) << 1) & mask, hole, i)) {
+                    tab[hole] = tab[i];
+                    tab[hole + 1] = tab[i + 1];
+                    hole = i;
+                }
+            }
+            tab[hole] = null;
+            tab[hole + 1] = null;
+        }
+
+        /** Doubles the table, or rebuilds it in place if dropping cleared keys made enough room. */
+        private void rehash(int capacity) {
+            Object[] old = table;
+            int live = 0;
+            for (int j = 0; j < old.length; j += 2) {
+                if (old[j] != null && (queue == null || ((Reference<?>) old[j]).get() != null)) {
+                    live++;
+                }
+            }
+            int slots = old.length >>> 1;
+            if (live >= HashSupport.threshold(slots, LOAD_FACTOR) / 2) {
+                slots = capacity;
+            }
+            Object[] tab = new Object[2 * slots];
+            int mask = tab.length - 1;
+            int copied = 0; // not live: the allocation above may have run the GC
+            for (int j = 0; j < old.length; j += 2) {
+                if (old[j] != null && (queue == null || ((Reference<?>) old[j]).get() != null)) {
+                    int i = (hashAt(old, j) << 1) & mask;
+                    while (tab[i] != null) {
+                        i = (i + 2) & mask;
+                    }
+                    tab[i] = old[j];
+                    tab[i + 1] = old[j + 1];
+                    copied++;
+                }
+            }
+            table = tab;
+            size = copied;
+            threshold = HashSupport.threshold(slots, LOAD_FACTOR);
+        }
+
+        private void allocate(int capacity) {
+            table = new Object[2 * capacity];
+            threshold = HashSupport.threshold(capacity, LOAD_FACTOR);
+        }
+    }
+}
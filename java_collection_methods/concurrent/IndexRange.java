@@ -0,0 +1,31 @@
+package concurrent;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Binary fork-join split of an index range down to single indices, the
+ * parallel loop behind {@link StripedHashSet} and {@link BulkOps}.
+ */
+@SuppressWarnings("serial")
+final class IndexRange extends RecursiveAction {
+    private final int from;
+    private final int to;
+    private final IntConsumer body;
+
+    IndexRange(int from, int to, IntConsumer body) {
+        this.from = from;
+        this.to = to;
+        this.body = body;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from == 1) {
+            body.accept(from);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        invokeAll(new IndexRange(from, mid, body), new IndexRange(mid, to, body));
+    }
+}
@@ -0,0 +1,391 @@
+package concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Bounded, array-backed, lock-free multi-producer/multi-consumer queue
+ * (Dmitry Vyukov's sequence-per-slot ring buffer).
+ *
+ * <p>Unlike the {@code LinkedList} queue in QueueExample it never allocates
+ * after construction and is safe for any number of producer and consumer
+ * threads. Queue semantics match QueueExample:
+ * <ul>
+ *   <li>{@code offer} returns {@code false} when full, {@code add} throws
+ *       {@code IllegalStateException}.</li>
+ *   <li>{@code poll}/{@code peek} return {@code null} when empty,
+ *       {@code remove}/{@code element} throw {@code NoSuchElementException}.</li>
+ *   <li>Iteration is FIFO and weakly consistent: it never throws
+ *       {@code ConcurrentModificationException} and may miss elements that
+ *       are consumed while it runs.</li>
+ * </ul>
+ * {@code null} elements are rejected.
+ *
+ * <p>Each slot carries a sequence number. A producer may fill slot {@code p}
+ * when its sequence equals {@code p}; a consumer may empty it when it equals
+ * {@code p + 1}. The producer and consumer indices are claimed by CAS and sit
+ * on their own cache lines (see the padding superclasses below), so producers
+ * and consumers do not invalidate each other's lines.
+ *
+ * <p>{@link #offerAll(Collection)} and {@link #drainTo(Collection, int)} first
+ * scan for the run of slots that are already free (or already published) and
+ * then claim that whole run with one CAS, so a batch costs one contended
+ * update instead of one per element and never waits on another thread.
+ */
+public final class MpmcArrayQueue<E> extends MpmcArrayQueueConsumerPad<E> {
+
+    private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle ELEMENT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private final int mask;
+    /** Most elements held: the ring size, or less for an exact capacity. */
+    private final int limit;
+    private final long[] sequences;
+    private final Object[] buffer;
+
+    /**
+     * @param capacity minimum number of elements; rounded up to a power of two
+     */
+    public MpmcArrayQueue(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * @param capacity most elements held if {@code exact}, otherwise the
+     *                 minimum, rounded up to a power of two
+     * @param exact    keep the ring rounded up (and at least 2) but hold no
+     *                 more than {@code capacity} elements
+     */
+    MpmcArrayQueue(int capacity, boolean exact) {
+        if (capacity < (exact ? 1 : 2)) {
+            throw new IllegalArgumentException("Capacity must be at least " + (exact ? 1 : 2) + ": " + capacity);
+        }
+        if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity too large: " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        limit = exact ? capacity : size;
+        sequences = new long[size];
+        buffer = new Object[size];
+        for (int i = 0; i < size; i++) {
+            sequences[i] = i;
+        }
+    }
+
+    /** Actual capacity: the requested one, rounded up to a power of two unless exact. */
+    public int capacity() {
+        return limit;
+    }
+
+    public int remainingCapacity() {
+        return capacity() - size();
+    }
+
+    // ===================================================
+    // Single-element operations
+    // ===================================================
+
+    @Override
+    public boolean offer(E e) {
+        return offerIndex(e) >= 0;
+    }
+
+    /** {@link #offer}, returning the producer index the element was published at, or -1 if full. */
+    long offerIndex(E e) {
+        Objects.requireNonNull(e);
+        long[] seqs = sequences;
+        for (;;) {
+            long p = producerIndex();
+            int slot = (int) p & mask;
+            long seq = (long) SEQUENCE.getAcquire(seqs, slot);
+            if (seq == p) {
+                // a stale consumer index only over-counts, so the limit is never passed
+                if (limit <= mask && p - consumerIndex() >= limit) {
+                    return -1;
+                }
+                if (casProducerIndex(p, p + 1)) {
+                    ELEMENT.setRelease(buffer, slot, e);
+                    SEQUENCE.setRelease(seqs, slot, p + 1);
+                    return p;
+                }
+            } else if (seq < p) {
+                return -1; // slot still holds the element from the previous lap: full
+            }
+            // seq > p: another producer claimed p already, reload
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long[] seqs = sequences;
+        for (;;) {
+            long c = consumerIndex();
+            int slot = (int) c & mask;
+            long seq = (long) SEQUENCE.getAcquire(seqs, slot);
+            if (seq == c + 1) {
+                if (casConsumerIndex(c, c + 1)) {
+                    E e = (E) ELEMENT.getAcquire(buffer, slot);
+                    ELEMENT.setRelease(buffer, slot, null);
+                    SEQUENCE.setRelease(seqs, slot, c + mask + 1);
+                    return e;
+                }
+            } else if (seq < c + 1) {
+                return null; // empty, or the producer of slot c has not published yet
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        for (;;) {
+            long c = consumerIndex();
+            int slot = (int) c & mask;
+            long seq = (long) SEQUENCE.getAcquire(sequences, slot);
+            if (seq == c + 1) {
+                E e = (E) ELEMENT.getAcquire(buffer, slot);
+                if (e != null && consumerIndex() == c) {
+                    return e;
+                }
+            } else if (seq < c + 1) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        // re-read the consumer index until it is stable around the producer read
+        for (;;) {
+            long before = consumerIndex();
+            long p = producerIndex();
+            long after = consumerIndex();
+            if (before == after) {
+                return (int) Math.max(0, Math.min(p - after, capacity()));
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return consumerIndex() >= producerIndex();
+    }
+
+    // ===================================================
+    // Batch operations
+    // ===================================================
+
+    /**
+     * Enqueues as many elements of {@code elements}, in iteration order, as fit.
+     *
+     * @return the number enqueued; less than {@code elements.size()} only if the
+     *         queue filled up
+     */
+    public int offerAll(Collection<? extends E> elements) {
+        Object[] batch = elements.toArray();
+        for (Object e : batch) {
+            Objects.requireNonNull(e);
+        }
+        long[] seqs = sequences;
+        int offered = 0;
+        while (offered < batch.length) {
+            long p = producerIndex();
+            int room = limit <= mask ? (int) Math.max(0, limit - (p - consumerIndex())) : limit;
+            int max = Math.min(batch.length - offered, room);
+            int n = 0;
+            while (n < max && (long) SEQUENCE.getAcquire(seqs, (int) (p + n) & mask) == p + n) {
+                n++;
+            }
+            if (n == 0) {
+                long seq = (long) SEQUENCE.getAcquire(seqs, (int) p & mask);
+                if ((room == 0 || seq < p) && producerIndex() == p) {
+                    return offered; // full
+                }
+                continue;
+            }
+            if (!casProducerIndex(p, p + n)) {
+                continue;
+            }
+            for (int i = 0; i < n; i++) {
+                int slot = (int) (p + i) & mask;
+                ELEMENT.setRelease(buffer, slot, batch[offered + i]);
+                SEQUENCE.setRelease(seqs, slot, p + i + 1);
+            }
+            offered += n;
+        }
+        return offered;
+    }
+
+    /** Moves every currently available element to {@code target}; returns how many. */
+    public int drainTo(Collection<? super E> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Moves up to {@code maxElements} available elements to {@code target} in
+     * FIFO order. Each run of elements is taken out of the ring, and its
+     * slots freed, before any of it is added to {@code target}, so a
+     * {@code target} that throws loses the rest of that run, as
+     * {@code BlockingQueue.drainTo} allows, but never capacity.
+     */
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        Objects.requireNonNull(target);
+        if (target == this) {
+            throw new IllegalArgumentException("Cannot drain a queue into itself");
+        }
+        long[] seqs = sequences;
+        int max = Math.min(maxElements, capacity());
+        int drained = 0;
+        while (drained < max) {
+            long c = consumerIndex();
+            int n = 0;
+            while (drained + n < max && (long) SEQUENCE.getAcquire(seqs, (int) (c + n) & mask) == c + n + 1) {
+                n++;
+            }
+            if (n == 0) {
+                long seq = (long) SEQUENCE.getAcquire(seqs, (int) c & mask);
+                if (seq < c + 1 && consumerIndex() == c) {
+                    break; // empty, or the head element is not published yet
+                }
+                continue;
+            }
+            if (!casConsumerIndex(c, c + n)) {
+                continue;
+            }
+            Object[] run = new Object[n];
+            for (int i = 0; i < n; i++) {
+                int slot = (int) (c + i) & mask;
+                run[i] = ELEMENT.getAcquire(buffer, slot);
+                ELEMENT.setRelease(buffer, slot, null);
+                SEQUENCE.setRelease(seqs, slot, c + i + mask + 1);
+            }
+            drained += n;
+            for (Object e : run) {
+                target.add(cast(e));
+            }
+        }
+        return drained;
+    }
+
+    // ===================================================
+    // Weakly consistent iteration
+    // ===================================================
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private long position = consumerIndex();
+            private final long end = producerIndex();
+            private E next = advance();
+
+            private E advance() {
+                while (position < end) {
+                    long pos = position++;
+                    int slot = (int) pos & mask;
+                    if ((long) SEQUENCE.getAcquire(sequences, slot) == pos + 1) {
+                        E e = cast(ELEMENT.getAcquire(buffer, slot));
+                        if (e != null && (long) SEQUENCE.getAcquire(sequences, slot) == pos + 1) {
+                            return e;
+                        }
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public E next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                E e = next;
+                next = advance();
+                return e;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E cast(Object o) {
+        return (E) o;
+    }
+}
+
+// ===================================================
+// Cache-line padding
+// ===================================================
+// HotSpot lays out superclass fields before subclass fields, so the
+// 128-byte pads (two lines, to defeat adjacent-line prefetch) keep the
+// producer index, the consumer index and the queue's own fields apart.
+
+abstract class MpmcArrayQueuePad0<E> extends AbstractQueue<E> {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class MpmcArrayQueueProducerIndex<E> extends MpmcArrayQueuePad0<E> {
+    private static final VarHandle PRODUCER_INDEX;
+
+    static {
+        try {
+            PRODUCER_INDEX = MethodHandles.lookup()
+                    .findVarHandle(MpmcArrayQueueProducerIndex.class, "producerIndex", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile long producerIndex;
+
+    final long producerIndex() {
+        return producerIndex;
+    }
+
+    final boolean casProducerIndex(long expected, long next) {
+        return PRODUCER_INDEX.compareAndSet(this, expected, next);
+    }
+}
+
+abstract class MpmcArrayQueuePad1<E> extends MpmcArrayQueueProducerIndex<E> {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class MpmcArrayQueueConsumerIndex<E> extends MpmcArrayQueuePad1<E> {
+    private static final VarHandle CONSUMER_INDEX;
+
+    static {
+        try {
+            CONSUMER_INDEX = MethodHandles.lookup()
+                    .findVarHandle(MpmcArrayQueueConsumerIndex.class, "consumerIndex", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile long consumerIndex;
+
+    final long consumerIndex() {
+        return consumerIndex;
+    }
+
+    final boolean casConsumerIndex(long expected, long next) {
+        return CONSUMER_INDEX.compareAndSet(this, expected, next);
+    }
+}
+
+abstract class MpmcArrayQueueConsumerPad<E> extends MpmcArrayQueueConsumerIndex<E> {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
@@ -0,0 +1,302 @@
+package concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent priority queue with relaxed ordering (the MultiQueue of
+ * Rihani, Sanders and Dementiev), for schedulers where many threads offer
+ * and poll and "one of the most urgent" is as good as "the most urgent".
+ *
+ * <p>Elements live in {@code queues} independent heaps, each behind its own
+ * lock. {@link #offer} adds to a random heap whose lock is free;
+ * {@link #poll} looks at the heads of two random heaps, which each heap
+ * publishes in a volatile field, and takes the better one. Threads rarely
+ * meet on one lock, so throughput grows with threads where a single-lock
+ * heap such as {@code PriorityBlockingQueue} serialises them. The price:
+ * {@code poll} returns an element among the smallest few
+ * ({@code O(queues)} in expectation) rather than the minimum, and equal
+ * elements come out in no particular order. With {@code queues == 1} it is
+ * an exact, single-lock priority queue.
+ *
+ * <p>{@code poll} returns {@code null} only after finding every heap empty.
+ * {@code peek} is the best of the published heads; {@code size} and
+ * iteration are weakly consistent, and iteration is in no particular order.
+ * {@code null} elements are rejected. Not a {@code BlockingQueue}: idle
+ * consumers should back off, or park on their own signal.
+ */
+public class MultiQueue<E> extends AbstractQueue<E> {
+
+    /** Heaps per available processor when not given: enough for two random picks to rarely collide. */
+    public static final int DEFAULT_QUEUES_PER_THREAD = 2;
+
+    private final Shard<E>[] shards;
+    private final Comparator<? super E> comparator;
+
+    /** Natural order, {@value #DEFAULT_QUEUES_PER_THREAD} heaps per available processor. */
+    public MultiQueue() {
+        this(null);
+    }
+
+    public MultiQueue(Comparator<? super E> comparator) {
+        this(DEFAULT_QUEUES_PER_THREAD * Runtime.getRuntime().availableProcessors(), comparator);
+    }
+
+    /**
+     * @param queues     number of internal heaps; more means less contention and looser order
+     * @param comparator element order, or {@code null} for natural order
+     */
+    @SuppressWarnings("unchecked")
+    public MultiQueue(int queues, Comparator<? super E> comparator) {
+        if (queues < 1) {
+            throw new IllegalArgumentException("Queues must be at least 1: " + queues);
+        }
+        this.comparator = comparator;
+        this.shards = (Shard<E>[]) new Shard<?>[queues];
+        for (int i = 0; i < queues; i++) {
+            shards[i] = new Shard<>(comparator);
+        }
+    }
+
+    // ===================================================
+    // Queue
+    // ===================================================
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; ; attempt++) {
+            Shard<E> shard = shards[random.nextInt(shards.length)];
+            if (attempt < shards.length) {
+                if (!shard.tryLock()) {
+                    continue;
+                }
+            } else {
+                shard.lock(); // every pick was busy: wait on one
+            }
+            try {
+                shard.heap.offer(e);
+                shard.publish();
+            } finally {
+                shard.unlock();
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public E poll() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < shards.length; attempt++) {
+            Shard<E> a = shards[random.nextInt(shards.length)];
+            Shard<E> b = shards[random.nextInt(shards.length)];
+            E headA = a.head;
+            E headB = b.head;
+            Shard<E> best = headA == null ? (headB == null ? null : b)
+                    : (headB == null || compare(headA, headB) <= 0 ? a : b);
+            if (best == null || !best.tryLock()) {
+                continue;
+            }
+            try {
+                E e = best.heap.poll();
+                best.publish();
+                if (e != null) {
+                    return e;
+                }
+            } finally {
+                best.unlock();
+            }
+        }
+        return pollAny(random.nextInt(shards.length));
+    }
+
+    /** Sweeps every heap from {@code start}, locking those that look non-empty; null if all are empty. */
+    private E pollAny(int start) {
+        for (int i = 0; i < shards.length; i++) {
+            Shard<E> shard = shards[(start + i) % shards.length];
+            if (shard.head == null) {
+                continue;
+            }
+            shard.lock();
+            try {
+                E e = shard.heap.poll();
+                shard.publish();
+                if (e != null) {
+                    return e;
+                }
+            } finally {
+                shard.unlock();
+            }
+        }
+        return null;
+    }
+
+    /** The best published head; what {@code poll} returns may differ. */
+    @Override
+    public E peek() {
+        E best = null;
+        for (Shard<E> shard : shards) {
+            E head = shard.head;
+            if (head != null && (best == null || compare(head, best) < 0)) {
+                best = head;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public int size() {
+        long sum = 0;
+        for (Shard<E> shard : shards) {
+            sum += shard.size;
+        }
+        return (int) Math.min(sum, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Shard<E> shard : shards) {
+            if (shard.size != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        for (Shard<E> shard : shards) {
+            shard.lock();
+            try {
+                if (shard.heap.contains(o)) {
+                    return true;
+                }
+            } finally {
+                shard.unlock();
+            }
+        }
+        return false;
+    }
+
+    /** Removes one element equal to {@code o}; O(n). */
+    @Override
+    public boolean remove(Object o) {
+        for (Shard<E> shard : shards) {
+            shard.lock();
+            try {
+                if (shard.heap.remove(o)) {
+                    shard.publish();
+                    return true;
+                }
+            } finally {
+                shard.unlock();
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        for (Shard<E> shard : shards) {
+            shard.lock();
+            try {
+                shard.heap.clear();
+                shard.publish();
+            } finally {
+                shard.unlock();
+            }
+        }
+    }
+
+    /** Iterates a copy taken one heap at a time; {@code remove} removes an equal element from the queue. */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> copy = new ArrayList<>();
+        for (Shard<E> shard : shards) {
+            shard.lock();
+            try {
+                copy.addAll(shard.heap);
+            } finally {
+                shard.unlock();
+            }
+        }
+        Iterator<E> it = copy.iterator();
+        return new Iterator<>() {
+            private E last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return last = it.next();
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                MultiQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    /** Comparator, or {@code null} for natural order. */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(E a, E b) {
+        return comparator != null ? comparator.compare(a, b) : ((Comparable<? super E>) a).compareTo(b);
+    }
+
+    // ===================================================
+    // Internal heaps
+    // ===================================================
+
+    private static final class Shard<E> extends ShardFields<E> {
+        private static final long serialVersionUID = 1L;
+
+        long p00, p01, p02, p03, p04, p05, p06, p07;
+        long p10, p11, p12, p13, p14, p15, p16, p17;
+
+        Shard(Comparator<? super E> comparator) {
+            super(comparator);
+        }
+    }
+
+    /**
+     * One heap and its lock; extends the lock to save an indirection. The
+     * head and size are republished after every change, under the lock, so
+     * {@code poll} and {@code size} can read them without it.
+     */
+    private static class ShardFields<E> extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        final PriorityQueue<E> heap;
+        volatile E head;
+        volatile int size;
+
+        ShardFields(Comparator<? super E> comparator) {
+            this.heap = new PriorityQueue<>(comparator);
+        }
+
+        void publish() {
+            head = heap.peek();
+            size = heap.size();
+        }
+    }
+}
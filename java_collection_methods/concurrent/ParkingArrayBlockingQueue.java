@@ -0,0 +1,109 @@
+package concurrent;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Bounded blocking queue for large numbers of waiting threads, virtual
+ * threads in particular: a drop-in {@code BlockingQueue} in place of
+ * {@code ArrayBlockingQueue} or a bounded {@code LinkedBlockingQueue}.
+ *
+ * <p>Elements live in an {@link MpmcArrayQueue} ring, so neither side takes
+ * a lock and nothing is allocated per element. A taker that finds the ring
+ * empty, or a putter that finds it full, briefly spins and then parks
+ * without holding a lock or monitor (see {@link ParkingBlockingQueue}).
+ * Every successful poll wakes one parked putter, and wakeups cascade
+ * between takers as described there. {@link #offerAll},
+ * {@link #drainTo(Collection, int)} and {@link #takeBatch} move a run of
+ * elements with one claim on the ring.
+ *
+ * <p>The queue holds at most the requested capacity, as
+ * {@code ArrayBlockingQueue} does; only the ring behind it is rounded up to
+ * a power of two. Semantics otherwise match {@code MpmcArrayQueue}: FIFO,
+ * weakly consistent iteration, no {@code null} elements, and no removal
+ * except at the head ({@code remove(Object)} and {@code Iterator.remove}
+ * throw {@code UnsupportedOperationException}).
+ * Waiting threads are not served in arrival order.
+ */
+public class ParkingArrayBlockingQueue<E> extends ParkingBlockingQueue<E> {
+
+    private final MpmcArrayQueue<E> ring;
+
+    /**
+     * @param capacity most elements the queue holds
+     */
+    public ParkingArrayBlockingQueue(int capacity) {
+        super(true);
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.ring = new MpmcArrayQueue<>(capacity, true);
+    }
+
+    /** Most elements the queue holds, as requested. */
+    public int capacity() {
+        return ring.capacity();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return ring.remainingCapacity();
+    }
+
+    @Override
+    public E peek() {
+        return ring.peek();
+    }
+
+    @Override
+    public int size() {
+        return ring.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return ring.iterator();
+    }
+
+    @Override
+    long enqueue(E e) {
+        return ring.offerIndex(e);
+    }
+
+    @Override
+    long headPosition() {
+        return ring.consumerIndex();
+    }
+
+    @Override
+    boolean available() {
+        return ring.peek() != null;
+    }
+
+    @Override
+    boolean hasRoom() {
+        return ring.remainingCapacity() > 0;
+    }
+
+    @Override
+    E dequeue() {
+        return ring.poll();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    int enqueueAll(Object[] batch) {
+        return ring.offerAll((Collection<? extends E>) Arrays.asList(batch));
+    }
+
+    @Override
+    int dequeueTo(Collection<? super E> target, int maxElements) {
+        return ring.drainTo(target, maxElements);
+    }
+}
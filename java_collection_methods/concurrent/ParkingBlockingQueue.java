@@ -0,0 +1,411 @@
+package concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Blocking layer shared by {@link ParkingArrayBlockingQueue} and
+ * {@link ParkingLinkedBlockingQueue}: turns a lock-free queue into a
+ * {@code BlockingQueue} whose waiting threads hold no lock and no monitor.
+ *
+ * <p>A thread that finds the queue empty (or full) polls a few more times,
+ * then pushes itself on a stack of waiters, re-checks, and parks with
+ * {@link LockSupport#park}. No {@code synchronized} block,
+ * {@code Object.wait} or {@code Condition} is involved, so a virtual thread
+ * waiting here unmounts from its carrier instead of pinning it.
+ *
+ * <p>As in {@code LinkedBlockingQueue}, wakeups cascade rather than going
+ * one per element: a put wakes a taker only if every earlier element has
+ * already been claimed, a taker that leaves elements behind wakes the next
+ * one, and only one woken taker is in flight at a time. A burst of puts
+ * into a queue with thousands of parked takers therefore wakes them one
+ * after another as each gets to run, instead of making them all runnable
+ * at once. Putters blocked on a full queue are woken the same way, by takes
+ * and by each other. A put or take that wakes nobody costs one lock-free
+ * queue operation, one fence and a few volatile reads.
+ *
+ * <p>Waiters are woken newest first: the thread that parked last is the one
+ * most likely to still be warm in cache, and a queue of tens of thousands of
+ * idle consumers wakes one, not all. Waiting is therefore not fair.
+ */
+abstract class ParkingBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    /** Polls before parking; only worth it when another core can change the queue meanwhile. */
+    static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 64 : 0;
+
+    private final Waiters consumers = new Waiters();
+    private final Waiters producers;
+
+    ParkingBlockingQueue(boolean bounded) {
+        this.producers = bounded ? new Waiters() : null;
+    }
+
+    /** Adds {@code e} if there is room, without signalling; returns its position, or -1 if full. */
+    abstract long enqueue(E e);
+
+    /** Position of the next element to be taken; positions increase by one per element. */
+    abstract long headPosition();
+
+    /** Whether a take would find an element now, or one that is about to be written. */
+    abstract boolean available();
+
+    /** Whether an offer would find room now; always true if unbounded. */
+    abstract boolean hasRoom();
+
+    /** Removes the head, or null if none is available, without signalling. */
+    abstract E dequeue();
+
+    /** Adds elements of {@code batch} in order while there is room; returns how many. */
+    abstract int enqueueAll(Object[] batch);
+
+    /** Moves up to {@code maxElements} available elements to {@code target}; returns how many. */
+    abstract int dequeueTo(Collection<? super E> target, int maxElements);
+
+    // ===================================================
+    // Non-blocking operations
+    // ===================================================
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        long position = enqueue(e);
+        if (position < 0) {
+            return false;
+        }
+        VarHandle.fullFence(); // pairs with the fence in a parking thread: one of us sees the other
+        if (headPosition() >= position) {
+            consumers.signalOne(); // no earlier element is left for a taker to cascade from
+        }
+        if (producers != null && producers.hasWaiters() && hasRoom()) {
+            producers.signalOne();
+        }
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        E e = dequeue();
+        if (e != null) {
+            taken();
+        }
+        return e;
+    }
+
+    /** After a take: passes the wakeup on to the next taker, and wakes a putter. */
+    private void taken() {
+        VarHandle.fullFence();
+        if (available()) {
+            consumers.signalOne();
+        }
+        if (producers != null) {
+            producers.signalOne();
+        }
+    }
+
+    /**
+     * Enqueues as many elements of {@code elements}, in iteration order, as
+     * fit, and wakes up to that many waiting takers at once.
+     *
+     * @return the number enqueued; less than {@code elements.size()} only if
+     *         the queue filled up
+     */
+    public int offerAll(Collection<? extends E> elements) {
+        Object[] batch = elements.toArray();
+        for (Object e : batch) {
+            Objects.requireNonNull(e);
+        }
+        int n = enqueueAll(batch);
+        if (n > 0) {
+            VarHandle.fullFence();
+            consumers.signal(n);
+        }
+        return n;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        Objects.requireNonNull(target);
+        if (target == this) {
+            throw new IllegalArgumentException("Cannot drain a queue into itself");
+        }
+        if (maxElements <= 0) {
+            return 0;
+        }
+        int n = -1; // stays -1 if target.add throws, after elements were claimed
+        try {
+            n = dequeueTo(target, maxElements);
+            return n;
+        } finally {
+            if (n != 0) {
+                taken();
+            }
+        }
+    }
+
+    // ===================================================
+    // Blocking operations
+    // ===================================================
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        Objects.requireNonNull(e);
+        if (!offer(e)) {
+            awaitOffer(e, false, 0L);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(e);
+        return offer(e) || awaitOffer(e, true, unit.toNanos(timeout));
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e = poll();
+        return e != null ? e : awaitPoll(false, 0L);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = poll();
+        return e != null ? e : awaitPoll(true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Waits until at least one element is available, then moves it and up to
+     * {@code maxElements - 1} more to {@code target}: one wakeup per batch
+     * instead of one per element.
+     *
+     * @return the number moved, at least 1
+     */
+    public int takeBatch(Collection<? super E> target, int maxElements) throws InterruptedException {
+        Objects.requireNonNull(target);
+        if (target == this) {
+            throw new IllegalArgumentException("Cannot drain a queue into itself");
+        }
+        if (maxElements <= 0) {
+            throw new IllegalArgumentException("maxElements must be positive: " + maxElements);
+        }
+        target.add(take());
+        return 1 + (maxElements > 1 ? drainTo(target, maxElements - 1) : 0);
+    }
+
+    private E awaitPoll(boolean timed, long nanos) throws InterruptedException {
+        for (int i = 0; i < SPINS; i++) {
+            Thread.onSpinWait();
+            E e = poll();
+            if (e != null) {
+                return e;
+            }
+        }
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+        for (;;) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Waiters.Node node = consumers.push();
+            VarHandle.fullFence(); // pairs with the fence after a change: either we see it or its author sees us
+            E e = poll();
+            if (e != null) {
+                consumers.leave(node);
+                return e;
+            }
+            if (timed) {
+                nanos = deadline - System.nanoTime();
+                if (nanos <= 0L) {
+                    consumers.leave(node);
+                    return null;
+                }
+                LockSupport.parkNanos(this, nanos);
+            } else {
+                LockSupport.park(this);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                consumers.leave(node);
+            } else {
+                consumers.cancel(node);
+            }
+        }
+    }
+
+    private boolean awaitOffer(E e, boolean timed, long nanos) throws InterruptedException {
+        for (int i = 0; i < SPINS; i++) {
+            Thread.onSpinWait();
+            if (offer(e)) {
+                return true;
+            }
+        }
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+        for (;;) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Waiters.Node node = producers.push();
+            VarHandle.fullFence();
+            if (offer(e)) {
+                producers.leave(node);
+                return true;
+            }
+            if (timed) {
+                nanos = deadline - System.nanoTime();
+                if (nanos <= 0L) {
+                    producers.leave(node);
+                    return false;
+                }
+                LockSupport.parkNanos(this, nanos);
+            } else {
+                LockSupport.park(this);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                producers.leave(node);
+            } else {
+                producers.cancel(node);
+            }
+        }
+    }
+
+    // ===================================================
+    // Waiting threads
+    // ===================================================
+
+    /**
+     * Treiber stack of parked threads. A node is claimed exactly once, either
+     * by a signaller (which unparks its thread) or by the thread itself
+     * giving up (timeout, interrupt, or it found what it was waiting for);
+     * claimed nodes still on the stack are skipped and unlinked lazily.
+     *
+     * <p>{@link #signalOne} keeps at most one woken thread in flight: while a
+     * thread it woke has not yet run, further calls do nothing, since that
+     * thread will look at the queue and pass the wakeup on. This is what
+     * keeps a burst of changes from making thousands of parked threads
+     * runnable at once.
+     */
+    static final class Waiters {
+        private static final VarHandle HEAD;
+        private static final VarHandle WAKING;
+        private static final VarHandle THREAD;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                HEAD = lookup.findVarHandle(Waiters.class, "head", Node.class);
+                WAKING = lookup.findVarHandle(Waiters.class, "waking", boolean.class);
+                THREAD = lookup.findVarHandle(Node.class, "thread", Thread.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        static final class Node {
+            volatile Thread thread;
+            Node next;
+
+            Node(Thread thread) {
+                this.thread = thread;
+            }
+        }
+
+        private volatile Node head;
+        /** A thread woken by {@link #signalOne} has not yet run. */
+        private volatile boolean waking;
+
+        /** Registers the current thread; the caller must re-check its condition before parking. */
+        Node push() {
+            Node node = new Node(Thread.currentThread());
+            for (;;) {
+                Node top = head;
+                Node live = top;
+                while (live != null && live.thread == null) {
+                    live = live.next; // drop claimed nodes as we go
+                }
+                node.next = live;
+                if (HEAD.compareAndSet(this, top, node)) {
+                    return node;
+                }
+            }
+        }
+
+        boolean hasWaiters() {
+            return head != null;
+        }
+
+        /**
+         * Wakes one waiting thread unless one is already on its way. The
+         * caller fences between changing the queue and calling this, so that
+         * a thread pushed too late to be seen here sees the change when it
+         * re-checks.
+         */
+        void signalOne() {
+            while (head != null && !waking) {
+                if (WAKING.compareAndSet(this, false, true)) {
+                    if (unparkOne()) {
+                        return;
+                    }
+                    waking = false;
+                    VarHandle.fullFence(); // a thread that pushed meanwhile is seen by the loop
+                }
+            }
+        }
+
+        /** Wakes up to {@code n} waiting threads at once, for changes that several can act on. */
+        void signal(int n) {
+            for (int i = 0; i < n && unparkOne(); i++) {
+                // each pass wakes one
+            }
+        }
+
+        private boolean unparkOne() {
+            for (;;) {
+                Node top = head;
+                if (top == null) {
+                    return false;
+                }
+                if (HEAD.compareAndSet(this, top, top.next)) {
+                    Thread t = top.thread;
+                    if (t != null && THREAD.compareAndSet(top, t, null)) {
+                        LockSupport.unpark(t);
+                        return true;
+                    }
+                }
+            }
+        }
+
+        /** Withdraws {@code node} after {@code park} returns; the caller goes on to re-check. */
+        void cancel(Node node) {
+            if (!withdraw(node)) {
+                waking = false; // we are the woken thread, now running
+            }
+        }
+
+        /**
+         * Withdraws {@code node} when its thread stops waiting. If a signal
+         * claimed it first, that wakeup may be needed by another waiter, so it
+         * is passed on.
+         */
+        void leave(Node node) {
+            if (!withdraw(node)) {
+                waking = false;
+                VarHandle.fullFence();
+                signalOne();
+            }
+        }
+
+        /** True if {@code node} was still unclaimed, so no signal was spent on it. */
+        private static boolean withdraw(Node node) {
+            Thread t = node.thread;
+            return t != null && THREAD.compareAndSet(node, t, null);
+        }
+    }
+}
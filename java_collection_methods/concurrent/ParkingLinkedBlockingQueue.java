@@ -0,0 +1,312 @@
+package concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unbounded blocking queue for large numbers of waiting threads, virtual
+ * threads in particular: a drop-in {@code BlockingQueue} in place of an
+ * unbounded {@code LinkedBlockingQueue}, without its lock and its node per
+ * element.
+ *
+ * <p>Elements are stored in a linked list of fixed-size chunks. A put claims
+ * the next position with one {@code getAndIncrement} and writes its slot; a
+ * take claims the head position with one CAS and reads it, so neither side
+ * takes a lock, and a chunk is allocated once per {@value #CHUNK} elements.
+ * Consumed chunks are unlinked as the head passes them. A taker that finds
+ * the queue empty briefly spins and then parks without holding a lock or
+ * monitor (see {@link ParkingBlockingQueue}), and wakeups cascade between
+ * takers as described there. {@link #offerAll} and
+ * {@link #drainTo(Collection, int)} claim a whole run of positions with one
+ * atomic update.
+ *
+ * <p>Puts never block. Iteration is FIFO and weakly consistent, {@code null}
+ * elements are rejected, and only the head can be removed
+ * ({@code remove(Object)} and {@code Iterator.remove} throw
+ * {@code UnsupportedOperationException}). Waiting threads are not served in
+ * arrival order.
+ */
+public class ParkingLinkedBlockingQueue<E> extends ParkingBlockingQueue<E> {
+
+    /** Slots per chunk. */
+    static final int CHUNK = 1024;
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final VarHandle NEXT;
+    private static final VarHandle HEAD_CHUNK;
+    private static final VarHandle TAIL_CHUNK;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            NEXT = lookup.findVarHandle(Chunk.class, "next", Chunk.class);
+            HEAD_CHUNK = lookup.findVarHandle(ParkingLinkedBlockingQueue.class, "headChunk", Chunk.class);
+            TAIL_CHUNK = lookup.findVarHandle(ParkingLinkedBlockingQueue.class, "tailChunk", Chunk.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Next position to take; only ever below {@link #tail}. */
+    private final Counter head = new Counter();
+    /** Next position to fill. */
+    private final Counter tail = new Counter();
+    /** A chunk at or before the one holding {@code head}; advanced by takers. */
+    private volatile Chunk headChunk;
+    /** A chunk at or before the one holding {@code tail}; advanced by putters. */
+    private volatile Chunk tailChunk;
+
+    public ParkingLinkedBlockingQueue() {
+        super(false);
+        Chunk first = new Chunk(0);
+        headChunk = first;
+        tailChunk = first;
+    }
+
+    public ParkingLinkedBlockingQueue(Collection<? extends E> elements) {
+        this();
+        offerAll(elements);
+    }
+
+    /** Always {@code Integer.MAX_VALUE}: puts never block. */
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int size() {
+        long h = head.get();
+        long t = tail.get();
+        return (int) Math.max(0, Math.min(t - h, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    @Override
+    public E peek() {
+        for (;;) {
+            Chunk c = headChunk; // read before the index, so it cannot be past it
+            long h = head.get();
+            if (h >= tail.get()) {
+                return null;
+            }
+            E e = cast(SLOT.getAcquire(chunkFor(c, h).slots, slot(h)));
+            if (e != null && head.get() == h) {
+                return e;
+            }
+            Thread.onSpinWait(); // taken meanwhile, or claimed but not yet written
+        }
+    }
+
+    // ===================================================
+    // Chunked storage
+    // ===================================================
+
+    @Override
+    long enqueue(E e) {
+        Chunk start = tailChunk;
+        long t = tail.getAndIncrement();
+        Chunk c = chunkFor(start, t);
+        write(c, t, e);
+        moveTailChunk(start, c);
+        return t;
+    }
+
+    @Override
+    long headPosition() {
+        return head.get();
+    }
+
+    /** A claimed position counts: the taker waits out the putter's write. */
+    @Override
+    boolean available() {
+        return !isEmpty();
+    }
+
+    @Override
+    boolean hasRoom() {
+        return true;
+    }
+
+    @Override
+    E dequeue() {
+        Chunk start = headChunk;
+        long h;
+        do {
+            h = head.get();
+            if (h >= tail.get()) {
+                return null;
+            }
+        } while (!head.compareAndSet(h, h + 1));
+        Chunk c = chunkFor(start, h);
+        moveHeadChunk(start, c);
+        return take(c, h);
+    }
+
+    @Override
+    int enqueueAll(Object[] batch) {
+        if (batch.length == 0) {
+            return 0;
+        }
+        Chunk start = tailChunk;
+        long t = tail.getAndAdd(batch.length);
+        Chunk c = start;
+        for (Object e : batch) {
+            c = chunkFor(c, t);
+            write(c, t++, e);
+        }
+        moveTailChunk(start, c);
+        return batch.length;
+    }
+
+    @Override
+    int dequeueTo(Collection<? super E> target, int maxElements) {
+        Chunk start = headChunk;
+        long h;
+        int n;
+        do {
+            h = head.get();
+            n = (int) Math.min(tail.get() - h, maxElements);
+            if (n <= 0) {
+                return 0;
+            }
+        } while (!head.compareAndSet(h, h + n));
+        // take the whole run before any add, so a target that throws cannot strand claimed slots
+        Object[] run = new Object[n];
+        Chunk c = start;
+        for (int i = 0; i < n; i++) {
+            c = chunkFor(c, h + i);
+            run[i] = take(c, h + i);
+        }
+        moveHeadChunk(start, c);
+        for (Object e : run) {
+            target.add(cast(e));
+        }
+        return n;
+    }
+
+    private static int slot(long position) {
+        return (int) (position & (CHUNK - 1));
+    }
+
+    private static void write(Chunk c, long position, Object e) {
+        SLOT.setRelease(c.slots, slot(position), e);
+    }
+
+    /** Reads and clears a claimed slot, waiting out the gap between a putter's claim and its write. */
+    private static <E> E take(Chunk c, long position) {
+        int slot = slot(position);
+        Object e;
+        for (int spins = 0; (e = SLOT.getAcquire(c.slots, slot)) == null; spins++) {
+            if (spins < 64) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield(); // the putter was descheduled between claim and write
+            }
+        }
+        SLOT.setRelease(c.slots, slot, null);
+        return cast(e);
+    }
+
+    /** The chunk holding {@code position}, at or after {@code c}, linking new chunks as needed. */
+    private static Chunk chunkFor(Chunk c, long position) {
+        while (position >= c.base + CHUNK) {
+            Chunk next = c.next;
+            if (next == null) {
+                Chunk fresh = new Chunk(c.base + CHUNK);
+                next = NEXT.compareAndSet(c, null, fresh) ? fresh : c.next;
+            }
+            c = next;
+        }
+        return c;
+    }
+
+    /**
+     * Moves {@code headChunk} from {@code from}, read before claiming a
+     * position, to {@code to}, the chunk of that position. A lost race leaves
+     * it behind, never ahead of the head.
+     */
+    private void moveHeadChunk(Chunk from, Chunk to) {
+        if (to != from) {
+            HEAD_CHUNK.compareAndSet(this, from, to);
+        }
+    }
+
+    private void moveTailChunk(Chunk from, Chunk to) {
+        if (to != from) {
+            TAIL_CHUNK.compareAndSet(this, from, to);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E cast(Object o) {
+        return (E) o;
+    }
+
+    // ===================================================
+    // Weakly consistent iteration
+    // ===================================================
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private Chunk chunk = headChunk;
+            private long position = head.get();
+            private final long end = tail.get();
+            private E next = advance();
+
+            private E advance() {
+                while (position < end) {
+                    long pos = position++;
+                    chunk = chunkFor(chunk, pos);
+                    E e = cast(SLOT.getAcquire(chunk.slots, slot(pos)));
+                    if (e != null) {
+                        return e;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public E next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                E e = next;
+                next = advance();
+                return e;
+            }
+        };
+    }
+
+    static final class Chunk {
+        final long base;
+        final Object[] slots = new Object[CHUNK];
+        volatile Chunk next;
+
+        Chunk(long base) {
+            this.base = base;
+        }
+    }
+
+    /** A position counter on its own cache lines; extends the atomic to save an indirection. */
+    static final class Counter extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+
+        long p00, p01, p02, p03, p04, p05, p06, p07;
+        long p10, p11, p12, p13, p14, p15, p16, p17;
+    }
+}
@@ -0,0 +1,711 @@
+package concurrent;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+import primitive.HashSupport;
+
+/**
+ * Thread-safe hash set split into independently locked stripes, with bulk
+ * operations that run on a {@link ForkJoinPool}.
+ *
+ * <p>Each element belongs to the stripe chosen by the high bits of its
+ * spread hash; the low bits pick its slot in that stripe's open-addressing
+ * table (linear probing, backward-shift deletion, as in
+ * {@link primitive.ObjectIntMap}). Writers take the stripe's
+ * {@link StampedLock} write lock, so writers to different stripes never
+ * contend. {@link #contains(Object)} is an optimistic read: it takes no lock
+ * and only retries under the read lock if a writer touched the stripe
+ * meanwhile. Stripes are padded so two stripe locks never share a cache line.
+ *
+ * <p>Bulk operations on large collections (at least
+ * {@value #PARALLEL_THRESHOLD} elements) are parallel:
+ * <ul>
+ *   <li>{@link #addAll} and {@link #removeAll} hash the argument in parallel,
+ *       partition it by stripe, then give each stripe to one task that takes
+ *       the stripe's lock once for its whole share.</li>
+ *   <li>{@link #retainAll} and {@link #removeIf} filter every stripe in its
+ *       own task.</li>
+ *   <li>{@link #containsAll} probes chunks of the argument in parallel and
+ *       stops at the first miss.</li>
+ * </ul>
+ * A bulk operation is not atomic: concurrent readers may observe it half
+ * done, exactly as with a loop of single-element calls.
+ *
+ * <p>{@code size()} and iteration are weakly consistent, as in
+ * {@code ConcurrentHashMap.newKeySet()}; the iterator never throws
+ * {@code ConcurrentModificationException}. The spliterator splits by
+ * stripe, so parallel streams give each task a range of stripes.
+ * {@code null} elements are rejected.
+ */
+public class StripedHashSet<E> extends AbstractSet<E> {
+
+    /** Bulk operations on fewer elements than this run on the calling thread. */
+    public static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    private static final float LOAD_FACTOR = 0.5f;
+    private static final int MAX_STRIPES = 1 << 16;
+    private static final int EMPTY = 0;
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private final ForkJoinPool pool;
+
+    /** Four stripes per available processor, bulk operations on the common pool. */
+    public StripedHashSet() {
+        this(16);
+    }
+
+    public StripedHashSet(int expectedSize) {
+        this(expectedSize, 4 * Runtime.getRuntime().availableProcessors(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param expectedSize     number of elements to hold without resizing
+     * @param concurrencyLevel number of stripes; rounded up to a power of two
+     * @param pool             pool that runs the parallel bulk operations
+     */
+    public StripedHashSet(int expectedSize, int concurrencyLevel, ForkJoinPool pool) {
+        if (concurrencyLevel < 1 || concurrencyLevel > MAX_STRIPES) {
+            throw new IllegalArgumentException("Concurrency level must be in [1, " + MAX_STRIPES + "]: " + concurrencyLevel);
+        }
+        int stripeCount = concurrencyLevel == 1 ? 1 : Integer.highestOneBit(concurrencyLevel - 1) << 1;
+        int perStripe = HashSupport.tableSize((expectedSize + stripeCount - 1) / stripeCount, LOAD_FACTOR);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+        this.stripeShift = Integer.SIZE - Integer.numberOfTrailingZeros(stripeCount);
+        this.pool = Objects.requireNonNull(pool, "pool");
+    }
+
+    /** Creates a set holding {@code elements}, added in parallel when large. */
+    public StripedHashSet(Collection<? extends E> elements) {
+        this(elements.size());
+        addAll(elements);
+    }
+
+    // ===================================================
+    // Single-element operations
+    // ===================================================
+
+    @Override
+    public boolean add(E e) {
+        int h = hash(e);
+        Stripe stripe = stripeFor(h);
+        long stamp = stripe.writeLock();
+        try {
+            return stripe.add(e, h);
+        } finally {
+            stripe.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int h = hash(o);
+        Stripe stripe = stripeFor(h);
+        long stamp = stripe.writeLock();
+        try {
+            return stripe.remove(o, h);
+        } finally {
+            stripe.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int h = hash(o);
+        Stripe stripe = stripeFor(h);
+        long stamp = stripe.tryOptimisticRead();
+        if (stamp != 0) {
+            boolean found = stripe.contains(o, h);
+            if (stripe.validate(stamp)) {
+                return found;
+            }
+        }
+        stamp = stripe.readLock();
+        try {
+            return stripe.contains(o, h);
+        } finally {
+            stripe.unlockRead(stamp);
+        }
+    }
+
+    /** Sum of the stripe sizes; exact only while no other thread is writing. */
+    @Override
+    public int size() {
+        long sum = 0;
+        for (Stripe stripe : stripes) {
+            sum += stripe.size;
+        }
+        return (int) Math.min(sum, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Stripe stripe : stripes) {
+            if (stripe.size != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.writeLock();
+            try {
+                stripe.clear();
+            } finally {
+                stripe.unlockWrite(stamp);
+            }
+        }
+    }
+
+    // ===================================================
+    // Bulk operations (fork-join)
+    // ===================================================
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        Object[] elements = c.toArray();
+        if (!isParallel(elements.length)) {
+            boolean changed = false;
+            for (Object e : elements) {
+                @SuppressWarnings("unchecked") E element = (E) e;
+                changed |= add(element);
+            }
+            return changed;
+        }
+        return applyByStripe(elements, true) > 0;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        Object[] elements = c.toArray();
+        if (!isParallel(elements.length)) {
+            boolean changed = false;
+            for (Object e : elements) {
+                changed |= remove(e);
+            }
+            return changed;
+        }
+        return applyByStripe(elements, false) > 0;
+    }
+
+    /**
+     * Keeps only the elements contained in {@code c}. A non-{@link Set}
+     * argument is copied into a {@code HashSet} first so each lookup is O(1);
+     * a {@code Set} argument is probed concurrently by several threads, so it
+     * must not be modified during the call.
+     */
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        Collection<?> lookup = c instanceof Set ? c : new HashSet<>(c);
+        return removeIf(e -> !lookup.contains(e));
+    }
+
+    /**
+     * Filters every stripe under its write lock, in parallel for large sets.
+     * {@code filter} must not access this set: stripe locks are not reentrant.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        boolean[] changed = new boolean[stripes.length];
+        forEachIndex(stripes.length, size() >= PARALLEL_THRESHOLD, s -> {
+            Stripe stripe = stripes[s];
+            long stamp = stripe.writeLock();
+            try {
+                changed[s] = stripe.removeIf(filter);
+            } finally {
+                stripe.unlockWrite(stamp);
+            }
+        });
+        for (boolean b : changed) {
+            if (b) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        Object[] elements = c.toArray();
+        if (!isParallel(elements.length)) {
+            for (Object e : elements) {
+                if (!contains(e)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        AtomicBoolean missing = new AtomicBoolean();
+        int chunks = chunkCount(elements.length);
+        forEachIndex(chunks, true, chunk -> {
+            int end = chunkEnd(chunk, chunks, elements.length);
+            for (int i = chunkStart(chunk, chunks, elements.length); i < end && !missing.get(); i++) {
+                if (!contains(elements[i])) {
+                    missing.set(true);
+                }
+            }
+        });
+        return !missing.get();
+    }
+
+    /**
+     * Adds ({@code add}) or removes every element, grouped by stripe so each
+     * stripe is locked once: hash and count per chunk, scatter the indices
+     * into stripe order, then one task per stripe.
+     *
+     * @return how many elements were actually added or removed
+     */
+    private int applyByStripe(Object[] elements, boolean add) {
+        int n = elements.length;
+        int stripeCount = stripes.length;
+        int chunks = chunkCount(n);
+        int[] hashes = new int[n];
+        int[][] offsets = new int[chunks][stripeCount];
+
+        // 1. hash and count; nothing is modified yet, so a null fails cleanly
+        forEachIndex(chunks, true, chunk -> {
+            int[] counts = offsets[chunk];
+            int end = chunkEnd(chunk, chunks, n);
+            for (int i = chunkStart(chunk, chunks, n); i < end; i++) {
+                int h = hash(elements[i]);
+                hashes[i] = h;
+                counts[stripeIndex(h)]++;
+            }
+        });
+
+        // 2. counts -> start offsets, stripe-major so each stripe's share is contiguous
+        int[] stripeStart = new int[stripeCount + 1];
+        int offset = 0;
+        for (int s = 0; s < stripeCount; s++) {
+            stripeStart[s] = offset;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int count = offsets[chunk][s];
+                offsets[chunk][s] = offset;
+                offset += count;
+            }
+        }
+        stripeStart[stripeCount] = n;
+
+        // 3. scatter element indices into stripe order
+        int[] order = new int[n];
+        forEachIndex(chunks, true, chunk -> {
+            int[] next = offsets[chunk];
+            int end = chunkEnd(chunk, chunks, n);
+            for (int i = chunkStart(chunk, chunks, n); i < end; i++) {
+                order[next[stripeIndex(hashes[i])]++] = i;
+            }
+        });
+
+        // 4. one task per stripe, one lock acquisition each
+        int[] changed = new int[stripeCount];
+        forEachIndex(stripeCount, true, s -> {
+            int from = stripeStart[s];
+            int to = stripeStart[s + 1];
+            if (from == to) {
+                return;
+            }
+            Stripe stripe = stripes[s];
+            long stamp = stripe.writeLock();
+            try {
+                int count = 0;
+                for (int j = from; j < to; j++) {
+                    int i = order[j];
+                    if (add ? stripe.add(elements[i], hashes[i]) : stripe.remove(elements[i], hashes[i])) {
+                        count++;
+                    }
+                }
+                changed[s] = count;
+            } finally {
+                stripe.unlockWrite(stamp);
+            }
+        });
+        return Arrays.stream(changed).sum();
+    }
+
+    private boolean isParallel(int n) {
+        return n >= PARALLEL_THRESHOLD && pool.getParallelism() > 1;
+    }
+
+    private int chunkCount(int n) {
+        return Math.max(1, Math.min(pool.getParallelism() * 4, n / (PARALLEL_THRESHOLD / 8)));
+    }
+
+    private static int chunkStart(int chunk, int chunks, int n) {
+        return (int) ((long) n * chunk / chunks);
+    }
+
+    private static int chunkEnd(int chunk, int chunks, int n) {
+        return (int) ((long) n * (chunk + 1) / chunks);
+    }
+
+    /** Runs {@code body} for every index in {@code [0, n)}, on the pool when {@code parallel}. */
+    private void forEachIndex(int n, boolean parallel, IntConsumer body) {
+        if (!parallel || n == 1 || pool.getParallelism() == 1) {
+            for (int i = 0; i < n; i++) {
+                body.accept(i);
+            }
+        } else {
+            pool.invoke(new IndexRange(0, n, body));
+        }
+    }
+
+    // ===================================================
+    // Weakly consistent iteration
+    // ===================================================
+
+    /**
+     * Iterates stripe by stripe over a copy of each stripe taken under its
+     * read lock, so it reflects every stripe as of some moment during the
+     * iteration. {@code remove()} is supported.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int stripeIndex;
+            private Object[] batch = new Object[0];
+            private int position;
+            private Object last;
+
+            @Override
+            public boolean hasNext() {
+                while (position == batch.length && stripeIndex < stripes.length) {
+                    Stripe stripe = stripes[stripeIndex++];
+                    long stamp = stripe.readLock();
+                    try {
+                        batch = stripe.toArray();
+                    } finally {
+                        stripe.unlockRead(stamp);
+                    }
+                    position = 0;
+                }
+                return position < batch.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (E) (last = batch[position++]);
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                StripedHashSet.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    /**
+     * Splits the stripe range in half and traverses like {@link #iterator()},
+     * one stripe copy at a time; {@code CONCURRENT}, with sizes that are
+     * estimates while other threads write.
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new StripeSpliterator(0, stripes.length);
+    }
+
+    private final class StripeSpliterator implements Spliterator<E> {
+        private int stripeIndex;
+        private final int fence;
+        private Object[] batch = new Object[0];
+        private int position;
+
+        StripeSpliterator(int from, int to) {
+            this.stripeIndex = from;
+            this.fence = to;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            int lo = stripeIndex;
+            int mid = (lo + fence) >>> 1;
+            if (mid <= lo) {
+                return null;
+            }
+            stripeIndex = mid;
+            return new StripeSpliterator(lo, mid);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            while (position == batch.length) {
+                if (stripeIndex >= fence) {
+                    return false;
+                }
+                batch = copy(stripes[stripeIndex++]);
+                position = 0;
+            }
+            action.accept((E) batch[position++]);
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            for (int i = position; i < batch.length; i++) {
+                action.accept((E) batch[i]);
+            }
+            position = batch.length;
+            while (stripeIndex < fence) {
+                for (Object e : copy(stripes[stripeIndex++])) {
+                    action.accept((E) e);
+                }
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            long sum = batch.length - position;
+            for (int s = stripeIndex; s < fence; s++) {
+                sum += stripes[s].size;
+            }
+            return sum;
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL | CONCURRENT;
+        }
+
+        private Object[] copy(Stripe stripe) {
+            long stamp = stripe.readLock();
+            try {
+                return stripe.toArray();
+            } finally {
+                stripe.unlockRead(stamp);
+            }
+        }
+    }
+
+    // ===================================================
+    // Striping internals
+    // ===================================================
+
+    /** Spread hash, never {@link #EMPTY}. */
+    private static int hash(Object o) {
+        int h = HashSupport.mix(Objects.requireNonNull(o).hashCode());
+        return h == EMPTY ? 1 : h;
+    }
+
+    /** High bits choose the stripe; the stripe's table indexes with the low bits. */
+    private int stripeIndex(int h) {
+        return (int) ((h & 0xFFFFFFFFL) >>> stripeShift);
+    }
+
+    private Stripe stripeFor(int h) {
+        return stripes[stripeIndex(h)];
+    }
+
+    /**
+     * A stripe: {@link StripeTable} followed by 128 bytes of padding. HotSpot
+     * lays out subclass fields after superclass fields, so the pad separates
+     * this stripe's lock word and table fields from the next stripe's.
+     */
+    @SuppressWarnings("serial")
+    private static final class Stripe extends StripeTable {
+        long p00, p01, p02, p03, p04, p05, p06, p07;
+        long p10, p11, p12, p13, p14, p15, p16, p17;
+
+        Stripe(int capacity) {
+            super(capacity);
+        }
+    }
+
+    /**
+     * One lock and one open-addressing table; extends the lock to save an
+     * indirection. Spread hashes are cached beside the keys, with
+     * {@value #EMPTY} marking a free slot, so a probe reads the dense
+     * {@code int[]} and only touches a key object when the hash matches.
+     */
+    @SuppressWarnings("serial")
+    private static class StripeTable extends StampedLock {
+        Object[] keys;
+        int[] hashes;
+        volatile int size; // written under the write lock, read without it by size()
+        int threshold;
+
+        StripeTable(int capacity) {
+            allocate(capacity);
+        }
+
+        /**
+         * Safe without the lock: the two arrays are checked to be the same
+         * generation and the probe is bounded, so a racing writer can only
+         * produce a wrong answer, which the caller's {@code validate} rejects.
+         */
+        boolean contains(Object o, int h) {
+            int[] hs = hashes;
+            Object[] ks = keys;
+            if (hs.length != ks.length) {
+                return false;
+            }
+            int mask = hs.length - 1;
+            for (int i = h & mask, n = 0; n < hs.length; i = (i + 1) & mask, n++) {
+                int stored = hs[i];
+                if (stored == EMPTY) {
+                    return false;
+                }
+                if (stored == h) {
+                    Object k = ks[i];
+                    if (k == o || (k != null && k.equals(o))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        boolean add(Object o, int h) {
+            int[] hs = hashes;
+            Object[] ks = keys;
+            int mask = hs.length - 1;
+            int i = h & mask;
+            for (int stored; (stored = hs[i]) != EMPTY; i = (i + 1) & mask) {
+                if (stored == h && (ks[i] == o || ks[i].equals(o))) {
+                    return false;
+                }
+            }
+            ks[i] = o;
+            hs[i] = h;
+            int n = size + 1;
+            size = n;
+            if (n > threshold) {
+                rehash(hs.length << 1);
+            }
+            return true;
+        }
+
+        boolean remove(Object o, int h) {
+            int[] hs = hashes;
+            Object[] ks = keys;
+            int mask = hs.length - 1;
+            for (int i = h & mask, stored; (stored = hs[i]) != EMPTY; i = (i + 1) & mask) {
+                if (stored == h && (ks[i] == o || ks[i].equals(o))) {
+                    removeAt(i);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Rebuilds the table from the survivors, so no element is tested twice. */
+        boolean removeIf(Predicate<?> filter) {
+            @SuppressWarnings("unchecked") Predicate<Object> test = (Predicate<Object>) filter;
+            Object[] ks = keys;
+            int[] hs = hashes;
+            Object[] keptKeys = new Object[ks.length];
+            int[] keptHashes = new int[hs.length];
+            int mask = hs.length - 1;
+            int n = 0;
+            for (int j = 0; j < hs.length; j++) {
+                if (hs[j] != EMPTY && !test.test(ks[j])) {
+                    int i = hs[j] & mask;
+                    while (keptHashes[i] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    keptKeys[i] = ks[j];
+                    keptHashes[i] = hs[j];
+                    n++;
+                }
+            }
+            if (n == size) {
+                return false;
+            }
+            keys = keptKeys;
+            hashes = keptHashes;
+            size = n;
+            return true;
+        }
+
+        Object[] toArray() {
+            Object[] out = new Object[size];
+            int n = 0;
+            for (int i = 0; i < hashes.length; i++) {
+                if (hashes[i] != EMPTY) {
+                    out[n++] = keys[i];
+                }
+            }
+            return out;
+        }
+
+        void clear() {
+            Arrays.fill(hashes, EMPTY);
+            Arrays.fill(keys, null);
+            size = 0;
+        }
+
+        private void removeAt(int hole) {
+            int[] hs = hashes;
+            Object[] ks = keys;
+            int mask = hs.length - 1;
+            size = size - 1;
+            for (int i = (hole + 1) & mask; hs[i] != EMPTY; i = (i + 1) & mask) {
+                if (HashSupport.canShift(hs[i] & mask, hole, i)) {
+                    ks[hole] = ks[i];
+                    hs[hole] = hs[i];
+                    hole = i;
+                }
+            }
+            hs[hole] = EMPTY;
+            ks[hole] = null;
+        }
+
+        private void rehash(int capacity) {
+            Object[] oldKeys = keys;
+            int[] oldHashes = hashes;
+            Object[] ks = new Object[capacity];
+            int[] hs = new int[capacity];
+            int mask = capacity - 1;
+            for (int j = 0; j < oldHashes.length; j++) {
+                if (oldHashes[j] != EMPTY) {
+                    int i = oldHashes[j] & mask;
+                    while (hs[i] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    ks[i] = oldKeys[j];
+                    hs[i] = oldHashes[j];
+                }
+            }
+            keys = ks;
+            hashes = hs;
+            threshold = HashSupport.threshold(capacity, LOAD_FACTOR);
+        }
+
+        private void allocate(int capacity) {
+            keys = new Object[capacity];
+            hashes = new int[capacity];
+            threshold = HashSupport.threshold(capacity, LOAD_FACTOR);
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package footprint;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openjdk.jol.info.GraphStats;
+import org.openjdk.jol.vm.VM;
+
+import primitive.HashSupport;
+import primitive.IntSet;
+
+/**
+ * Measured heap footprint of one collection instance, with advice on
+ * sizing it or storing it more compactly.
+ *
+ * <p>{@link #of(Object)} walks the object graph with JOL, which lays out
+ * objects the way the running JVM does (compressed oops, alignment, header
+ * size). For the JDK's array-backed and hash-table collections it also reads
+ * the backing array, so the report covers:
+ * <ul>
+ *   <li>reachable bytes, split into the collection's own structure (arrays,
+ *       entry and node objects) and its elements (keys and values);</li>
+ *   <li>structure bytes per element, the figure that differs between
+ *       representations;</li>
+ *   <li>capacity, empty slots and load (elements per slot);</li>
+ *   <li>how many elements are boxed primitives, and what the boxes cost.</li>
+ * </ul>
+ *
+ * <p>Reachable means everything the collection references, so elements shared
+ * with other structures are counted here too. The walk is proportional to
+ * the graph and not synchronized with writers: measure a collection that is
+ * being modified concurrently only if it is thread-safe, and expect
+ * approximate numbers.
+ *
+ * <p>Advice savings are estimates from the same layout model and are
+ * alternatives, not a sum: {@link #wastedBytes()} is the largest.
+ */
+public final class Footprint {
+
+    /** What a piece of advice changes. */
+    public enum Kind {
+        /** Presize a hash table to the expected size, or rebuild an oversized one. */
+        PRESIZE,
+        /** Trim an array with many unused slots, or construct it with the right capacity. */
+        TRIM,
+        /** Release the storage of an empty collection, or share an empty instance. */
+        EMPTY,
+        /** Replace boxed numbers with a collection from {@code primitive}. */
+        PRIMITIVE,
+        /** Replace per-element node objects with an array-backed collection. */
+        ARRAY_BACKED,
+        /** Copy into an immutable compact collection if built once and then only read. */
+        COMPACT
+    }
+
+    /**
+     * @param savedBytes estimated bytes this change would save; 0 if it saves
+     *                   time (resizes) rather than space
+     */
+    public record Advice(Kind kind, long savedBytes, String message) {
+        @Override
+        public String toString() {
+            return kind + (savedBytes > 0 ? " (saves ~" + human(savedBytes) + ")" : "") + ": " + message;
+        }
+    }
+
+    /** Arrays of at least this many slots, more than half unused, are worth trimming. */
+    private static final int MIN_TRIM_SLOTS = 4;
+    /** Fraction of keys or values that must be boxed numbers to suggest a primitive collection. */
+    private static final double BOXED_SHARE = 0.9;
+    /** Collections below this size are not worth presizing, compacting or converting. */
+    private static final int MIN_ADVISED_SIZE = 64;
+    /** Load factor of the maps in {@code primitive}. */
+    private static final float PRIMITIVE_LOAD_FACTOR = 0.5f;
+    /** Fixed cost of one {@code IntSet} chunk: key, reference, container object and array header. */
+    private static final long INT_SET_CHUNK_BYTES = 48;
+
+    private final String type;
+    private final int size;
+    private final long retainedBytes;
+    private final long elementBytes;
+    private final int capacity;
+    private final int emptySlots;
+    private final int boxedElements;
+    private final long boxedBytes;
+    private List<Advice> advice = List.of();
+
+    private Footprint(String type, int size, long retainedBytes, long elementBytes, int capacity,
+                      int emptySlots, int boxedElements, long boxedBytes) {
+        this.type = type;
+        this.size = size;
+        this.retainedBytes = retainedBytes;
+        this.elementBytes = elementBytes;
+        this.capacity = capacity;
+        this.emptySlots = emptySlots;
+        this.boxedElements = boxedElements;
+        this.boxedBytes = boxedBytes;
+    }
+
+    // ===================================================
+    // Measurement
+    // ===================================================
+
+    /**
+     * Measures {@code collection}, a {@link Collection} or a {@link Map}.
+     *
+     * @throws IllegalArgumentException if it is neither
+     */
+    public static Footprint of(Object collection) {
+        Object[] keys;
+        Object[] values;
+        int size;
+        if (collection instanceof Map<?, ?> map) {
+            size = map.size();
+            keys = map.keySet().toArray();
+            values = map.values().toArray();
+        } else if (collection instanceof IntSet set) {
+            size = set.size();
+            keys = new Object[0]; // its values are part of the structure; toArray() would box fresh copies
+            values = new Object[0];
+        } else if (collection instanceof Collection<?> c) {
+            size = c.size();
+            keys = c.toArray();
+            values = new Object[0];
+        } else {
+            throw new IllegalArgumentException("Not a Collection or Map: "
+                    + (collection == null ? "null" : collection.getClass().getName()));
+        }
+        long retained = GraphStats.parseInstance(collection).totalSize();
+        long elements = reachable(keys, values, false);
+        long boxes = reachable(keys, values, true);
+        int boxedKeys = countBoxed(keys);
+        int boxedValues = countBoxed(values);
+
+        Slots slots = Slots.of(collection);
+        int capacity = slots == null ? -1 : slots.capacity();
+        int empty = slots == null ? 0 : slots.empty(size);
+
+        Footprint f = new Footprint(collection.getClass().getName(), size, retained, Math.min(elements, retained),
+                capacity, empty, boxedKeys + boxedValues, boxes);
+        List<Advice> advice = new ArrayList<>();
+        f.adviseSlots(collection, slots, advice);
+        f.adviseRepresentation(collection, keys, values, boxedKeys, boxedValues, advice);
+        advice.sort(Comparator.comparingLong(Advice::savedBytes).reversed());
+        f.advice = List.copyOf(advice);
+        return f;
+    }
+
+    /** Bytes reachable from the non-null keys and values, or from the boxed ones only. */
+    private static long reachable(Object[] keys, Object[] values, boolean boxedOnly) {
+        List<Object> roots = new ArrayList<>(keys.length + values.length);
+        for (Object[] array : new Object[][] {keys, values}) {
+            for (Object o : array) {
+                if (o != null && (!boxedOnly || isBox(o))) {
+                    roots.add(o);
+                }
+            }
+        }
+        return roots.isEmpty() ? 0 : GraphStats.parseInstance(roots.toArray()).totalSize();
+    }
+
+    private static int countBoxed(Object[] elements) {
+        int n = 0;
+        for (Object o : elements) {
+            if (o != null && isBox(o)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private static boolean isBox(Object o) {
+        return o instanceof Integer || o instanceof Long || o instanceof Double || o instanceof Float
+                || o instanceof Short || o instanceof Byte || o instanceof Character || o instanceof Boolean;
+    }
+
+    /** The one box type shared by at least {@link #BOXED_SHARE} of {@code elements}, or null. */
+    private static Class<?> boxType(Object[] elements, int boxed) {
+        if (elements.length == 0 || boxed < BOXED_SHARE * elements.length) {
+            return null;
+        }
+        int ints = 0;
+        int longs = 0;
+        for (Object o : elements) {
+            if (o instanceof Integer) {
+                ints++;
+            } else if (o instanceof Long) {
+                longs++;
+            }
+        }
+        return ints >= BOXED_SHARE * elements.length ? Integer.class
+                : longs >= BOXED_SHARE * elements.length ? Long.class : null;
+    }
+
+    // ===================================================
+    // Advice
+    // ===================================================
+
+    private void adviseSlots(Object collection, Slots slots, List<Advice> advice) {
+        if (slots == null) {
+            return;
+        }
+        long ref = referenceSize();
+        if (size == 0) {
+            if (capacity > 0) {
+                advice.add(new Advice(Kind.EMPTY, arrayBytes(slots.array.length),
+                        "empty but holds a " + count(capacity) + "-slot array; allocate lazily or use a shared"
+                                + " empty instance (List.of(), Map.of())"));
+            }
+            return;
+        }
+        String simpleName = collection.getClass().getSimpleName();
+        if (!slots.hashed) {
+            if (capacity >= MIN_TRIM_SLOTS && emptySlots > size) {
+                boolean trimmable = collection instanceof ArrayList<?> || collection instanceof Vector<?>;
+                advice.add(new Advice(Kind.TRIM, emptySlots * ref,
+                        count(emptySlots) + " of " + count(capacity) + " slots unused; "
+                                + (trimmable ? "call trimToSize() once filled, or " : "")
+                                + "construct with new " + simpleName + "<>(" + size + ")"));
+            }
+            return;
+        }
+        if (!slots.doubling()) {
+            return; // Hashtable grows to 2n + 1 and IdentityHashMap sizes for 2/3 load: no advice
+        }
+        // HashMap, HashSet, WeakHashMap and ConcurrentHashMap all take the expected size and divide by 0.75
+        int expected = (int) Math.min(Integer.MAX_VALUE - 8, (long) Math.ceil(size / 0.75));
+        int needed = tableSizeFor(expected);
+        int grown = slots.defaultCapacity;
+        while (grown < 1 << 30 && size > grown / 4 * 3) {
+            grown <<= 1;
+        }
+        String construct = "new " + simpleName + "<>(" + expected + ")";
+        if (capacity > 2 * needed && capacity > slots.defaultCapacity) { // a default table is not an oversized one
+            advice.add(new Advice(Kind.PRESIZE, (long) (capacity - needed) * slots.stride * ref,
+                    String.format(Locale.ROOT, "table of %s slots for %s entries (load %.2f) is oversized:"
+                            + " copy into %s", count(capacity), count(size), loadFactor(), construct)));
+        } else if (size >= MIN_ADVISED_SIZE && capacity > slots.defaultCapacity && capacity <= grown) {
+            // beyond what growth from the default reaches, the table was presized and never rehashed; at or
+            // below it, a presized table and a grown one look the same, so the advice cannot be certain
+            int doublings = Integer.numberOfTrailingZeros(capacity)
+                    - Integer.numberOfTrailingZeros(slots.defaultCapacity);
+            advice.add(new Advice(Kind.PRESIZE, 0,
+                    count(capacity) + " slots is where a default table gets after " + doublings + " rehashes;"
+                            + " can't tell whether this one was presized. If not, and the size is known up front,"
+                            + " construct with " + construct));
+        }
+    }
+
+    private void adviseRepresentation(Object collection, Object[] keys, Object[] values, int boxedKeys,
+                                      int boxedValues, List<Advice> advice) {
+        long ref = referenceSize();
+        long structure = structureBytes();
+        Class<?> keyBox = size >= MIN_ADVISED_SIZE ? boxType(keys, boxedKeys) : null;
+        Class<?> valueBox = size >= MIN_ADVISED_SIZE ? boxType(values, boxedValues) : null;
+
+        if (collection instanceof List<?> && !(collection instanceof LinkedList<?>) && keyBox != null) {
+            int width = keyBox == Integer.class ? 4 : 8;
+            String replacement = keyBox == Integer.class ? "primitive.IntArrayList" : "primitive.LongArrayList";
+            long after = arrayBytes(0) + (long) size * width;
+            addIfSaves(advice, Kind.PRIMITIVE, structure + boxedBytes - after,
+                    count(boxedElements) + " boxed " + keyBox.getSimpleName() + "s; " + replacement
+                            + " stores them unboxed");
+        } else if (collection instanceof Set<?> && keyBox == Integer.class) {
+            // IntSet: at most 2 bytes per value, plus a container and its array per 65,536-value chunk
+            long after = 2L * size + INT_SET_CHUNK_BYTES * chunks(keys);
+            addIfSaves(advice, Kind.PRIMITIVE, structure + boxedBytes - after,
+                    count(boxedElements) + " boxed Integers; primitive.IntSet stores them in compressed bitmaps"
+                            + " and intersects them without hashing");
+        } else if (collection instanceof Map<?, ?> && (keyBox != null || valueBox != null)) {
+            adviseMapPrimitive(keyBox, valueBox, advice);
+        }
+
+        if (collection instanceof LinkedList<?> && size >= MIN_ADVISED_SIZE) {
+            long after = arrayBytes(size + (size >> 1));
+            addIfSaves(advice, Kind.ARRAY_BACKED, structure - after,
+                    String.format(Locale.ROOT, "%.0f B of nodes per element; ArrayList (or ArrayDeque as a queue)"
+                            + " needs ~%d B", (double) structure / size, ref));
+        }
+
+        boolean hashMap = collection instanceof HashMap<?, ?> || collection instanceof ConcurrentHashMap<?, ?>;
+        boolean hashSet = collection instanceof HashSet<?>;
+        if ((hashMap || hashSet) && size >= MIN_ADVISED_SIZE) {
+            // CompactMap/CompactSet: flat key (and value) arrays plus a few bytes of perfect-hash index per key
+            long after = arrayBytes(size) * (hashMap ? 2 : 1) + 4L * size;
+            addIfSaves(advice, Kind.COMPACT, structure - after,
+                    (hashMap ? "immutable.CompactMap" : "immutable.CompactSet")
+                            + ".copyOf drops the per-entry objects, if the contents are built once and then only read");
+        }
+    }
+
+    private void adviseMapPrimitive(Class<?> keyBox, Class<?> valueBox, List<Advice> advice) {
+        long slots = HashSupport.tableSize(size, PRIMITIVE_LOAD_FACTOR);
+        long before = structureBytes() + boxedBytes;
+        String replacement;
+        long after;
+        if (keyBox == Integer.class && valueBox == Integer.class) {
+            replacement = "primitive.IntIntMap";
+            after = 2 * (arrayBytes(0) + slots * 4);
+        } else if (keyBox != null && valueBox == null) {
+            replacement = "primitive.LongObjectMap";
+            after = arrayBytes(0) + slots * 8 + arrayBytes((int) slots);
+        } else if (keyBox == null && valueBox == Integer.class) {
+            replacement = "primitive.ObjectIntMap";
+            after = arrayBytes((int) slots) + arrayBytes(0) + slots * 4;
+        } else {
+            return;
+        }
+        addIfSaves(advice, Kind.PRIMITIVE, before - after,
+                count(boxedElements) + " boxed keys and values; " + replacement + " stores "
+                        + (keyBox != null && valueBox != null ? "both" : keyBox != null ? "the keys" : "the values")
+                        + " unboxed with no per-entry objects");
+    }
+
+    /** Distinct high 16 bits among the {@code Integer}s of {@code elements}: the chunks of an {@code IntSet}. */
+    private static int chunks(Object[] elements) {
+        BitSet seen = new BitSet(1 << 16);
+        for (Object o : elements) {
+            if (o instanceof Integer v) {
+                seen.set(v >>> 16);
+            }
+        }
+        return seen.cardinality();
+    }
+
+    private static void addIfSaves(List<Advice> advice, Kind kind, long saved, String message) {
+        if (saved > 0) {
+            advice.add(new Advice(kind, saved, message));
+        }
+    }
+
+    private static long referenceSize() {
+        return VM.current().sizeOfField("oop");
+    }
+
+    /** Size of an {@code Object[]} of {@code length}, aligned. */
+    private static long arrayBytes(int length) {
+        int align = VM.current().objectAlignment();
+        long raw = VM.current().arrayHeaderSize() + length * referenceSize();
+        return (raw + align - 1) / align * align;
+    }
+
+    private static int tableSizeFor(int expected) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(Math.max(1, expected) - 1);
+        return n < 0 ? 1 : Math.min(n + 1, 1 << 30);
+    }
+
+    // ===================================================
+    // Accessors
+    // ===================================================
+
+    /** Class name of the measured collection. */
+    public String type() {
+        return type;
+    }
+
+    /** Elements, or entries for a map. */
+    public int size() {
+        return size;
+    }
+
+    /** Bytes reachable from the collection, elements included. */
+    public long retainedBytes() {
+        return retainedBytes;
+    }
+
+    /** Bytes reachable from the elements (keys and values) alone. */
+    public long elementBytes() {
+        return elementBytes;
+    }
+
+    /** Bytes of the collection's own objects: retained minus elements. */
+    public long structureBytes() {
+        return retainedBytes - elementBytes;
+    }
+
+    /** Structure bytes per element, the overhead over storing the elements alone; {@code NaN} if empty. */
+    public double bytesPerElement() {
+        return size == 0 ? Double.NaN : (double) structureBytes() / size;
+    }
+
+    /** Elements the backing array holds, or -1 for collections without one (trees, linked lists, others). */
+    public int capacity() {
+        return capacity;
+    }
+
+    /** Unused array slots: past the last element, or empty hash buckets. */
+    public int emptySlots() {
+        return emptySlots;
+    }
+
+    /** Elements per slot, or {@code NaN} without a backing array. */
+    public double loadFactor() {
+        return capacity <= 0 ? Double.NaN : (double) size / capacity;
+    }
+
+    /** Keys, values or elements that are boxed primitives ({@code Integer}, {@code Long}...). */
+    public int boxedElements() {
+        return boxedElements;
+    }
+
+    /** Bytes of the distinct box objects. */
+    public long boxedBytes() {
+        return boxedBytes;
+    }
+
+    /** Advice, largest saving first; empty if nothing stands out. */
+    public List<Advice> advice() {
+        return advice;
+    }
+
+    /** The largest estimated saving among {@link #advice()}. */
+    public long wastedBytes() {
+        return advice.isEmpty() ? 0 : advice.get(0).savedBytes();
+    }
+
+    /** One line of figures, then one line per piece of advice. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(type.substring(type.lastIndexOf('.') + 1)).append(' ').append(count(size))
+                .append(size == 1 ? " element: " : " elements: ").append(human(retainedBytes))
+                .append(" (structure ").append(human(structureBytes()));
+        if (size > 0) {
+            sb.append(String.format(Locale.ROOT, ", %.1f B/element", bytesPerElement()));
+        }
+        sb.append("; elements ").append(human(elementBytes));
+        if (boxedElements > 0) {
+            sb.append(", ").append(count(boxedElements)).append(" boxed");
+        }
+        sb.append(')');
+        if (capacity >= 0) {
+            sb.append(String.format(Locale.ROOT, ", %s slots, %s empty, load %.2f",
+                    count(capacity), count(emptySlots), loadFactor()));
+        }
+        for (Advice a : advice) {
+            sb.append("\n  ").append(a);
+        }
+        return sb.toString();
+    }
+
+    private static String count(long n) {
+        return String.format(Locale.ROOT, "%,d", n);
+    }
+
+    static String human(long bytes) {
+        if (bytes >= 1 << 20) {
+            return String.format(Locale.ROOT, "%.1f MB", bytes / (double) (1 << 20));
+        }
+        if (bytes >= 1 << 10) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / (double) (1 << 10));
+        }
+        return bytes + " B";
+    }
+}
@@ -0,0 +1,195 @@
+package footprint;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Periodically measures registered collections in a running JVM and reports
+ * the ones wasting the most memory.
+ *
+ * <p>Without an agent there is no way to enumerate every collection on the
+ * heap, so collections are registered, typically where long-lived ones are
+ * created ({@code cache = monitor.track("sessions", new HashMap<>())}).
+ * They are held weakly, so tracking never keeps a collection alive, and
+ * dropped once collected.
+ *
+ * <p>Each tick measures at most {@code perTick} collections with
+ * {@link Footprint#of}, least recently measured first, so the cost of a tick
+ * is bounded however many are tracked; a large collection is re-measured
+ * every {@code tracked / perTick} ticks. A measurement that fails because the
+ * collection was modified meanwhile ({@code ConcurrentModificationException}
+ * and the like) is skipped and retried on a later tick. The walk reads the
+ * collection without locking it: track collections that are not thread-safe
+ * only if their owner tolerates being read from another thread.
+ */
+public final class FootprintMonitor implements AutoCloseable {
+
+    /** The latest measurement of one tracked collection. */
+    public record Sample(String name, Footprint footprint, long measuredAtNanos) {
+        @Override
+        public String toString() {
+            return name + ": " + footprint;
+        }
+    }
+
+    private final int perTick;
+    private final ConcurrentLinkedQueue<Tracked> tracked = new ConcurrentLinkedQueue<>();
+    private ScheduledExecutorService scheduler;
+
+    /** Measures at most 16 collections per tick. */
+    public FootprintMonitor() {
+        this(16);
+    }
+
+    /**
+     * @param perTick collections measured per {@link #tick()}
+     */
+    public FootprintMonitor(int perTick) {
+        if (perTick < 1) {
+            throw new IllegalArgumentException("perTick must be positive: " + perTick);
+        }
+        this.perTick = perTick;
+    }
+
+    /**
+     * Tracks {@code collection} under {@code name} and returns it.
+     *
+     * @throws IllegalArgumentException if it is neither a {@link Collection} nor a {@link Map}
+     */
+    public <T> T track(String name, T collection) {
+        Objects.requireNonNull(name);
+        if (!(collection instanceof Collection<?>) && !(collection instanceof Map<?, ?>)) {
+            throw new IllegalArgumentException("Not a Collection or Map: "
+                    + (collection == null ? "null" : collection.getClass().getName()));
+        }
+        tracked.add(new Tracked(name, collection));
+        return collection;
+    }
+
+    /** Stops tracking {@code collection}; false if it was not tracked. */
+    public boolean untrack(Object collection) {
+        return tracked.removeIf(t -> t.get() == collection);
+    }
+
+    /** Live tracked collections. */
+    public int size() {
+        int n = 0;
+        for (Tracked t : tracked) {
+            if (t.get() != null) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    // ===================================================
+    // Sampling
+    // ===================================================
+
+    /** Measures the next {@code perTick} collections due, dropping collected ones; returns how many were measured. */
+    public int tick() {
+        List<Tracked> due = new ArrayList<>();
+        for (Iterator<Tracked> it = tracked.iterator(); it.hasNext(); ) {
+            Tracked t = it.next();
+            if (t.get() == null) {
+                it.remove();
+            } else {
+                due.add(t);
+            }
+        }
+        due.sort(Comparator.comparingLong(t -> t.measuredAt));
+        int measured = 0;
+        for (Tracked t : due.subList(0, Math.min(perTick, due.size()))) {
+            Object collection = t.get();
+            if (collection == null) {
+                continue;
+            }
+            try {
+                t.latest = new Sample(t.name, Footprint.of(collection), System.nanoTime());
+                measured++;
+            } catch (RuntimeException e) {
+                // modified while we walked it; try again next tick
+            }
+            t.measuredAt = System.nanoTime();
+        }
+        return measured;
+    }
+
+    /** The latest samples of live collections, most wasted bytes first, at most {@code n}. */
+    public List<Sample> top(int n) {
+        List<Sample> samples = new ArrayList<>();
+        for (Tracked t : tracked) {
+            Sample s = t.latest;
+            if (s != null && t.get() != null) {
+                samples.add(s);
+            }
+        }
+        samples.sort(Comparator.comparingLong((Sample s) -> s.footprint().wastedBytes())
+                .thenComparingLong(s -> s.footprint().retainedBytes()).reversed());
+        return List.copyOf(samples.subList(0, Math.min(n, samples.size())));
+    }
+
+    /** {@link #top(int)} as text, one block per collection. */
+    public String report(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (Sample s : top(n)) {
+            sb.append(s).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Calls {@link #tick()} every {@code period} on a daemon thread and hands
+     * the top {@code n} samples to {@code sink} after each tick. If the sink
+     * throws, sampling stops.
+     *
+     * @throws IllegalStateException if already started
+     */
+    public synchronized void start(long period, TimeUnit unit, int n, Consumer<? super List<Sample>> sink) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Already started");
+        }
+        Objects.requireNonNull(sink);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "footprint-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            tick();
+            sink.accept(top(n));
+        }, period, period, unit);
+    }
+
+    /** Stops the periodic sampling started by {@link #start}; tracking continues. */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private static final class Tracked extends WeakReference<Object> {
+        final String name;
+        volatile Sample latest;
+        /** {@code System.nanoTime()} of the last attempt; new collections sort first. */
+        volatile long measuredAt = Long.MIN_VALUE;
+
+        Tracked(String name, Object collection) {
+            super(collection);
+            this.name = name;
+        }
+    }
+}
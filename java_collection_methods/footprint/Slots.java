@@ -0,0 +1,146 @@
+package footprint;
+
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.PriorityQueue;
+import java.util.Vector;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openjdk.jol.util.ObjectUtils;
+
+/**
+ * Reads the backing array of the JDK's array-backed and hash-table
+ * collections: {@code ArrayList}, {@code Vector}, {@code ArrayDeque},
+ * {@code PriorityQueue}, {@code HashMap}, {@code HashSet} and their linked
+ * subclasses, {@code Hashtable}, {@code WeakHashMap},
+ * {@code IdentityHashMap} and {@code ConcurrentHashMap} (and its key set).
+ *
+ * <p>Fields are read through JOL, which goes around module access checks,
+ * so no {@code --add-opens} is needed. For any other collection, or if a
+ * field has been renamed in this JDK, there is no array and the collection
+ * is reported without slot figures.
+ */
+final class Slots {
+
+    private static final Field ARRAY_LIST = field(ArrayList.class, "elementData");
+    private static final Field VECTOR = field(Vector.class, "elementData");
+    private static final Field ARRAY_DEQUE = field(ArrayDeque.class, "elements");
+    private static final Field PRIORITY_QUEUE = field(PriorityQueue.class, "queue");
+    private static final Field HASH_MAP = field(HashMap.class, "table");
+    private static final Field HASH_SET = field(HashSet.class, "map");
+    private static final Field HASHTABLE = field(Hashtable.class, "table");
+    private static final Field WEAK_HASH_MAP = field(WeakHashMap.class, "table");
+    private static final Field IDENTITY_HASH_MAP = field(IdentityHashMap.class, "table");
+    private static final Field CONCURRENT_HASH_MAP = field(ConcurrentHashMap.class, "table");
+
+    /** The backing array and how to read it. */
+    final Object[] array;
+    /** Slots are buckets indexed by hash, rather than a run of elements. */
+    final boolean hashed;
+    /** Array slots per entry: 2 for {@code IdentityHashMap}, whose keys and values alternate. */
+    final int stride;
+    /** Capacity of a default-constructed instance once it holds an entry; 0 where it is not a table. */
+    final int defaultCapacity;
+
+    private Slots(Object[] array, boolean hashed, int stride, int defaultCapacity) {
+        this.array = array;
+        this.hashed = hashed;
+        this.stride = stride;
+        this.defaultCapacity = defaultCapacity;
+    }
+
+    /** The slots of {@code collection}, or null if it is not a collection this class knows. */
+    static Slots of(Object collection) {
+        Object target = collection instanceof ConcurrentHashMap.KeySetView<?, ?> view ? view.getMap() : collection;
+        if (target instanceof HashSet<?> && HASH_SET != null) {
+            target = read(HASH_SET, target);
+        }
+        if (target instanceof ArrayList<?>) {
+            return array(ARRAY_LIST, target, false, 1, 0);
+        }
+        if (target instanceof Vector<?>) {
+            return array(VECTOR, target, false, 1, 0);
+        }
+        if (target instanceof ArrayDeque<?>) {
+            return array(ARRAY_DEQUE, target, false, 1, 0);
+        }
+        if (target instanceof PriorityQueue<?>) {
+            return array(PRIORITY_QUEUE, target, false, 1, 0);
+        }
+        if (target instanceof HashMap<?, ?>) {
+            return array(HASH_MAP, target, true, 1, 16);
+        }
+        if (target instanceof ConcurrentHashMap<?, ?>) {
+            return array(CONCURRENT_HASH_MAP, target, true, 1, 16);
+        }
+        if (target instanceof Hashtable<?, ?>) {
+            return array(HASHTABLE, target, true, 1, 11);
+        }
+        if (target instanceof WeakHashMap<?, ?>) {
+            return array(WEAK_HASH_MAP, target, true, 1, 16);
+        }
+        if (target instanceof IdentityHashMap<?, ?>) {
+            return array(IDENTITY_HASH_MAP, target, true, 2, 32);
+        }
+        return null;
+    }
+
+    /** Entries the array can hold; an unallocated table counts as 0. */
+    int capacity() {
+        return array == null ? 0 : array.length / stride;
+    }
+
+    /**
+     * Whether this is a table that starts at a power of two and doubles at
+     * 3/4 load: {@code HashMap}, {@code HashSet}, {@code WeakHashMap} and
+     * {@code ConcurrentHashMap}.
+     */
+    boolean doubling() {
+        return hashed && stride == 1 && Integer.bitCount(defaultCapacity) == 1;
+    }
+
+    /** Slots holding nothing: past the last element, or buckets with no entry. */
+    int empty(int size) {
+        if (array == null) {
+            return 0;
+        }
+        if (!hashed) {
+            return Math.max(0, array.length - size);
+        }
+        int empty = 0;
+        for (int i = 0; i < array.length; i += stride) {
+            if (array[i] == null) {
+                empty++;
+            }
+        }
+        return empty;
+    }
+
+    private static Slots array(Field field, Object target, boolean hashed, int stride, int defaultCapacity) {
+        if (field == null) {
+            return null;
+        }
+        Object array = read(field, target);
+        return array == null || array instanceof Object[]
+                ? new Slots((Object[]) array, hashed, stride, defaultCapacity)
+                : null;
+    }
+
+    private static Field field(Class<?> owner, String name) {
+        try {
+            return owner.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+    }
+
+    private static Object read(Field field, Object target) {
+        return ObjectUtils.value(target, field);
+    }
+}
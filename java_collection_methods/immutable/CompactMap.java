@@ -0,0 +1,282 @@
+package immutable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Immutable map for lookup tables that are built once and read many times,
+ * an alternative to {@link Map#copyOf} / {@link Map#of}.
+ *
+ * <p>Keys and values sit in two parallel flat arrays ordered by a minimal
+ * perfect hash of the keys (see {@link PerfectHash} and {@link CompactSet}),
+ * so {@link #get(Object)} is a single probe with no per-entry objects;
+ * entries are only materialized by {@link #entrySet()} iteration. The
+ * entry set's spliterator halves the index range, so
+ * {@code entrySet().parallelStream()} splits evenly.
+ *
+ * <p>Same contract as {@code Map.copyOf}: {@code null} keys and values are
+ * rejected, every mutator throws {@code UnsupportedOperationException}, and
+ * iteration order is unspecified.
+ */
+public final class CompactMap<K, V> extends AbstractMap<K, V> {
+
+    private final KeyIndex index;
+    private final Object[] values;
+    private final int size;
+    private Set<Entry<K, V>> entrySet;
+
+    private CompactMap(KeyIndex index, Object[] values) {
+        this.index = index;
+        this.values = values;
+        this.size = index.size();
+    }
+
+    /** An immutable copy of {@code map}. */
+    @SuppressWarnings("unchecked")
+    public static <K, V> CompactMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof CompactMap) {
+            return (CompactMap<K, V>) map;
+        }
+        Object[] keys = new Object[map.size()];
+        Object[] input = new Object[keys.length];
+        int n = 0;
+        for (Entry<? extends K, ? extends V> e : map.entrySet()) {
+            keys[n] = e.getKey();
+            input[n++] = Objects.requireNonNull(e.getValue(), "value");
+        }
+        KeyIndex index = KeyIndex.build(keys);
+        Object[] values = new Object[index.keys.length];
+        for (int i = 0; i < values.length; i++) {
+            if (index.source[i] >= 0) {
+                values[i] = input[index.source[i]];
+            }
+        }
+        return new CompactMap<>(index, values);
+    }
+
+    // ===================================================
+    // Retrieving
+    // ===================================================
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int i = index.indexOf(key);
+        return i < 0 ? null : (V) values[i];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        int i = index.indexOf(key);
+        return i < 0 ? defaultValue : (V) values[i];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return index.indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        Objects.requireNonNull(value);
+        for (int i = 0; i < size; i++) {
+            if (value.equals(values[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept((K) index.keys[i], (V) values[i]);
+        }
+    }
+
+    /** Same value as {@link Map#hashCode()}, without materializing entries. */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (int i = 0; i < size; i++) {
+            h += index.keys[i].hashCode() ^ values[i].hashCode();
+        }
+        return h;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        Set<Entry<K, V>> es = entrySet;
+        if (es == null) {
+            entrySet = es = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new Iterator<>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < size;
+                        }
+
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public Entry<K, V> next() {
+                            if (next >= size) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = next++;
+                            return new SimpleImmutableEntry<>((K) index.keys[i], (V) values[i]);
+                        }
+                    };
+                }
+
+                @Override
+                public Spliterator<Entry<K, V>> spliterator() {
+                    return new EntrySpliterator(0, size);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return es;
+    }
+
+    /** Entries {@code [cursor, fence)} of the flat arrays. */
+    private final class EntrySpliterator implements Spliterator<Entry<K, V>> {
+        private int cursor;
+        private final int fence;
+
+        EntrySpliterator(int cursor, int fence) {
+            this.cursor = cursor;
+            this.fence = fence;
+        }
+
+        @Override
+        public Spliterator<Entry<K, V>> trySplit() {
+            int lo = cursor;
+            int mid = (lo + fence) >>> 1;
+            if (mid <= lo) {
+                return null;
+            }
+            cursor = mid;
+            return new EntrySpliterator(lo, mid);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super Entry<K, V>> action) {
+            Objects.requireNonNull(action);
+            if (cursor >= fence) {
+                return false;
+            }
+            int i = cursor++;
+            action.accept(new SimpleImmutableEntry<>((K) index.keys[i], (V) values[i]));
+            return true;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - cursor;
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL | IMMUTABLE | SIZED | SUBSIZED;
+        }
+    }
+
+    // ===================================================
+    // Immutable: every mutator throws
+    // ===================================================
+
+    @Override
+    public V put(K key, V value) {
+        throw CompactSet.uoe();
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        throw CompactSet.uoe();
+    }
+
+    @Override
+    public V remove(Object key) {
+        throw CompactSet.uoe();
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        throw CompactSet.uoe();
+    }
+
+    @Override
+    public void clear() {
+        throw CompactSet.uoe();
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        throw CompactSet.uoe();
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        throw CompactSet.uoe();
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        throw CompactSet.uoe();
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        throw CompactSet.uoe();
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        throw CompactSet.uoe();
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        throw CompactSet.uoe();
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        throw CompactSet.uoe();
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        throw CompactSet.uoe();
+    }
+}
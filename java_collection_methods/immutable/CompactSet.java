@@ -0,0 +1,196 @@
+package immutable;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+import split.BatchIterable;
+import split.Splitters;
+
+/**
+ * Immutable set for lookup tables that are built once and read many times,
+ * an alternative to {@link Set#of} / {@link Set#copyOf}.
+ *
+ * <p>Construction builds a minimal perfect hash over the elements'
+ * {@code hashCode()}s (see {@link PerfectHash}), so the elements fill a flat
+ * array of exactly {@code size()} slots and {@link #contains(Object)} is a
+ * single probe: hash, one array read, one {@code equals}. {@code Set.of}
+ * probes linearly in a half-empty table, so misses and colliding keys cost
+ * several {@code equals} calls, and its table is twice as large.
+ *
+ * <p>Same contract as {@code Set.of}: {@code null} elements are rejected
+ * (including by {@code contains}), every mutator throws
+ * {@code UnsupportedOperationException}, and iteration order is unspecified.
+ * Building costs O(n) expected time, several times a {@code HashSet} copy.
+ * The spliterator and {@link #forEachBatch} work on the flat array, so
+ * parallel streams split it exactly in half.
+ */
+public final class CompactSet<E> extends AbstractSet<E> implements BatchIterable<E> {
+
+    private static final CompactSet<?> EMPTY = new CompactSet<>(KeyIndex.build(new Object[0]));
+
+    private final KeyIndex index;
+    private final int size;
+
+    private CompactSet(KeyIndex index) {
+        this.index = index;
+        this.size = index.size();
+    }
+
+    /** An immutable copy of {@code elements}; duplicates are dropped, as in {@link Set#copyOf}. */
+    @SuppressWarnings("unchecked")
+    public static <E> CompactSet<E> copyOf(Collection<? extends E> elements) {
+        if (elements instanceof CompactSet) {
+            return (CompactSet<E>) elements;
+        }
+        return elements.isEmpty() ? of() : new CompactSet<>(KeyIndex.build(elements.toArray()));
+    }
+
+    /**
+     * An immutable set of {@code elements}.
+     *
+     * @throws IllegalArgumentException if an element is repeated, as in {@link Set#of}
+     */
+    @SafeVarargs
+    @SuppressWarnings({"unchecked", "varargs"})
+    public static <E> CompactSet<E> of(E... elements) {
+        if (elements.length == 0) {
+            return (CompactSet<E>) EMPTY;
+        }
+        KeyIndex index = KeyIndex.build(elements.clone());
+        if (index.size() != elements.length) {
+            throw new IllegalArgumentException("Duplicate element in " + Arrays.toString(elements));
+        }
+        return new CompactSet<>(index);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return index.indexOf(o) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return (E) index.keys[next++];
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept((E) index.keys[i]);
+        }
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator(index.keys, 0, size,
+                Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+
+    @Override
+    public void forEachBatch(int batchSize, IntFunction<E[]> generator, Consumer<? super E[]> action) {
+        Splitters.checkBatchSize(batchSize);
+        Objects.requireNonNull(action);
+        for (int from = 0; from < size; ) {
+            int n = Math.min(batchSize, size - from);
+            E[] batch = generator.apply(n);
+            System.arraycopy(index.keys, from, batch, 0, n);
+            from += n;
+            action.accept(batch);
+        }
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOf(index.keys, size);
+    }
+
+    /** Same value as {@link Set#hashCode()}, summed over the flat array. */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (int i = 0; i < size; i++) {
+            h += index.keys[i].hashCode();
+        }
+        return h;
+    }
+
+    // ===================================================
+    // Immutable: every mutator throws
+    // ===================================================
+
+    @Override
+    public boolean add(E e) {
+        throw uoe();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        throw uoe();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw uoe();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw uoe();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw uoe();
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        throw uoe();
+    }
+
+    @Override
+    public void clear() {
+        throw uoe();
+    }
+
+    static UnsupportedOperationException uoe() {
+        return new UnsupportedOperationException("Immutable collection");
+    }
+}
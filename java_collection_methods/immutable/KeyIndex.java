@@ -0,0 +1,117 @@
+package immutable;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Key table shared by {@link CompactSet} and {@link CompactMap}: a
+ * {@link PerfectHash} over the keys' hash codes and the keys laid out in
+ * slot order.
+ *
+ * <p>A perfect hash can only separate distinct hash codes, so when several
+ * keys share a {@code hashCode()} (e.g. {@code "Aa"} and {@code "BB"}) the
+ * first one takes the slot and the others go to a short overflow region
+ * after the slots, which a lookup scans only after missing its slot.
+ */
+final class KeyIndex {
+
+    final PerfectHash hash;
+    /** Keys by slot, then the overflow keys; {@code null} only in the single slot of an empty table. */
+    final Object[] keys;
+    /** For each entry of {@code keys}, the position of that key in the build input. */
+    final int[] source;
+    private final int slots;
+
+    private KeyIndex(PerfectHash hash, Object[] keys, int[] source) {
+        this.hash = hash;
+        this.keys = keys;
+        this.source = source;
+        this.slots = hash.size();
+    }
+
+    /**
+     * Indexes {@code input}, keeping the first of any keys that are equal.
+     *
+     * @throws NullPointerException if a key is {@code null}
+     */
+    static KeyIndex build(Object[] input) {
+        int n = input.length;
+        long[] byHash = new long[n];
+        for (int i = 0; i < n; i++) {
+            byHash[i] = (long) Objects.requireNonNull(input[i]).hashCode() << 32 | i;
+        }
+        Arrays.sort(byHash);
+
+        // per run of equal hash codes: the first key is primary, other distinct keys overflow
+        int[] primaryHashes = new int[n];
+        int[] primarySource = new int[n];
+        int[] overflowSource = new int[n];
+        int primaries = 0;
+        int overflows = 0;
+        for (int run = 0; run < n; ) {
+            int h = (int) (byHash[run] >> 32);
+            int end = run + 1;
+            while (end < n && (int) (byHash[end] >> 32) == h) {
+                end++;
+            }
+            primaryHashes[primaries] = h;
+            primarySource[primaries++] = (int) byHash[run];
+            for (int i = run + 1; i < end; i++) {
+                if (!isDuplicate(input, byHash, run, i)) {
+                    overflowSource[overflows++] = (int) byHash[i];
+                }
+            }
+            run = end;
+        }
+
+        int[] slotOf = new int[primaries];
+        PerfectHash hash = PerfectHash.build(Arrays.copyOf(primaryHashes, primaries), slotOf);
+        int slots = hash.size();
+        Object[] keys = new Object[slots + overflows];
+        int[] source = new int[slots + overflows];
+        Arrays.fill(source, -1);
+        for (int j = 0; j < primaries; j++) {
+            keys[slotOf[j]] = input[primarySource[j]];
+            source[slotOf[j]] = primarySource[j];
+        }
+        for (int j = 0; j < overflows; j++) {
+            keys[slots + j] = input[overflowSource[j]];
+            source[slots + j] = overflowSource[j];
+        }
+        return new KeyIndex(hash, keys, source);
+    }
+
+    /** Whether the key at {@code byHash[i]} equals an earlier key of its run. */
+    private static boolean isDuplicate(Object[] input, long[] byHash, int run, int i) {
+        Object key = input[(int) byHash[i]];
+        for (int j = run; j < i; j++) {
+            if (key.equals(input[(int) byHash[j]])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Number of distinct keys. */
+    int size() {
+        return keys.length == 1 && keys[0] == null ? 0 : keys.length;
+    }
+
+    /** Position of {@code key} in {@link #keys}, or {@code -1}: one slot compare, then the overflow if any. */
+    int indexOf(Object key) {
+        int slot = hash.slot(key.hashCode());
+        if (key.equals(keys[slot])) {
+            return slot;
+        }
+        return slots == keys.length ? -1 : overflowIndexOf(key);
+    }
+
+    private int overflowIndexOf(Object key) {
+        for (int i = slots; i < keys.length; i++) {
+            if (key.equals(keys[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,183 @@
+package immutable;
+
+/**
+ * Minimal perfect hash over a set of distinct {@code int} hash codes,
+ * built with the hash-and-displace scheme of CHD (Belazzougui, Botelho and
+ * Dietzfelbinger, "Hash, displace, and compress").
+ *
+ * <p>Each hash code is mixed with a seed into 64 bits. The high half picks
+ * one of {@code n / }{@value #LAMBDA} buckets; the low half, combined with
+ * the bucket's displacement, picks the slot. Buckets are placed largest
+ * first, each trying displacements until all its members land on free
+ * slots. Single-member buckets are placed last and store their slot
+ * directly (as {@code ~slot}), so the slow tail of the search, filling the
+ * last few free slots, costs nothing. The result maps the {@code n} hash
+ * codes one-to-one onto {@code [0, n)}.
+ *
+ * <p>Lookup is two mixes and one {@code int[]} read. A hash code that was not
+ * in the build set still maps to some slot in range; callers compare the
+ * key stored there.
+ */
+final class PerfectHash {
+
+    /** Average keys per bucket: more means a smaller displacement table but a slower build. */
+    static final int LAMBDA = 3;
+
+    private static final int MAX_DISPLACEMENT = 1 << 20;
+    private static final int MAX_ATTEMPTS = 64;
+
+    private final long seed;
+    private final int[] displacements;
+    private final int size;
+
+    private PerfectHash(long seed, int[] displacements, int size) {
+        this.seed = seed;
+        this.displacements = displacements;
+        this.size = size;
+    }
+
+    /** Number of slots; equals the number of hash codes it was built from (at least 1). */
+    int size() {
+        return size;
+    }
+
+    /** The slot of {@code hash}, in {@code [0, size())}. */
+    int slot(int hash) {
+        long x = mix(hash, seed);
+        int d = displacements[range((int) (x >>> 32), displacements.length)];
+        return d < 0 ? ~d : range(displace((int) x, d), size);
+    }
+
+    /**
+     * Builds the function for {@code hashes}, which must be distinct.
+     *
+     * @return the function and, through {@code slots}, the slot of each hash
+     */
+    static PerfectHash build(int[] hashes, int[] slots) {
+        int n = hashes.length;
+        int size = Math.max(1, n);
+        int buckets = Math.max(1, (n + LAMBDA - 1) / LAMBDA);
+        long seed = 0x5DEECE66DL;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++, seed = seed * 0x9E3779B97F4A7C15L + 1) {
+            int[] displacements = tryBuild(hashes, slots, seed, size, buckets);
+            if (displacements != null) {
+                return new PerfectHash(seed, displacements, size);
+            }
+        }
+        throw new IllegalStateException("No perfect hash found for " + n + " keys");
+    }
+
+    private static int[] tryBuild(int[] hashes, int[] slots, long seed, int size, int buckets) {
+        int n = hashes.length;
+
+        // group keys by bucket (counting sort): members of bucket b are order[start[b] .. start[b+1])
+        int[] bucketOf = new int[n];
+        int[] start = new int[buckets + 1];
+        for (int i = 0; i < n; i++) {
+            bucketOf[i] = range((int) (mix(hashes[i], seed) >>> 32), buckets);
+            start[bucketOf[i] + 1]++;
+        }
+        int maxBucket = 0;
+        for (int b = 0; b < buckets; b++) {
+            maxBucket = Math.max(maxBucket, start[b + 1]);
+            start[b + 1] += start[b];
+        }
+        int[] order = new int[n];
+        int[] fill = start.clone();
+        for (int i = 0; i < n; i++) {
+            order[fill[bucketOf[i]]++] = i;
+        }
+
+        // buckets by size, largest first (counting sort again)
+        int[] bySizeStart = new int[maxBucket + 2];
+        for (int b = 0; b < buckets; b++) {
+            bySizeStart[maxBucket - (start[b + 1] - start[b]) + 1]++;
+        }
+        for (int s = 0; s <= maxBucket; s++) {
+            bySizeStart[s + 1] += bySizeStart[s];
+        }
+        int[] bucketOrder = new int[buckets];
+        for (int b = 0; b < buckets; b++) {
+            bucketOrder[bySizeStart[maxBucket - (start[b + 1] - start[b])]++] = b;
+        }
+
+        int[] displacements = new int[buckets];
+        boolean[] taken = new boolean[size];
+        int[] low = new int[maxBucket];
+        int next = 0;
+        for (; next < buckets; next++) {
+            int b = bucketOrder[next];
+            int from = start[b];
+            int count = start[b + 1] - from;
+            if (count < 2) {
+                break; // the remaining buckets have 0 or 1 members
+            }
+            for (int j = 0; j < count; j++) {
+                low[j] = (int) mix(hashes[order[from + j]], seed);
+            }
+            int d = findDisplacement(low, count, taken, slots, order, from, size);
+            if (d < 0) {
+                return null;
+            }
+            displacements[b] = d;
+        }
+
+        // single-member buckets take the remaining free slots directly
+        int free = 0;
+        for (; next < buckets; next++) {
+            int b = bucketOrder[next];
+            if (start[b + 1] - start[b] == 0) {
+                continue;
+            }
+            while (taken[free]) {
+                free++;
+            }
+            taken[free] = true;
+            slots[order[start[b]]] = free;
+            displacements[b] = ~free;
+        }
+        return displacements;
+    }
+
+    /** First displacement that puts every member on a distinct free slot, marking them taken; -1 if none. */
+    private static int findDisplacement(int[] low, int count, boolean[] taken, int[] slots,
+                                        int[] order, int from, int size) {
+        search:
+        for (int d = 0; d < MAX_DISPLACEMENT; d++) {
+            for (int j = 0; j < count; j++) {
+                int slot = range(displace(low[j], d), size);
+                if (taken[slot]) {
+                    for (int k = 0; k < j; k++) {
+                        taken[slots[order[from + k]]] = false;
+                    }
+                    continue search;
+                }
+                taken[slot] = true;
+                slots[order[from + j]] = slot;
+            }
+            return d;
+        }
+        return -1;
+    }
+
+    /** Seeded 64-bit finalizer (the SplitMix64 mixer); a bijection for a fixed seed. */
+    private static long mix(int hash, long seed) {
+        long x = (hash & 0xFFFFFFFFL) ^ seed;
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    /** Murmur3's 32-bit finalizer over the low hash half and the displacement. */
+    private static int displace(int low, int d) {
+        int h = low + d * 0x9E3779B9;
+        h = (h ^ (h >>> 16)) * 0x85EBCA6B;
+        h = (h ^ (h >>> 13)) * 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    /** Maps a uniform 32-bit value onto {@code [0, n)} with a multiply instead of a division. */
+    private static int range(int hash, int n) {
+        return (int) (((hash & 0xFFFFFFFFL) * n) >>> 32);
+    }
+}
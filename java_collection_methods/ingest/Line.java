@@ -0,0 +1,215 @@
+package ingest;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * One line of a file being loaded by {@link LineLoader}, handed to the
+ * caller's mapping functions. It is a view of the loader's read buffer, not
+ * a {@code String}: a line is only decoded if the mapper asks for text, and
+ * numeric fields are parsed straight from the bytes.
+ *
+ * <p>Fields are separated by the loader's single-byte delimiter (',' by
+ * default) and are not trimmed or unquoted. Field boundaries are found only
+ * as far as the highest field read, and remembered for the rest of the
+ * line.
+ *
+ * <p>A {@code Line} is reused for every line of a chunk: mappers must not keep
+ * it, only what they extract from it.
+ */
+public final class Line {
+
+    private static final int PREVIEW_LENGTH = 100;
+
+    private final byte delimiter;
+    private final Charset charset;
+    /** Decodes and deduplicates text; null when the loader does not deduplicate. */
+    private final StringCache cache;
+
+    private byte[] bytes;
+    private int start;
+    private int end;
+    private long offset;
+    /** End index (exclusive) of each field; valid for the first {@code splitCount} fields. */
+    private int[] fieldEnds = new int[8];
+    private int splitCount;
+    /** Whether the last field has been found, so {@code splitCount} is the field count. */
+    private boolean splitDone;
+
+    Line(byte delimiter, Charset charset, StringCache cache) {
+        this.delimiter = delimiter;
+        this.charset = charset;
+        this.cache = cache;
+    }
+
+    void reset(byte[] bytes, int start, int end, long offset) {
+        this.bytes = bytes;
+        this.start = start;
+        this.end = end;
+        this.offset = offset;
+        this.splitCount = 0;
+        this.splitDone = false;
+    }
+
+    /** Byte offset of the line in the file. */
+    public long offset() {
+        return offset;
+    }
+
+    /** Length in bytes, without the line terminator. */
+    public int length() {
+        return end - start;
+    }
+
+    public boolean isEmpty() {
+        return end == start;
+    }
+
+    public byte byteAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + (end - start));
+        }
+        return bytes[start + index];
+    }
+
+    /** Number of fields; an empty line has one empty field. */
+    public int fieldCount() {
+        split();
+        return splitCount;
+    }
+
+    public String field(int index) {
+        int from = fieldStart(index);
+        return decode(from, fieldEnds[index]);
+    }
+
+    /** Field {@code index} parsed like {@link Integer#parseInt(String)}, without creating a {@code String}. */
+    public int intField(int index) {
+        int from = fieldStart(index);
+        return (int) parseLong(from, fieldEnds[index], Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /** Field {@code index} parsed like {@link Long#parseLong(String)}, without creating a {@code String}. */
+    public long longField(int index) {
+        int from = fieldStart(index);
+        return parseLong(from, fieldEnds[index], Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /** Field {@code index} parsed by {@link Double#parseDouble(String)} (which needs the text). */
+    public double doubleField(int index) {
+        int from = fieldStart(index);
+        return Double.parseDouble(text(from, fieldEnds[index]));
+    }
+
+    /** The whole line, decoded (and deduplicated if the loader was asked to). */
+    @Override
+    public String toString() {
+        return decode(start, end);
+    }
+
+    /** The start of the line for error messages. */
+    String preview() {
+        int length = Math.min(end - start, PREVIEW_LENGTH);
+        String text = text(start, start + length);
+        return length < end - start ? text + "..." : text;
+    }
+
+    // ===================================================
+    // Internals
+    // ===================================================
+
+    private String decode(int from, int to) {
+        return cache != null ? cache.get(bytes, from, to) : text(from, to);
+    }
+
+    /** Decodes without deduplication. */
+    private String text(int from, int to) {
+        return new String(bytes, from, to - from, charset);
+    }
+
+    /** Splits the line up to field {@code index} and returns where that field starts. */
+    private int fieldStart(int index) {
+        if (index < 0 || !splitTo(index)) {
+            throw new IndexOutOfBoundsException("Field " + index + " out of bounds for " + fieldCount()
+                    + " fields in line: " + preview());
+        }
+        return index == 0 ? start : fieldEnds[index - 1] + 1;
+    }
+
+    /** Splits the whole line. */
+    private void split() {
+        splitTo(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds field ends until field {@code index} is known or the line ends;
+     * returns whether field {@code index} exists. Later calls continue where
+     * this one stopped, so a line is scanned at most once and only as far as
+     * the highest field read.
+     */
+    private boolean splitTo(int index) {
+        if (index < splitCount) {
+            return true;
+        }
+        if (splitDone) {
+            return false;
+        }
+        byte[] bytes = this.bytes;
+        byte delimiter = this.delimiter;
+        int end = this.end;
+        int count = splitCount;
+        for (int i = count == 0 ? start : fieldEnds[count - 1] + 1; i < end; i++) {
+            if (bytes[i] == delimiter) {
+                count = addField(count, i);
+                if (count > index) {
+                    splitCount = count;
+                    return true;
+                }
+            }
+        }
+        splitCount = addField(count, end);
+        splitDone = true;
+        return index < splitCount;
+    }
+
+    private int addField(int count, int fieldEnd) {
+        if (count == fieldEnds.length) {
+            fieldEnds = Arrays.copyOf(fieldEnds, count * 2);
+        }
+        fieldEnds[count] = fieldEnd;
+        return count + 1;
+    }
+
+    /** {@link Long#parseLong} over {@code bytes[from, to)}, accumulating negatively so {@code min} fits. */
+    private long parseLong(int from, int to, long min, long max) {
+        int i = from;
+        boolean negative = false;
+        byte first = i < to ? bytes[i] : 0;
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        if (i == to) {
+            throw notANumber(from, to);
+        }
+        long limit = negative ? min : -max;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                throw notANumber(from, to);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw notANumber(from, to);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    private NumberFormatException notANumber(int from, int to) {
+        return new NumberFormatException("For input string: \"" + text(from, to) + '"');
+    }
+}
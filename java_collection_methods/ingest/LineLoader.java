@@ -0,0 +1,516 @@
+package ingest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+import primitive.IntArrayList;
+import primitive.LongArrayList;
+import primitive.ObjectIntMap;
+
+/**
+ * Loads line-oriented files (plain lines, or delimiter-separated records such
+ * as simple CSV) straight into presized collections, parsing chunks of the
+ * file in parallel — the bulk-load counterpart of reading a file with
+ * {@code BufferedReader.readLine()} and adding each line.
+ *
+ * <p><b>How.</b> The file is cut into chunks of about
+ * {@link Builder#chunkSize(int) chunkSize} bytes, each boundary moved
+ * forward to just after the next {@code '\n'}, so every line belongs to
+ * exactly one chunk. Each chunk is memory-mapped, copied into a reused heap
+ * buffer and parsed by a task on the
+ * {@link ForkJoinPool}: lines are found by scanning bytes, and the caller's
+ * mapper sees a {@link Line} view from which it extracts only what it needs,
+ * so no {@code String} is made per line unless asked for, and numeric fields
+ * never become text. Chunk results are then merged <em>in file order</em> on
+ * the calling thread, overlapping with the parsing of later chunks:
+ * <ul>
+ *   <li>lists ({@link #list}, {@link #lines}, {@link #ints},
+ *       {@link #longs}) are allocated once at their exact final size;</li>
+ *   <li>hash sets and maps ({@link #set}, {@link #map},
+ *       {@link #objectIntMap}) are presized from the line count of the
+ *       first chunk scaled to the file size, so they rarely rehash
+ *       while loading (only if later lines are shorter than the first
+ *       chunk's). Later lines replace earlier ones, as sequential
+ *       {@code put} calls would.</li>
+ * </ul>
+ * Only the inserts into a hash table are sequential; mapping functions run
+ * in parallel and must be thread-safe.
+ *
+ * <p><b>Deduplication.</b> Files with repeated keys (status codes, country
+ * names, product ids) otherwise produce one {@code String} per occurrence.
+ * {@link Dedup#LOAD} makes every text returned by a {@link Line} canonical
+ * within one load, and {@link Dedup#INTERN} goes through
+ * {@link String#intern()}. Both first consult a small per-task cache keyed
+ * by the raw bytes, so a repeated text is neither decoded nor allocated.
+ * This buys memory, not speed: once the distinct texts outgrow that cache,
+ * each miss is a lookup in a large shared table, and deduplicating mostly
+ * unique texts (whole lines, prices) only adds that cost. Use it for
+ * key-like fields.
+ *
+ * <p>Lines end at {@code '\n'}; a preceding {@code '\r'} is dropped, and a
+ * missing final terminator is fine. A mapper returning {@code null} skips
+ * the line. Fields are split on a single-byte delimiter without quoting or
+ * trimming. Malformed input is replaced while decoding rather than rejected.
+ * A mapper exception is rethrown as an {@link IllegalArgumentException}
+ * naming the file and byte offset of the line.
+ */
+public final class LineLoader {
+
+    /** Default chunk size: 8 MB, large enough that per-chunk overhead is negligible. */
+    public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+    /** How texts extracted from lines are deduplicated. */
+    public enum Dedup {
+        /** Every call decodes a new {@code String}. */
+        NONE,
+        /** Equal texts within one load are the same {@code String} instance. */
+        LOAD,
+        /** Texts are {@link String#intern() interned}, so they are shared with the rest of the JVM. */
+        INTERN
+    }
+
+    /** Parses one line into a chunk's partial result. */
+    @FunctionalInterface
+    private interface PartParser<P> {
+        void parse(P part, Line line);
+    }
+
+    private static final int SCAN_BUFFER = 4096;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final byte delimiter;
+    private final Charset charset;
+    private final Dedup dedup;
+    private final boolean skipHeader;
+
+    private LineLoader(Builder builder) {
+        this.pool = builder.pool;
+        this.chunkSize = builder.chunkSize;
+        this.delimiter = builder.delimiter;
+        this.charset = builder.charset;
+        this.dedup = builder.dedup;
+        this.skipHeader = builder.skipHeader;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** UTF-8, ',' delimiter, 8 MB chunks on the common pool, no deduplication. */
+    public static LineLoader defaults() {
+        return builder().build();
+    }
+
+    // ===================================================
+    // Loading into collections
+    // ===================================================
+
+    /** Every line as a {@code String}, like {@code Files.readAllLines}. */
+    public List<String> lines(Path path) throws IOException {
+        return list(path, Line::toString);
+    }
+
+    /** One element per line, in file order, in an {@code ArrayList} of exactly that size. */
+    public <T> List<T> list(Path path, Function<? super Line, ? extends T> mapper) throws IOException {
+        Objects.requireNonNull(mapper, "mapper");
+        List<List<T>> parts = parts(path, ArrayList::new, (part, line) -> {
+            T element = mapper.apply(line);
+            if (element != null) {
+                part.add(element);
+            }
+        });
+        int size = 0;
+        for (List<T> part : parts) {
+            size += part.size();
+        }
+        List<T> result = new ArrayList<>(size);
+        for (List<T> part : parts) {
+            result.addAll(part);
+        }
+        return result;
+    }
+
+    /** One element per line in a {@code HashSet} presized for the file. */
+    public <T> Set<T> set(Path path, Function<? super Line, ? extends T> mapper) throws IOException {
+        Objects.requireNonNull(mapper, "mapper");
+        return load(path, ArrayList::new, (List<T> part, Line line) -> {
+            T element = mapper.apply(line);
+            if (element != null) {
+                part.add(element);
+            }
+        }, expected -> new HashSet<>(hashCapacity(expected)), Set::addAll);
+    }
+
+    /**
+     * One entry per line in a {@code HashMap} presized for the file. A line
+     * whose key is {@code null} is skipped; a repeated key keeps the value of
+     * its last line.
+     */
+    public <K, V> Map<K, V> map(Path path, Function<? super Line, ? extends K> keyMapper,
+                                Function<? super Line, ? extends V> valueMapper) throws IOException {
+        Objects.requireNonNull(keyMapper, "keyMapper");
+        Objects.requireNonNull(valueMapper, "valueMapper");
+        return load(path, ArrayList::new, (List<Object> part, Line line) -> {
+            K key = keyMapper.apply(line);
+            if (key != null) {
+                part.add(key);
+                part.add(valueMapper.apply(line));
+            }
+        }, expected -> new HashMap<K, V>(hashCapacity(expected)), (map, part) -> {
+            for (int i = 0, n = part.size(); i < n; i += 2) {
+                map.put(cast(part.get(i)), cast(part.get(i + 1)));
+            }
+        });
+    }
+
+    /** One {@code int} per line, without boxing. */
+    public IntArrayList ints(Path path, ToIntFunction<? super Line> mapper) throws IOException {
+        Objects.requireNonNull(mapper, "mapper");
+        List<IntArrayList> parts = parts(path, IntArrayList::new, (part, line) -> part.add(mapper.applyAsInt(line)));
+        int size = 0;
+        for (IntArrayList part : parts) {
+            size += part.size();
+        }
+        IntArrayList result = new IntArrayList(size);
+        for (IntArrayList part : parts) {
+            result.addAll(part);
+        }
+        return result;
+    }
+
+    /** One {@code long} per line, without boxing. */
+    public LongArrayList longs(Path path, ToLongFunction<? super Line> mapper) throws IOException {
+        Objects.requireNonNull(mapper, "mapper");
+        List<LongArrayList> parts = parts(path, LongArrayList::new, (part, line) -> part.add(mapper.applyAsLong(line)));
+        int size = 0;
+        for (LongArrayList part : parts) {
+            size += part.size();
+        }
+        LongArrayList result = new LongArrayList(size);
+        for (LongArrayList part : parts) {
+            result.addAll(part);
+        }
+        return result;
+    }
+
+    /**
+     * One entry per line in an {@link ObjectIntMap} presized for the file.
+     * A line whose key is {@code null} is skipped; a repeated key keeps the
+     * value of its last line.
+     */
+    public <K> ObjectIntMap<K> objectIntMap(Path path, Function<? super Line, ? extends K> keyMapper,
+                                            ToIntFunction<? super Line> valueMapper) throws IOException {
+        Objects.requireNonNull(keyMapper, "keyMapper");
+        Objects.requireNonNull(valueMapper, "valueMapper");
+        return load(path, KeyIntPart<K>::new, (part, line) -> {
+            K key = keyMapper.apply(line);
+            if (key != null) {
+                part.keys.add(key);
+                part.values.add(valueMapper.applyAsInt(line));
+            }
+        }, expected -> new ObjectIntMap<K>((int) Math.min(expected, Integer.MAX_VALUE >> 2)), (map, part) -> {
+            for (int i = 0, n = part.keys.size(); i < n; i++) {
+                map.put(part.keys.get(i), part.values.get(i));
+            }
+        });
+    }
+
+    private static final class KeyIntPart<K> {
+        final List<K> keys = new ArrayList<>();
+        final IntArrayList values = new IntArrayList();
+    }
+
+    /** Initial capacity for a {@code HashMap}/{@code HashSet} holding {@code expected} entries at load factor 0.75. */
+    private static int hashCapacity(long expected) {
+        return (int) Math.min(expected * 4 / 3 + 1, 1 << 30);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object o) {
+        return (T) o;
+    }
+
+    // ===================================================
+    // Chunked parsing
+    // ===================================================
+
+    /** The parsed chunks in file order, for results sized exactly once all are known. */
+    private <P> List<P> parts(Path path, Supplier<P> newPart, PartParser<P> parser) throws IOException {
+        return load(path, newPart, parser, expected -> new ArrayList<P>(), List::add);
+    }
+
+    /**
+     * Parses every chunk of {@code path} into a part on the pool and merges
+     * the parts, in file order, into the result made by {@code newResult}
+     * from the estimated number of lines.
+     */
+    private <P, R> R load(Path path, Supplier<P> newPart, PartParser<P> parser,
+                          LongFunction<R> newResult, BiConsumer<R, P> merge) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = boundaries(channel, size);
+            Job<P> job = new Job<>(path, channel, newPart, parser, canonicalizer(), new ConcurrentLinkedQueue<>());
+            List<ForkJoinTask<Chunk<P>>> tasks = new ArrayList<>(bounds.length - 1);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                boolean skipFirst = i == 0 && skipHeader;
+                tasks.add(pool.submit(() -> parse(job, start, end, skipFirst)));
+            }
+            try {
+                R result = null;
+                for (ForkJoinTask<Chunk<P>> task : tasks) {
+                    Chunk<P> chunk = task.join();
+                    if (result == null) {
+                        result = newResult.apply(chunk.bytes == 0 ? 0 : (long) ((double) chunk.lines * size / chunk.bytes));
+                    }
+                    merge.accept(result, chunk.part);
+                }
+                return result != null ? result : newResult.apply(0);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                for (ForkJoinTask<?> task : tasks) {
+                    task.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * State shared by the chunk tasks of one load. Chunks are copied from
+     * the mapping into heap buffers (array reads are about twice as fast as
+     * reads through a mapped {@code ByteBuffer}); a finished task returns its
+     * buffer to {@code buffers} for the next chunk, so a load allocates about
+     * one buffer per pool thread rather than one per chunk.
+     */
+    private record Job<P>(Path path, FileChannel channel, Supplier<P> newPart, PartParser<P> parser,
+                          UnaryOperator<String> canonical, Queue<byte[]> buffers) {
+    }
+
+    private record Chunk<P>(P part, int lines, int bytes) {
+    }
+
+    private UnaryOperator<String> canonicalizer() {
+        switch (dedup) {
+            case LOAD:
+                ConcurrentHashMap<String, String> seen = new ConcurrentHashMap<>();
+                return s -> {
+                    String previous = seen.get(s); // putIfAbsent alone would lock the bin on every hit
+                    if (previous == null) {
+                        previous = seen.putIfAbsent(s, s);
+                    }
+                    return previous != null ? previous : s;
+                };
+            case INTERN:
+                return String::intern;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Chunk start offsets plus {@code size}: every {@code chunkSize} bytes,
+     * moved to the start of the next line; a line longer than a chunk
+     * absorbs the boundaries inside it.
+     */
+    private long[] boundaries(FileChannel channel, long size) throws IOException {
+        LongArrayList bounds = new LongArrayList();
+        bounds.add(0);
+        long previous = 0;
+        for (long nominal = chunkSize; nominal < size; nominal += chunkSize) {
+            if (nominal <= previous) {
+                continue;
+            }
+            long lineStart = nextLineStart(channel, nominal, size);
+            if (lineStart >= size) {
+                break;
+            }
+            bounds.add(lineStart);
+            previous = lineStart;
+        }
+        bounds.add(size);
+        return bounds.toArray();
+    }
+
+    /** The smallest offset {@code >= from} that starts a line, or {@code size}. */
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+        for (long position = from - 1; position < size; ) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private <P> Chunk<P> parse(Job<P> job, long start, long end, boolean skipFirst) {
+        if (end - start > Integer.MAX_VALUE - 8) {
+            throw new UncheckedIOException(new IOException(job.path + ": line at byte " + start + " is over 2 GB"));
+        }
+        int length = (int) (end - start);
+        byte[] polled = job.buffers.poll();
+        byte[] bytes = polled != null && polled.length >= length ? polled : new byte[length];
+        try {
+            job.channel.map(FileChannel.MapMode.READ_ONLY, start, length).get(0, bytes, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        P part = job.newPart.get();
+        Line line = new Line(delimiter, charset,
+                job.canonical == null ? null : new StringCache(charset, job.canonical));
+        int lines = 0;
+        for (int from = 0; from < length; ) {
+            int newline = indexOfNewline(bytes, from, length);
+            int to = newline > from && bytes[newline - 1] == '\r' ? newline - 1 : newline;
+            if (skipFirst) {
+                skipFirst = false;
+            } else {
+                line.reset(bytes, from, to, start + from);
+                try {
+                    job.parser.parse(part, line);
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException(job.path + ": cannot load line at byte " + (start + from)
+                            + " (" + e + "): " + line.preview(), e);
+                }
+                lines++;
+            }
+            from = newline + 1;
+        }
+        job.buffers.offer(bytes);
+        return new Chunk<>(part, lines, length);
+    }
+
+    /**
+     * Index of the next {@code '\n'} at or after {@code from}, or
+     * {@code length}. Tests eight bytes per step: {@code x = word ^ 0x0A..}
+     * has a zero byte where {@code word} has a newline, and
+     * {@code (x - 0x01..) & ~x & 0x80..} sets the high bit of the lowest zero
+     * byte (higher ones may be false positives from the borrow, but only the
+     * lowest is used).
+     */
+    private static int indexOfNewline(byte[] bytes, int from, int length) {
+        int i = from;
+        for (; i <= length - Long.BYTES; i += Long.BYTES) {
+            long x = (long) LONGS.get(bytes, i) ^ NEWLINES;
+            long found = (x - 0x0101010101010101L) & ~x & 0x8080808080808080L;
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < length; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    // ===================================================
+    // Builder
+    // ===================================================
+
+    /** Configures a {@link LineLoader}. */
+    public static final class Builder {
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+        private byte delimiter = ',';
+        private Charset charset = StandardCharsets.UTF_8;
+        private Dedup dedup = Dedup.NONE;
+        private boolean skipHeader;
+
+        private Builder() {
+        }
+
+        /** Pool that parses the chunks; the common pool by default. */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = Objects.requireNonNull(pool, "pool");
+            return this;
+        }
+
+        /** Bytes per parallel chunk, before moving the boundary to a line start. */
+        public Builder chunkSize(int chunkSize) {
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+            }
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /** Field separator for {@link Line#field(int)}; must be an ASCII character other than CR and LF. */
+        public Builder delimiter(char delimiter) {
+            if (delimiter > 0x7F || delimiter == '\n' || delimiter == '\r') {
+                throw new IllegalArgumentException("Delimiter must be ASCII and not a line terminator: " + (int) delimiter);
+            }
+            this.delimiter = (byte) delimiter;
+            return this;
+        }
+
+        /**
+         * Encoding of the file: UTF-8 (the default), ISO-8859-1 or US-ASCII,
+         * the charsets in which byte {@code '\n'} always ends a line.
+         */
+        public Builder charset(Charset charset) {
+            if (!charset.equals(StandardCharsets.UTF_8) && !charset.equals(StandardCharsets.ISO_8859_1)
+                    && !charset.equals(StandardCharsets.US_ASCII)) {
+                throw new IllegalArgumentException("Unsupported charset: " + charset);
+            }
+            this.charset = charset;
+            return this;
+        }
+
+        public Builder dedup(Dedup dedup) {
+            this.dedup = Objects.requireNonNull(dedup, "dedup");
+            return this;
+        }
+
+        /** Skips the first line of the file (a CSV header). */
+        public Builder skipHeader() {
+            this.skipHeader = true;
+            return this;
+        }
+
+        public LineLoader build() {
+            return new LineLoader(this);
+        }
+    }
+}
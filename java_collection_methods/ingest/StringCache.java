@@ -0,0 +1,49 @@
+package ingest;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+/**
+ * Per-task decoder that returns one canonical {@code String} per distinct
+ * text. A small direct-mapped cache from the raw bytes to the decoded string
+ * catches repeats without decoding them; a miss decodes and asks the shared
+ * {@code canonical} function (a load-wide map, or {@code String::intern}).
+ * Not thread-safe: each parsing task has its own.
+ */
+final class StringCache {
+
+    private static final int SLOTS = 4096;
+    /** Longer texts skip the cache (copying and comparing them costs more than decoding). */
+    private static final int MAX_CACHED_LENGTH = 64;
+
+    private final Charset charset;
+    private final UnaryOperator<String> canonical;
+    private final byte[][] keys = new byte[SLOTS][];
+    private final String[] values = new String[SLOTS];
+
+    StringCache(Charset charset, UnaryOperator<String> canonical) {
+        this.charset = charset;
+        this.canonical = canonical;
+    }
+
+    String get(byte[] bytes, int from, int to) {
+        int length = to - from;
+        if (length > MAX_CACHED_LENGTH) {
+            return canonical.apply(new String(bytes, from, length, charset));
+        }
+        int h = 1;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + bytes[i];
+        }
+        int slot = (h ^ (h >>> 16)) & (SLOTS - 1);
+        byte[] key = keys[slot];
+        if (key != null && Arrays.equals(key, 0, key.length, bytes, from, to)) {
+            return values[slot];
+        }
+        String value = canonical.apply(new String(bytes, from, length, charset));
+        keys[slot] = Arrays.copyOfRange(bytes, from, to);
+        values[slot] = value;
+        return value;
+    }
+}
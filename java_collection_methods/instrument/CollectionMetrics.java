@@ -0,0 +1,301 @@
+package instrument;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms shared by every collection wrapped under one name
+ * (see {@link Instrumented#metrics(String)}).
+ *
+ * <p>Single-element operations ({@code get}, {@code put}, {@code offer}...)
+ * are sampled: on average one call in {@link #sampleInterval()} reads the
+ * clock, goes into the latency {@link Histogram} and adds
+ * {@code sampleInterval} to a striped {@link LongAdder}. The other calls
+ * cost a decrement and a branch. Even an uncontended {@code LongAdder}
+ * increment is a CAS, which would more than double the cost of a 10 ns
+ * {@code HashMap.get}, so their counts are unbiased estimates (about 2% off
+ * after a million calls at the default interval). Bulk and iteration calls
+ * are rare and slow, so they are counted exactly.
+ *
+ * <p>Hash-based collections also report how their table grows:
+ * {@link #resizes()} counts table doublings, and a chain scan at each
+ * power-of-two size records the longest bucket chain and the number of
+ * bins long enough to be treeified (8 or more entries in a table of at
+ * least 64). Queues report sampled depth and the time sampled elements
+ * spent waiting between {@code offer} and {@code poll}.
+ */
+public final class CollectionMetrics implements CollectionMetricsMXBean {
+
+    /** Chain length at which {@code HashMap} and {@code ConcurrentHashMap} treeify a bin. */
+    static final int TREEIFY_THRESHOLD = 8;
+    /** Smallest table in which long chains are treeified rather than causing a resize. */
+    static final int MIN_TREEIFY_CAPACITY = 64;
+
+    static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private static final Op[] OPS = Op.values();
+
+    private final String name;
+    private final int sampleMask;
+    private final LongAdder[] counts = new LongAdder[OPS.length];
+    private final Histogram[] latencies = new Histogram[OPS.length];
+    private final LongAdder resizes = new LongAdder();
+    private final LongAdder chainScans = new LongAdder();
+    private final LongAccumulator maxChainLength = new LongAccumulator(Math::max, 0);
+    private final Histogram queueDepth = new Histogram();
+    private final Histogram queueWait = new Histogram();
+    private volatile int tableCapacity;
+    /** A wrapped hash table whose table could not be read, so resizes and capacity are unknown. */
+    private volatile boolean tableUnknown;
+    private volatile int treeifiedBins;
+
+    CollectionMetrics(String name, int sampleInterval) {
+        this.name = name;
+        this.sampleMask = Integer.highestOneBit(Math.min(Math.max(1, sampleInterval), 1 << 30) * 2 - 1) - 1;
+        for (int i = 0; i < OPS.length; i++) {
+            counts[i] = new LongAdder();
+            latencies[i] = new Histogram();
+        }
+    }
+
+    // ===================================================
+    // Recording (called by the decorators)
+    // ===================================================
+
+    /**
+     * Counts {@code op} and returns a start time if the caller decided to
+     * sample this call, else {@link #NOT_SAMPLED}. Single-element operations
+     * are counted only when sampled, as {@code sampleInterval} calls at once.
+     */
+    long start(Op op, boolean sampled) {
+        if (exact(op)) {
+            counts[op.ordinal()].increment();
+            return sampled ? System.nanoTime() : NOT_SAMPLED;
+        }
+        return sampled ? startSampled(op) : NOT_SAMPLED;
+    }
+
+    /** Out of line so the unsampled path stays small enough to inline with the delegate call. */
+    private long startSampled(Op op) {
+        counts[op.ordinal()].add(sampleMask + 1L);
+        return System.nanoTime();
+    }
+
+    /** Counts {@code op} without timing it. */
+    void increment(Op op, boolean sampled) {
+        if (exact(op)) {
+            counts[op.ordinal()].increment();
+        } else if (sampled) {
+            counts[op.ordinal()].add(sampleMask + 1L);
+        }
+    }
+
+    private static boolean exact(Op op) {
+        return op == Op.BULK || op == Op.ITERATE;
+    }
+
+    void end(Op op, long start) {
+        if (start != NOT_SAMPLED) {
+            endSampled(op, start);
+        }
+    }
+
+    private void endSampled(Op op, long start) {
+        latencies[op.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /** A one-in-{@code sampleInterval} decision from the calling thread's random stream. */
+    boolean sampled() {
+        return (ThreadLocalRandom.current().nextInt() & sampleMask) == 0;
+    }
+
+    /** Calls to skip before the next sample when sampling by countdown; averages {@code sampleInterval}. */
+    int nextCountdown() {
+        return sampleMask == 0 ? 1 : 1 + ThreadLocalRandom.current().nextInt(2 * sampleMask + 1);
+    }
+
+    void recordResizes(int doublings, int capacity) {
+        resizes.add(doublings);
+        tableCapacity = capacity;
+    }
+
+    void recordTableUnknown() {
+        tableUnknown = true;
+    }
+
+    void recordChainScan(int capacity, int maxChain, int treeified) {
+        chainScans.increment();
+        maxChainLength.accumulate(maxChain);
+        treeifiedBins = treeified;
+        tableCapacity = capacity;
+    }
+
+    void recordQueueDepth(int depth) {
+        queueDepth.record(depth);
+    }
+
+    void recordQueueWait(long nanos) {
+        queueWait.record(nanos);
+    }
+
+    // ===================================================
+    // Reading
+    // ===================================================
+
+    public String name() {
+        return name;
+    }
+
+    /** One in this many operations is timed; a power of two. */
+    public int sampleInterval() {
+        return sampleMask + 1;
+    }
+
+    /** Number of {@code op} calls so far: exact for {@code BULK} and {@code ITERATE}, estimated otherwise. */
+    public long count(Op op) {
+        return counts[op.ordinal()].sum();
+    }
+
+    /** Latency of the sampled {@code op} calls, in nanoseconds. */
+    public Histogram.Snapshot latency(Op op) {
+        return latencies[op.ordinal()].snapshot();
+    }
+
+    /**
+     * Number of hash-table doublings observed: 0 for collections that are
+     * not hash-based, and for tables that cannot be read (see
+     * {@link #getTableCapacity()}).
+     */
+    public long resizes() {
+        return resizes.sum();
+    }
+
+    /** Longest bucket chain seen by any chain scan. */
+    public int maxChainLength() {
+        return (int) maxChainLength.get();
+    }
+
+    /** Bins with at least {@value #TREEIFY_THRESHOLD} entries in the most recent chain scan. */
+    public int treeifiedBins() {
+        return treeifiedBins;
+    }
+
+    /** Queue size after the sampled {@code offer} calls. */
+    public Histogram.Snapshot queueDepth() {
+        return queueDepth.snapshot();
+    }
+
+    /** Nanoseconds sampled elements spent in the queue. */
+    public Histogram.Snapshot queueWait() {
+        return queueWait.snapshot();
+    }
+
+    /** One line: name, non-zero op counts, resizes and chain statistics. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(name).append(' ').append(getOperationCounts());
+        if (tableCapacity > 0) {
+            sb.append(String.format(Locale.ROOT, " resizes=%d capacity=%d maxChain=%d treeifiedBins=%d",
+                    resizes(), tableCapacity, maxChainLength(), treeifiedBins));
+        } else if (tableUnknown) {
+            sb.append(" resizes=? capacity=? (table not readable without --add-opens)");
+        }
+        return sb.toString();
+    }
+
+    // ===================================================
+    // CollectionMetricsMXBean
+    // ===================================================
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getSampleInterval() {
+        return sampleInterval();
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Op op : OPS) {
+            long count = count(op);
+            if (count > 0) {
+                result.put(key(op), count);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getLatencyNanos() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Op op : OPS) {
+            Histogram.Snapshot snapshot = latency(op);
+            if (snapshot.count() > 0) {
+                put(result, key(op) + ".", snapshot);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long getResizeCount() {
+        return resizes();
+    }
+
+    /** Capacity of the most recently tracked table; 0 if not hash-based, -1 if the table cannot be read. */
+    @Override
+    public int getTableCapacity() {
+        return tableCapacity == 0 && tableUnknown ? -1 : tableCapacity;
+    }
+
+    @Override
+    public long getChainScans() {
+        return chainScans.sum();
+    }
+
+    @Override
+    public int getMaxChainLength() {
+        return maxChainLength();
+    }
+
+    @Override
+    public int getTreeifiedBins() {
+        return treeifiedBins();
+    }
+
+    @Override
+    public Map<String, Long> getQueueDepth() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        put(result, "", queueDepth());
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getQueueWaitNanos() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        put(result, "", queueWait());
+        return result;
+    }
+
+    private static String key(Op op) {
+        return op.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static void put(Map<String, Long> result, String prefix, Histogram.Snapshot snapshot) {
+        result.put(prefix + "count", snapshot.count());
+        result.put(prefix + "mean", Math.round(snapshot.mean()));
+        result.put(prefix + "p50", snapshot.p50());
+        result.put(prefix + "p90", snapshot.p90());
+        result.put(prefix + "p99", snapshot.p99());
+        result.put(prefix + "p999", snapshot.p999());
+        result.put(prefix + "max", snapshot.max());
+    }
+}
@@ -0,0 +1,35 @@
+package instrument;
+
+import java.util.Map;
+
+/**
+ * JMX view of one {@link CollectionMetrics}, registered by
+ * {@link Instrumented#metrics(String)} as
+ * {@code instrument:type=CollectionMetrics,name="<name>"}. Every getter
+ * returns a fresh snapshot; latencies and waits are in nanoseconds and
+ * keyed {@code "<op>.<statistic>"}, e.g. {@code "put.p99"}.
+ */
+public interface CollectionMetricsMXBean {
+
+    String getName();
+
+    int getSampleInterval();
+
+    Map<String, Long> getOperationCounts();
+
+    Map<String, Long> getLatencyNanos();
+
+    long getResizeCount();
+
+    int getTableCapacity();
+
+    long getChainScans();
+
+    int getMaxChainLength();
+
+    int getTreeifiedBins();
+
+    Map<String, Long> getQueueDepth();
+
+    Map<String, Long> getQueueWaitNanos();
+}
@@ -0,0 +1,171 @@
+package instrument;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table-size and bucket-chain bookkeeping for wrapped {@code HashMap},
+ * {@code HashSet}, {@code ConcurrentHashMap} and their subclasses and key
+ * sets.
+ *
+ * <p>The table length is read reflectively when {@code java.util} and
+ * {@code java.util.concurrent} are opened to this code
+ * ({@code --add-opens java.base/java.util=ALL-UNNAMED} and likewise for
+ * {@code java.util.concurrent}). Otherwise the table is not tracked and its
+ * resizes and capacity are reported as unknown: a model of growth from 16
+ * slots would count doublings a presized table never made.
+ *
+ * <p>Bucket chains are never read from the table itself: a chain scan
+ * iterates the keys and counts them per bucket index
+ * ({@code (h ^ h >>> 16) & (capacity - 1)}, the index both JDK tables use).
+ */
+final class HashTables {
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private static final MethodHandle HASH_MAP_TABLE = getter(HashMap.class, "table");
+    private static final MethodHandle HASH_SET_MAP = getter(HashSet.class, "map");
+    private static final MethodHandle CONCURRENT_TABLE = getter(ConcurrentHashMap.class, "table");
+
+    private HashTables() {
+    }
+
+    /** Whether {@code collection} is a hash table this class can track. */
+    static boolean isHashed(Object collection) {
+        return collection instanceof HashMap || collection instanceof HashSet
+                || collection instanceof ConcurrentHashMap || collection instanceof ConcurrentHashMap.KeySetView;
+    }
+
+    private static MethodHandle getter(Class<?> owner, String name) {
+        try {
+            Field field = owner.getDeclaredField(name);
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(field)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null; // package not opened: the table is not tracked
+        }
+    }
+
+    /**
+     * A tracker for {@code delegate}, or null if it is not a hash table or
+     * its table cannot be read, in which case {@code metrics} records the
+     * table as unknown.
+     */
+    static Tracker track(Object delegate, Collection<?> keys, CollectionMetrics metrics) {
+        if (!isHashed(delegate)) {
+            return null;
+        }
+        Object holder = delegate instanceof ConcurrentHashMap.KeySetView<?, ?> view ? view.getMap() : delegate;
+        if (holder instanceof HashSet) {
+            holder = HASH_SET_MAP != null ? read(HASH_SET_MAP, holder) : null;
+        }
+        MethodHandle table = holder instanceof HashMap ? HASH_MAP_TABLE
+                : holder instanceof ConcurrentHashMap ? CONCURRENT_TABLE : null;
+        if (table == null) {
+            metrics.recordTableUnknown();
+            return null;
+        }
+        return new Tracker(holder, table, keys, metrics);
+    }
+
+    // ===================================================
+    // Per-instance tracker
+    // ===================================================
+
+    /**
+     * Follows one wrapped table. {@link #afterGrowth()} is called after every
+     * operation that may add entries; it costs a {@code size()} call and a
+     * compare and a reflective field read until the table
+     * doubles or the size reaches the next power of two, when the slow path
+     * records the resize and runs a chain scan.
+     */
+    static final class Tracker {
+
+        /** Tables below this size are not scanned: they never treeify and are cheap to probe. */
+        private static final int MIN_SCAN_SIZE = CollectionMetrics.MIN_TREEIFY_CAPACITY;
+
+        private final Collection<?> keys;
+        private final CollectionMetrics metrics;
+        /** The {@code HashMap} or {@code ConcurrentHashMap} owning the table. */
+        private final Object owner;
+        private final MethodHandle table;
+        private int capacity;
+        private int nextScan;
+        private volatile int nextCheck;
+
+        private Tracker(Object owner, MethodHandle table, Collection<?> keys, CollectionMetrics metrics) {
+            this.keys = keys;
+            this.metrics = metrics;
+            this.owner = owner;
+            this.table = table;
+            capacity = tableLength();
+            nextScan = MIN_SCAN_SIZE;
+            synchronized (this) {
+                grow(keys.size());
+            }
+        }
+
+        void afterGrowth() {
+            int size = keys.size();
+            if (size >= nextCheck || tableLength() != capacity) {
+                synchronized (this) {
+                    grow(size);
+                }
+            }
+        }
+
+        private void grow(int size) {
+            int current = tableLength();
+            if (current > capacity && capacity > 0) {
+                metrics.recordResizes(Integer.numberOfTrailingZeros(current) - Integer.numberOfTrailingZeros(capacity),
+                        current);
+            }
+            capacity = Math.max(capacity, current);
+            if (size >= nextScan) {
+                scan(capacity);
+                nextScan = size >= MAX_CAPACITY ? Integer.MAX_VALUE : Integer.highestOneBit(size) << 1;
+            }
+            nextCheck = nextScan;
+        }
+
+        private void scan(int capacity) {
+            if (capacity == 0) {
+                return;
+            }
+            int[] chains = new int[capacity];
+            int mask = capacity - 1;
+            int longest = 0;
+            int treeified = 0;
+            for (Object key : keys) {
+                int h = key == null ? 0 : key.hashCode();
+                int length = ++chains[(h ^ (h >>> 16)) & mask];
+                longest = Math.max(longest, length);
+                if (length == CollectionMetrics.TREEIFY_THRESHOLD) {
+                    treeified++;
+                }
+            }
+            metrics.recordChainScan(capacity, longest,
+                    capacity >= CollectionMetrics.MIN_TREEIFY_CAPACITY ? treeified : 0);
+        }
+
+        private int tableLength() {
+            Object[] array = (Object[]) read(table, owner);
+            return array == null ? 0 : array.length;
+        }
+    }
+
+    private static Object read(MethodHandle getter, Object target) {
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
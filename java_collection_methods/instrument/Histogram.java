@@ -0,0 +1,108 @@
+package instrument;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of non-negative {@code long} values (latencies in
+ * nanoseconds, queue depths) with HdrHistogram-style log-linear buckets.
+ *
+ * <p>Values below 32 get one bucket each. Above that, every power of two
+ * is split into 16 equal sub-buckets, so a reported percentile is within
+ * 1/16 (6.25%) of the true value over the whole {@code long} range, in a
+ * fixed table of 960 counters. Recording is one atomic increment of a
+ * counter plus a {@link LongAdder} for the sum, with no allocation and no
+ * lock; {@link #snapshot()} may run concurrently with recording and sees
+ * each value either fully or not at all per counter.
+ */
+public final class Histogram {
+
+    /** Summary of the recorded values; percentiles are bucket upper bounds, capped at {@code max}. */
+    public record Snapshot(long count, double mean, long p50, long p90, long p99, long p999, long max) {
+
+        static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0, 0);
+    }
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int LINEAR_LIMIT = 2 * SUB_COUNT;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /** Records one value; negative values are recorded as 0. */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(index(v));
+        sum.add(v);
+        if (v > max.get()) {
+            max.accumulate(v);
+        }
+    }
+
+    /** Number of values recorded so far. */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /** Count, mean, common percentiles and maximum of the values recorded so far. */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        if (count == 0) {
+            return Snapshot.EMPTY;
+        }
+        long highest = max.get();
+        return new Snapshot(count, (double) sum.sum() / count,
+                percentile(copy, count, 0.50, highest), percentile(copy, count, 0.90, highest),
+                percentile(copy, count, 0.99, highest), percentile(copy, count, 0.999, highest),
+                highest);
+    }
+
+    private static long percentile(long[] counts, long count, double fraction, long highest) {
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highest, highestValue(i));
+            }
+        }
+        return highest;
+    }
+
+    // ===================================================
+    // Bucket layout
+    // ===================================================
+
+    static int index(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) ((value >>> shift) & (SUB_COUNT - 1));
+    }
+
+    static long lowestValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = index / SUB_COUNT - 1;
+        return (long) (SUB_COUNT + index % SUB_COUNT) << shift;
+    }
+
+    static long highestValue(int index) {
+        return index == BUCKETS - 1 ? Long.MAX_VALUE : lowestValue(index + 1) - 1;
+    }
+}
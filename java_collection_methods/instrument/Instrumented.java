@@ -0,0 +1,961 @@
+package instrument;
+
+import java.lang.management.ManagementFactory;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Decorators that count and time the operations of an existing
+ * {@code List}, {@code Set}, {@code Map} or {@code Queue}, in the style of
+ * {@code Collections.synchronizedMap}: the wrapper forwards every call to
+ * the original collection and records into a {@link CollectionMetrics}.
+ *
+ * <pre>
+ * Map&lt;String, Integer&gt; stock = Instrumented.wrap(new HashMap&lt;&gt;(), "stock");
+ * ...
+ * CollectionMetrics m = Instrumented.metrics("stock");
+ * m.count(Op.PUT); m.latency(Op.GET).p99(); m.resizes(); m.maxChainLength();
+ * </pre>
+ *
+ * <p>All collections wrapped under the same name share one
+ * {@code CollectionMetrics}, so a name identifies a call site rather than
+ * an instance; {@link #wrap(Map)} without a name uses the caller's
+ * {@code Class.method:line}. Each {@code CollectionMetrics} is also
+ * registered with the platform MBean server as
+ * {@code instrument:type=CollectionMetrics,name="<name>"}, so JConsole or
+ * VisualVM can read it from a running JVM, and {@link #report()} ranks all
+ * of them by resizes.
+ *
+ * <p>What is recorded: op counts and latency from one call in
+ * {@code -Dinstrument.sampleInterval} (default 256), table resizes
+ * and bucket-chain lengths for hash-based collections (see
+ * {@link HashTables}), and queue depth and element wait times for queues.
+ * Views ({@code keySet()}, {@code subList}, iterators) are the original
+ * collection's views and are not instrumented beyond counting their
+ * creation as {@link Op#ITERATE}.
+ */
+public final class Instrumented {
+
+    private static final int SAMPLE_INTERVAL = Integer.getInteger("instrument.sampleInterval", 256);
+    private static final ConcurrentHashMap<String, CollectionMetrics> REGISTRY = new ConcurrentHashMap<>();
+
+    private Instrumented() {
+    }
+
+    // ===================================================
+    // Factories
+    // ===================================================
+
+    public static <E> List<E> wrap(List<E> list) {
+        return wrap(list, callSite());
+    }
+
+    public static <E> List<E> wrap(List<E> list, String name) {
+        CollectionMetrics metrics = metrics(name);
+        return list instanceof RandomAccess
+                ? new InstrumentedRandomAccessList<>(list, metrics)
+                : new InstrumentedList<>(list, metrics);
+    }
+
+    public static <E> Set<E> wrap(Set<E> set) {
+        return wrap(set, callSite());
+    }
+
+    public static <E> Set<E> wrap(Set<E> set, String name) {
+        return new InstrumentedSet<>(set, metrics(name));
+    }
+
+    public static <E> Queue<E> wrap(Queue<E> queue) {
+        return wrap(queue, callSite());
+    }
+
+    public static <E> Queue<E> wrap(Queue<E> queue, String name) {
+        CollectionMetrics metrics = metrics(name);
+        return queue instanceof BlockingQueue<E> blocking
+                ? new InstrumentedBlockingQueue<>(blocking, metrics)
+                : new InstrumentedQueue<>(queue, metrics);
+    }
+
+    public static <E> BlockingQueue<E> wrap(BlockingQueue<E> queue) {
+        return wrap(queue, callSite());
+    }
+
+    public static <E> BlockingQueue<E> wrap(BlockingQueue<E> queue, String name) {
+        return new InstrumentedBlockingQueue<>(queue, metrics(name));
+    }
+
+    public static <K, V> Map<K, V> wrap(Map<K, V> map) {
+        return wrap(map, callSite());
+    }
+
+    public static <K, V> Map<K, V> wrap(Map<K, V> map, String name) {
+        CollectionMetrics metrics = metrics(name);
+        return map instanceof ConcurrentMap<K, V> concurrent
+                ? new InstrumentedConcurrentMap<>(concurrent, metrics)
+                : new InstrumentedMap<>(map, metrics);
+    }
+
+    public static <K, V> ConcurrentMap<K, V> wrap(ConcurrentMap<K, V> map) {
+        return wrap(map, callSite());
+    }
+
+    public static <K, V> ConcurrentMap<K, V> wrap(ConcurrentMap<K, V> map, String name) {
+        return new InstrumentedConcurrentMap<>(map, metrics(name));
+    }
+
+    // ===================================================
+    // Registry
+    // ===================================================
+
+    /** The metrics for {@code name}, created and registered with JMX on first use. */
+    public static CollectionMetrics metrics(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("name must be non-empty");
+        }
+        return REGISTRY.computeIfAbsent(name, n -> register(new CollectionMetrics(n, SAMPLE_INTERVAL)));
+    }
+
+    /** Every metrics instance created so far. */
+    public static Collection<CollectionMetrics> all() {
+        return Collections.unmodifiableCollection(REGISTRY.values());
+    }
+
+    /** One line per name, most resizes first, then most operations. */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        REGISTRY.values().stream()
+                .sorted(Comparator.comparingLong(CollectionMetrics::resizes)
+                        .thenComparingLong(m -> m.getOperationCounts().values().stream().mapToLong(Long::longValue).sum())
+                        .reversed())
+                .forEach(m -> sb.append(m).append('\n'));
+        return sb.toString();
+    }
+
+    private static CollectionMetrics register(CollectionMetrics metrics) {
+        try {
+            ObjectName objectName = new ObjectName("instrument:type=CollectionMetrics,name="
+                    + ObjectName.quote(metrics.name()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register metrics " + metrics.name() + " with JMX", e);
+        }
+        return metrics;
+    }
+
+    private static String callSite() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> !f.getClassName().startsWith(Instrumented.class.getName()))
+                .findFirst()
+                .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1)
+                        + "." + f.getMethodName() + ":" + f.getLineNumber())
+                .orElse("unknown"));
+    }
+
+    // ===================================================
+    // Recording
+    // ===================================================
+
+    /**
+     * State every decorator shares: where to record, the resize tracker, and
+     * the sampling decision. Thread-safe delegates sample with
+     * {@code ThreadLocalRandom}. Others sample with a countdown in this
+     * object, restarted at a random length so that a periodic call pattern
+     * (put, remove, put...) cannot always land on the same operation. The
+     * countdown is a plain field: if several threads share an unsynchronised
+     * collection anyway, lost decrements only change the sampling rate.
+     */
+    abstract static class Recorder {
+
+        final CollectionMetrics metrics;
+        /** Resize and chain tracking; null unless the delegate is a hash table whose table can be read. */
+        final HashTables.Tracker tracker;
+        private final boolean threadSafe;
+        private int countdown;
+
+        Recorder(Object delegate, Collection<?> keys, CollectionMetrics metrics) {
+            if (delegate == null) {
+                throw new IllegalArgumentException("delegate must be non-null");
+            }
+            this.metrics = metrics;
+            this.tracker = HashTables.track(delegate, keys, metrics);
+            this.threadSafe = isThreadSafe(delegate);
+            this.countdown = metrics.nextCountdown();
+        }
+
+        final boolean sample() {
+            if (threadSafe) {
+                return metrics.sampled();
+            }
+            if (--countdown > 0) {
+                return false;
+            }
+            countdown = metrics.nextCountdown();
+            return true;
+        }
+
+        final long start(Op op) {
+            return metrics.start(op, sample());
+        }
+
+        final void end(Op op, long start) {
+            metrics.end(op, start);
+        }
+
+        final void increment(Op op) {
+            metrics.increment(op, sample());
+        }
+
+        final void grew() {
+            if (tracker != null) {
+                tracker.afterGrowth();
+            }
+        }
+
+        /** {@code ConcurrentMap}, {@code BlockingQueue}, synchronized wrappers and classes of any {@code *.concurrent} package. */
+        private static boolean isThreadSafe(Object delegate) {
+            Class<?> type = delegate.getClass();
+            return delegate instanceof ConcurrentMap || delegate instanceof BlockingQueue
+                    || type.getPackageName().endsWith("concurrent")
+                    || type.getName().startsWith("java.util.Collections$Synchronized");
+        }
+    }
+
+    // ===================================================
+    // Collection, List and Set
+    // ===================================================
+
+    static class InstrumentedCollection<E> extends Recorder implements Collection<E> {
+
+        final Collection<E> delegate;
+
+        InstrumentedCollection(Collection<E> delegate, CollectionMetrics metrics) {
+            super(delegate, delegate, metrics);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return delegate.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            long start = start(Op.CONTAINS);
+            boolean found = delegate.contains(o);
+            end(Op.CONTAINS, start);
+            return found;
+        }
+
+        @Override
+        public boolean add(E e) {
+            long start = start(Op.ADD);
+            boolean changed = delegate.add(e);
+            end(Op.ADD, start);
+            grew();
+            return changed;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            long start = start(Op.REMOVE);
+            boolean changed = delegate.remove(o);
+            end(Op.REMOVE, start);
+            return changed;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            increment(Op.ITERATE);
+            return delegate.iterator();
+        }
+
+        @Override
+        public Spliterator<E> spliterator() {
+            increment(Op.ITERATE);
+            return delegate.spliterator();
+        }
+
+        @Override
+        public void forEach(Consumer<? super E> action) {
+            long start = start(Op.ITERATE);
+            delegate.forEach(action);
+            end(Op.ITERATE, start);
+        }
+
+        @Override
+        public Object[] toArray() {
+            return delegate.toArray();
+        }
+
+        @Override
+        public <T> T[] toArray(T[] a) {
+            return delegate.toArray(a);
+        }
+
+        @Override
+        public <T> T[] toArray(IntFunction<T[]> generator) {
+            return delegate.toArray(generator);
+        }
+
+        @Override
+        public boolean containsAll(Collection<?> c) {
+            long start = start(Op.BULK);
+            boolean found = delegate.containsAll(c);
+            end(Op.BULK, start);
+            return found;
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends E> c) {
+            long start = start(Op.BULK);
+            boolean changed = delegate.addAll(c);
+            end(Op.BULK, start);
+            grew();
+            return changed;
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            long start = start(Op.BULK);
+            boolean changed = delegate.removeAll(c);
+            end(Op.BULK, start);
+            return changed;
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> c) {
+            long start = start(Op.BULK);
+            boolean changed = delegate.retainAll(c);
+            end(Op.BULK, start);
+            return changed;
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super E> filter) {
+            long start = start(Op.BULK);
+            boolean changed = delegate.removeIf(filter);
+            end(Op.BULK, start);
+            return changed;
+        }
+
+        @Override
+        public void clear() {
+            long start = start(Op.BULK);
+            delegate.clear();
+            end(Op.BULK, start);
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    static class InstrumentedList<E> extends InstrumentedCollection<E> implements List<E> {
+
+        private final List<E> list;
+
+        InstrumentedList(List<E> list, CollectionMetrics metrics) {
+            super(list, metrics);
+            this.list = list;
+        }
+
+        @Override
+        public E get(int index) {
+            long start = start(Op.GET);
+            E element = list.get(index);
+            end(Op.GET, start);
+            return element;
+        }
+
+        @Override
+        public E set(int index, E element) {
+            long start = start(Op.PUT);
+            E previous = list.set(index, element);
+            end(Op.PUT, start);
+            return previous;
+        }
+
+        @Override
+        public void add(int index, E element) {
+            long start = start(Op.ADD);
+            list.add(index, element);
+            end(Op.ADD, start);
+        }
+
+        @Override
+        public E remove(int index) {
+            long start = start(Op.REMOVE);
+            E removed = list.remove(index);
+            end(Op.REMOVE, start);
+            return removed;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            long start = start(Op.CONTAINS);
+            int index = list.indexOf(o);
+            end(Op.CONTAINS, start);
+            return index;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            long start = start(Op.CONTAINS);
+            int index = list.lastIndexOf(o);
+            end(Op.CONTAINS, start);
+            return index;
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends E> c) {
+            long start = start(Op.BULK);
+            boolean changed = list.addAll(index, c);
+            end(Op.BULK, start);
+            return changed;
+        }
+
+        @Override
+        public void replaceAll(UnaryOperator<E> operator) {
+            long start = start(Op.BULK);
+            list.replaceAll(operator);
+            end(Op.BULK, start);
+        }
+
+        @Override
+        public void sort(Comparator<? super E> c) {
+            long start = start(Op.BULK);
+            list.sort(c);
+            end(Op.BULK, start);
+        }
+
+        @Override
+        public ListIterator<E> listIterator() {
+            increment(Op.ITERATE);
+            return list.listIterator();
+        }
+
+        @Override
+        public ListIterator<E> listIterator(int index) {
+            increment(Op.ITERATE);
+            return list.listIterator(index);
+        }
+
+        @Override
+        public List<E> subList(int fromIndex, int toIndex) {
+            return list.subList(fromIndex, toIndex);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o == this || list.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return list.hashCode();
+        }
+    }
+
+    static final class InstrumentedRandomAccessList<E> extends InstrumentedList<E> implements RandomAccess {
+
+        InstrumentedRandomAccessList(List<E> list, CollectionMetrics metrics) {
+            super(list, metrics);
+        }
+    }
+
+    static final class InstrumentedSet<E> extends InstrumentedCollection<E> implements Set<E> {
+
+        InstrumentedSet(Set<E> set, CollectionMetrics metrics) {
+            super(set, metrics);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o == this || delegate.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return delegate.hashCode();
+        }
+    }
+
+    // ===================================================
+    // Queue
+    // ===================================================
+
+    /**
+     * Queue decorator. A sampled {@code offer} records the queue size
+     * (skipped for queues whose {@code size()} is a traversal) and, if one of
+     * {@value #SLOTS} in-flight slots is free, remembers the element instance
+     * with its offer time; the {@code poll} that returns that same instance
+     * records how long it waited. Every poll compares against the slots by
+     * reference, which is cheaper than hashing the element. A slot whose
+     * element left some other way (iterator removal, {@code removeIf}) is
+     * reused after a minute or on {@code clear()}.
+     */
+    static class InstrumentedQueue<E> extends InstrumentedCollection<E> implements Queue<E> {
+
+        private static final int SLOTS = 8;
+        private static final long STALE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+        private final Queue<E> queue;
+        private final boolean cheapSize;
+        private final AtomicReferenceArray<Object> inFlight = new AtomicReferenceArray<>(SLOTS);
+        private final AtomicLongArray offeredAt = new AtomicLongArray(SLOTS);
+
+        InstrumentedQueue(Queue<E> queue, CollectionMetrics metrics) {
+            super(queue, metrics);
+            this.queue = queue;
+            this.cheapSize = !(queue instanceof ConcurrentLinkedQueue || queue instanceof ConcurrentLinkedDeque
+                    || queue instanceof LinkedTransferQueue);
+        }
+
+        /** Called before a possibly sampled insertion; returns the claimed slot or -1. */
+        final int beforeOffer(E e, long start) {
+            if (e == null || start == CollectionMetrics.NOT_SAMPLED) {
+                return -1;
+            }
+            for (int i = 0; i < SLOTS; i++) {
+                Object current = inFlight.get(i);
+                if ((current == null || start - offeredAt.get(i) > STALE_NANOS)
+                        && inFlight.compareAndSet(i, current, e)) {
+                    offeredAt.set(i, start); // e is not in the queue yet, so no poll can match it first
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        final void afterOffer(E e, long start, int slot, boolean accepted) {
+            if (start == CollectionMetrics.NOT_SAMPLED) {
+                return;
+            }
+            if (!accepted) {
+                if (slot >= 0) {
+                    inFlight.compareAndSet(slot, e, null);
+                }
+            } else if (cheapSize) {
+                metrics.recordQueueDepth(queue.size());
+            }
+        }
+
+        final E polled(E e) {
+            if (e != null) {
+                for (int i = 0; i < SLOTS; i++) {
+                    if (inFlight.getPlain(i) == e) {
+                        long offered = offeredAt.get(i);
+                        if (inFlight.compareAndSet(i, e, null)) {
+                            metrics.recordQueueWait(System.nanoTime() - offered);
+                            break;
+                        }
+                    }
+                }
+            }
+            return e;
+        }
+
+        @Override
+        public boolean offer(E e) {
+            long start = start(Op.OFFER);
+            int slot = beforeOffer(e, start);
+            boolean accepted = queue.offer(e);
+            end(Op.OFFER, start);
+            afterOffer(e, start, slot, accepted);
+            return accepted;
+        }
+
+        @Override
+        public boolean add(E e) {
+            long start = start(Op.OFFER);
+            int slot = beforeOffer(e, start);
+            boolean accepted = false;
+            try {
+                accepted = queue.add(e);
+            } finally {
+                end(Op.OFFER, start);
+                afterOffer(e, start, slot, accepted);
+            }
+            return accepted;
+        }
+
+        @Override
+        public E poll() {
+            long start = start(Op.POLL);
+            E e = queue.poll();
+            end(Op.POLL, start);
+            return polled(e);
+        }
+
+        @Override
+        public E remove() {
+            long start = start(Op.POLL);
+            E e = queue.remove();
+            end(Op.POLL, start);
+            return polled(e);
+        }
+
+        @Override
+        public E peek() {
+            long start = start(Op.PEEK);
+            E e = queue.peek();
+            end(Op.PEEK, start);
+            return e;
+        }
+
+        @Override
+        public E element() {
+            long start = start(Op.PEEK);
+            E e = queue.element();
+            end(Op.PEEK, start);
+            return e;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            for (int i = 0; i < SLOTS; i++) {
+                inFlight.set(i, null);
+            }
+        }
+    }
+
+    static final class InstrumentedBlockingQueue<E> extends InstrumentedQueue<E> implements BlockingQueue<E> {
+
+        private final BlockingQueue<E> queue;
+
+        InstrumentedBlockingQueue(BlockingQueue<E> queue, CollectionMetrics metrics) {
+            super(queue, metrics);
+            this.queue = queue;
+        }
+
+        @Override
+        public void put(E e) throws InterruptedException {
+            long start = start(Op.OFFER);
+            int slot = beforeOffer(e, start);
+            boolean accepted = false;
+            try {
+                queue.put(e);
+                accepted = true;
+            } finally {
+                end(Op.OFFER, start);
+                afterOffer(e, start, slot, accepted);
+            }
+        }
+
+        @Override
+        public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+            long start = start(Op.OFFER);
+            int slot = beforeOffer(e, start);
+            boolean accepted = false;
+            try {
+                accepted = queue.offer(e, timeout, unit);
+            } finally {
+                end(Op.OFFER, start);
+                afterOffer(e, start, slot, accepted);
+            }
+            return accepted;
+        }
+
+        @Override
+        public E take() throws InterruptedException {
+            long start = start(Op.POLL);
+            E e = queue.take();
+            end(Op.POLL, start);
+            return polled(e);
+        }
+
+        @Override
+        public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+            long start = start(Op.POLL);
+            E e = queue.poll(timeout, unit);
+            end(Op.POLL, start);
+            return polled(e);
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return queue.remainingCapacity();
+        }
+
+        @Override
+        public int drainTo(Collection<? super E> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int drainTo(Collection<? super E> c, int maxElements) {
+            if (c == this) {
+                throw new IllegalArgumentException("cannot drain a queue into itself");
+            }
+            // hand each element straight on, so a target that rejects one loses no more than the queue's own drainTo
+            Collection<E> target = new AbstractCollection<>() {
+                @Override
+                public boolean add(E e) {
+                    return c.add(polled(e));
+                }
+
+                @Override
+                public Iterator<E> iterator() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int size() {
+                    return 0;
+                }
+            };
+            long start = start(Op.BULK);
+            try {
+                return queue.drainTo(target, maxElements);
+            } finally {
+                end(Op.BULK, start);
+            }
+        }
+    }
+
+    // ===================================================
+    // Map
+    // ===================================================
+
+    static class InstrumentedMap<K, V> extends Recorder implements Map<K, V> {
+
+        final Map<K, V> delegate;
+
+        InstrumentedMap(Map<K, V> delegate, CollectionMetrics metrics) {
+            super(delegate, delegate == null ? null : delegate.keySet(), metrics);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return delegate.isEmpty();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            long start = start(Op.CONTAINS);
+            boolean found = delegate.containsKey(key);
+            end(Op.CONTAINS, start);
+            return found;
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            long start = start(Op.CONTAINS);
+            boolean found = delegate.containsValue(value);
+            end(Op.CONTAINS, start);
+            return found;
+        }
+
+        @Override
+        public V get(Object key) {
+            long start = start(Op.GET);
+            V value = delegate.get(key);
+            end(Op.GET, start);
+            return value;
+        }
+
+        @Override
+        public V getOrDefault(Object key, V defaultValue) {
+            long start = start(Op.GET);
+            V value = delegate.getOrDefault(key, defaultValue);
+            end(Op.GET, start);
+            return value;
+        }
+
+        @Override
+        public V put(K key, V value) {
+            long start = start(Op.PUT);
+            V previous = delegate.put(key, value);
+            end(Op.PUT, start);
+            grew();
+            return previous;
+        }
+
+        @Override
+        public V putIfAbsent(K key, V value) {
+            long start = start(Op.PUT);
+            V previous = delegate.putIfAbsent(key, value);
+            end(Op.PUT, start);
+            grew();
+            return previous;
+        }
+
+        @Override
+        public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+            long start = start(Op.PUT);
+            V value = delegate.computeIfAbsent(key, mappingFunction);
+            end(Op.PUT, start);
+            grew();
+            return value;
+        }
+
+        @Override
+        public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            long start = start(Op.PUT);
+            V value = delegate.computeIfPresent(key, remappingFunction);
+            end(Op.PUT, start);
+            return value;
+        }
+
+        @Override
+        public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+            long start = start(Op.PUT);
+            V value = delegate.compute(key, remappingFunction);
+            end(Op.PUT, start);
+            grew();
+            return value;
+        }
+
+        @Override
+        public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+            long start = start(Op.PUT);
+            V merged = delegate.merge(key, value, remappingFunction);
+            end(Op.PUT, start);
+            grew();
+            return merged;
+        }
+
+        @Override
+        public V replace(K key, V value) {
+            long start = start(Op.PUT);
+            V previous = delegate.replace(key, value);
+            end(Op.PUT, start);
+            return previous;
+        }
+
+        @Override
+        public boolean replace(K key, V oldValue, V newValue) {
+            long start = start(Op.PUT);
+            boolean replaced = delegate.replace(key, oldValue, newValue);
+            end(Op.PUT, start);
+            return replaced;
+        }
+
+        @Override
+        public V remove(Object key) {
+            long start = start(Op.REMOVE);
+            V removed = delegate.remove(key);
+            end(Op.REMOVE, start);
+            return removed;
+        }
+
+        @Override
+        public boolean remove(Object key, Object value) {
+            long start = start(Op.REMOVE);
+            boolean removed = delegate.remove(key, value);
+            end(Op.REMOVE, start);
+            return removed;
+        }
+
+        @Override
+        public void putAll(Map<? extends K, ? extends V> m) {
+            long start = start(Op.BULK);
+            delegate.putAll(m);
+            end(Op.BULK, start);
+            grew();
+        }
+
+        @Override
+        public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+            long start = start(Op.BULK);
+            delegate.replaceAll(function);
+            end(Op.BULK, start);
+        }
+
+        @Override
+        public void clear() {
+            long start = start(Op.BULK);
+            delegate.clear();
+            end(Op.BULK, start);
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super K, ? super V> action) {
+            long start = start(Op.ITERATE);
+            delegate.forEach(action);
+            end(Op.ITERATE, start);
+        }
+
+        @Override
+        public Set<K> keySet() {
+            increment(Op.ITERATE);
+            return delegate.keySet();
+        }
+
+        @Override
+        public Collection<V> values() {
+            increment(Op.ITERATE);
+            return delegate.values();
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            increment(Op.ITERATE);
+            return delegate.entrySet();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o == this || delegate.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return delegate.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return delegate.toString();
+        }
+    }
+
+    static final class InstrumentedConcurrentMap<K, V> extends InstrumentedMap<K, V> implements ConcurrentMap<K, V> {
+
+        InstrumentedConcurrentMap(ConcurrentMap<K, V> map, CollectionMetrics metrics) {
+            super(map, metrics);
+        }
+    }
+}
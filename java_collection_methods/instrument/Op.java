@@ -0,0 +1,25 @@
+package instrument;
+
+/** Operation classes counted and timed by {@link Instrumented} decorators. */
+public enum Op {
+    /** {@code get}, {@code getOrDefault}, {@code List.get}. */
+    GET,
+    /** {@code contains}, {@code containsKey}, {@code containsValue}, {@code indexOf}. */
+    CONTAINS,
+    /** {@code add} of a {@code Collection} or {@code List}. */
+    ADD,
+    /** {@code put} and every other single-key map write, and {@code List.set}. */
+    PUT,
+    /** Single-element {@code remove}. */
+    REMOVE,
+    /** {@code iterator}, {@code forEach}, {@code spliterator} and map views. */
+    ITERATE,
+    /** {@code offer}, {@code put} and {@code add} of a queue. */
+    OFFER,
+    /** {@code poll}, {@code take} and {@code remove()} of a queue. */
+    POLL,
+    /** {@code peek} and {@code element}. */
+    PEEK,
+    /** Bulk and whole-collection operations: {@code addAll}, {@code removeIf}, {@code clear}, {@code sort}... */
+    BULK
+}
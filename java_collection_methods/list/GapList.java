@@ -0,0 +1,462 @@
+package list;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Array-backed {@link java.util.List} with a movable gap, for edits that
+ * happen where a cursor currently is: {@code ListIterator.add/remove} while
+ * sweeping the list, or a text-editor style insertion point.
+ *
+ * <p>The backing array holds the elements before the gap, then
+ * {@code capacity - size} unused slots, then the elements after it.
+ * Inserting or removing at index {@code i} first moves the gap to
+ * {@code i} by copying only the elements between the old and new gap
+ * position, then writes into (or widens) the gap. An {@code ArrayList}
+ * shifts the whole tail on every such edit, so a pass that removes or inserts
+ * {@code k} elements costs O(n·k) there and O(n + k) here. Reading is one
+ * extra compare ({@code i < gapStart}) on top of {@code ArrayList.get}, and
+ * iteration stays a walk over one contiguous array.
+ *
+ * <p>Edits at indices far apart from each other still pay for moving the gap
+ * between them, the same O(distance) copy {@code ArrayList} pays.
+ * Same growth policy (≈1.5×), {@code null} handling and fail-fast iterators
+ * as {@code ArrayList}. Not synchronized.
+ */
+public class GapList<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final int DEFAULT_CAPACITY = 10;
+    private static final Object[] EMPTY = {};
+
+    private Object[] elements;
+    /** Elements live in {@code [0, gapStart)} and {@code [gapEnd, elements.length)}. */
+    private int gapStart;
+    private int gapEnd;
+
+    public GapList() {
+        elements = EMPTY;
+    }
+
+    public GapList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal Capacity: " + initialCapacity);
+        }
+        elements = initialCapacity == 0 ? EMPTY : new Object[initialCapacity];
+        gapEnd = initialCapacity;
+    }
+
+    public GapList(Collection<? extends E> c) {
+        elements = c.toArray();
+        if (elements.getClass() != Object[].class) {
+            elements = Arrays.copyOf(elements, elements.length, Object[].class);
+        }
+        gapStart = gapEnd = elements.length;
+    }
+
+    // ===================================================
+    // Positional access
+    // ===================================================
+
+    @Override
+    public int size() {
+        return elements.length - (gapEnd - gapStart);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size());
+        return (E) elements[physical(index)];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E set(int index, E element) {
+        Objects.checkIndex(index, size());
+        int p = physical(index);
+        E old = (E) elements[p];
+        elements[p] = element;
+        return old;
+    }
+
+    @Override
+    public boolean add(E e) {
+        add(size(), e);
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkPositionIndex(index);
+        modCount++;
+        openGap(index, 1);
+        elements[gapStart++] = element;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        return addAll(size(), c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends E> c) {
+        checkPositionIndex(index);
+        Object[] copy = c.toArray();
+        modCount++;
+        if (copy.length == 0) {
+            return false;
+        }
+        openGap(index, copy.length);
+        System.arraycopy(copy, 0, elements, gapStart, copy.length);
+        gapStart += copy.length;
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove(int index) {
+        Objects.checkIndex(index, size());
+        modCount++;
+        moveGap(index);
+        E old = (E) elements[gapEnd];
+        elements[gapEnd++] = null;
+        return old;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        moveGap(fromIndex);
+        Arrays.fill(elements, gapEnd, gapEnd + (toIndex - fromIndex), null);
+        gapEnd += toIndex - fromIndex;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        Arrays.fill(elements, 0, gapStart, null);
+        Arrays.fill(elements, gapEnd, elements.length, null);
+        gapStart = 0;
+        gapEnd = elements.length;
+    }
+
+    // ===================================================
+    // Whole-list operations: one pass, gap ends up at the end
+    // ===================================================
+
+    @Override
+    public int indexOf(Object o) {
+        int size = size();
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(o, elements[physical(i)])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        for (int i = size() - 1; i >= 0; i--) {
+            if (Objects.equals(o, elements[physical(i)])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> action) {
+        int expectedModCount = modCount;
+        Object[] es = elements;
+        for (int i = 0; i < gapStart && modCount == expectedModCount; i++) {
+            action.accept((E) es[i]);
+        }
+        for (int i = gapEnd; i < es.length && modCount == expectedModCount; i++) {
+            action.accept((E) es[i]);
+        }
+        checkForComodification(expectedModCount);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(Predicate<? super E> filter) {
+        Objects.requireNonNull(filter);
+        // Like ArrayList: test everything first, so a throwing filter leaves the list untouched
+        int expectedModCount = modCount;
+        int size = size();
+        long[] doomed = new long[(size + 63) >>> 6];
+        int removed = 0;
+        for (int i = 0; i < size && modCount == expectedModCount; i++) {
+            if (filter.test((E) elements[physical(i)])) {
+                doomed[i >>> 6] |= 1L << i;
+                removed++;
+            }
+        }
+        checkForComodification(expectedModCount);
+        if (removed == 0) {
+            return false;
+        }
+        modCount++;
+        moveGap(size);
+        Object[] es = elements;
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if ((doomed[i >>> 6] & (1L << i)) == 0) {
+                es[kept++] = es[i];
+            }
+        }
+        Arrays.fill(es, kept, size, null);
+        gapStart = kept;
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(UnaryOperator<E> operator) {
+        int expectedModCount = modCount;
+        Object[] es = elements;
+        for (int i = 0; i < gapStart; i++) {
+            es[i] = operator.apply((E) es[i]);
+        }
+        for (int i = gapEnd; i < es.length; i++) {
+            es[i] = operator.apply((E) es[i]);
+        }
+        checkForComodification(expectedModCount);
+        modCount++; // as ArrayList.replaceAll: iterators opened before it fail fast
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        int expectedModCount = modCount;
+        moveGap(size());
+        Arrays.sort((E[]) elements, 0, gapStart, c);
+        checkForComodification(expectedModCount);
+        modCount++;
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] copy = new Object[size()];
+        System.arraycopy(elements, 0, copy, 0, gapStart);
+        System.arraycopy(elements, gapEnd, copy, gapStart, elements.length - gapEnd);
+        return copy;
+    }
+
+    /** Grows the backing array, if needed, to hold at least {@code minCapacity} elements. */
+    public void ensureCapacity(int minCapacity) {
+        int size = size();
+        if (minCapacity > elements.length) {
+            modCount++;
+            openGap(size, minCapacity - size);
+        }
+    }
+
+    /** Shrinks the backing array to the current size, closing the gap. */
+    public void trimToSize() {
+        if (gapEnd > gapStart) {
+            modCount++;
+            elements = size() == 0 ? EMPTY : toArray();
+            gapStart = gapEnd = elements.length;
+        }
+    }
+
+    // ===================================================
+    // Iteration: ListIterator edits move the gap with the cursor
+    // ===================================================
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr(0);
+    }
+
+    @Override
+    public ListIterator<E> listIterator() {
+        return new Itr(0);
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        checkPositionIndex(index);
+        return new Itr(index);
+    }
+
+    private final class Itr implements ListIterator<E> {
+        private int cursor;
+        private int lastRet = -1;
+        private int expectedModCount = modCount;
+
+        Itr(int index) {
+            cursor = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            checkForComodification(expectedModCount);
+            int i = cursor;
+            if (i >= size()) {
+                throw new NoSuchElementException();
+            }
+            cursor = i + 1;
+            return (E) elements[physical(lastRet = i)];
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E previous() {
+            checkForComodification(expectedModCount);
+            int i = cursor - 1;
+            if (i < 0) {
+                throw new NoSuchElementException();
+            }
+            cursor = i;
+            return (E) elements[physical(lastRet = i)];
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (lastRet < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification(expectedModCount);
+            GapList.this.remove(lastRet);
+            cursor = lastRet;
+            lastRet = -1;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(E e) {
+            if (lastRet < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification(expectedModCount);
+            GapList.this.set(lastRet, e);
+        }
+
+        @Override
+        public void add(E e) {
+            checkForComodification(expectedModCount);
+            GapList.this.add(cursor++, e);
+            lastRet = -1;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super E> action) {
+            Objects.requireNonNull(action);
+            int size = size();
+            for (int i = cursor; i < size && modCount == expectedModCount; i++) {
+                action.accept((E) elements[physical(i)]);
+                cursor = i + 1;
+                lastRet = i;
+            }
+            checkForComodification(expectedModCount);
+        }
+    }
+
+    // ===================================================
+    // Gap management
+    // ===================================================
+
+    private int physical(int index) {
+        return index < gapStart ? index : index + (gapEnd - gapStart);
+    }
+
+    /** Moves the gap to start at logical {@code index}, copying only the elements in between. */
+    private void moveGap(int index) {
+        int gap = gapEnd - gapStart;
+        if (index < gapStart) {
+            int n = gapStart - index;
+            System.arraycopy(elements, index, elements, gapEnd - n, n);
+            Arrays.fill(elements, index, Math.min(gapStart, index + gap), null);
+        } else if (index > gapStart) {
+            int n = index - gapStart;
+            System.arraycopy(elements, gapEnd, elements, gapStart, n);
+            Arrays.fill(elements, Math.max(gapEnd, index), index + gap, null);
+        }
+        gapStart = index;
+        gapEnd = index + gap;
+    }
+
+    /** Moves the gap to {@code index} and makes it at least {@code needed} slots wide. */
+    private void openGap(int index, int needed) {
+        if (gapEnd - gapStart >= needed) {
+            moveGap(index);
+            return;
+        }
+        int size = size();
+        int minCapacity = size + needed;
+        if (minCapacity < 0) {
+            throw new OutOfMemoryError("Required array length too large");
+        }
+        int oldCapacity = elements.length;
+        int newCapacity = Math.max(minCapacity, oldCapacity == 0 ? DEFAULT_CAPACITY : oldCapacity + (oldCapacity >> 1));
+        if (newCapacity < 0) { // overflowed past Integer.MAX_VALUE
+            newCapacity = Integer.MAX_VALUE - 8;
+        }
+        Object[] grown = new Object[newCapacity];
+        int tail = size - index;
+        // logical [0, index) and [index, size) are each at most two physical runs
+        copyOut(0, index, grown, 0);
+        copyOut(index, size, grown, newCapacity - tail);
+        elements = grown;
+        gapStart = index;
+        gapEnd = newCapacity - tail;
+    }
+
+    /** Copies logical {@code [from, to)} into {@code dest} at {@code destPos}. */
+    private void copyOut(int from, int to, Object[] dest, int destPos) {
+        int beforeGap = Math.max(0, Math.min(to, gapStart) - from);
+        System.arraycopy(elements, from, dest, destPos, beforeGap);
+        int rest = to - from - beforeGap;
+        System.arraycopy(elements, physical(from + beforeGap), dest, destPos + beforeGap, rest);
+    }
+
+    private void checkPositionIndex(int index) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+
+    private void checkForComodification(int expectedModCount) {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+}
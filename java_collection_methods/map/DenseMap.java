@@ -0,0 +1,456 @@
+package map;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * {@link EnumMap}'s layout for any key type that has a small non-negative
+ * integer code: enum ordinals, protocol opcodes, interned ids, column
+ * numbers.
+ *
+ * <pre>
+ * DenseMap&lt;Opcode, Handler&gt; handlers = new DenseMap&lt;&gt;(Opcode::code);
+ * DenseMap&lt;Level, Integer&gt; counts = DenseMap.forEnum(Level.class);
+ * counts.merge(Level.WARN, 1, Integer::sum);
+ * </pre>
+ *
+ * <p>The entry for code {@code c} sits at slots {@code 2c} (key) and
+ * {@code 2c + 1} (value) of one {@code Object[]}, so a lookup computes the
+ * code, reads two neighbouring slots and compares the stored key with
+ * {@code ==} or {@code equals}: no hashing, no probing, no entry objects,
+ * and key and value on the same cache line. Storing the key lets the map
+ * iterate without a decode function and catch two keys that share a code.
+ * The array grows to the largest code seen, so memory is proportional to
+ * that code, not to {@link #size()}; codes should be dense.
+ *
+ * <p>As in {@code EnumMap}: iteration is in code order, {@code null} keys
+ * are rejected by {@code put} and simply absent for {@code get},
+ * {@code containsKey} and {@code remove}, as are keys of another type;
+ * {@code null} values are allowed. {@code compute}, {@code merge} and the
+ * other default {@code Map} methods are overridden to find the slot once.
+ * Iterators are fail-fast. Not synchronized.
+ */
+public class DenseMap<K, V> extends AbstractMap<K, V> {
+
+    private static final Object[] EMPTY = {};
+    private static final int MAX_CODE = (Integer.MAX_VALUE - 8) / 2 - 1;
+
+    private final ToIntFunction<? super K> code;
+    /** Key of code {@code c} at {@code 2c}, its value at {@code 2c + 1}; a {@code null} key slot is free. */
+    private Object[] table = EMPTY;
+    private int size;
+    private int modCount;
+    private Set<Entry<K, V>> entrySet;
+
+    /** @param code the key's code; must be non-negative, and equal keys must share a code */
+    public DenseMap(ToIntFunction<? super K> code) {
+        this.code = Objects.requireNonNull(code, "code");
+    }
+
+    /** As {@link #DenseMap(ToIntFunction)}, with room for codes below {@code codeLimit}. */
+    public DenseMap(ToIntFunction<? super K> code, int codeLimit) {
+        this(code);
+        if (codeLimit < 0 || codeLimit > MAX_CODE + 1) {
+            throw new IllegalArgumentException("Illegal code limit: " + codeLimit);
+        }
+        table = codeLimit == 0 ? EMPTY : new Object[2 * codeLimit];
+    }
+
+    /** An {@code EnumMap} replacement keyed by ordinal, sized for all of {@code type}'s constants. */
+    public static <E extends Enum<E>, V> DenseMap<E, V> forEnum(Class<E> type) {
+        return new DenseMap<>(Enum::ordinal, type.getEnumConstants().length);
+    }
+
+    // ===================================================
+    // Lookup
+    // ===================================================
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int i = indexOf(key);
+        return i < 0 ? null : (V) table[i + 1];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        int i = indexOf(key);
+        return i < 0 ? defaultValue : (V) table[i + 1];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != null && Objects.equals(value, table[i + 1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        int expected = modCount;
+        Object[] tab = table;
+        for (int i = 0; i < tab.length; i += 2) {
+            if (tab[i] != null) {
+                action.accept((K) tab[i], (V) tab[i + 1]);
+            }
+        }
+        if (modCount != expected) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    // ===================================================
+    // Updates
+    // ===================================================
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        int i = slotFor(key);
+        V old = (V) table[i + 1];
+        if (table[i] == null) {
+            occupy(i, key);
+        }
+        table[i + 1] = value;
+        return old;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(K key, V value) {
+        int i = slotFor(key);
+        V old = (V) table[i + 1];
+        if (table[i] == null) {
+            occupy(i, key);
+        }
+        if (old == null) {
+            table[i + 1] = value;
+        }
+        return old;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        V old = (V) table[i + 1];
+        vacate(i);
+        return old;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        int i = indexOf(key);
+        if (i < 0 || !Objects.equals(value, table[i + 1])) {
+            return false;
+        }
+        vacate(i);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V replace(K key, V value) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return null;
+        }
+        V old = (V) table[i + 1];
+        table[i + 1] = value;
+        return old;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        int i = indexOf(key);
+        if (i < 0 || !Objects.equals(oldValue, table[i + 1])) {
+            return false;
+        }
+        table[i + 1] = newValue;
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        int i = slotFor(key);
+        V old = (V) table[i + 1];
+        if (old != null) {
+            return old;
+        }
+        int expected = modCount;
+        V value = mappingFunction.apply(key);
+        checkUnmodified(expected);
+        if (value != null) {
+            if (table[i] == null) {
+                occupy(i, key);
+            }
+            table[i + 1] = value;
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        int i = indexOf(key);
+        V old = i < 0 ? null : (V) table[i + 1];
+        if (old == null) {
+            return null;
+        }
+        int expected = modCount;
+        V value = remappingFunction.apply(key, old);
+        checkUnmodified(expected);
+        store(i, key, value);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        int i = slotFor(key);
+        int expected = modCount;
+        V value = remappingFunction.apply(key, (V) table[i + 1]);
+        checkUnmodified(expected);
+        store(i, key, value);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value);
+        Objects.requireNonNull(remappingFunction);
+        int i = slotFor(key);
+        V old = (V) table[i + 1];
+        V merged;
+        if (old == null) {
+            merged = value;
+        } else {
+            int expected = modCount;
+            merged = remappingFunction.apply(old, value);
+            checkUnmodified(expected);
+        }
+        store(i, key, merged);
+        return merged;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        int expected = modCount;
+        Object[] tab = table;
+        for (int i = 0; i < tab.length; i += 2) {
+            if (tab[i] != null) {
+                tab[i + 1] = function.apply((K) tab[i], (V) tab[i + 1]);
+            }
+        }
+        checkUnmodified(expected);
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(table, null);
+            size = 0;
+            modCount++;
+        }
+    }
+
+    // ===================================================
+    // Views
+    // ===================================================
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        Set<Entry<K, V>> es = entrySet;
+        if (es == null) {
+            entrySet = es = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    DenseMap.this.clear();
+                }
+            };
+        }
+        return es;
+    }
+
+    /** Walks the slots in code order; entries and {@code remove} write through. */
+    private final class EntryIterator implements Iterator<Entry<K, V>> {
+        private int next = advance(0);
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        private int advance(int from) {
+            Object[] tab = table;
+            while (from < tab.length && tab[from] == null) {
+                from += 2;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < table.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<K, V> next() {
+            checkUnmodified(expectedModCount);
+            if (next >= table.length) {
+                throw new NoSuchElementException();
+            }
+            int i = last = next;
+            next = advance(i + 2);
+            return new SimpleEntry<>((K) table[i], (V) table[i + 1]) {
+                @Override
+                public V setValue(V value) {
+                    if (table[i] == getKey()) {
+                        table[i + 1] = value;
+                    }
+                    return super.setValue(value);
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            checkUnmodified(expectedModCount);
+            vacate(last);
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    // ===================================================
+    // Slots
+    // ===================================================
+
+    /** Key slot of {@code key}, or -1 if absent, {@code null} or not a {@code K}. */
+    @SuppressWarnings("unchecked")
+    private int indexOf(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        int c;
+        try {
+            c = code.applyAsInt((K) key);
+        } catch (ClassCastException e) {
+            return -1;
+        }
+        if (c < 0 || c >= table.length >>> 1) {
+            return -1;
+        }
+        Object k = table[2 * c];
+        return k == key || (k != null && k.equals(key)) ? 2 * c : -1;
+    }
+
+    /**
+     * Key slot for {@code key}, growing the table to reach it; the slot is
+     * either free or holds {@code key}.
+     *
+     * @throws IllegalArgumentException if the code is negative or too large,
+     *                                  or another key already has it
+     */
+    private int slotFor(K key) {
+        int c = code.applyAsInt(Objects.requireNonNull(key, "key"));
+        if (c < 0 || c > MAX_CODE) {
+            throw new IllegalArgumentException("Code out of range for " + key + ": " + c);
+        }
+        if (c >= table.length >>> 1) {
+            int slots = table.length >>> 1;
+            table = Arrays.copyOf(table, 2 * (int) Math.min(MAX_CODE + 1, Math.max(c + 1L, slots + (slots >> 1))));
+        }
+        Object k = table[2 * c];
+        if (k != null && k != key && !k.equals(key)) {
+            throw new IllegalArgumentException("Code " + c + " of " + key + " is already used by " + k);
+        }
+        return 2 * c;
+    }
+
+    /** Stores the result of a remapping function: {@code null} removes. */
+    private void store(int i, K key, V value) {
+        if (value == null) {
+            if (table[i] != null) {
+                vacate(i);
+            }
+            return;
+        }
+        if (table[i] == null) {
+            occupy(i, key);
+        }
+        table[i + 1] = value;
+    }
+
+    private void occupy(int i, K key) {
+        table[i] = key;
+        size++;
+        modCount++;
+    }
+
+    private void vacate(int i) {
+        table[i] = null;
+        table[i + 1] = null;
+        size--;
+        modCount++;
+    }
+
+    private void checkUnmodified(int expected) {
+        if (modCount != expected) {
+            throw new ConcurrentModificationException();
+        }
+    }
+}
@@ -0,0 +1,692 @@
+package offheap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link Deque} whose elements live in memory-mapped segment files instead
+ * of the Java heap — an {@code ArrayDeque} for backlogs that outgrow the heap
+ * and must survive a restart.
+ *
+ * <p><b>Layout.</b> The deque is a run of fixed-size segment files
+ * {@code segment-<id>.dat} with consecutive ids. Each file starts with a
+ * 16-byte header (magic, data start, data end, element count) followed by
+ * records {@code [length][payload][length]}; the trailing length lets
+ * {@code pollLast} walk backwards. {@code addLast} appends after the tail
+ * segment's data and opens segment {@code id + 1} when it is full;
+ * {@code addFirst} writes before the head segment's data and opens segment
+ * {@code id - 1}, filled from its end. Both ends are O(1).
+ *
+ * <p><b>Spilling.</b> Only the head and tail segments are kept mapped, plus
+ * the segment that most recently left either role and one emptied spare.
+ * The segments between them are plain files left to the OS page cache, so
+ * heap usage is constant and resident memory is bounded by what the kernel
+ * chooses to cache. The parked and spare segments stop a deque that
+ * oscillates across a segment boundary (push/pop on a full head) from
+ * creating, mapping and deleting a file on every call; any other emptied
+ * end segment is deleted.
+ *
+ * <p><b>Restart.</b> Every operation updates the segment header in the
+ * mapped page, so {@link #open} rebuilds the deque from the files alone.
+ * Data reaches the OS on every write (surviving a JVM crash); {@link #sync()}
+ * and {@link #close()} additionally force every segment written since the
+ * last sync to the device.
+ *
+ * <p>Restrictions: {@code null} elements are rejected, removal from the
+ * middle ({@code remove(Object)}, {@code removeFirstOccurrence}, iterator
+ * {@code remove}) is unsupported, and the class is not synchronized.
+ */
+public class MappedDeque<E> extends AbstractCollection<E> implements Deque<E>, Closeable {
+
+    /** Default segment file size: 64 MB. */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    private static final int MAGIC = 0x4D445131; // "MDQ1"
+    private static final int HEADER = 16;
+    private static final int RECORD_OVERHEAD = 2 * Integer.BYTES;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(-?\\d+)\\.dat");
+
+    private final Path directory;
+    private final Serializer<E> serializer;
+    private final int segmentSize;
+    private Segment head;
+    private Segment tail;
+    private Segment parked; // last segment to leave the head/tail role, still mapped
+    private Segment spare;  // emptied end segment kept for reuse
+    private final Set<Long> unsynced = new HashSet<>();
+    private long size;
+    private int modCount;
+    private boolean closed;
+
+    private MappedDeque(Path directory, Serializer<E> serializer, int segmentSize) {
+        this.directory = directory;
+        this.serializer = serializer;
+        this.segmentSize = segmentSize;
+    }
+
+    /** Opens (or creates) the deque stored in {@code directory} with 64 MB segments. */
+    public static <E> MappedDeque<E> open(Path directory, Serializer<E> serializer) throws IOException {
+        return open(directory, serializer, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the deque stored in {@code directory}, or creates an empty one.
+     * {@code segmentSize} applies to a new deque; an existing one keeps the
+     * size its files were created with.
+     */
+    public static <E> MappedDeque<E> open(Path directory, Serializer<E> serializer, int segmentSize) throws IOException {
+        Objects.requireNonNull(serializer, "serializer");
+        if (segmentSize < HEADER + RECORD_OVERHEAD + 1) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        Files.createDirectories(directory);
+        List<Long> ids = segmentIds(directory);
+        if (ids.isEmpty()) {
+            MappedDeque<E> deque = new MappedDeque<>(directory, serializer, segmentSize);
+            deque.head = deque.tail = Segment.create(deque.path(0), 0, segmentSize, HEADER);
+            return deque;
+        }
+
+        long first = ids.get(0);
+        long last = ids.get(ids.size() - 1);
+        if (last - first + 1 != ids.size()) {
+            throw new IOException("Missing segment file between " + first + " and " + last + " in " + directory);
+        }
+        // an emptied spare left at either end is not part of the deque
+        while (first < last && Segment.readCount(segmentPath(directory, first)) == 0) {
+            Files.delete(segmentPath(directory, first++));
+        }
+        while (last > first && Segment.readCount(segmentPath(directory, last)) == 0) {
+            Files.delete(segmentPath(directory, last--));
+        }
+        int existingSize = (int) Files.size(segmentPath(directory, first));
+        MappedDeque<E> deque = new MappedDeque<>(directory, serializer, existingSize);
+        deque.head = Segment.open(deque.path(first), first, existingSize);
+        deque.tail = first == last ? deque.head : Segment.open(deque.path(last), last, existingSize);
+        deque.size = deque.head.count + (first == last ? 0 : deque.tail.count);
+        for (long id = first + 1; id < last; id++) {
+            deque.size += Segment.readCount(deque.path(id));
+        }
+        return deque;
+    }
+
+    // ===================================================
+    // Adding at both ends
+    // ===================================================
+
+    @Override
+    public void addLast(E e) {
+        byte[] payload = serialize(e);
+        int need = payload.length + RECORD_OVERHEAD;
+        ensureOpen();
+        if (tail.end + need > segmentSize) {
+            if (size == 0) {
+                tail.reset(HEADER);
+            } else {
+                Segment previous = tail;
+                tail = createSegment(tail.id + 1, HEADER);
+                demote(previous);
+            }
+        }
+        tail.writeRecord(tail.end, payload);
+        tail.end += need;
+        tail.count++;
+        tail.writeHeader();
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public void addFirst(E e) {
+        byte[] payload = serialize(e);
+        int need = payload.length + RECORD_OVERHEAD;
+        ensureOpen();
+        if (head.start - need < HEADER) {
+            if (size == 0) {
+                head.reset(segmentSize);
+            } else {
+                Segment previous = head;
+                head = createSegment(head.id - 1, segmentSize);
+                demote(previous);
+            }
+        }
+        head.start -= need;
+        head.writeRecord(head.start, payload);
+        head.count++;
+        head.writeHeader();
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public boolean offerFirst(E e) {
+        addFirst(e);
+        return true;
+    }
+
+    @Override
+    public boolean offerLast(E e) {
+        addLast(e);
+        return true;
+    }
+
+    @Override
+    public boolean add(E e) {
+        addLast(e);
+        return true;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        addLast(e);
+        return true;
+    }
+
+    @Override
+    public void push(E e) {
+        addFirst(e);
+    }
+
+    // ===================================================
+    // Removing / examining at both ends
+    // ===================================================
+
+    @Override
+    public E pollFirst() {
+        ensureOpen();
+        if (size == 0) {
+            return null;
+        }
+        int length = head.buffer.getInt(head.start);
+        E e = deserialize(head, head.start + Integer.BYTES, length);
+        head.start += length + RECORD_OVERHEAD;
+        head.count--;
+        size--;
+        modCount++;
+        if (head.count == 0 && head != tail) {
+            Segment emptied = head;
+            head = head.id + 1 == tail.id ? tail : openSegment(head.id + 1);
+            discard(emptied);
+        } else {
+            if (size == 0) {
+                head.reset(HEADER);
+            }
+            head.writeHeader();
+        }
+        return e;
+    }
+
+    @Override
+    public E pollLast() {
+        ensureOpen();
+        if (size == 0) {
+            return null;
+        }
+        int length = tail.buffer.getInt(tail.end - Integer.BYTES);
+        E e = deserialize(tail, tail.end - Integer.BYTES - length, length);
+        tail.end -= length + RECORD_OVERHEAD;
+        tail.count--;
+        size--;
+        modCount++;
+        if (tail.count == 0 && tail != head) {
+            Segment emptied = tail;
+            tail = tail.id - 1 == head.id ? head : openSegment(tail.id - 1);
+            discard(emptied);
+        } else {
+            if (size == 0) {
+                tail.reset(HEADER);
+            }
+            tail.writeHeader();
+        }
+        return e;
+    }
+
+    @Override
+    public E peekFirst() {
+        ensureOpen();
+        if (size == 0) {
+            return null;
+        }
+        return deserialize(head, head.start + Integer.BYTES, head.buffer.getInt(head.start));
+    }
+
+    @Override
+    public E peekLast() {
+        ensureOpen();
+        if (size == 0) {
+            return null;
+        }
+        int length = tail.buffer.getInt(tail.end - Integer.BYTES);
+        return deserialize(tail, tail.end - Integer.BYTES - length, length);
+    }
+
+    @Override
+    public E removeFirst() {
+        E e = pollFirst();
+        if (e == null) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public E removeLast() {
+        E e = pollLast();
+        if (e == null) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public E getFirst() {
+        E e = peekFirst();
+        if (e == null) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public E getLast() {
+        E e = peekLast();
+        if (e == null) {
+            throw new NoSuchElementException();
+        }
+        return e;
+    }
+
+    @Override
+    public E poll() {
+        return pollFirst();
+    }
+
+    @Override
+    public E peek() {
+        return peekFirst();
+    }
+
+    @Override
+    public E remove() {
+        return removeFirst();
+    }
+
+    @Override
+    public E element() {
+        return getFirst();
+    }
+
+    @Override
+    public E pop() {
+        return removeFirst();
+    }
+
+    /** Unsupported: records cannot be removed from the middle of a segment. */
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        throw new UnsupportedOperationException("MappedDeque supports removal at the ends only");
+    }
+
+    /** Unsupported: records cannot be removed from the middle of a segment. */
+    @Override
+    public boolean removeLastOccurrence(Object o) {
+        throw new UnsupportedOperationException("MappedDeque supports removal at the ends only");
+    }
+
+    /** Unsupported: records cannot be removed from the middle of a segment. */
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("MappedDeque supports removal at the ends only");
+    }
+
+    // ===================================================
+    // Size / lifecycle
+    // ===================================================
+
+    @Override
+    public int size() {
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /** Exact element count, which may exceed {@code Integer.MAX_VALUE}. */
+    public long longSize() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Removes every element and deletes all segment files but one. */
+    @Override
+    public void clear() {
+        ensureOpen();
+        for (long id = head.id + 1; id <= tail.id; id++) {
+            deleteQuietly(path(id));
+        }
+        if (spare != null) {
+            deleteQuietly(path(spare.id));
+        }
+        parked = null;
+        spare = null;
+        unsynced.clear();
+        tail = head;
+        head.reset(HEADER);
+        head.writeHeader();
+        size = 0;
+        modCount++;
+    }
+
+    /** Forces the head and tail segments, and every segment written since the last sync, to the device. */
+    public void sync() {
+        ensureOpen();
+        head.buffer.force();
+        if (tail != head) {
+            tail.buffer.force();
+        }
+        for (long id : unsynced) {
+            if (id > head.id && id < tail.id) {
+                try (FileChannel channel = FileChannel.open(path(id), StandardOpenOption.WRITE)) {
+                    channel.force(false); // flushes the page cache the mapping wrote through
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        unsynced.clear();
+    }
+
+    /** Syncs and closes; the files stay on disk for the next {@link #open}. */
+    @Override
+    public void close() {
+        if (!closed) {
+            sync();
+            closed = true;
+        }
+    }
+
+    // ===================================================
+    // Iteration (fail-fast, read-only)
+    // ===================================================
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr(true);
+    }
+
+    @Override
+    public Iterator<E> descendingIterator() {
+        return new Itr(false);
+    }
+
+    private final class Itr implements Iterator<E> {
+        private final boolean forward;
+        private final int expectedModCount = modCount;
+        private long remaining = size;
+        private long segmentId;
+        private Segment segment;
+        private int position;
+
+        Itr(boolean forward) {
+            this.forward = forward;
+            if (size > 0) {
+                enter(forward ? head.id : tail.id);
+            }
+        }
+
+        private void enter(long id) {
+            segmentId = id;
+            segment = segment(id);
+            position = forward ? segment.start : segment.end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            if (forward ? position == segment.end : position == segment.start) {
+                enter(forward ? segmentId + 1 : segmentId - 1);
+            }
+            remaining--;
+            ByteBuffer buffer = segment.buffer;
+            if (forward) {
+                int length = buffer.getInt(position);
+                E e = deserialize(segment, position + Integer.BYTES, length);
+                position += length + RECORD_OVERHEAD;
+                return e;
+            }
+            int length = buffer.getInt(position - Integer.BYTES);
+            position -= length + RECORD_OVERHEAD;
+            return deserialize(segment, position + Integer.BYTES, length);
+        }
+    }
+
+    // ===================================================
+    // Segment management
+    // ===================================================
+
+    private byte[] serialize(E e) {
+        Objects.requireNonNull(e);
+        byte[] payload = serializer.toBytes(e);
+        if (payload.length > segmentSize - HEADER - RECORD_OVERHEAD) {
+            throw new IllegalArgumentException("Element of " + payload.length
+                    + " bytes does not fit in a " + segmentSize + "-byte segment");
+        }
+        return payload;
+    }
+
+    private E deserialize(Segment segment, int offset, int length) {
+        byte[] bytes = new byte[length];
+        segment.buffer.get(offset, bytes);
+        return serializer.fromBytes(bytes);
+    }
+
+    /** New end segment {@code id}, reusing the spare if it is that segment. */
+    private Segment createSegment(long id, int position) {
+        if (spare != null && spare.id == id) {
+            Segment segment = spare;
+            spare = null;
+            segment.reset(position);
+            segment.writeHeader();
+            return segment;
+        }
+        try {
+            return Segment.create(path(id), id, segmentSize, position);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Maps segment {@code id} to become the new head or tail. */
+    private Segment openSegment(long id) {
+        if (parked != null && parked.id == id) {
+            Segment segment = parked;
+            parked = null;
+            return segment;
+        }
+        try {
+            return Segment.open(path(id), id, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Segment {@code id} for reading, mapping it only if it is not already. */
+    private Segment segment(long id) {
+        if (id == head.id) {
+            return head;
+        }
+        if (id == tail.id) {
+            return tail;
+        }
+        if (parked != null && parked.id == id) {
+            return parked;
+        }
+        try {
+            return Segment.open(path(id), id, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** {@code segment} just stopped being the head or tail. */
+    private void demote(Segment segment) {
+        unsynced.add(segment.id);
+        if (segment != head && segment != tail) {
+            parked = segment;
+        }
+    }
+
+    /** {@code segment} was emptied and left the deque: keep it as the spare. */
+    private void discard(Segment segment) {
+        segment.writeHeader();
+        if (spare != null) {
+            deleteQuietly(path(spare.id));
+        }
+        unsynced.remove(segment.id);
+        spare = segment;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Deque is closed");
+        }
+    }
+
+    private Path path(long id) {
+        return segmentPath(directory, id);
+    }
+
+    private static Path segmentPath(Path directory, long id) {
+        return directory.resolve("segment-" + id + ".dat");
+    }
+
+    private static List<Long> segmentIds(Path directory) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.dat")) {
+            for (Path file : files) {
+                Matcher m = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (m.matches()) {
+                    ids.add(Long.parseLong(m.group(1)));
+                }
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    /** One mapped segment file: header {@code [magic][start][end][count]} then records. */
+    private static final class Segment {
+        final long id;
+        final MappedByteBuffer buffer;
+        int start;
+        int end;
+        int count;
+
+        private Segment(long id, MappedByteBuffer buffer) {
+            this.id = id;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path path, long id, int size, int position) throws IOException {
+            Segment segment = new Segment(id, map(path, size, StandardOpenOption.CREATE_NEW));
+            segment.buffer.putInt(0, MAGIC);
+            segment.reset(position);
+            segment.writeHeader();
+            return segment;
+        }
+
+        static Segment open(Path path, long id, int size) throws IOException {
+            if (Files.size(path) != size) {
+                throw new IOException("Unexpected segment size " + Files.size(path) + " for " + path);
+            }
+            Segment segment = new Segment(id, map(path, size));
+            if (segment.buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a deque segment: " + path);
+            }
+            segment.start = segment.buffer.getInt(4);
+            segment.end = segment.buffer.getInt(8);
+            segment.count = segment.buffer.getInt(12);
+            return segment;
+        }
+
+        /** Element count from the header, without mapping the file. */
+        static int readCount(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                while (header.hasRemaining() && channel.read(header) >= 0) {
+                    // keep reading until the header is complete
+                }
+                if (header.getInt(0) != MAGIC) {
+                    throw new IOException("Not a deque segment: " + path);
+                }
+                return header.getInt(12);
+            }
+        }
+
+        private static MappedByteBuffer map(Path path, int size, StandardOpenOption... extra) throws IOException {
+            List<StandardOpenOption> options = new ArrayList<>(List.of(StandardOpenOption.READ, StandardOpenOption.WRITE));
+            Collections.addAll(options, extra);
+            try (FileChannel channel = FileChannel.open(path, options.toArray(new StandardOpenOption[0]))) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, size); // mapping outlives the channel
+            }
+        }
+
+        void reset(int position) {
+            start = position;
+            end = position;
+            count = 0;
+        }
+
+        void writeRecord(int offset, byte[] payload) {
+            buffer.putInt(offset, payload.length);
+            buffer.put(offset + Integer.BYTES, payload);
+            buffer.putInt(offset + Integer.BYTES + payload.length, payload.length);
+        }
+
+        void writeHeader() {
+            buffer.putInt(4, start);
+            buffer.putInt(8, end);
+            buffer.putInt(12, count);
+        }
+    }
+}
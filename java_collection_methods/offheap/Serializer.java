@@ -0,0 +1,80 @@
+package offheap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts deque elements to and from the bytes stored off-heap.
+ * {@code fromBytes(toBytes(e))} must equal {@code e}.
+ */
+public interface Serializer<E> {
+
+    byte[] toBytes(E element);
+
+    E fromBytes(byte[] bytes);
+
+    /** UTF-8 strings. */
+    static Serializer<String> utf8() {
+        return new Serializer<>() {
+            @Override
+            public byte[] toBytes(String element) {
+                return element.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String fromBytes(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    /** Big-endian 8-byte longs. */
+    static Serializer<Long> longs() {
+        return new Serializer<>() {
+            @Override
+            public byte[] toBytes(Long element) {
+                return ByteBuffer.allocate(Long.BYTES).putLong(element).array();
+            }
+
+            @Override
+            public Long fromBytes(byte[] bytes) {
+                return ByteBuffer.wrap(bytes).getLong();
+            }
+        };
+    }
+
+    /** Standard Java serialization; convenient, but slow and large. */
+    static <E extends Serializable> Serializer<E> java() {
+        return new Serializer<>() {
+            @Override
+            public byte[] toBytes(E element) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(element);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return bytes.toByteArray();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E fromBytes(byte[] bytes) {
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return (E) in.readObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+    }
+}
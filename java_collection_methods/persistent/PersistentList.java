@@ -0,0 +1,437 @@
+package persistent;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+/**
+ * Immutable list whose "modifying" methods return a new version that shares
+ * all but O(log<sub>32</sub> n) nodes with the old one — a persistent
+ * vector in the style of Clojure's and Scala's.
+ *
+ * <p>Elements live in a trie of 32-wide arrays: index {@code i} is found by
+ * taking five bits of {@code i} per level, so a million elements need four
+ * levels. The last (up to) 32 elements sit in a separate tail array, which
+ * makes {@link #with(Object)} amortized O(1). {@link #with(int, Object)}
+ * copies only the path from the root to one leaf.
+ *
+ * <pre>
+ * PersistentList&lt;String&gt; v1 = PersistentList.of("Apple", "Banana");
+ * PersistentList&lt;String&gt; v2 = v1.with("Cherry");      // v1 unchanged
+ * PersistentList&lt;String&gt; v3 = v2.with(0, "Avocado");   // v2 unchanged
+ * </pre>
+ *
+ * <p>For many updates in a row use {@link #asTransient()}: the returned
+ * {@link Transient} mutates nodes it created itself in place, and only
+ * copies nodes shared with other versions. A transient is a builder for a
+ * single thread and must not be used after {@link Transient#persistent()}.
+ *
+ * <p>The {@link java.util.List} mutators ({@code add}, {@code set},
+ * {@code remove}, ...) throw {@code UnsupportedOperationException}. Unlike
+ * RRB vectors this trie is not relaxed, so there is no O(log n)
+ * concatenation or insertion in the middle. {@code null} elements are
+ * allowed.
+ */
+public final class PersistentList<E> extends AbstractList<E> implements RandomAccess {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final Node EMPTY_NODE = new Node(null, new Object[WIDTH]);
+    private static final PersistentList<?> EMPTY = new PersistentList<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+    /** Trie node; {@code edit} is the token of the transient allowed to mutate it in place. */
+    static final class Node {
+        final Object edit;
+        final Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+    }
+
+    private final int size;
+    private final int shift;
+    private final Node root;
+    private final Object[] tail;
+
+    private PersistentList(int size, int shift, Node root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentList<E> empty() {
+        return (PersistentList<E>) EMPTY;
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <E> PersistentList<E> of(E... elements) {
+        return copyOf(Arrays.asList(elements));
+    }
+
+    public static <E> PersistentList<E> copyOf(Collection<? extends E> elements) {
+        Transient<E> builder = PersistentList.<E>empty().asTransient();
+        for (E e : elements) {
+            builder.add(e);
+        }
+        return builder.persistent();
+    }
+
+    // ===================================================
+    // Reading
+    // ===================================================
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return (E) leafFor(index)[index & MASK];
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int index;
+            private Object[] leaf = size == 0 ? null : leafFor(0);
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                if (index != 0 && (index & MASK) == 0) {
+                    leaf = leafFor(index); // one trie walk per 32 elements
+                }
+                return (E) leaf[index++ & MASK];
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super E> action) {
+        for (int i = 0; i < size; i += WIDTH) {
+            Object[] leaf = leafFor(i);
+            int end = Math.min(WIDTH, size - i);
+            for (int j = 0; j < end; j++) {
+                action.accept((E) leaf[j]);
+            }
+        }
+    }
+
+    // ===================================================
+    // Persistent updates: each returns a new version
+    // ===================================================
+
+    /** This list with {@code e} appended. */
+    public PersistentList<E> with(E e) {
+        if (size - tailOffset() < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = e;
+            return new PersistentList<>(size + 1, shift, root, newTail);
+        }
+        Node tailNode = new Node(null, tail);
+        Node newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            // the trie is full: grow a level
+            Object[] array = new Object[WIDTH];
+            array[0] = root;
+            array[1] = newPath(null, shift, tailNode);
+            newRoot = new Node(null, array);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(null, size, shift, root, tailNode);
+        }
+        return new PersistentList<>(size + 1, newShift, newRoot, new Object[] {e});
+    }
+
+    /** This list with the element at {@code index} replaced by {@code e}. */
+    public PersistentList<E> with(int index, E e) {
+        Objects.checkIndex(index, size);
+        if (index >= tailOffset()) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = e;
+            return new PersistentList<>(size, shift, root, newTail);
+        }
+        return new PersistentList<>(size, shift, assoc(null, shift, root, index, e), tail);
+    }
+
+    /** This list with all of {@code elements} appended, built through a transient. */
+    public PersistentList<E> withAll(Collection<? extends E> elements) {
+        Transient<E> builder = asTransient();
+        for (E e : elements) {
+            builder.add(e);
+        }
+        return builder.persistent();
+    }
+
+    /**
+     * This list without its last element.
+     *
+     * @throws IllegalStateException if the list is empty
+     */
+    public PersistentList<E> withoutLast() {
+        if (size == 0) {
+            throw new IllegalStateException("Empty list");
+        }
+        if (size == 1) {
+            return empty();
+        }
+        if (size - tailOffset() > 1) {
+            return new PersistentList<>(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+        }
+        Object[] newTail = leafFor(size - 2);
+        Node newRoot = popTail(null, size, shift, root);
+        int newShift = shift;
+        if (newRoot == null) {
+            newRoot = EMPTY_NODE;
+        }
+        if (shift > BITS && newRoot.array[1] == null) {
+            newRoot = (Node) newRoot.array[0];
+            newShift -= BITS;
+        }
+        return new PersistentList<>(size - 1, newShift, newRoot, newTail);
+    }
+
+    /** A mutable builder starting from this version; this list is not affected. */
+    public Transient<E> asTransient() {
+        return new Transient<>(this);
+    }
+
+    // ===================================================
+    // Transient builder
+    // ===================================================
+
+    /**
+     * Single-threaded builder over a {@link PersistentList}. Nodes it copies
+     * are stamped with its edit token and updated in place afterwards, so a
+     * batch of n appends costs about as much as filling an {@code ArrayList}.
+     */
+    public static final class Transient<E> {
+        private Object edit = new Object();
+        private int size;
+        private int shift;
+        private Node root;
+        private Object[] tail;
+
+        private Transient(PersistentList<E> list) {
+            this.size = list.size;
+            this.shift = list.shift;
+            this.root = new Node(edit, list.root.array.clone());
+            this.tail = Arrays.copyOf(list.tail, WIDTH);
+        }
+
+        public int size() {
+            ensureEditable();
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            ensureEditable();
+            Objects.checkIndex(index, size);
+            return (E) leafFor(index)[index & MASK];
+        }
+
+        public Transient<E> add(E e) {
+            ensureEditable();
+            int tailCount = size - tailOffset(size);
+            if (tailCount < WIDTH) {
+                tail[tailCount] = e;
+                size++;
+                return this;
+            }
+            Node tailNode = new Node(edit, tail);
+            tail = new Object[WIDTH];
+            tail[0] = e;
+            if ((size >>> BITS) > (1 << shift)) {
+                Object[] array = new Object[WIDTH];
+                array[0] = root;
+                array[1] = newPath(edit, shift, tailNode);
+                root = new Node(edit, array);
+                shift += BITS;
+            } else {
+                root = pushTail(edit, size, shift, root, tailNode);
+            }
+            size++;
+            return this;
+        }
+
+        public Transient<E> set(int index, E e) {
+            ensureEditable();
+            Objects.checkIndex(index, size);
+            if (index >= tailOffset(size)) {
+                tail[index & MASK] = e;
+            } else {
+                root = assoc(edit, shift, root, index, e);
+            }
+            return this;
+        }
+
+        public Transient<E> removeLast() {
+            ensureEditable();
+            if (size == 0) {
+                throw new IllegalStateException("Empty list");
+            }
+            if (size == 1 || size - tailOffset(size) > 1) {
+                size--;
+                tail[size & MASK] = null;
+                return this;
+            }
+            Object[] newTail = editableLeafFor(size - 2);
+            Node newRoot = popTail(edit, size, shift, root);
+            if (newRoot == null) {
+                newRoot = new Node(edit, new Object[WIDTH]);
+            }
+            if (shift > BITS && newRoot.array[1] == null) {
+                newRoot = (Node) newRoot.array[0];
+                shift -= BITS;
+            }
+            root = newRoot;
+            tail = newTail;
+            size--;
+            return this;
+        }
+
+        /** Freezes the builder into a list; the builder cannot be used afterwards. */
+        public PersistentList<E> persistent() {
+            ensureEditable();
+            edit = null; // nodes stamped with the old token are now immutable
+            if (size == 0) {
+                return empty();
+            }
+            Object[] trimmed = Arrays.copyOf(tail, size - tailOffset(size));
+            return new PersistentList<>(size, shift, root, trimmed);
+        }
+
+        private void ensureEditable() {
+            if (edit == null) {
+                throw new IllegalStateException("Transient used after persistent()");
+            }
+        }
+
+        private Object[] leafFor(int index) {
+            if (index >= tailOffset(size)) {
+                return tail;
+            }
+            Node node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                node = (Node) node.array[(index >>> level) & MASK];
+            }
+            return node.array;
+        }
+
+        /** The leaf holding {@code index}, copied if it is shared, to become the new tail. */
+        private Object[] editableLeafFor(int index) {
+            Object[] leaf = leafFor(index);
+            return leaf.length == WIDTH ? leaf.clone() : Arrays.copyOf(leaf, WIDTH);
+        }
+    }
+
+    // ===================================================
+    // Trie internals (edit == null: copy every node touched)
+    // ===================================================
+
+    private int tailOffset() {
+        return tailOffset(size);
+    }
+
+    private static int tailOffset(int size) {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] leafFor(int index) {
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Node) node.array[(index >>> level) & MASK];
+        }
+        return node.array;
+    }
+
+    private static Node editable(Object edit, Node node) {
+        return edit != null && node.edit == edit ? node : new Node(edit, node.array.clone());
+    }
+
+    private static Node newPath(Object edit, int level, Node node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] array = new Object[WIDTH];
+        array[0] = newPath(edit, level - BITS, node);
+        return new Node(edit, array);
+    }
+
+    /** Appends the full {@code tailNode} as the leaf for elements {@code [size - 32, size)}. */
+    private static Node pushTail(Object edit, int size, int level, Node parent, Node tailNode) {
+        Node result = editable(edit, parent);
+        int child = ((size - 1) >>> level) & MASK;
+        Node toInsert;
+        if (level == BITS) {
+            toInsert = tailNode;
+        } else {
+            Node existing = (Node) parent.array[child];
+            toInsert = existing != null
+                    ? pushTail(edit, size, level - BITS, existing, tailNode)
+                    : newPath(edit, level - BITS, tailNode);
+        }
+        result.array[child] = toInsert;
+        return result;
+    }
+
+    private static Node assoc(Object edit, int level, Node node, int index, Object e) {
+        Node result = editable(edit, node);
+        if (level == 0) {
+            result.array[index & MASK] = e;
+        } else {
+            int child = (index >>> level) & MASK;
+            result.array[child] = assoc(edit, level - BITS, (Node) node.array[child], index, e);
+        }
+        return result;
+    }
+
+    /** Removes the rightmost leaf (elements {@code [size - 33, size - 1)} become the tail). */
+    private static Node popTail(Object edit, int size, int level, Node node) {
+        int child = ((size - 2) >>> level) & MASK;
+        if (level > BITS) {
+            Node newChild = popTail(edit, size, level - BITS, (Node) node.array[child]);
+            if (newChild == null && child == 0) {
+                return null;
+            }
+            Node result = editable(edit, node);
+            result.array[child] = newChild;
+            return result;
+        }
+        if (child == 0) {
+            return null;
+        }
+        Node result = editable(edit, node);
+        result.array[child] = null;
+        return result;
+    }
+}
@@ -0,0 +1,546 @@
+package persistent;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import primitive.HashSupport;
+
+/**
+ * Immutable hash map whose "modifying" methods return a new version sharing
+ * all but O(log<sub>32</sub> n) nodes with the old one — a hash array mapped
+ * trie (HAMT) as in Clojure and Scala.
+ *
+ * <p>Each trie level consumes five bits of the key's spread hash. A node
+ * stores a 32-bit bitmap of which of its 32 possible children exist plus a
+ * dense array of just those, so a node with three entries costs three
+ * slots, not 32. Keys whose full 32-bit hashes are equal share a collision
+ * node. {@link #with(Object, Object)} and {@link #without(Object)} copy
+ * only the nodes on the path to the key: replacing
+ * {@code new HashMap<>(map)} before a change with {@code map.with(k, v)}
+ * turns an O(n) copy into about {@code log32(n)} small array copies.
+ *
+ * <pre>
+ * PersistentMap&lt;String, Integer&gt; v1 = PersistentMap.of("Apple", 10);
+ * PersistentMap&lt;String, Integer&gt; v2 = v1.with("Banana", 20); // v1 unchanged
+ * </pre>
+ *
+ * <p>{@link #asTransient()} returns a single-threaded {@link Transient}
+ * builder for batches of updates; it mutates nodes it created in place. The
+ * {@link Map} mutators throw {@code UnsupportedOperationException}.
+ * {@code null} keys and values are rejected.
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    private final Node root; // null when empty
+    private final int size;
+    private Set<Entry<K, V>> entrySet;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    public static <K, V> PersistentMap<K, V> of(K key, V value) {
+        return PersistentMap.<K, V>empty().with(key, value);
+    }
+
+    public static <K, V> PersistentMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentMap) {
+            @SuppressWarnings("unchecked") PersistentMap<K, V> same = (PersistentMap<K, V>) map;
+            return same;
+        }
+        Transient<K, V> builder = PersistentMap.<K, V>empty().asTransient();
+        map.forEach(builder::put);
+        return builder.persistent();
+    }
+
+    // ===================================================
+    // Reading
+    // ===================================================
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        return root == null ? null : (V) root.find(0, hash(key), key);
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (root != null) {
+            root.forEach((BiConsumer<Object, Object>) action);
+        }
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        Set<Entry<K, V>> es = entrySet;
+        if (es == null) {
+            entrySet = es = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return es;
+    }
+
+    // ===================================================
+    // Persistent updates: each returns a new version
+    // ===================================================
+
+    /** This map with {@code key} mapped to {@code value}; {@code this} if already so. */
+    public PersistentMap<K, V> with(K key, V value) {
+        Objects.requireNonNull(value, "value");
+        int h = hash(key);
+        boolean[] added = new boolean[1];
+        Node newRoot = root == null
+                ? BitmapNode.EMPTY.assoc(null, 0, h, key, value, added)
+                : root.assoc(null, 0, h, key, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /** This map without {@code key}; {@code this} if it was absent. */
+    public PersistentMap<K, V> without(Object key) {
+        if (root == null) {
+            return this;
+        }
+        boolean[] removed = new boolean[1];
+        Node newRoot = root.without(null, 0, hash(key), key, removed);
+        if (!removed[0]) {
+            return this;
+        }
+        return newRoot == null ? empty() : new PersistentMap<>(newRoot, size - 1);
+    }
+
+    /** A mutable builder starting from this version; this map is not affected. */
+    public Transient<K, V> asTransient() {
+        return new Transient<>(this);
+    }
+
+    // ===================================================
+    // Immutable through the Map interface
+    // ===================================================
+
+    @Override
+    public V put(K key, V value) {
+        throw new UnsupportedOperationException("Use with(key, value)");
+    }
+
+    @Override
+    public V remove(Object key) {
+        throw new UnsupportedOperationException("Use without(key)");
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        throw new UnsupportedOperationException("Use asTransient()");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("Use PersistentMap.empty()");
+    }
+
+    // ===================================================
+    // Transient builder
+    // ===================================================
+
+    /** Single-threaded builder over a {@link PersistentMap}; see {@link PersistentList.Transient}. */
+    public static final class Transient<K, V> {
+        private Object edit = new Object();
+        private Node root;
+        private int size;
+
+        private Transient(PersistentMap<K, V> map) {
+            this.root = map.root;
+            this.size = map.size;
+        }
+
+        public int size() {
+            ensureEditable();
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            ensureEditable();
+            return root == null ? null : (V) root.find(0, hash(key), key);
+        }
+
+        public Transient<K, V> put(K key, V value) {
+            ensureEditable();
+            Objects.requireNonNull(value, "value");
+            boolean[] added = new boolean[1];
+            Node start = root == null ? BitmapNode.EMPTY : root;
+            root = start.assoc(edit, 0, hash(key), key, value, added);
+            if (added[0]) {
+                size++;
+            }
+            return this;
+        }
+
+        public Transient<K, V> remove(Object key) {
+            ensureEditable();
+            if (root != null) {
+                boolean[] removed = new boolean[1];
+                root = root.without(edit, 0, hash(key), key, removed);
+                if (removed[0]) {
+                    size--;
+                }
+            }
+            return this;
+        }
+
+        /** Freezes the builder into a map; the builder cannot be used afterwards. */
+        public PersistentMap<K, V> persistent() {
+            ensureEditable();
+            edit = null;
+            return size == 0 ? empty() : new PersistentMap<>(root, size);
+        }
+
+        private void ensureEditable() {
+            if (edit == null) {
+                throw new IllegalStateException("Transient used after persistent()");
+            }
+        }
+    }
+
+    // ===================================================
+    // HAMT nodes (edit == null: copy every node touched)
+    // ===================================================
+
+    static int hash(Object key) {
+        return HashSupport.mix(key.hashCode());
+    }
+
+    /**
+     * Key/value pairs in a flat array: {@code [k0, v0, k1, v1, ...]}; in a
+     * {@link BitmapNode} a {@code null} key marks a pair whose value is a
+     * child node.
+     */
+    abstract static class Node {
+        final Object edit;
+        Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+
+        abstract Object find(int shift, int hash, Object key);
+
+        abstract Node assoc(Object edit, int shift, int hash, Object key, Object value, boolean[] added);
+
+        /** The node without {@code key}, or {@code null} if it became empty; sets {@code removed[0]} if present. */
+        abstract Node without(Object edit, int shift, int hash, Object key, boolean[] removed);
+
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                Object k = array[i];
+                if (k != null) {
+                    action.accept(k, array[i + 1]);
+                } else if (array[i + 1] != null) {
+                    ((Node) array[i + 1]).forEach(action);
+                }
+            }
+        }
+
+        boolean isEditable(Object edit) {
+            return edit != null && this.edit == edit;
+        }
+    }
+
+    static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+        int bitmap;
+
+        BitmapNode(Object edit, int bitmap, Object[] array) {
+            super(edit, array);
+            this.bitmap = bitmap;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int i = 2 * index(bit);
+            Object k = array[i];
+            if (k == null) {
+                return ((Node) array[i + 1]).find(shift + BITS, hash, key);
+            }
+            return key.equals(k) ? array[i + 1] : null;
+        }
+
+        @Override
+        Node assoc(Object edit, int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int i = 2 * index(bit);
+            if ((bitmap & bit) != 0) {
+                Object k = array[i];
+                Object v = array[i + 1];
+                if (k == null) {
+                    Node child = ((Node) v).assoc(edit, shift + BITS, hash, key, value, added);
+                    return child == v ? this : set(edit, i + 1, child);
+                }
+                if (key.equals(k)) {
+                    return v == value ? this : set(edit, i + 1, value);
+                }
+                added[0] = true;
+                Node child = pair(edit, shift + BITS, k, v, hash, key, value);
+                BitmapNode result = editable(edit);
+                result.array[i] = null;
+                result.array[i + 1] = child;
+                return result;
+            }
+            added[0] = true;
+            Object[] grown = new Object[array.length + 2];
+            System.arraycopy(array, 0, grown, 0, i);
+            grown[i] = key;
+            grown[i + 1] = value;
+            System.arraycopy(array, i, grown, i + 2, array.length - i);
+            if (isEditable(edit)) {
+                array = grown;
+                bitmap |= bit;
+                return this;
+            }
+            return new BitmapNode(edit, bitmap | bit, grown);
+        }
+
+        @Override
+        Node without(Object edit, int shift, int hash, Object key, boolean[] removed) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int i = 2 * index(bit);
+            Object k = array[i];
+            Object v = array[i + 1];
+            if (k == null) {
+                Node child = ((Node) v).without(edit, shift + BITS, hash, key, removed);
+                if (child == v) {
+                    return this;
+                }
+                if (child != null) {
+                    return set(edit, i + 1, child);
+                }
+            } else if (!key.equals(k)) {
+                return this;
+            } else {
+                removed[0] = true;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] shrunk = new Object[array.length - 2];
+            System.arraycopy(array, 0, shrunk, 0, i);
+            System.arraycopy(array, i + 2, shrunk, i, array.length - i - 2);
+            if (isEditable(edit)) {
+                array = shrunk;
+                bitmap ^= bit;
+                return this;
+            }
+            return new BitmapNode(edit, bitmap ^ bit, shrunk);
+        }
+
+        private BitmapNode editable(Object edit) {
+            return isEditable(edit) ? this : new BitmapNode(edit, bitmap, array.clone());
+        }
+
+        private BitmapNode set(Object edit, int i, Object value) {
+            BitmapNode result = editable(edit);
+            result.array[i] = value;
+            return result;
+        }
+
+        /** A node holding two entries that collided at the level above. */
+        private static Node pair(Object edit, int shift, Object k1, Object v1, int h2, Object k2, Object v2) {
+            int h1 = hash(k1);
+            if (h1 == h2) {
+                return new CollisionNode(edit, h1, new Object[] {k1, v1, k2, v2});
+            }
+            boolean[] ignored = new boolean[1];
+            return new BitmapNode(edit, 0, new Object[0])
+                    .assoc(edit, shift, h1, k1, v1, ignored)
+                    .assoc(edit, shift, h2, k2, v2, ignored);
+        }
+    }
+
+    /** Entries whose full 32-bit hashes are equal, compared by {@code equals}. */
+    static final class CollisionNode extends Node {
+        final int hash;
+
+        CollisionNode(Object edit, int hash, Object[] array) {
+            super(edit, array);
+            this.hash = hash;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int i = indexOf(key);
+            return i < 0 ? null : array[i + 1];
+        }
+
+        @Override
+        Node assoc(Object edit, int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // a different hash reached this level: push this node one level down
+                BitmapNode parent = new BitmapNode(edit, 1 << ((this.hash >>> shift) & MASK), new Object[] {null, this});
+                return parent.assoc(edit, shift, hash, key, value, added);
+            }
+            int i = indexOf(key);
+            if (i >= 0) {
+                if (array[i + 1] == value) {
+                    return this;
+                }
+                if (isEditable(edit)) {
+                    array[i + 1] = value;
+                    return this;
+                }
+                Object[] copy = array.clone();
+                copy[i + 1] = value;
+                return new CollisionNode(edit, hash, copy);
+            }
+            added[0] = true;
+            Object[] grown = Arrays.copyOf(array, array.length + 2);
+            grown[array.length] = key;
+            grown[array.length + 1] = value;
+            if (isEditable(edit)) {
+                array = grown;
+                return this;
+            }
+            return new CollisionNode(edit, hash, grown);
+        }
+
+        @Override
+        Node without(Object edit, int shift, int hash, Object key, boolean[] removed) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return this;
+            }
+            removed[0] = true;
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] shrunk = new Object[array.length - 2];
+            System.arraycopy(array, 0, shrunk, 0, i);
+            System.arraycopy(array, i + 2, shrunk, i, array.length - i - 2);
+            if (isEditable(edit)) {
+                array = shrunk;
+                return this;
+            }
+            return new CollisionNode(edit, hash, shrunk);
+        }
+    }
+
+    /** Depth-first iteration with an explicit stack of (node, position) frames. */
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final Deque<Object[]> nodes = new ArrayDeque<>();
+        private final Deque<int[]> positions = new ArrayDeque<>();
+        private Entry<K, V> next;
+
+        EntryIterator(Node root) {
+            if (root != null) {
+                nodes.push(root.array);
+                positions.push(new int[1]);
+            }
+            next = advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private Entry<K, V> advance() {
+            while (!nodes.isEmpty()) {
+                Object[] array = nodes.peek();
+                int[] position = positions.peek();
+                if (position[0] >= array.length) {
+                    nodes.pop();
+                    positions.pop();
+                    continue;
+                }
+                int i = position[0];
+                position[0] += 2;
+                if (array[i] != null) {
+                    return new SimpleImmutableEntry<>((K) array[i], (V) array[i + 1]);
+                }
+                nodes.push(((Node) array[i + 1]).array);
+                positions.push(new int[1]);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> e = next;
+            next = advance();
+            return e;
+        }
+    }
+}
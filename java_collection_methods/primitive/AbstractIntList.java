@@ -0,0 +1,369 @@
+package primitive;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Skeletal {@link IntList}, the primitive counterpart of
+ * {@link java.util.AbstractList}. Subclasses provide {@code size}, {@code get},
+ * {@code set}, {@code add(int, int)} and {@code removeAt}, and bump
+ * {@link #modCount} on structural changes; everything else, including the
+ * fail-fast list iterator and the {@code subList} view, is built on those.
+ */
+public abstract class AbstractIntList implements IntList {
+
+    /** Number of structural modifications, checked by iterators and sub-lists. */
+    protected transient int modCount;
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean add(int value) {
+        add(size(), value);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(IntList values) {
+        return addAll(size(), values);
+    }
+
+    @Override
+    public boolean addAll(int index, IntList values) {
+        checkPositionIndex(index, size());
+        int[] copy = values.toArray(); // values may be a view of this list
+        for (int value : copy) {
+            add(index++, value);
+        }
+        return copy.length != 0;
+    }
+
+    @Override
+    public boolean removeValue(int value) {
+        int index = indexOf(value);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public boolean contains(int value) {
+        return indexOf(value) >= 0;
+    }
+
+    @Override
+    public int indexOf(int value) {
+        for (int i = 0, n = size(); i < n; i++) {
+            if (get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(int value) {
+        for (int i = size() - 1; i >= 0; i--) {
+            if (get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public IntList subList(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex, size());
+        return new SubList(this, fromIndex, toIndex);
+    }
+
+    @Override
+    public IntListIterator listIterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public IntListIterator listIterator(int index) {
+        checkPositionIndex(index, size());
+        return new Itr(index);
+    }
+
+    @Override
+    public void replaceAll(IntUnaryOperator operator) {
+        for (int i = 0, n = size(); i < n; i++) {
+            set(i, operator.applyAsInt(get(i)));
+        }
+    }
+
+    @Override
+    public void sort() {
+        int[] values = toArray();
+        Arrays.sort(values);
+        for (int i = 0; i < values.length; i++) {
+            set(i, values[i]);
+        }
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+        for (int i = 0, n = size(); i < n; i++) {
+            action.accept(get(i));
+        }
+    }
+
+    @Override
+    public void clear() {
+        removeRange(0, size());
+    }
+
+    /** Removes {@code [fromIndex, toIndex)}; subclasses override with a bulk shift. */
+    protected void removeRange(int fromIndex, int toIndex) {
+        for (int i = toIndex - 1; i >= fromIndex; i--) {
+            removeAt(i);
+        }
+    }
+
+    @Override
+    public int[] toArray() {
+        int[] values = new int[size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+
+    @Override
+    public IntStream stream() {
+        return Arrays.stream(toArray());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof IntList)) {
+            return false;
+        }
+        IntList other = (IntList) o;
+        int n = size();
+        if (other.size() != n) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (get(i) != other.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0, n = size(); i < n; i++) {
+            hash = 31 * hash + Integer.hashCode(get(i));
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        int n = size();
+        if (n == 0) {
+            return "[]";
+        }
+        StringBuilder sb = new StringBuilder().append('[');
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    static void checkPositionIndex(int index, int size) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    static void checkRange(int fromIndex, int toIndex, int size) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size);
+        }
+    }
+
+    // ===================================================
+    // Fail-fast list iterator
+    // ===================================================
+    private class Itr implements IntListIterator {
+        int cursor;
+        int lastReturned = -1;
+        int expectedModCount = modCount;
+
+        Itr(int index) {
+            cursor = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size();
+        }
+
+        @Override
+        public int nextInt() {
+            checkForComodification();
+            if (cursor >= size()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = cursor;
+            return get(cursor++);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        @Override
+        public int previousInt() {
+            checkForComodification();
+            if (cursor <= 0) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = --cursor;
+            return get(cursor);
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            removeAt(lastReturned);
+            cursor = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(int value) {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            AbstractIntList.this.set(lastReturned, value);
+        }
+
+        @Override
+        public void add(int value) {
+            checkForComodification();
+            AbstractIntList.this.add(cursor++, value);
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    // ===================================================
+    // subList view
+    // ===================================================
+    private static final class SubList extends AbstractIntList {
+        private final AbstractIntList parent;
+        private final int offset;
+        private int size;
+
+        SubList(AbstractIntList parent, int fromIndex, int toIndex) {
+            this.parent = parent;
+            this.offset = fromIndex;
+            this.size = toIndex - fromIndex;
+            this.modCount = parent.modCount;
+        }
+
+        @Override
+        public int size() {
+            checkForComodification();
+            return size;
+        }
+
+        @Override
+        public int get(int index) {
+            checkIndex(index, size);
+            checkForComodification();
+            return parent.get(offset + index);
+        }
+
+        @Override
+        public int set(int index, int value) {
+            checkIndex(index, size);
+            checkForComodification();
+            return parent.set(offset + index, value);
+        }
+
+        @Override
+        public void add(int index, int value) {
+            checkPositionIndex(index, size);
+            checkForComodification();
+            parent.add(offset + index, value);
+            modCount = parent.modCount;
+            size++;
+        }
+
+        @Override
+        public int removeAt(int index) {
+            checkIndex(index, size);
+            checkForComodification();
+            int removed = parent.removeAt(offset + index);
+            modCount = parent.modCount;
+            size--;
+            return removed;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            checkForComodification();
+            parent.removeRange(offset + fromIndex, offset + toIndex);
+            modCount = parent.modCount;
+            size -= toIndex - fromIndex;
+        }
+
+        private void checkForComodification() {
+            if (parent.modCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
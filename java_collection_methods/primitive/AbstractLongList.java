@@ -0,0 +1,369 @@
+package primitive;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.LongStream;
+
+/**
+ * Skeletal {@link LongList}, the primitive counterpart of
+ * {@link java.util.AbstractList}. Subclasses provide {@code size}, {@code get},
+ * {@code set}, {@code add(int, long)} and {@code removeAt}, and bump
+ * {@link #modCount} on structural changes; everything else, including the
+ * fail-fast list iterator and the {@code subList} view, is built on those.
+ */
+public abstract class AbstractLongList implements LongList {
+
+    /** Number of structural modifications, checked by iterators and sub-lists. */
+    protected transient int modCount;
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean add(long value) {
+        add(size(), value);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(LongList values) {
+        return addAll(size(), values);
+    }
+
+    @Override
+    public boolean addAll(int index, LongList values) {
+        checkPositionIndex(index, size());
+        long[] copy = values.toArray(); // values may be a view of this list
+        for (long value : copy) {
+            add(index++, value);
+        }
+        return copy.length != 0;
+    }
+
+    @Override
+    public boolean removeValue(long value) {
+        int index = indexOf(value);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public boolean contains(long value) {
+        return indexOf(value) >= 0;
+    }
+
+    @Override
+    public int indexOf(long value) {
+        for (int i = 0, n = size(); i < n; i++) {
+            if (get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(long value) {
+        for (int i = size() - 1; i >= 0; i--) {
+            if (get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public LongList subList(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex, size());
+        return new SubList(this, fromIndex, toIndex);
+    }
+
+    @Override
+    public LongListIterator listIterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public LongListIterator listIterator(int index) {
+        checkPositionIndex(index, size());
+        return new Itr(index);
+    }
+
+    @Override
+    public void replaceAll(LongUnaryOperator operator) {
+        for (int i = 0, n = size(); i < n; i++) {
+            set(i, operator.applyAsLong(get(i)));
+        }
+    }
+
+    @Override
+    public void sort() {
+        long[] values = toArray();
+        Arrays.sort(values);
+        for (int i = 0; i < values.length; i++) {
+            set(i, values[i]);
+        }
+    }
+
+    @Override
+    public void forEach(LongConsumer action) {
+        for (int i = 0, n = size(); i < n; i++) {
+            action.accept(get(i));
+        }
+    }
+
+    @Override
+    public void clear() {
+        removeRange(0, size());
+    }
+
+    /** Removes {@code [fromIndex, toIndex)}; subclasses override with a bulk shift. */
+    protected void removeRange(int fromIndex, int toIndex) {
+        for (int i = toIndex - 1; i >= fromIndex; i--) {
+            removeAt(i);
+        }
+    }
+
+    @Override
+    public long[] toArray() {
+        long[] values = new long[size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+
+    @Override
+    public LongStream stream() {
+        return Arrays.stream(toArray());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof LongList)) {
+            return false;
+        }
+        LongList other = (LongList) o;
+        int n = size();
+        if (other.size() != n) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (get(i) != other.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0, n = size(); i < n; i++) {
+            hash = 31 * hash + Long.hashCode(get(i));
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        int n = size();
+        if (n == 0) {
+            return "[]";
+        }
+        StringBuilder sb = new StringBuilder().append('[');
+        for (int i = 0; i < n; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    static void checkPositionIndex(int index, int size) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    static void checkRange(int fromIndex, int toIndex, int size) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size);
+        }
+    }
+
+    // ===================================================
+    // Fail-fast list iterator
+    // ===================================================
+    private class Itr implements LongListIterator {
+        int cursor;
+        int lastReturned = -1;
+        int expectedModCount = modCount;
+
+        Itr(int index) {
+            cursor = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size();
+        }
+
+        @Override
+        public long nextLong() {
+            checkForComodification();
+            if (cursor >= size()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = cursor;
+            return get(cursor++);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        @Override
+        public long previousLong() {
+            checkForComodification();
+            if (cursor <= 0) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = --cursor;
+            return get(cursor);
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            removeAt(lastReturned);
+            cursor = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(long value) {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            AbstractLongList.this.set(lastReturned, value);
+        }
+
+        @Override
+        public void add(long value) {
+            checkForComodification();
+            AbstractLongList.this.add(cursor++, value);
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    // ===================================================
+    // subList view
+    // ===================================================
+    private static final class SubList extends AbstractLongList {
+        private final AbstractLongList parent;
+        private final int offset;
+        private int size;
+
+        SubList(AbstractLongList parent, int fromIndex, int toIndex) {
+            this.parent = parent;
+            this.offset = fromIndex;
+            this.size = toIndex - fromIndex;
+            this.modCount = parent.modCount;
+        }
+
+        @Override
+        public int size() {
+            checkForComodification();
+            return size;
+        }
+
+        @Override
+        public long get(int index) {
+            checkIndex(index, size);
+            checkForComodification();
+            return parent.get(offset + index);
+        }
+
+        @Override
+        public long set(int index, long value) {
+            checkIndex(index, size);
+            checkForComodification();
+            return parent.set(offset + index, value);
+        }
+
+        @Override
+        public void add(int index, long value) {
+            checkPositionIndex(index, size);
+            checkForComodification();
+            parent.add(offset + index, value);
+            modCount = parent.modCount;
+            size++;
+        }
+
+        @Override
+        public long removeAt(int index) {
+            checkIndex(index, size);
+            checkForComodification();
+            long removed = parent.removeAt(offset + index);
+            modCount = parent.modCount;
+            size--;
+            return removed;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            checkForComodification();
+            parent.removeRange(offset + fromIndex, offset + toIndex);
+            modCount = parent.modCount;
+            size -= toIndex - fromIndex;
+        }
+
+        private void checkForComodification() {
+            if (parent.modCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package primitive;
+
+/**
+ * Sizing and hashing helpers shared by the open-addressing tables in this
+ * package and in {@code concurrent}. Tables are powers of two and always keep
+ * at least one empty slot, so every probe loop terminates.
+ */
+public final class HashSupport {
+
+    private static final int MIN_CAPACITY = 4;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private HashSupport() {
+    }
+
+    public static float checkLoadFactor(float loadFactor) {
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+        }
+        return loadFactor;
+    }
+
+    /** Smallest power-of-two table that holds {@code expectedSize} entries below {@code loadFactor}. */
+    public static int tableSize(int expectedSize, float loadFactor) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Illegal expected size: " + expectedSize);
+        }
+        long needed = (long) Math.ceil(expectedSize / (double) loadFactor) + 1;
+        if (needed > MAX_CAPACITY) {
+            return MAX_CAPACITY;
+        }
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit((int) needed - 1) << 1);
+    }
+
+    public static int threshold(int capacity, float loadFactor) {
+        return Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    /**
+     * Spreads a hash code so that the low bits used as a table index depend on
+     * all input bits (Fibonacci multiply, then fold the high half down).
+     */
+    public static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public static int mix(long hash) {
+        return mix((int) (hash ^ (hash >>> 32)));
+    }
+
+    /**
+     * Whether the entry at {@code slot}, whose ideal position is {@code home},
+     * may move back into {@code hole} during backward-shift deletion — that is,
+     * {@code home} is not cyclically within {@code (hole, slot]}.
+     */
+    public static boolean canShift(int home, int hole, int slot) {
+        return hole <= slot
+                ? home <= hole || home > slot
+                : home <= hole && home > slot;
+    }
+}
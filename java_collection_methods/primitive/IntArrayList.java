@@ -0,0 +1,220 @@
+package primitive;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.RandomAccess;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Resizable {@code int[]}-backed {@link IntList} — {@code ArrayList<Integer>}
+ * without the boxing. Each element costs {@value #BYTES_PER_ELEMENT} bytes in
+ * the backing array instead of a reference plus a {@code Integer} object.
+ *
+ * <p>Same growth policy as {@code ArrayList} (≈1.5×), same
+ * {@code ensureCapacity}/{@code trimToSize} controls, same fail-fast
+ * iterators. Not synchronized.
+ */
+public class IntArrayList extends AbstractIntList implements RandomAccess {
+
+    private static final int DEFAULT_CAPACITY = 10;
+    private static final int BYTES_PER_ELEMENT = Integer.BYTES;
+    private static final int[] EMPTY = {};
+
+    private int[] elements;
+    private int size;
+
+    public IntArrayList() {
+        elements = EMPTY;
+    }
+
+    public IntArrayList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal Capacity: " + initialCapacity);
+        }
+        elements = initialCapacity == 0 ? EMPTY : new int[initialCapacity];
+    }
+
+    /** A mutable list holding a copy of {@code values}. */
+    public static IntArrayList of(int... values) {
+        IntArrayList list = new IntArrayList();
+        list.elements = values.length == 0 ? EMPTY : values.clone();
+        list.size = values.length;
+        return list;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int get(int index) {
+        checkIndex(index, size);
+        return elements[index];
+    }
+
+    @Override
+    public int set(int index, int value) {
+        checkIndex(index, size);
+        int old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    @Override
+    public boolean add(int value) {
+        modCount++;
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        elements[size++] = value;
+        return true;
+    }
+
+    @Override
+    public void add(int index, int value) {
+        checkPositionIndex(index, size);
+        modCount++;
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+    }
+
+    @Override
+    public boolean addAll(int index, IntList values) {
+        checkPositionIndex(index, size);
+        int[] copy = values.toArray();
+        int n = copy.length;
+        modCount++;
+        if (n == 0) {
+            return false;
+        }
+        if (size + n > elements.length) {
+            grow(size + n);
+        }
+        System.arraycopy(elements, index, elements, index + n, size - index);
+        System.arraycopy(copy, 0, elements, index, n);
+        size += n;
+        return true;
+    }
+
+    @Override
+    public int removeAt(int index) {
+        checkIndex(index, size);
+        modCount++;
+        int old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return old;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+        size -= toIndex - fromIndex;
+    }
+
+    @Override
+    public int indexOf(int value) {
+        int[] es = elements;
+        for (int i = 0; i < size; i++) {
+            if (es[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(int value) {
+        int[] es = elements;
+        for (int i = size - 1; i >= 0; i--) {
+            if (es[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void replaceAll(IntUnaryOperator operator) {
+        int expectedModCount = modCount;
+        int[] es = elements;
+        for (int i = 0; i < size; i++) {
+            es[i] = operator.applyAsInt(es[i]);
+        }
+        checkForComodification(expectedModCount);
+    }
+
+    @Override
+    public void sort() {
+        Arrays.sort(elements, 0, size);
+        modCount++;
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+        int expectedModCount = modCount;
+        int[] es = elements;
+        for (int i = 0; i < size; i++) {
+            action.accept(es[i]);
+        }
+        checkForComodification(expectedModCount);
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    @Override
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    @Override
+    public IntStream stream() {
+        return Arrays.stream(elements, 0, size);
+    }
+
+    /** Grows the backing array, if needed, to hold at least {@code minCapacity} elements. */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) {
+            modCount++;
+            grow(minCapacity);
+        }
+    }
+
+    /** Shrinks the backing array to the current size. */
+    public void trimToSize() {
+        if (size < elements.length) {
+            modCount++;
+            elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+        }
+    }
+
+    private void grow(int minCapacity) {
+        int oldCapacity = elements.length;
+        int newCapacity = Math.max(minCapacity, oldCapacity == 0 ? DEFAULT_CAPACITY : oldCapacity + (oldCapacity >> 1));
+        if (newCapacity < 0) { // overflowed past Integer.MAX_VALUE
+            if (minCapacity < 0) {
+                throw new OutOfMemoryError("Required array length too large");
+            }
+            newCapacity = Integer.MAX_VALUE - 8;
+        }
+        elements = Arrays.copyOf(elements, newCapacity);
+    }
+
+    private void checkForComodification(int expectedModCount) {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package primitive;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Open-addressing map from {@code int} keys to {@code int} values —
+ * {@code HashMap<Integer, Integer>} in two flat {@code int[]} arrays.
+ *
+ * <p>Linear probing with backward-shift deletion, like {@link ObjectIntMap}.
+ * Key {@code 0} marks an empty slot in the table, so a mapping for key
+ * {@code 0} is kept in a dedicated field beside it.
+ *
+ * <p>As in {@link ObjectIntMap}, {@link #get(int)} returns {@code 0} for an
+ * absent key and remapping functions cannot remove entries. Not synchronized.
+ */
+public class IntIntMap {
+
+    /** {@code (key, value) -> newValue}. */
+    @FunctionalInterface
+    public interface EntryFunction {
+        int apply(int key, int value);
+    }
+
+    /** {@code (key, value) -> void}. */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, int value);
+    }
+
+    private static final int EMPTY = 0;
+
+    private final float loadFactor;
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int threshold;
+    private int size; // entries in the table, not counting the zero key
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    public IntIntMap() {
+        this(16, ObjectIntMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    public IntIntMap(int expectedSize) {
+        this(expectedSize, ObjectIntMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param expectedSize number of entries to hold without resizing
+     * @param loadFactor   fill ratio that triggers a resize, in {@code (0, 1)}
+     */
+    public IntIntMap(int expectedSize, float loadFactor) {
+        this.loadFactor = HashSupport.checkLoadFactor(loadFactor);
+        allocate(HashSupport.tableSize(expectedSize, loadFactor));
+    }
+
+    public int size() {
+        return hasZeroKey ? size + 1 : size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // ===================================================
+    // Retrieving
+    // ===================================================
+
+    /** The value for {@code key}, or {@code 0} if absent. */
+    public int get(int key) {
+        return getOrDefault(key, 0);
+    }
+
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == EMPTY) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public boolean containsKey(int key) {
+        return key == EMPTY ? hasZeroKey : find(key) >= 0;
+    }
+
+    public boolean containsValue(int value) {
+        if (hasZeroKey && zeroValue == value) {
+            return true;
+        }
+        int[] ks = keys;
+        for (int i = 0; i < ks.length; i++) {
+            if (ks[i] != EMPTY && values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ===================================================
+    // Adding / updating
+    // ===================================================
+
+    /** Associates {@code value} with {@code key}; returns the previous value or {@code 0}. */
+    public int put(int key, int value) {
+        if (key == EMPTY) {
+            int old = zeroValue;
+            zeroValue = value;
+            hasZeroKey = true;
+            return old;
+        }
+        int slot = insertionSlot(key);
+        if (slot >= 0) {
+            int old = values[slot];
+            values[slot] = value;
+            return old;
+        }
+        insertAt(~slot, key, value);
+        return 0;
+    }
+
+    public void putAll(IntIntMap other) {
+        other.forEach(this::put);
+    }
+
+    public void putAll(Map<Integer, Integer> other) {
+        other.forEach(this::put);
+    }
+
+    /** Puts only if absent; returns the existing value, or {@code 0} if it was inserted. */
+    public int putIfAbsent(int key, int value) {
+        if (key == EMPTY) {
+            if (hasZeroKey) {
+                return zeroValue;
+            }
+            zeroValue = value;
+            hasZeroKey = true;
+            return 0;
+        }
+        int slot = insertionSlot(key);
+        if (slot >= 0) {
+            return values[slot];
+        }
+        insertAt(~slot, key, value);
+        return 0;
+    }
+
+    public boolean replace(int key, int oldValue, int newValue) {
+        if (key == EMPTY) {
+            if (!hasZeroKey || zeroValue != oldValue) {
+                return false;
+            }
+            zeroValue = newValue;
+            return true;
+        }
+        int slot = find(key);
+        if (slot < 0 || values[slot] != oldValue) {
+            return false;
+        }
+        values[slot] = newValue;
+        return true;
+    }
+
+    /** Replaces the value only if {@code key} is present; returns the previous value or {@code 0}. */
+    public int replace(int key, int value) {
+        if (!containsKey(key)) {
+            return 0;
+        }
+        return put(key, value);
+    }
+
+    public void replaceAll(EntryFunction function) {
+        if (hasZeroKey) {
+            zeroValue = function.apply(EMPTY, zeroValue);
+        }
+        int[] ks = keys;
+        for (int i = 0; i < ks.length; i++) {
+            if (ks[i] != EMPTY) {
+                values[i] = function.apply(ks[i], values[i]);
+            }
+        }
+    }
+
+    // ===================================================
+    // Compute / merge (allocation-free)
+    // ===================================================
+
+    /**
+     * Stores {@code function(key, current)} where {@code current} is the mapped
+     * value or {@code 0} if absent, and returns it.
+     */
+    public int compute(int key, EntryFunction function) {
+        if (key == EMPTY) {
+            zeroValue = function.apply(key, hasZeroKey ? zeroValue : 0);
+            hasZeroKey = true;
+            return zeroValue;
+        }
+        int slot = insertionSlot(key);
+        if (slot >= 0) {
+            return values[slot] = function.apply(key, values[slot]);
+        }
+        int value = function.apply(key, 0);
+        insertAt(~slot, key, value);
+        return value;
+    }
+
+    /** Inserts {@code function(key)} if absent; returns the (existing or new) value. */
+    public int computeIfAbsent(int key, IntUnaryOperator function) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                zeroValue = function.applyAsInt(key);
+                hasZeroKey = true;
+            }
+            return zeroValue;
+        }
+        int slot = insertionSlot(key);
+        if (slot >= 0) {
+            return values[slot];
+        }
+        int value = function.applyAsInt(key);
+        insertAt(~slot, key, value);
+        return value;
+    }
+
+    /** Replaces the value with {@code function(key, value)} if present; returns it, or {@code 0} if absent. */
+    public int computeIfPresent(int key, EntryFunction function) {
+        if (key == EMPTY) {
+            return hasZeroKey ? (zeroValue = function.apply(key, zeroValue)) : 0;
+        }
+        int slot = find(key);
+        if (slot < 0) {
+            return 0;
+        }
+        return values[slot] = function.apply(key, values[slot]);
+    }
+
+    /** Puts {@code value} if absent, otherwise {@code function(old, value)}; returns the new value. */
+    public int merge(int key, int value, IntBinaryOperator function) {
+        if (key == EMPTY) {
+            zeroValue = hasZeroKey ? function.applyAsInt(zeroValue, value) : value;
+            hasZeroKey = true;
+            return zeroValue;
+        }
+        int slot = insertionSlot(key);
+        if (slot >= 0) {
+            return values[slot] = function.applyAsInt(values[slot], value);
+        }
+        insertAt(~slot, key, value);
+        return value;
+    }
+
+    // ===================================================
+    // Removing
+    // ===================================================
+
+    /** Removes {@code key}; returns its value or {@code 0} if it was absent. */
+    public int remove(int key) {
+        if (key == EMPTY) {
+            int old = hasZeroKey ? zeroValue : 0;
+            hasZeroKey = false;
+            zeroValue = 0;
+            return old;
+        }
+        int slot = find(key);
+        if (slot < 0) {
+            return 0;
+        }
+        int old = values[slot];
+        removeAt(slot);
+        return old;
+    }
+
+    public boolean remove(int key, int value) {
+        if (!containsKey(key) || get(key) != value) {
+            return false;
+        }
+        remove(key);
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        hasZeroKey = false;
+        zeroValue = 0;
+    }
+
+    // ===================================================
+    // Iteration / Object methods
+    // ===================================================
+
+    public void forEach(EntryConsumer action) {
+        if (hasZeroKey) {
+            action.accept(EMPTY, zeroValue);
+        }
+        int[] ks = keys;
+        for (int i = 0; i < ks.length; i++) {
+            if (ks[i] != EMPTY) {
+                action.accept(ks[i], values[i]);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof IntIntMap)) {
+            return false;
+        }
+        IntIntMap other = (IntIntMap) o;
+        if (other.size() != size()) {
+            return false;
+        }
+        if (hasZeroKey && (!other.hasZeroKey || other.zeroValue != zeroValue)) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                int slot = other.find(keys[i]);
+                if (slot < 0 || other.values[slot] != values[i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Same formula as {@link Map#hashCode()}, so it matches an equal {@code Map<Integer, Integer>}. */
+    @Override
+    public int hashCode() {
+        int hash = hasZeroKey ? zeroValue : 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                hash += keys[i] ^ values[i];
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('{');
+        forEach((k, v) -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    // ===================================================
+    // Open addressing internals
+    // ===================================================
+
+    private int find(int key) {
+        int[] ks = keys;
+        int i = HashSupport.mix(key) & mask;
+        for (int k; (k = ks[i]) != EMPTY; i = (i + 1) & mask) {
+            if (k == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int insertionSlot(int key) {
+        int[] ks = keys;
+        int i = HashSupport.mix(key) & mask;
+        for (int k; (k = ks[i]) != EMPTY; i = (i + 1) & mask) {
+            if (k == key) {
+                return i;
+            }
+        }
+        return ~i;
+    }
+
+    private void insertAt(int slot, int key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    private void removeAt(int hole) {
+        int[] ks = keys;
+        int[] vs = values;
+        size--;
+        for (int i = (hole + 1) & mask; ks[i] != EMPTY; i = (i + 1) & mask) {
+            int home = HashSupport.mix(ks[i]) & mask;
+            if (HashSupport.canShift(home, hole, i)) {
+                ks[hole] = ks[i];
+                vs[hole] = vs[i];
+                hole = i;
+            }
+        }
+        ks[hole] = EMPTY;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int k = oldKeys[i];
+            if (k != EMPTY) {
+                int slot = HashSupport.mix(k) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = k;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        threshold = HashSupport.threshold(capacity, loadFactor);
+    }
+}
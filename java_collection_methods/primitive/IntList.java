@@ -0,0 +1,70 @@
+package primitive;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * An ordered sequence of {@code int} values with the positional operations of
+ * {@link java.util.List}, without boxing each element into a {@code Integer}.
+ *
+ * <p>Methods mirror their {@code List} counterparts; the only renames avoid
+ * overload clashes between an index and a value of the same primitive type:
+ * {@link #removeAt(int)} is {@code remove(int index)} and
+ * {@link #removeValue(int)} is {@code remove(Object)}.
+ *
+ * <p>{@link #equals(Object)} and {@link #hashCode()} follow the {@code List}
+ * contract, so a {@code IntList} has the same hash code as a {@code List<Integer>}
+ * holding the same values.
+ */
+public interface IntList {
+
+    int size();
+
+    boolean isEmpty();
+
+    int get(int index);
+
+    /** Replaces the value at {@code index} and returns the previous one. */
+    int set(int index, int value);
+
+    boolean add(int value);
+
+    void add(int index, int value);
+
+    boolean addAll(IntList values);
+
+    boolean addAll(int index, IntList values);
+
+    /** Removes the value at {@code index} and returns it. */
+    int removeAt(int index);
+
+    /** Removes the first occurrence of {@code value}; returns whether it was present. */
+    boolean removeValue(int value);
+
+    boolean contains(int value);
+
+    int indexOf(int value);
+
+    int lastIndexOf(int value);
+
+    /** A view of {@code [fromIndex, toIndex)}; changes write through to this list. */
+    IntList subList(int fromIndex, int toIndex);
+
+    IntListIterator listIterator();
+
+    IntListIterator listIterator(int index);
+
+    void replaceAll(IntUnaryOperator operator);
+
+    /** Sorts in ascending numeric order. */
+    void sort();
+
+    void forEach(IntConsumer action);
+
+    void clear();
+
+    int[] toArray();
+
+    IntStream stream();
+}
@@ -0,0 +1,33 @@
+package primitive;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * {@link java.util.ListIterator} for a {@link IntList}: bidirectional
+ * traversal plus {@code add}/{@code set}/{@code remove} at the cursor, with
+ * {@code int} in place of the boxed element type.
+ *
+ * <p>Like the iterators of {@code ArrayList}, implementations are fail-fast:
+ * a structural change made to the list by anything other than the iterator
+ * itself causes a {@link java.util.ConcurrentModificationException}.
+ */
+public interface IntListIterator extends PrimitiveIterator.OfInt {
+
+    boolean hasPrevious();
+
+    int previousInt();
+
+    int nextIndex();
+
+    int previousIndex();
+
+    /** Removes the value last returned by {@code nextInt()} or {@code previousInt()}. */
+    @Override
+    void remove();
+
+    /** Replaces the value last returned by {@code nextInt()} or {@code previousInt()}. */
+    void set(int value);
+
+    /** Inserts {@code value} immediately before the cursor. */
+    void add(int value);
+}
@@ -0,0 +1,592 @@
+package primitive;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Compressed bitmap set of {@code int}s, in the style of Roaring bitmaps. It
+ * replaces {@code HashSet<Integer>} for sets of ids that are intersected,
+ * merged and subtracted often.
+ *
+ * <p>Values are split on their high 16 bits into chunks, kept in a sorted
+ * array. Each chunk stores the low 16 bits of its values in the smallest of
+ * three forms (see {@link Container}):
+ * <ul>
+ *   <li>a sorted {@code char[]}, 2 bytes per value, when sparse;</li>
+ *   <li>a 65,536-bit bitmap, 8 KB, when dense;</li>
+ *   <li>runs of consecutive values, 4 bytes per run.</li>
+ * </ul>
+ * One million random ids out of ten million take about 1.3 bytes each, and
+ * one million spread over a billion about 3.4. A {@code HashSet<Integer>}
+ * takes about 56.
+ *
+ * <p>The static {@link #and}, {@link #or}, {@link #andNot} and {@link #xor}
+ * work chunk by chunk on the packed forms, never element by element. They
+ * merge two sorted arrays, AND two bitmaps a word at a time in a loop that C2
+ * compiles to SIMD instructions, or intersect runs by their boundaries. They
+ * return a new set and leave their arguments alone. The instance methods of
+ * the same name, and {@code addAll}/{@code retainAll}/{@code removeAll}
+ * given another {@code IntSet}, update this set in place.
+ * {@link #andCardinality} and {@link #intersects} answer "how many in common?"
+ * and "any in common?" without building the intersection.
+ *
+ * <p>Elements iterate in ascending order. {@link #addRange} adds millions of
+ * consecutive values as a few runs. After building a set by single
+ * {@link #add(int)} calls, {@link #runOptimize()} converts chunks that are
+ * mostly runs. Not synchronized, with fail-fast iterators.
+ */
+public class IntSet extends AbstractSet<Integer> {
+
+    private static final char[] NO_KEYS = {};
+    private static final Container[] NO_CONTAINERS = {};
+
+    /** High 16 bits of each chunk, sign bit flipped so that unsigned order is signed {@code int} order. */
+    private char[] keys;
+    private Container[] containers;
+    private int count;
+    private long cardinality;
+    private int modCount;
+
+    public IntSet() {
+        keys = NO_KEYS;
+        containers = NO_CONTAINERS;
+    }
+
+    private IntSet(int chunks) {
+        keys = chunks == 0 ? NO_KEYS : new char[chunks];
+        containers = chunks == 0 ? NO_CONTAINERS : new Container[chunks];
+    }
+
+    /** A mutable set holding {@code values}. */
+    public static IntSet of(int... values) {
+        IntSet set = new IntSet();
+        for (int v : values) {
+            set.add(v);
+        }
+        return set;
+    }
+
+    /** A mutable set holding the values of {@code c}; a copy that shares nothing if {@code c} is an {@code IntSet}. */
+    public static IntSet copyOf(Collection<? extends Integer> c) {
+        if (c instanceof IntSet other) {
+            IntSet set = new IntSet(other.count);
+            for (int i = 0; i < other.count; i++) {
+                set.append(other.keys[i], other.containers[i].copy());
+            }
+            return set;
+        }
+        IntSet set = new IntSet();
+        for (Integer v : c) {
+            set.add(v.intValue());
+        }
+        return set;
+    }
+
+    /** A mutable set holding {@code [from, to)}. */
+    public static IntSet range(int from, int to) {
+        IntSet set = new IntSet();
+        set.addRange(from, to);
+        return set;
+    }
+
+    private static char key(int value) {
+        return (char) ((value >>> 16) ^ 0x8000);
+    }
+
+    private static int base(char key) {
+        return (key ^ 0x8000) << 16;
+    }
+
+    private static int low(int value) {
+        return value & 0xFFFF;
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, count, key);
+    }
+
+    /** Adds a non-empty container after the last chunk; for building results in key order. */
+    private void append(char key, Container c) {
+        if (c == null) {
+            return;
+        }
+        if (count == keys.length) {
+            int capacity = Math.max(4, count + (count >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        keys[count] = key;
+        containers[count] = c;
+        count++;
+        cardinality += c.cardinality();
+    }
+
+    private void insert(int i, char key, Container c) {
+        if (count == keys.length) {
+            int capacity = Math.max(4, count + (count >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, i, keys, i + 1, count - i);
+        System.arraycopy(containers, i, containers, i + 1, count - i);
+        keys[i] = key;
+        containers[i] = c;
+        count++;
+    }
+
+    private void delete(int i) {
+        System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, count - i - 1);
+        containers[--count] = null;
+    }
+
+    /** Replaces the contents of this set with those of {@code result}, a set no one else holds. */
+    private void assign(IntSet result) {
+        keys = result.keys;
+        containers = result.containers;
+        count = result.count;
+        cardinality = result.cardinality;
+        modCount++;
+    }
+
+    // ===================================================
+    // Primitive operations
+    // ===================================================
+
+    public boolean contains(int value) {
+        int i = indexOf(key(value));
+        return i >= 0 && containers[i].contains(low(value));
+    }
+
+    /** Adds {@code value}; returns false if it was already present. */
+    public boolean add(int value) {
+        char key = key(value);
+        int i = indexOf(key);
+        if (i < 0) {
+            insert(-i - 1, key, Container.ArrayContainer.of(low(value)));
+        } else {
+            Container c = containers[i];
+            int before = c.cardinality();
+            Container after = c.add(low(value));
+            if (after.cardinality() == before) {
+                return false;
+            }
+            containers[i] = after;
+        }
+        cardinality++;
+        modCount++;
+        return true;
+    }
+
+    /** Removes {@code value}; returns false if it was absent. */
+    public boolean remove(int value) {
+        int i = indexOf(key(value));
+        if (i < 0) {
+            return false;
+        }
+        Container c = containers[i];
+        int before = c.cardinality();
+        Container after = c.remove(low(value));
+        if (after.cardinality() == before) {
+            return false;
+        }
+        if (after.cardinality() == 0) {
+            delete(i);
+        } else {
+            containers[i] = after;
+        }
+        cardinality--;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Adds every value in {@code [from, to)}, as runs where they fill a
+     * chunk; returns whether the set changed.
+     */
+    public boolean addRange(int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        IntSet range = new IntSet(key(to - 1) - key(from) + 1);
+        for (long start = from; start < to; ) {
+            int value = (int) start;
+            long chunkEnd = Math.min((long) to, ((start >> 16) + 1) << 16);
+            range.append(key(value), Container.RunContainer.range(low(value), (int) (chunkEnd - start) + low(value)));
+            start = chunkEnd;
+        }
+        long before = cardinality;
+        or(range);
+        return cardinality != before;
+    }
+
+    /** Number of elements, which may exceed {@link #size()}'s {@code Integer.MAX_VALUE}. */
+    public long cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(cardinality, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public void clear() {
+        keys = NO_KEYS;
+        containers = NO_CONTAINERS;
+        count = 0;
+        cardinality = 0;
+        modCount++;
+    }
+
+    /** The smallest element. */
+    public int first() {
+        if (count == 0) {
+            throw new NoSuchElementException();
+        }
+        return base(keys[0]) | containers[0].next(0);
+    }
+
+    /** The largest element. */
+    public int last() {
+        if (count == 0) {
+            throw new NoSuchElementException();
+        }
+        return base(keys[count - 1]) | containers[count - 1].last();
+    }
+
+    /** Calls {@code action} on each element in ascending order, without boxing. */
+    public void forEachInt(IntConsumer action) {
+        int expectedModCount = modCount;
+        for (int i = 0; i < count; i++) {
+            containers[i].forEach(base(keys[i]), action);
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /** The elements in ascending order. */
+    public int[] toIntArray() {
+        if (cardinality > Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("Too many elements for an array: " + cardinality);
+        }
+        int[] result = new int[(int) cardinality];
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            offset = containers[i].copyTo(base(keys[i]), result, offset);
+        }
+        return result;
+    }
+
+    /** The elements in ascending order. */
+    public IntStream intStream() {
+        return IntStream.of(toIntArray());
+    }
+
+    /**
+     * Converts chunks whose values mostly come in runs to run form, and the
+     * rest to the smaller of array and bitmap; returns whether any changed.
+     * Worth calling once after building a set by single adds.
+     */
+    public boolean runOptimize() {
+        boolean changed = false;
+        for (int i = 0; i < count; i++) {
+            Container c = containers[i].optimize();
+            if (c != containers[i]) {
+                containers[i] = c;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // ===================================================
+    // Set algebra
+    // ===================================================
+
+    /** A new set of the elements in both {@code a} and {@code b}. */
+    public static IntSet and(IntSet a, IntSet b) {
+        IntSet result = new IntSet(Math.min(a.count, b.count));
+        int i = 0;
+        int j = 0;
+        while (i < a.count && j < b.count) {
+            char ka = a.keys[i];
+            char kb = b.keys[j];
+            if (ka < kb) {
+                i++;
+            } else if (ka > kb) {
+                j++;
+            } else {
+                result.append(ka, Container.and(a.containers[i++], b.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /** A new set of the elements in {@code a}, {@code b} or both. */
+    public static IntSet or(IntSet a, IntSet b) {
+        IntSet result = new IntSet(a.count + b.count);
+        int i = 0;
+        int j = 0;
+        while (i < a.count || j < b.count) {
+            int ka = i < a.count ? a.keys[i] : Integer.MAX_VALUE;
+            int kb = j < b.count ? b.keys[j] : Integer.MAX_VALUE;
+            if (ka < kb) {
+                result.append((char) ka, a.containers[i++].copy());
+            } else if (ka > kb) {
+                result.append((char) kb, b.containers[j++].copy());
+            } else {
+                result.append((char) ka, Container.or(a.containers[i++], b.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /** A new set of the elements in {@code a} but not in {@code b}. */
+    public static IntSet andNot(IntSet a, IntSet b) {
+        IntSet result = new IntSet(a.count);
+        int j = 0;
+        for (int i = 0; i < a.count; i++) {
+            char ka = a.keys[i];
+            while (j < b.count && b.keys[j] < ka) {
+                j++;
+            }
+            result.append(ka, j < b.count && b.keys[j] == ka
+                    ? Container.andNot(a.containers[i], b.containers[j])
+                    : a.containers[i].copy());
+        }
+        return result;
+    }
+
+    /** A new set of the elements in exactly one of {@code a} and {@code b}. */
+    public static IntSet xor(IntSet a, IntSet b) {
+        IntSet result = new IntSet(a.count + b.count);
+        int i = 0;
+        int j = 0;
+        while (i < a.count || j < b.count) {
+            int ka = i < a.count ? a.keys[i] : Integer.MAX_VALUE;
+            int kb = j < b.count ? b.keys[j] : Integer.MAX_VALUE;
+            if (ka < kb) {
+                result.append((char) ka, a.containers[i++].copy());
+            } else if (ka > kb) {
+                result.append((char) kb, b.containers[j++].copy());
+            } else {
+                result.append((char) ka, Container.xor(a.containers[i++], b.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    /** Number of elements in both {@code a} and {@code b}, without building the intersection. */
+    public static long andCardinality(IntSet a, IntSet b) {
+        long n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.count && j < b.count) {
+            char ka = a.keys[i];
+            char kb = b.keys[j];
+            if (ka < kb) {
+                i++;
+            } else if (ka > kb) {
+                j++;
+            } else {
+                n += Container.andCardinality(a.containers[i++], b.containers[j++]);
+            }
+        }
+        return n;
+    }
+
+    /** Whether {@code a} and {@code b} have an element in common; stops at the first. */
+    public static boolean intersects(IntSet a, IntSet b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.count && j < b.count) {
+            char ka = a.keys[i];
+            char kb = b.keys[j];
+            if (ka < kb) {
+                i++;
+            } else if (ka > kb) {
+                j++;
+            } else if (Container.intersects(a.containers[i++], b.containers[j++])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Keeps only the elements also in {@code other}. */
+    public void and(IntSet other) {
+        assign(and(this, other));
+    }
+
+    /** Adds the elements of {@code other}. */
+    public void or(IntSet other) {
+        assign(or(this, other));
+    }
+
+    /** Removes the elements of {@code other}. */
+    public void andNot(IntSet other) {
+        assign(andNot(this, other));
+    }
+
+    /** Keeps the elements in exactly one of this set and {@code other}. */
+    public void xor(IntSet other) {
+        assign(xor(this, other));
+    }
+
+    // ===================================================
+    // Set<Integer>
+    // ===================================================
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Integer v && contains(v.intValue());
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return add(value.intValue());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return o instanceof Integer v && remove(v.intValue());
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        if (c instanceof IntSet other) {
+            return andCardinality(this, other) == other.cardinality;
+        }
+        return super.containsAll(c);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Integer> c) {
+        if (c instanceof IntSet other) {
+            long before = cardinality;
+            or(other);
+            return cardinality != before;
+        }
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        if (c instanceof IntSet other) {
+            long before = cardinality;
+            and(other);
+            return cardinality != before;
+        }
+        return super.retainAll(c);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        if (c instanceof IntSet other) {
+            long before = cardinality;
+            andNot(other);
+            return cardinality != before;
+        }
+        return super.removeAll(c);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new Itr();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof IntSet other) {
+            return cardinality == other.cardinality && andCardinality(this, other) == cardinality;
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int[] sum = {0};
+        forEachInt(v -> sum[0] += v); // Integer.hashCode(v) == v
+        return sum[0];
+    }
+
+    private final class Itr implements PrimitiveIterator.OfInt {
+        private int index;
+        private int next;
+        private boolean hasNext;
+        private int lastReturned;
+        private boolean canRemove;
+        private int expectedModCount = modCount;
+
+        Itr() {
+            advance(0, 0);
+        }
+
+        /** Positions on the first element at least {@code from} in chunk {@code i} or after. */
+        private void advance(int i, int from) {
+            for (; i < count; i++, from = 0) {
+                int low = containers[i].next(from);
+                if (low >= 0) {
+                    index = i;
+                    next = base(keys[i]) | low;
+                    hasNext = true;
+                    return;
+                }
+            }
+            hasNext = false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public int nextInt() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            int value = next;
+            lastReturned = value;
+            canRemove = true;
+            if (low(value) == 0xFFFF) {
+                advance(index + 1, 0);
+            } else {
+                advance(index, low(value) + 1);
+            }
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            IntSet.this.remove(lastReturned);
+            canRemove = false;
+            expectedModCount = modCount;
+            if (hasNext) {
+                index = indexOf(key(next)); // chunks may have shifted
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package primitive;
+
+import java.util.function.LongConsumer;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.LongStream;
+
+/**
+ * An ordered sequence of {@code long} values with the positional operations of
+ * {@link java.util.List}, without boxing each element into a {@code Long}.
+ *
+ * <p>Methods mirror their {@code List} counterparts; the only renames avoid
+ * overload clashes between an index and a value of the same primitive type:
+ * {@link #removeAt(int)} is {@code remove(int index)} and
+ * {@link #removeValue(long)} is {@code remove(Object)}.
+ *
+ * <p>{@link #equals(Object)} and {@link #hashCode()} follow the {@code List}
+ * contract, so a {@code LongList} has the same hash code as a {@code List<Long>}
+ * holding the same values.
+ */
+public interface LongList {
+
+    int size();
+
+    boolean isEmpty();
+
+    long get(int index);
+
+    /** Replaces the value at {@code index} and returns the previous one. */
+    long set(int index, long value);
+
+    boolean add(long value);
+
+    void add(int index, long value);
+
+    boolean addAll(LongList values);
+
+    boolean addAll(int index, LongList values);
+
+    /** Removes the value at {@code index} and returns it. */
+    long removeAt(int index);
+
+    /** Removes the first occurrence of {@code value}; returns whether it was present. */
+    boolean removeValue(long value);
+
+    boolean contains(long value);
+
+    int indexOf(long value);
+
+    int lastIndexOf(long value);
+
+    /** A view of {@code [fromIndex, toIndex)}; changes write through to this list. */
+    LongList subList(int fromIndex, int toIndex);
+
+    LongListIterator listIterator();
+
+    LongListIterator listIterator(int index);
+
+    void replaceAll(LongUnaryOperator operator);
+
+    /** Sorts in ascending numeric order. */
+    void sort();
+
+    void forEach(LongConsumer action);
+
+    void clear();
+
+    long[] toArray();
+
+    LongStream stream();
+}
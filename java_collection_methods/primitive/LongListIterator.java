@@ -0,0 +1,33 @@
+package primitive;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * {@link java.util.ListIterator} for a {@link LongList}: bidirectional
+ * traversal plus {@code add}/{@code set}/{@code remove} at the cursor, with
+ * {@code long} in place of the boxed element type.
+ *
+ * <p>Like the iterators of {@code ArrayList}, implementations are fail-fast:
+ * a structural change made to the list by anything other than the iterator
+ * itself causes a {@link java.util.ConcurrentModificationException}.
+ */
+public interface LongListIterator extends PrimitiveIterator.OfLong {
+
+    boolean hasPrevious();
+
+    long previousLong();
+
+    int nextIndex();
+
+    int previousIndex();
+
+    /** Removes the value last returned by {@code nextLong()} or {@code previousLong()}. */
+    @Override
+    void remove();
+
+    /** Replaces the value last returned by {@code nextLong()} or {@code previousLong()}. */
+    void set(long value);
+
+    /** Inserts {@code value} immediately before the cursor. */
+    void add(long value);
+}
@@ -0,0 +1,381 @@
+package primitive;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.LongFunction;
+
+/**
+ * Open-addressing map from {@code long} keys to object values —
+ * {@code HashMap<Long, V>} without a {@code Node} or a {@code Long} per entry.
+ *
+ * <p>Linear probing with backward-shift deletion, like {@link ObjectIntMap}.
+ * {@code null} values are not allowed (as in {@code ConcurrentHashMap}):
+ * a {@code null} slot marks an empty entry, which also means every
+ * {@code long}, including {@code 0}, is a valid key. This lets the compute
+ * and merge methods keep the {@link Map} contract exactly: a {@code null}
+ * result removes the entry. Not synchronized.
+ */
+public class LongObjectMap<V> {
+
+    /** {@code (key, value) -> newValue}, the primitive-key form of {@code BiFunction<Long, V, V>}. */
+    @FunctionalInterface
+    public interface EntryFunction<V> {
+        V apply(long key, V value);
+    }
+
+    /** {@code (key, value) -> void}. */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    private final float loadFactor;
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int threshold;
+    private int size;
+
+    public LongObjectMap() {
+        this(16, ObjectIntMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        this(expectedSize, ObjectIntMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param expectedSize number of entries to hold without resizing
+     * @param loadFactor   fill ratio that triggers a resize, in {@code (0, 1)}
+     */
+    public LongObjectMap(int expectedSize, float loadFactor) {
+        this.loadFactor = HashSupport.checkLoadFactor(loadFactor);
+        allocate(HashSupport.tableSize(expectedSize, loadFactor));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // ===================================================
+    // Retrieving
+    // ===================================================
+
+    public V get(long key) {
+        int slot = find(key);
+        return slot < 0 ? null : value(slot);
+    }
+
+    public V getOrDefault(long key, V defaultValue) {
+        int slot = find(key);
+        return slot < 0 ? defaultValue : value(slot);
+    }
+
+    public boolean containsKey(long key) {
+        return find(key) >= 0;
+    }
+
+    public boolean containsValue(Object value) {
+        for (Object v : values) {
+            if (v != null && v.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ===================================================
+    // Adding / updating
+    // ===================================================
+
+    public V put(long key, V value) {
+        Objects.requireNonNull(value, "value");
+        int slot = insertionSlot(key);
+        if (slot >= 0) {
+            V old = value(slot);
+            values[slot] = value;
+            return old;
+        }
+        insertAt(~slot, key, value);
+        return null;
+    }
+
+    public void putAll(LongObjectMap<? extends V> other) {
+        other.forEach(this::put);
+    }
+
+    public void putAll(Map<Long, ? extends V> other) {
+        other.forEach(this::put);
+    }
+
+    public V putIfAbsent(long key, V value) {
+        Objects.requireNonNull(value, "value");
+        int slot = insertionSlot(key);
+        if (slot >= 0) {
+            return value(slot);
+        }
+        insertAt(~slot, key, value);
+        return null;
+    }
+
+    public boolean replace(long key, V oldValue, V newValue) {
+        Objects.requireNonNull(newValue, "newValue");
+        int slot = find(key);
+        if (slot < 0 || !values[slot].equals(oldValue)) {
+            return false;
+        }
+        values[slot] = newValue;
+        return true;
+    }
+
+    public V replace(long key, V value) {
+        Objects.requireNonNull(value, "value");
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V old = value(slot);
+        values[slot] = value;
+        return old;
+    }
+
+    public void replaceAll(EntryFunction<V> function) {
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                values[i] = Objects.requireNonNull(function.apply(keys[i], value(i)), "value");
+            }
+        }
+    }
+
+    // ===================================================
+    // Compute / merge — same contract as Map: null result removes
+    // ===================================================
+
+    public V compute(long key, EntryFunction<V> function) {
+        int slot = insertionSlot(key);
+        if (slot >= 0) {
+            V value = function.apply(key, value(slot));
+            if (value == null) {
+                removeAt(slot);
+            } else {
+                values[slot] = value;
+            }
+            return value;
+        }
+        V value = function.apply(key, null);
+        if (value != null) {
+            insertAt(~slot, key, value);
+        }
+        return value;
+    }
+
+    public V computeIfAbsent(long key, LongFunction<? extends V> function) {
+        int slot = insertionSlot(key);
+        if (slot >= 0) {
+            return value(slot);
+        }
+        V value = function.apply(key);
+        if (value != null) {
+            insertAt(~slot, key, value);
+        }
+        return value;
+    }
+
+    public V computeIfPresent(long key, EntryFunction<V> function) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V value = function.apply(key, value(slot));
+        if (value == null) {
+            removeAt(slot);
+        } else {
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    public V merge(long key, V value, BiFunction<? super V, ? super V, ? extends V> function) {
+        Objects.requireNonNull(value, "value");
+        int slot = insertionSlot(key);
+        if (slot < 0) {
+            insertAt(~slot, key, value);
+            return value;
+        }
+        V merged = function.apply(value(slot), value);
+        if (merged == null) {
+            removeAt(slot);
+        } else {
+            values[slot] = merged;
+        }
+        return merged;
+    }
+
+    // ===================================================
+    // Removing
+    // ===================================================
+
+    public V remove(long key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V old = value(slot);
+        removeAt(slot);
+        return old;
+    }
+
+    public boolean remove(long key, Object value) {
+        int slot = find(key);
+        if (slot < 0 || !values[slot].equals(value)) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    // ===================================================
+    // Iteration / Object methods
+    // ===================================================
+
+    public void forEach(EntryConsumer<? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                action.accept(keys[i], value(i));
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof LongObjectMap)) {
+            return false;
+        }
+        LongObjectMap<?> other = (LongObjectMap<?>) o;
+        if (other.size != size) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                int slot = other.find(keys[i]);
+                if (slot < 0 || !values[i].equals(other.values[slot])) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Same formula as {@link Map#hashCode()}, so it matches an equal {@code Map<Long, V>}. */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                hash += Long.hashCode(keys[i]) ^ values[i].hashCode();
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('{');
+        forEach((k, v) -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    // ===================================================
+    // Open addressing internals
+    // ===================================================
+
+    @SuppressWarnings("unchecked")
+    private V value(int slot) {
+        return (V) values[slot];
+    }
+
+    private int find(long key) {
+        int i = HashSupport.mix(key) & mask;
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int insertionSlot(long key) {
+        int i = HashSupport.mix(key) & mask;
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+        return ~i;
+    }
+
+    private void insertAt(int slot, long key, V value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    private void removeAt(int hole) {
+        long[] ks = keys;
+        Object[] vs = values;
+        size--;
+        for (int i = (hole + 1) & mask; vs[i] != null; i = (i + 1) & mask) {
+            int home = HashSupport.mix(ks[i]) & mask;
+            if (HashSupport.canShift(home, hole, i)) {
+                ks[hole] = ks[i];
+                vs[hole] = vs[i];
+                hole = i;
+            }
+        }
+        vs[hole] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = HashSupport.mix(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = HashSupport.threshold(capacity, loadFactor);
+    }
+}
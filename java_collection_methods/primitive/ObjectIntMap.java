@@ -0,0 +1,402 @@
+package primitive;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntBinaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Open-addressing map from object keys to {@code int} values —
+ * {@code HashMap<K, Integer>} without a {@code Node} per entry or an
+ * {@code Integer} per value.
+ *
+ * <p>Keys, their spread hash codes and values live in parallel arrays probed
+ * linearly. Comparing the cached hash first means a probe only dereferences
+ * a key object on a likely match, which keeps long probe runs at high load
+ * factors cheap. Removal shifts the following run back instead of leaving
+ * tombstones, so lookups never slow down after deletes. Counter-style
+ * updates such as {@code map.merge("Pear", 10, Integer::sum)} run without
+ * allocating.
+ *
+ * <p>Differences from {@link Map}:
+ * <ul>
+ *   <li>{@code null} keys are not allowed.</li>
+ *   <li>{@link #get(Object)} returns {@code 0} for an absent key; use
+ *       {@link #getOrDefault(Object, int)} or {@link #containsKey(Object)}
+ *       to tell the two apart.</li>
+ *   <li>Remapping functions cannot remove an entry (there is no {@code null}
+ *       int); call {@link #remove(Object)} explicitly.</li>
+ * </ul>
+ * Not synchronized.
+ */
+public class ObjectIntMap<K> {
+
+    /** {@code (key, value) -> newValue}, the primitive form of {@code BiFunction<K, Integer, Integer>}. */
+    @FunctionalInterface
+    public interface EntryFunction<K> {
+        int apply(K key, int value);
+    }
+
+    /**
+     * Lower than HashMap's 0.75: linear-probe runs grow quickly past ~0.7,
+     * and even half-empty flat arrays are far smaller than one node per entry.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+    private static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    private final float loadFactor;
+    private Object[] keys;
+    private int[] hashes;
+    private int[] values;
+    private int mask;
+    private int threshold;
+    private int size;
+
+    public ObjectIntMap() {
+        this(DEFAULT_EXPECTED_SIZE, DEFAULT_LOAD_FACTOR);
+    }
+
+    public ObjectIntMap(int expectedSize) {
+        this(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param expectedSize number of entries to hold without resizing
+     * @param loadFactor   fill ratio that triggers a resize, in {@code (0, 1)}
+     */
+    public ObjectIntMap(int expectedSize, float loadFactor) {
+        this.loadFactor = HashSupport.checkLoadFactor(loadFactor);
+        allocate(HashSupport.tableSize(expectedSize, loadFactor));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // ===================================================
+    // Retrieving
+    // ===================================================
+
+    /** The value for {@code key}, or {@code 0} if absent. */
+    public int get(Object key) {
+        return getOrDefault(key, 0);
+    }
+
+    public int getOrDefault(Object key, int defaultValue) {
+        int slot = find(key);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    public boolean containsValue(int value) {
+        Object[] ks = keys;
+        for (int i = 0; i < ks.length; i++) {
+            if (ks[i] != null && values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ===================================================
+    // Adding / updating
+    // ===================================================
+
+    /** Associates {@code value} with {@code key}; returns the previous value or {@code 0}. */
+    public int put(K key, int value) {
+        int slot = insertionSlot(key);
+        if (slot >= 0) {
+            int old = values[slot];
+            values[slot] = value;
+            return old;
+        }
+        insertAt(~slot, key, value);
+        return 0;
+    }
+
+    public void putAll(ObjectIntMap<? extends K> other) {
+        if (other == this) {
+            return;
+        }
+        Object[] ks = other.keys;
+        int[] vs = other.values;
+        for (int i = 0; i < ks.length; i++) {
+            if (ks[i] != null) {
+                @SuppressWarnings("unchecked") K key = (K) ks[i];
+                put(key, vs[i]);
+            }
+        }
+    }
+
+    public void putAll(Map<? extends K, Integer> other) {
+        other.forEach(this::put);
+    }
+
+    /** Puts only if absent; returns the existing value, or {@code 0} if it was inserted. */
+    public int putIfAbsent(K key, int value) {
+        int slot = insertionSlot(key);
+        if (slot >= 0) {
+            return values[slot];
+        }
+        insertAt(~slot, key, value);
+        return 0;
+    }
+
+    public boolean replace(K key, int oldValue, int newValue) {
+        int slot = find(key);
+        if (slot < 0 || values[slot] != oldValue) {
+            return false;
+        }
+        values[slot] = newValue;
+        return true;
+    }
+
+    /** Replaces the value only if {@code key} is present; returns the previous value or {@code 0}. */
+    public int replace(K key, int value) {
+        int slot = find(key);
+        if (slot < 0) {
+            return 0;
+        }
+        int old = values[slot];
+        values[slot] = value;
+        return old;
+    }
+
+    public void replaceAll(EntryFunction<? super K> function) {
+        Object[] ks = keys;
+        for (int i = 0; i < ks.length; i++) {
+            if (ks[i] != null) {
+                @SuppressWarnings("unchecked") K key = (K) ks[i];
+                values[i] = function.apply(key, values[i]);
+            }
+        }
+    }
+
+    // ===================================================
+    // Compute / merge (allocation-free)
+    // ===================================================
+
+    /**
+     * Stores {@code function(key, current)} where {@code current} is the mapped
+     * value or {@code 0} if absent, and returns it. One probe for both the read
+     * and the write.
+     */
+    public int compute(K key, EntryFunction<? super K> function) {
+        int slot = insertionSlot(key);
+        if (slot >= 0) {
+            return values[slot] = function.apply(key, values[slot]);
+        }
+        int value = function.apply(key, 0);
+        insertAt(~slot, key, value);
+        return value;
+    }
+
+    /** Inserts {@code function(key)} if absent; returns the (existing or new) value. */
+    public int computeIfAbsent(K key, ToIntFunction<? super K> function) {
+        int slot = insertionSlot(key);
+        if (slot >= 0) {
+            return values[slot];
+        }
+        int value = function.applyAsInt(key);
+        insertAt(~slot, key, value);
+        return value;
+    }
+
+    /** Replaces the value with {@code function(key, value)} if present; returns it, or {@code 0} if absent. */
+    public int computeIfPresent(K key, EntryFunction<? super K> function) {
+        int slot = find(key);
+        if (slot < 0) {
+            return 0;
+        }
+        return values[slot] = function.apply(key, values[slot]);
+    }
+
+    /**
+     * Puts {@code value} if absent, otherwise {@code function(old, value)};
+     * returns the new value. {@code merge(k, 1, Integer::sum)} is a counter.
+     */
+    public int merge(K key, int value, IntBinaryOperator function) {
+        int slot = insertionSlot(key);
+        if (slot >= 0) {
+            return values[slot] = function.applyAsInt(values[slot], value);
+        }
+        insertAt(~slot, key, value);
+        return value;
+    }
+
+    // ===================================================
+    // Removing
+    // ===================================================
+
+    /** Removes {@code key}; returns its value or {@code 0} if it was absent. */
+    public int remove(Object key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return 0;
+        }
+        int old = values[slot];
+        removeAt(slot);
+        return old;
+    }
+
+    public boolean remove(Object key, int value) {
+        int slot = find(key);
+        if (slot < 0 || values[slot] != value) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+    }
+
+    // ===================================================
+    // Iteration / Object methods
+    // ===================================================
+
+    public void forEach(ObjIntConsumer<? super K> action) {
+        Object[] ks = keys;
+        for (int i = 0; i < ks.length; i++) {
+            if (ks[i] != null) {
+                @SuppressWarnings("unchecked") K key = (K) ks[i];
+                action.accept(key, values[i]);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof ObjectIntMap)) {
+            return false;
+        }
+        ObjectIntMap<?> other = (ObjectIntMap<?>) o;
+        if (other.size != size) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                int slot = other.find(keys[i]);
+                if (slot < 0 || other.values[slot] != values[i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Same formula as {@link Map#hashCode()}, so it matches an equal {@code Map<K, Integer>}. */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                hash += keys[i].hashCode() ^ Integer.hashCode(values[i]);
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder().append('{');
+        forEach((k, v) -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(k).append('=').append(v);
+        });
+        return sb.append('}').toString();
+    }
+
+    // ===================================================
+    // Open addressing internals
+    // ===================================================
+
+    /** Slot holding {@code key}, or {@code -1}. */
+    private int find(Object key) {
+        int slot = insertionSlot(key);
+        return slot >= 0 ? slot : -1;
+    }
+
+    /** Slot holding {@code key} if present, otherwise {@code ~emptySlot} where it belongs. */
+    private int insertionSlot(Object key) {
+        Objects.requireNonNull(key, "key");
+        Object[] ks = keys;
+        int[] hs = hashes;
+        int h = HashSupport.mix(key.hashCode());
+        int i = h & mask;
+        for (Object k; (k = ks[i]) != null; i = (i + 1) & mask) {
+            if (hs[i] == h && (k == key || k.equals(key))) {
+                return i;
+            }
+        }
+        return ~i;
+    }
+
+    private void insertAt(int slot, K key, int value) {
+        keys[slot] = key;
+        hashes[slot] = HashSupport.mix(key.hashCode());
+        values[slot] = value;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    /** Backward-shift deletion: pull later members of the probe run into the hole. */
+    private void removeAt(int hole) {
+        Object[] ks = keys;
+        int[] hs = hashes;
+        int[] vs = values;
+        size--;
+        for (int i = (hole + 1) & mask; ks[i] != null; i = (i + 1) & mask) {
+            if (HashSupport.canShift(hs[i] & mask, hole, i)) {
+                ks[hole] = ks[i];
+                hs[hole] = hs[i];
+                vs[hole] = vs[i];
+                hole = i;
+            }
+        }
+        ks[hole] = null;
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        hashes = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        threshold = HashSupport.threshold(capacity, loadFactor);
+    }
+}
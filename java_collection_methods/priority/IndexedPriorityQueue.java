@@ -0,0 +1,489 @@
+package priority;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Priority queue whose elements can be re-prioritised or removed in
+ * O(log n) through the {@link Handle} returned when they are inserted: the
+ * operation {@code java.util.PriorityQueue} lacks, where changing an
+ * element's priority means {@code remove(Object)}, a linear scan, and a
+ * re-insert.
+ *
+ * <pre>
+ * IndexedPriorityQueue&lt;Task&gt; queue = new IndexedPriorityQueue&lt;&gt;(comparing(Task::deadline));
+ * Handle&lt;Task&gt; h = queue.insert(task);
+ * queue.decreaseKey(h, task.withDeadline(sooner));   // O(log n)
+ * queue.remove(h);                                   // O(log n)
+ * </pre>
+ *
+ * <p>A d-ary heap: each node has {@code arity} children (default
+ * {@value #DEFAULT_ARITY}). A wider heap is shallower, so inserts and
+ * decrease-keys, which sift up, do fewer moves, while polls, which compare
+ * all children on the way down, do more comparisons, but over adjacent
+ * slots. Four suits decrease-key-heavy work such as Dijkstra; two is the
+ * classic binary heap. Elements are held in one array and their handles in
+ * a parallel one, so sifting compares without touching the handles.
+ *
+ * <p>{@link #IndexedPriorityQueue(int, Comparator, Collection)} and
+ * {@link #insertAll} build the heap bottom-up in O(n) rather than by n
+ * inserts. {@code peek}, {@code poll} and {@code offer} follow
+ * {@link java.util.Queue}; iteration is in heap order, fail-fast, as in
+ * {@code PriorityQueue}. {@code null} elements are rejected. Not
+ * synchronized; see {@link concurrent.MultiQueue} for a concurrent
+ * scheduler queue.
+ */
+public class IndexedPriorityQueue<E> extends AbstractQueue<E> {
+
+    public static final int DEFAULT_ARITY = 4;
+
+    /**
+     * A queued element's place in its queue. Valid until the element is
+     * polled or removed; after that {@link #isQueued()} is false and the
+     * queue rejects it.
+     */
+    public static final class Handle<E> {
+        private final IndexedPriorityQueue<E> owner;
+        private int index;
+
+        private Handle(IndexedPriorityQueue<E> owner, int index) {
+            this.owner = owner;
+            this.index = index;
+        }
+
+        /** The element as last inserted or updated. */
+        @SuppressWarnings("unchecked")
+        public E element() {
+            if (index < 0) {
+                throw new IllegalStateException("Element no longer queued");
+            }
+            return (E) owner.elements[index];
+        }
+
+        public boolean isQueued() {
+            return index >= 0;
+        }
+    }
+
+    private final int arity;
+    private final Comparator<? super E> comparator;
+    private Object[] elements;
+    private Handle<E>[] handles;
+    private int size;
+    private int modCount;
+
+    /** Natural order, arity {@value #DEFAULT_ARITY}. */
+    public IndexedPriorityQueue() {
+        this(DEFAULT_ARITY, null);
+    }
+
+    public IndexedPriorityQueue(Comparator<? super E> comparator) {
+        this(DEFAULT_ARITY, comparator);
+    }
+
+    /**
+     * @param arity      children per heap node, at least 2
+     * @param comparator element order, or {@code null} for natural order
+     */
+    public IndexedPriorityQueue(int arity, Comparator<? super E> comparator) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Arity must be at least 2: " + arity);
+        }
+        this.arity = arity;
+        this.comparator = comparator;
+        this.elements = new Object[16];
+        this.handles = newHandles(16);
+    }
+
+    /** Holds {@code elements}, heapified in O(n); their handles are lost, see {@link #insertAll}. */
+    public IndexedPriorityQueue(int arity, Comparator<? super E> comparator, Collection<? extends E> elements) {
+        this(arity, comparator);
+        insertAll(elements);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> Handle<E>[] newHandles(int length) {
+        return (Handle<E>[]) new Handle<?>[length];
+    }
+
+    // ===================================================
+    // Handle operations
+    // ===================================================
+
+    /** Adds {@code element}; O(log n). */
+    public Handle<E> insert(E element) {
+        Objects.requireNonNull(element);
+        ensureCapacity(size + 1);
+        Handle<E> handle = new Handle<>(this, size);
+        siftUp(size, element, handle); // count the slot only once the comparator has accepted the element
+        size++;
+        modCount++;
+        return handle;
+    }
+
+    /**
+     * Adds every element of {@code batch} and returns their handles in
+     * iteration order. When the batch is at least as large as the queue,
+     * the whole heap is rebuilt bottom-up, O(n + batch), instead of sifting
+     * each element in.
+     */
+    public List<Handle<E>> insertAll(Collection<? extends E> batch) {
+        Object[] added = batch.toArray();
+        for (Object element : added) {
+            Objects.requireNonNull(element);
+        }
+        if (added.length == 0) {
+            return new ArrayList<>();
+        }
+        List<Handle<E>> result = new ArrayList<>(added.length);
+        if (added.length < size) {
+            for (Object element : added) {
+                @SuppressWarnings("unchecked") E e = (E) element;
+                result.add(insert(e));
+            }
+            return result;
+        }
+        ensureCapacity(size + added.length);
+        int before = size;
+        Object[] savedElements = Arrays.copyOf(elements, before);
+        Handle<E>[] savedHandles = Arrays.copyOf(handles, before);
+        for (Object element : added) {
+            Handle<E> handle = new Handle<>(this, size);
+            elements[size] = element;
+            handles[size] = handle;
+            size++;
+            result.add(handle);
+        }
+        try {
+            if (size > 1) { // (size - 2) / arity truncates to parent 0 of a heap with no children
+                for (int i = (size - 2) / arity; i >= 0; i--) {
+                    siftDown(i, elements[i], handles[i]);
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            // the comparator rejected an element part-way through: put the heap back as it was
+            for (Handle<E> handle : result) {
+                handle.index = -1;
+            }
+            System.arraycopy(savedElements, 0, elements, 0, before);
+            System.arraycopy(savedHandles, 0, handles, 0, before);
+            Arrays.fill(elements, before, size, null);
+            Arrays.fill(handles, before, size, null);
+            for (int i = 0; i < before; i++) {
+                handles[i].index = i;
+            }
+            size = before;
+            throw e;
+        }
+        modCount++;
+        return result;
+    }
+
+    /** Replaces the element of {@code handle} with one ordered no later; O(log n). */
+    public void decreaseKey(Handle<E> handle, E element) {
+        int index = check(handle);
+        Objects.requireNonNull(element);
+        if (compare(element, elements[index]) > 0) {
+            throw new IllegalArgumentException("New element orders after the current one");
+        }
+        modCount++;
+        siftUp(index, element, handle);
+    }
+
+    /** Replaces the element of {@code handle} with one ordered no earlier; O(log n). */
+    public void increaseKey(Handle<E> handle, E element) {
+        int index = check(handle);
+        Objects.requireNonNull(element);
+        if (compare(element, elements[index]) < 0) {
+            throw new IllegalArgumentException("New element orders before the current one");
+        }
+        modCount++;
+        siftDown(index, element, handle);
+    }
+
+    /** Replaces the element of {@code handle}, moving it whichever way its order changed; O(log n). */
+    public void update(Handle<E> handle, E element) {
+        int index = check(handle);
+        Objects.requireNonNull(element);
+        modCount++;
+        if (compare(element, elements[index]) < 0) {
+            siftUp(index, element, handle);
+        } else {
+            siftDown(index, element, handle);
+        }
+    }
+
+    /** Removes the element of {@code handle}; O(log n). False if it was no longer queued. */
+    public boolean remove(Handle<E> handle) {
+        if (handle.owner != this) {
+            throw new IllegalArgumentException("Handle of another queue");
+        }
+        if (handle.index < 0) {
+            return false;
+        }
+        removeAt(handle.index);
+        return true;
+    }
+
+    public boolean contains(Handle<E> handle) {
+        return handle.owner == this && handle.index >= 0;
+    }
+
+    /** The handle of the head, or {@code null} if empty. */
+    public Handle<E> peekHandle() {
+        return size == 0 ? null : handles[0];
+    }
+
+    // ===================================================
+    // Queue
+    // ===================================================
+
+    @Override
+    public boolean offer(E e) {
+        insert(e);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        return size == 0 ? null : (E) elements[0];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        if (size == 0) {
+            return null;
+        }
+        E head = (E) elements[0];
+        removeAt(0);
+        return head;
+    }
+
+    /** O(n): finds {@code o} by {@code equals}; prefer {@link #remove(Handle)}. */
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            handles[i].index = -1;
+        }
+        Arrays.fill(elements, 0, size, null);
+        Arrays.fill(handles, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    /** Comparator, or {@code null} for natural order. */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    /** In heap order, not priority order. */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int next;
+            private int last = -1;
+            /** Elements a removal moved from the unvisited tail to before the cursor (as in {@code PriorityQueue}). */
+            private ArrayDeque<Object> forgetMeNot;
+            private Object lastForgotten;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next < size || (forgetMeNot != null && !forgetMeNot.isEmpty());
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next < size) {
+                    last = next++;
+                    return (E) elements[last];
+                }
+                if (forgetMeNot != null && !forgetMeNot.isEmpty()) {
+                    last = -1;
+                    lastForgotten = forgetMeNot.poll();
+                    return (E) lastForgotten;
+                }
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (last >= 0) {
+                    Object moved = removeAt(last);
+                    if (moved == null) {
+                        next = last;
+                    } else {
+                        if (forgetMeNot == null) {
+                            forgetMeNot = new ArrayDeque<>();
+                        }
+                        forgetMeNot.add(moved);
+                    }
+                    last = -1;
+                } else if (lastForgotten != null) {
+                    for (int i = 0; i < size; i++) {
+                        if (elements[i] == lastForgotten) {
+                            removeAt(i);
+                            break;
+                        }
+                    }
+                    lastForgotten = null;
+                } else {
+                    throw new IllegalStateException();
+                }
+                expectedModCount = modCount;
+            }
+        };
+    }
+
+    // ===================================================
+    // Heap
+    // ===================================================
+
+    private int check(Handle<E> handle) {
+        if (handle.owner != this) {
+            throw new IllegalArgumentException("Handle of another queue");
+        }
+        if (handle.index < 0) {
+            throw new IllegalStateException("Element no longer queued");
+        }
+        return handle.index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Object a, Object b) {
+        return comparator != null ? comparator.compare((E) a, (E) b) : ((Comparable<Object>) a).compareTo(b);
+    }
+
+    private int indexOf(Object o) {
+        if (o != null) {
+            for (int i = 0; i < size; i++) {
+                if (o.equals(elements[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes slot {@code index}, filling it with the last element. Returns
+     * that element if it moved up, above {@code index}, else {@code null}.
+     */
+    private Object removeAt(int index) {
+        modCount++;
+        handles[index].index = -1;
+        int last = --size;
+        Object element = elements[last];
+        Handle<E> handle = handles[last];
+        elements[last] = null;
+        handles[last] = null;
+        if (index == last) {
+            return null;
+        }
+        siftDown(index, element, handle);
+        if (elements[index] == element) {
+            siftUp(index, element, handle);
+            if (elements[index] != element) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    /** Places {@code element} at or above slot {@code index}, moving larger parents down into the hole. */
+    private void siftUp(int index, Object element, Handle<E> handle) {
+        while (index > 0) {
+            int parent = (index - 1) / arity;
+            Object p = elements[parent];
+            if (compare(element, p) >= 0) {
+                break;
+            }
+            elements[index] = p;
+            handles[index] = handles[parent];
+            handles[index].index = index;
+            index = parent;
+        }
+        elements[index] = element;
+        handles[index] = handle;
+        handle.index = index;
+    }
+
+    /** Places {@code element} at or below slot {@code index}, moving the smallest child up into the hole. */
+    private void siftDown(int index, Object element, Handle<E> handle) {
+        int n = size;
+        for (;;) {
+            int first = index * arity + 1;
+            if (first >= n) {
+                break;
+            }
+            int best = first;
+            Object min = elements[first];
+            int end = Math.min(first + arity, n);
+            for (int c = first + 1; c < end; c++) {
+                if (compare(elements[c], min) < 0) {
+                    best = c;
+                    min = elements[c];
+                }
+            }
+            if (compare(min, element) >= 0) {
+                break;
+            }
+            elements[index] = min;
+            handles[index] = handles[best];
+            handles[index].index = index;
+            index = best;
+        }
+        elements[index] = element;
+        handles[index] = handle;
+        handle.index = index;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            int length = (int) Math.min(Math.max((long) elements.length * 2, capacity), Integer.MAX_VALUE - 8);
+            if (length < capacity) {
+                throw new OutOfMemoryError("Queue too large");
+            }
+            elements = Arrays.copyOf(elements, length);
+            handles = Arrays.copyOf(handles, length);
+        }
+    }
+}
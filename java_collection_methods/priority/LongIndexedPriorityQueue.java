@@ -0,0 +1,283 @@
+package priority;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Min-priority queue of {@code int} ids with {@code long} priorities, where
+ * the id is the handle: {@code decreaseKey(vertex, distance)} for Dijkstra,
+ * {@code update(taskId, deadline)} for a scheduler, each O(log n) with no
+ * object per entry.
+ *
+ * <p>The same d-ary heap as {@link IndexedPriorityQueue}, in three flat
+ * arrays: priorities and ids by heap slot (so sifting compares adjacent
+ * {@code long}s) and each id's slot, or -1 when it is not queued. Ids are
+ * non-negative; the id table grows to the largest id seen, so keep them
+ * dense (vertex numbers, slot indices). Equal priorities leave in no
+ * particular order. Not synchronized.
+ *
+ * <p>Empty-queue and absent-id accessors throw {@link NoSuchElementException};
+ * inserting an id that is already queued throws
+ * {@link IllegalArgumentException}, use {@link #update} for insert-or-change.
+ */
+public class LongIndexedPriorityQueue {
+
+    private final int arity;
+    private long[] priorities;
+    private int[] ids;
+    private int[] slots;
+    private int size;
+
+    /** Arity {@value IndexedPriorityQueue#DEFAULT_ARITY}. */
+    public LongIndexedPriorityQueue(int expectedIds) {
+        this(expectedIds, IndexedPriorityQueue.DEFAULT_ARITY);
+    }
+
+    /**
+     * @param expectedIds ids {@code [0, expectedIds)} fit without growing
+     * @param arity       children per heap node, at least 2
+     */
+    public LongIndexedPriorityQueue(int expectedIds, int arity) {
+        if (expectedIds < 0) {
+            throw new IllegalArgumentException("Illegal Capacity: " + expectedIds);
+        }
+        if (arity < 2) {
+            throw new IllegalArgumentException("Arity must be at least 2: " + arity);
+        }
+        this.arity = arity;
+        int capacity = Math.max(expectedIds, 4);
+        this.priorities = new long[capacity];
+        this.ids = new int[capacity];
+        this.slots = new int[capacity];
+        Arrays.fill(slots, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < slots.length && slots[id] >= 0;
+    }
+
+    /** Priority of queued {@code id}. */
+    public long priority(int id) {
+        return priorities[slotOf(id)];
+    }
+
+    /** The id with the smallest priority. */
+    public int peekId() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return ids[0];
+    }
+
+    /** The smallest priority. */
+    public long peekPriority() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return priorities[0];
+    }
+
+    /** Removes and returns the id with the smallest priority. */
+    public int pollId() {
+        int id = peekId();
+        removeAt(0);
+        return id;
+    }
+
+    /** Adds {@code id}, which must not be queued; O(log n). */
+    public void insert(int id, long priority) {
+        if (contains(id)) {
+            throw new IllegalArgumentException("Id already queued: " + id);
+        }
+        ensureId(id);
+        ensureCapacity(size + 1);
+        siftUp(size++, id, priority);
+    }
+
+    /**
+     * Adds ids {@code ids[0..count)} with the matching priorities, none of
+     * them queued yet. When the batch is at least as large as the queue the
+     * heap is rebuilt bottom-up, O(n + count), instead of sifting each id in.
+     */
+    public void insertAll(int[] ids, long[] priorities, int count) {
+        if (count > ids.length || count > priorities.length) {
+            throw new IllegalArgumentException("count " + count + " exceeds the arrays");
+        }
+        if (count == 0) {
+            return;
+        }
+        if (count < size) {
+            for (int i = 0; i < count; i++) {
+                insert(ids[i], priorities[i]);
+            }
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            ensureId(ids[i]);
+        }
+        ensureCapacity(size + count);
+        int start = size;
+        for (int i = 0; i < count; i++) {
+            int id = ids[i];
+            if (slots[id] >= 0) {
+                for (int j = start; j < size; j++) { // undo: leave the queue as it was
+                    slots[this.ids[j]] = -1;
+                }
+                size = start;
+                throw new IllegalArgumentException("Id already queued: " + id);
+            }
+            this.ids[size] = id;
+            this.priorities[size] = priorities[i];
+            slots[id] = size++;
+        }
+        if (size > 1) { // (size - 2) / arity truncates to parent 0 of a heap with no children
+            for (int i = (size - 2) / arity; i >= 0; i--) {
+                siftDown(i, this.ids[i], this.priorities[i]);
+            }
+        }
+    }
+
+    /** Lowers the priority of queued {@code id}; O(log n). */
+    public void decreaseKey(int id, long priority) {
+        int slot = slotOf(id);
+        if (priority > priorities[slot]) {
+            throw new IllegalArgumentException("Priority " + priority + " above current " + priorities[slot]);
+        }
+        siftUp(slot, id, priority);
+    }
+
+    /** Raises the priority of queued {@code id}; O(log n). */
+    public void increaseKey(int id, long priority) {
+        int slot = slotOf(id);
+        if (priority < priorities[slot]) {
+            throw new IllegalArgumentException("Priority " + priority + " below current " + priorities[slot]);
+        }
+        siftDown(slot, id, priority);
+    }
+
+    /** Sets the priority of {@code id}, inserting it if absent; O(log n). */
+    public void update(int id, long priority) {
+        if (!contains(id)) {
+            insert(id, priority);
+        } else if (priority < priorities[slots[id]]) {
+            siftUp(slots[id], id, priority);
+        } else {
+            siftDown(slots[id], id, priority);
+        }
+    }
+
+    /** Removes {@code id}; O(log n). False if it was not queued. */
+    public boolean remove(int id) {
+        if (!contains(id)) {
+            return false;
+        }
+        removeAt(slots[id]);
+        return true;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            slots[ids[i]] = -1;
+        }
+        size = 0;
+    }
+
+    // ===================================================
+    // Heap
+    // ===================================================
+
+    private int slotOf(int id) {
+        if (!contains(id)) {
+            throw new NoSuchElementException("Id not queued: " + id);
+        }
+        return slots[id];
+    }
+
+    private void removeAt(int slot) {
+        slots[ids[slot]] = -1;
+        int last = --size;
+        if (slot == last) {
+            return;
+        }
+        int id = ids[last];
+        long priority = priorities[last];
+        if (priority < priorities[slot]) {
+            siftUp(slot, id, priority);
+        } else {
+            siftDown(slot, id, priority);
+        }
+    }
+
+    private void siftUp(int slot, int id, long priority) {
+        while (slot > 0) {
+            int parent = (slot - 1) / arity;
+            long p = priorities[parent];
+            if (priority >= p) {
+                break;
+            }
+            priorities[slot] = p;
+            ids[slot] = ids[parent];
+            slots[ids[slot]] = slot;
+            slot = parent;
+        }
+        priorities[slot] = priority;
+        ids[slot] = id;
+        slots[id] = slot;
+    }
+
+    private void siftDown(int slot, int id, long priority) {
+        int n = size;
+        for (;;) {
+            int first = slot * arity + 1;
+            if (first >= n) {
+                break;
+            }
+            int best = first;
+            long min = priorities[first];
+            int end = Math.min(first + arity, n);
+            for (int c = first + 1; c < end; c++) {
+                if (priorities[c] < min) {
+                    best = c;
+                    min = priorities[c];
+                }
+            }
+            if (min >= priority) {
+                break;
+            }
+            priorities[slot] = min;
+            ids[slot] = ids[best];
+            slots[ids[slot]] = slot;
+            slot = best;
+        }
+        priorities[slot] = priority;
+        ids[slot] = id;
+        slots[id] = slot;
+    }
+
+    private void ensureId(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative id: " + id);
+        }
+        if (id >= slots.length) {
+            int old = slots.length;
+            slots = Arrays.copyOf(slots, (int) Math.min(Math.max((long) old * 2, (long) id + 1), Integer.MAX_VALUE - 8));
+            Arrays.fill(slots, old, slots.length, -1);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int length = (int) Math.min(Math.max((long) ids.length * 2, capacity), Integer.MAX_VALUE - 8);
+            ids = Arrays.copyOf(ids, length);
+            priorities = Arrays.copyOf(priorities, length);
+        }
+    }
+}
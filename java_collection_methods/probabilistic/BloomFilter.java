@@ -0,0 +1,250 @@
+package probabilistic;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Blocked ("split block") Bloom filter: every element's bits lie in one
+ * 64-byte block, so {@link #mightContain} reads one cache line, and a
+ * negative answer usually stops at its first word.
+ *
+ * <pre>
+ * BloomFilter&lt;String&gt; seen = BloomFilter.copyOf(keys, Hasher.strings(), 0.01);
+ * if (seen.mightContain(key)) { ... probe the real set ... }
+ * </pre>
+ *
+ * <p>The high 32 bits of the element's 64-bit hash choose the block; the
+ * low 32 bits, multiplied by eight odd constants, set one bit in each of
+ * the block's eight {@code long}s. This costs no more than a classic Bloom
+ * filter's first probe, at the price of a few more bits for the same
+ * false-positive rate, because blocks fill unevenly: 1% takes 10.1 bits
+ * per element instead of 9.6, 0.1% takes 15.7 instead of 14.4. The filter is sized for
+ * {@code expectedInsertions} at {@code fpp}; adding more elements raises
+ * the rate, which {@link #expectedFpp()} reports.
+ *
+ * <p>Filters built with the same size and hasher {@link #merge} by OR-ing
+ * their words, so shards can be filtered independently and combined.
+ * Elements cannot be removed; see {@link CuckooFilter}. Not thread-safe.
+ */
+public final class BloomFilter<E> implements MembershipFilter<E> {
+
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final int MAX_BLOCKS = Integer.MAX_VALUE / WORDS_PER_BLOCK;
+    private static final int[] SALT = {
+        0x47B6137B, 0x44974D91, 0x8824AD5B, 0xA2B7289D, 0x705495C7, 0x2DF1424B, 0x9EFC4947, 0x5C6BFB31
+    };
+
+    private final Hasher<? super E> hasher;
+    private final int blocks;
+    private final long[] words;
+
+    private BloomFilter(Hasher<? super E> hasher, int blocks) {
+        this.hasher = Objects.requireNonNull(hasher, "hasher");
+        this.blocks = blocks;
+        this.words = new long[blocks * WORDS_PER_BLOCK];
+    }
+
+    /**
+     * An empty filter for about {@code expectedInsertions} elements at a
+     * false-positive rate of {@code fpp}.
+     *
+     * @throws IllegalArgumentException if {@code expectedInsertions < 0},
+     *         {@code fpp} is not in {@code (0, 1)}, or the filter would
+     *         exceed 16 GB
+     */
+    public static <E> BloomFilter<E> create(Hasher<? super E> hasher, long expectedInsertions, double fpp) {
+        if (expectedInsertions < 0) {
+            throw new IllegalArgumentException("Illegal expected insertions: " + expectedInsertions);
+        }
+        if (!(fpp > 0 && fpp < 1)) {
+            throw new IllegalArgumentException("fpp must be in (0, 1): " + fpp);
+        }
+        return new BloomFilter<>(hasher, blocksFor(Math.max(1, expectedInsertions), fpp));
+    }
+
+    /** A filter sized for {@code c} at {@code fpp}, holding all of its elements. */
+    public static <E> BloomFilter<E> copyOf(Collection<? extends E> c, Hasher<? super E> hasher, double fpp) {
+        BloomFilter<E> filter = create(hasher, c.size(), fpp);
+        filter.addAll(c);
+        return filter;
+    }
+
+    // ===================================================
+    // Membership
+    // ===================================================
+
+    @Override
+    public boolean add(E element) {
+        long h = hasher.hash(element);
+        int base = block(h) * WORDS_PER_BLOCK;
+        int key = (int) h;
+        boolean changed = false;
+        for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+            long bit = 1L << ((key * SALT[i]) >>> 26);
+            long word = words[base + i];
+            if ((word & bit) == 0) {
+                words[base + i] = word | bit;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean mightContain(Object o) {
+        long h = hasher.hash((E) o);
+        int base = block(h) * WORDS_PER_BLOCK;
+        int key = (int) h;
+        for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+            if ((words[base + i] & (1L << ((key * SALT[i]) >>> 26))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Multiply-shift maps the high hash bits onto {@code [0, blocks)} without a division. */
+    private int block(long h) {
+        return (int) (((h >>> 32) * blocks) >>> 32);
+    }
+
+    /**
+     * ORs {@code other}'s bits into this filter, which then answers for the
+     * elements of both.
+     *
+     * @throws IllegalArgumentException if the filters differ in size
+     */
+    public void merge(BloomFilter<? extends E> other) {
+        if (other.blocks != blocks) {
+            throw new IllegalArgumentException("Filters differ in size: " + blocks + " vs " + other.blocks + " blocks");
+        }
+        for (int i = 0; i < words.length; i++) {
+            words[i] |= other.words[i];
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    // ===================================================
+    // Statistics
+    // ===================================================
+
+    @Override
+    public long bitSize() {
+        return (long) words.length * Long.SIZE;
+    }
+
+    /** Estimated from the share of set bits, so it also counts the elements of merged filters. */
+    @Override
+    public long approximateElementCount() {
+        long set = 0;
+        for (long word : words) {
+            set += Long.bitCount(word);
+        }
+        double m = bitSize();
+        if (set == m) {
+            return Long.MAX_VALUE;
+        }
+        return Math.round(-m / WORDS_PER_BLOCK * Math.log1p(-set / m));
+    }
+
+    /** Average over the blocks of the chance that all eight probed bits are set. */
+    @Override
+    public double expectedFpp() {
+        double sum = 0;
+        for (int base = 0; base < words.length; base += WORDS_PER_BLOCK) {
+            double p = 1;
+            for (int i = 0; i < WORDS_PER_BLOCK && p > 0; i++) {
+                p *= Long.bitCount(words[base + i]) / (double) Long.SIZE;
+            }
+            sum += p;
+        }
+        return sum / blocks;
+    }
+
+    @Override
+    public String toString() {
+        return "BloomFilter[" + bitSize() / 8 + " bytes, ~" + approximateElementCount() + " elements]";
+    }
+
+    // ===================================================
+    // Sizing
+    // ===================================================
+
+    private static int blocksFor(long n, double fpp) {
+        if (falsePositiveRate(MAX_BLOCKS, n) > fpp) {
+            throw new IllegalArgumentException("A BloomFilter for " + n + " elements at fpp " + fpp + " exceeds "
+                    + MAX_BLOCKS + " blocks");
+        }
+        int lo = 1;
+        int hi = MAX_BLOCKS;
+        while (lo < hi) {
+            int mid = (int) (((long) lo + hi) >>> 1);
+            if (falsePositiveRate(mid, n) <= fpp) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * False-positive rate of {@code blocks} blocks holding {@code n}
+     * elements: the per-block rate for {@code i} elements, weighted by the
+     * Poisson probability that a block holds {@code i}.
+     */
+    static double falsePositiveRate(long blocks, long n) {
+        double lambda = n / (double) blocks;
+        if (lambda > 1000) {
+            return Math.pow(-Math.expm1(lambda * Math.log1p(-1.0 / Long.SIZE)), WORDS_PER_BLOCK);
+        }
+        int hi = (int) (lambda + 10 * Math.sqrt(lambda) + 10);
+        double logPmf = -lambda; // log P(0)
+        double rate = 0;
+        for (int i = 0; i <= hi; i++) {
+            if (i > 0) {
+                logPmf += Math.log(lambda) - Math.log(i);
+            }
+            double block = Math.pow(-Math.expm1(i * Math.log1p(-1.0 / Long.SIZE)), WORDS_PER_BLOCK);
+            rate += Math.exp(logPmf) * block;
+        }
+        return rate;
+    }
+
+    // ===================================================
+    // Serialization
+    // ===================================================
+
+    /** Writes the filter's size and words; the stream is about {@link #bitSize()} / 8 bytes. */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        Format.writeHeader(data, Format.BLOOM);
+        data.writeInt(blocks);
+        Format.writeLongs(data, words);
+        data.flush();
+    }
+
+    /** Reads a filter written by {@link #writeTo}; {@code hasher} must be the one it was built with. */
+    public static <E> BloomFilter<E> readFrom(InputStream in, Hasher<? super E> hasher) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        Format.readHeader(data, Format.BLOOM);
+        int blocks = data.readInt();
+        if (blocks < 1 || blocks > MAX_BLOCKS) {
+            throw new IOException("Corrupt BloomFilter: " + blocks + " blocks");
+        }
+        BloomFilter<E> filter = new BloomFilter<>(hasher, blocks);
+        Format.readLongs(data, filter.words);
+        return filter;
+    }
+}
@@ -0,0 +1,317 @@
+package probabilistic;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+import primitive.HashSupport;
+
+/**
+ * Cuckoo filter: a membership filter that supports {@link #remove}, for
+ * sets that shrink as well as grow.
+ *
+ * <pre>
+ * CuckooFilter&lt;Long&gt; live = CuckooFilter.copyOf(sessionIds, Hasher.longs());
+ * live.remove(expiredId);
+ * </pre>
+ *
+ * <p>The filter stores a 16-bit fingerprint of each element in one of two
+ * buckets of four, each bucket packed into one {@code long}. The second
+ * bucket is a hash of the fingerprint minus the first, modulo the bucket
+ * count, and the first is the same function of the second, so an entry can
+ * move between its two buckets knowing only its fingerprint. Unlike the
+ * usual XOR, this works for any bucket count, and the table is sized to
+ * the expected insertions instead of the next power of two. A lookup compares
+ * the fingerprint with all four lanes of a bucket at once and reads at most
+ * two buckets, which is one or two cache lines. An add that finds both
+ * buckets full moves ("kicks") a resident fingerprint to its other bucket,
+ * up to {@value #MAX_KICKS} times; tables are sized to stay below about 95%
+ * full, where this almost always succeeds.
+ *
+ * <p>The false-positive rate is about {@code 8 × load / 65536}, 0.012% when
+ * full, for about 17 bits per element: less than a {@link BloomFilter} at
+ * that rate. Adding the same element twice stores two fingerprints, and
+ * {@link #remove} takes one back, so each element must be removed as often
+ * as it was added, and only if it was added. Filters of the same size
+ * {@link #merge}. Not thread-safe.
+ */
+public final class CuckooFilter<E> implements MembershipFilter<E> {
+
+    private static final int SLOTS = 4;
+    private static final int FINGERPRINT_BITS = 16;
+    private static final long FINGERPRINT_MASK = (1L << FINGERPRINT_BITS) - 1;
+    private static final long LANES = 0x0001_0001_0001_0001L;
+    private static final long HIGH_BITS = 0x8000_8000_8000_8000L;
+    private static final double MAX_LOAD = 0.95;
+    private static final int MAX_BUCKETS = 1 << 30;
+    private static final int MAX_KICKS = 500;
+
+    private final Hasher<? super E> hasher;
+    private final long[] buckets;
+    private long size;
+    /** Fingerprint that found no bucket on the last failed kick chain; 0 if none, else the filter is full. */
+    private int victim;
+    private int victimBucket;
+    /** Weyl sequence choosing which lane to kick; deterministic, so a rebuild gives the same table. */
+    private long random;
+
+    private CuckooFilter(Hasher<? super E> hasher, int bucketCount) {
+        this.hasher = Objects.requireNonNull(hasher, "hasher");
+        this.buckets = new long[bucketCount];
+    }
+
+    /**
+     * An empty filter for up to about {@code expectedInsertions} elements.
+     *
+     * @throws IllegalArgumentException if {@code expectedInsertions} is
+     *         negative or needs more than 2<sup>30</sup> buckets
+     */
+    public static <E> CuckooFilter<E> create(Hasher<? super E> hasher, long expectedInsertions) {
+        if (expectedInsertions < 0) {
+            throw new IllegalArgumentException("Illegal expected insertions: " + expectedInsertions);
+        }
+        long needed = (long) Math.ceil(Math.max(1, expectedInsertions) / (SLOTS * MAX_LOAD));
+        if (needed > MAX_BUCKETS) {
+            throw new IllegalArgumentException("A CuckooFilter for " + expectedInsertions + " elements exceeds "
+                    + MAX_BUCKETS + " buckets");
+        }
+        return new CuckooFilter<>(hasher, (int) needed);
+    }
+
+    /** A filter sized for {@code c}, holding all of its elements. */
+    public static <E> CuckooFilter<E> copyOf(Collection<? extends E> c, Hasher<? super E> hasher) {
+        CuckooFilter<E> filter = create(hasher, c.size());
+        filter.addAll(c);
+        return filter;
+    }
+
+    // ===================================================
+    // Membership
+    // ===================================================
+
+    /**
+     * Stores a fingerprint of {@code element}; always returns {@code true}.
+     *
+     * @throws IllegalStateException if the filter is full; it then still
+     *         answers correctly for everything added before
+     */
+    @Override
+    public boolean add(E element) {
+        long h = hasher.hash(element);
+        insert(index(h), fingerprint(h));
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean mightContain(Object o) {
+        long h = hasher.hash((E) o);
+        int fp = fingerprint(h);
+        int i1 = index(h);
+        if (hasLane(buckets[i1], fp)) {
+            return true;
+        }
+        int i2 = alternate(i1, fp);
+        return hasLane(buckets[i2], fp) || (victim == fp && (victimBucket == i1 || victimBucket == i2));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o) {
+        long h = hasher.hash((E) o);
+        int fp = fingerprint(h);
+        int i1 = index(h);
+        int i2 = alternate(i1, fp);
+        if (victim == fp && (victimBucket == i1 || victimBucket == i2)) {
+            victim = 0;
+            size--;
+            return true;
+        }
+        if (!clearLane(i1, fp) && !clearLane(i2, fp)) {
+            return false;
+        }
+        size--;
+        if (victim != 0) { // a slot is free again: give the victim another chance
+            int fpv = victim;
+            victim = 0;
+            size--;
+            insert(victimBucket, fpv);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean supportsRemove() {
+        return true;
+    }
+
+    /**
+     * Adds every fingerprint of {@code other}, which then answers for the
+     * elements of both.
+     *
+     * @throws IllegalArgumentException if the filters differ in size
+     * @throws IllegalStateException    if this filter fills up
+     */
+    public void merge(CuckooFilter<? extends E> other) {
+        if (other.buckets.length != buckets.length) {
+            throw new IllegalArgumentException("Filters differ in size: " + buckets.length + " vs "
+                    + other.buckets.length + " buckets");
+        }
+        for (int i = 0; i < other.buckets.length; i++) {
+            for (long bucket = other.buckets[i]; bucket != 0; bucket >>>= FINGERPRINT_BITS) {
+                int fp = (int) (bucket & FINGERPRINT_MASK);
+                if (fp != 0) {
+                    insert(i, fp);
+                }
+            }
+        }
+        if (other.victim != 0) {
+            insert(other.victimBucket, other.victim);
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(buckets, 0L);
+        size = 0;
+        victim = 0;
+    }
+
+    /** Multiply-shift maps the high hash bits onto {@code [0, buckets)} without a division. */
+    private int index(long h) {
+        return (int) (((h >>> 32) * buckets.length) >>> 32);
+    }
+
+    /** The low 16 hash bits, never 0, which marks an empty lane. */
+    private static int fingerprint(long h) {
+        int fp = (int) (h & FINGERPRINT_MASK);
+        return fp != 0 ? fp : 1;
+    }
+
+    /** The other bucket of {@code fp}: {@code (hash(fp) - i) mod buckets}, so applying it twice returns to {@code i}. */
+    private int alternate(int i, int fp) {
+        int j = (int) ((HashSupport.mix(fp) & 0xFFFFFFFFL) % buckets.length) - i;
+        return j < 0 ? j + buckets.length : j;
+    }
+
+    /** Whether any 16-bit lane of {@code bucket} equals {@code fp}: a zero-lane test on the XOR. */
+    private static boolean hasLane(long bucket, int fp) {
+        long x = bucket ^ (fp * LANES);
+        return ((x - LANES) & ~x & HIGH_BITS) != 0;
+    }
+
+    private boolean tryPut(int i, int fp) {
+        long bucket = buckets[i];
+        for (int shift = 0; shift < Long.SIZE; shift += FINGERPRINT_BITS) {
+            if (((bucket >>> shift) & FINGERPRINT_MASK) == 0) {
+                buckets[i] = bucket | ((long) fp << shift);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean clearLane(int i, int fp) {
+        long bucket = buckets[i];
+        for (int shift = 0; shift < Long.SIZE; shift += FINGERPRINT_BITS) {
+            if (((bucket >>> shift) & FINGERPRINT_MASK) == fp) {
+                buckets[i] = bucket & ~(FINGERPRINT_MASK << shift);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void insert(int i, int fp) {
+        if (victim != 0) {
+            throw new IllegalStateException("CuckooFilter is full: " + size + " fingerprints in "
+                    + buckets.length + " buckets");
+        }
+        size++;
+        if (tryPut(i, fp)) {
+            return;
+        }
+        i = alternate(i, fp);
+        if (tryPut(i, fp)) {
+            return;
+        }
+        for (int kick = 0; kick < MAX_KICKS; kick++) {
+            random += 0x9E3779B97F4A7C15L;
+            int shift = (int) (Hasher.mix64(random) & (SLOTS - 1)) * FINGERPRINT_BITS;
+            long bucket = buckets[i];
+            int evicted = (int) ((bucket >>> shift) & FINGERPRINT_MASK);
+            buckets[i] = (bucket & ~(FINGERPRINT_MASK << shift)) | ((long) fp << shift);
+            fp = evicted;
+            i = alternate(i, fp);
+            if (tryPut(i, fp)) {
+                return;
+            }
+        }
+        victim = fp; // counted in size, found by mightContain; the next insert fails
+        victimBucket = i;
+    }
+
+    // ===================================================
+    // Statistics
+    // ===================================================
+
+    /** Number of fingerprints stored; duplicates count once per {@link #add}. */
+    @Override
+    public long approximateElementCount() {
+        return size;
+    }
+
+    /** Chance that one of the up to eight fingerprints read matches by accident, at the current load. */
+    @Override
+    public double expectedFpp() {
+        double load = size / (double) ((long) buckets.length * SLOTS);
+        return -Math.expm1(2 * SLOTS * load * Math.log1p(-1.0 / FINGERPRINT_MASK));
+    }
+
+    @Override
+    public long bitSize() {
+        return (long) buckets.length * Long.SIZE;
+    }
+
+    @Override
+    public String toString() {
+        return "CuckooFilter[" + bitSize() / 8 + " bytes, " + size + " elements]";
+    }
+
+    // ===================================================
+    // Serialization
+    // ===================================================
+
+    /** Writes the filter's size and buckets; the stream is about {@link #bitSize()} / 8 bytes. */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        Format.writeHeader(data, Format.CUCKOO);
+        data.writeInt(buckets.length);
+        data.writeLong(size);
+        data.writeInt(victim);
+        data.writeInt(victimBucket);
+        Format.writeLongs(data, buckets);
+        data.flush();
+    }
+
+    /** Reads a filter written by {@link #writeTo}; {@code hasher} must be the one it was built with. */
+    public static <E> CuckooFilter<E> readFrom(InputStream in, Hasher<? super E> hasher) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        Format.readHeader(data, Format.CUCKOO);
+        int bucketCount = data.readInt();
+        if (bucketCount < 1 || bucketCount > MAX_BUCKETS) {
+            throw new IOException("Corrupt CuckooFilter: " + bucketCount + " buckets");
+        }
+        CuckooFilter<E> filter = new CuckooFilter<>(hasher, bucketCount);
+        filter.size = data.readLong();
+        filter.victim = data.readInt();
+        filter.victimBucket = Math.floorMod(data.readInt(), bucketCount);
+        Format.readLongs(data, filter.buckets);
+        return filter;
+    }
+}
@@ -0,0 +1,126 @@
+package probabilistic;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A {@link Set} view that asks a {@link MembershipFilter} before the set:
+ * {@code contains} and {@code containsAll} answer a definite "absent" from
+ * the filter, in one or two cache lines, and probe {@code set} only for
+ * elements that might be present.
+ *
+ * <pre>
+ * Set&lt;String&gt; keys = Snapshot.readSet(path, Codec.strings());        // billions of keys, on disk
+ * BloomFilter&lt;String&gt; filter = BloomFilter.readFrom(in, Hasher.strings());
+ * Set&lt;String&gt; fast = new FilteredSet&lt;&gt;(keys, filter);
+ * </pre>
+ *
+ * <p>The filter must hold every element of {@code set} when the view is
+ * created, as one built with {@code copyOf(set, ...)} or read back from a
+ * stream does; after that, {@code add} goes to both. {@code remove}
+ * removes from the filter too if it {@linkplain MembershipFilter#supportsRemove
+ * supports} it; otherwise the element's bits stay, which only costs a
+ * wasted probe. {@code size}, iteration and everything else go to
+ * {@code set}. Null elements are never reported present. Thread-safe only if both {@code set} and the filter are
+ * used from one thread, or the caller locks.
+ */
+public class FilteredSet<E> extends AbstractSet<E> {
+
+    private final Set<E> set;
+    private final MembershipFilter<? super E> filter;
+
+    public FilteredSet(Set<E> set, MembershipFilter<? super E> filter) {
+        this.set = Objects.requireNonNull(set, "set");
+        this.filter = Objects.requireNonNull(filter, "filter");
+    }
+
+    public MembershipFilter<? super E> filter() {
+        return filter;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o != null && filter.mightContain(o) && set.contains(o);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        for (Object o : c) {
+            if (o == null || !filter.mightContain(o)) {
+                return false;
+            }
+        }
+        return set.containsAll(c);
+    }
+
+    /**
+     * Adds {@code e} to {@code set} and, if it was new, to the filter. If the
+     * filter throws, as a full {@link CuckooFilter} does, {@code e} is taken
+     * out of {@code set} again before the exception propagates, so the view
+     * never holds an element its filter would deny.
+     */
+    @Override
+    public boolean add(E e) {
+        boolean added = set.add(e);
+        if (added) {
+            try {
+                filter.add(e);
+            } catch (RuntimeException ex) {
+                set.remove(e);
+                throw ex;
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null || !filter.mightContain(o) || !set.remove(o)) {
+            return false;
+        }
+        if (filter.supportsRemove()) {
+            filter.remove(o);
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return set.size();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        Iterator<E> it = set.iterator();
+        return new Iterator<>() {
+            private E last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return last = it.next();
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+                if (filter.supportsRemove()) {
+                    filter.remove(last);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void clear() {
+        set.clear();
+        filter.clear();
+    }
+}
@@ -0,0 +1,74 @@
+package probabilistic;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Stream format shared by the filters and sketches: a header of magic
+ * number, format version and structure kind, then the structure's
+ * parameters and its words, big-endian.
+ */
+final class Format {
+
+    static final int VERSION = 1;
+    static final byte BLOOM = 1;
+    static final byte CUCKOO = 2;
+    static final byte HYPER_LOG_LOG = 3;
+
+    private static final int MAGIC = 0x50524F42; // "PROB"
+    private static final int CHUNK = 1 << 13; // longs per write
+
+    private Format() {
+    }
+
+    static void writeHeader(DataOutputStream out, byte kind) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(kind);
+    }
+
+    static void readHeader(DataInputStream in, byte kind) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a serialized filter or sketch");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported format version " + version + ", expected " + VERSION);
+        }
+        byte actual = in.readByte();
+        if (actual != kind) {
+            throw new IOException("Stream holds a " + kindName(actual) + ", not a " + kindName(kind));
+        }
+    }
+
+    static void writeLongs(DataOutputStream out, long[] words) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK * Long.BYTES);
+        for (int from = 0; from < words.length; from += CHUNK) {
+            int n = Math.min(CHUNK, words.length - from);
+            buffer.clear();
+            buffer.asLongBuffer().put(words, from, n);
+            out.write(buffer.array(), 0, n * Long.BYTES);
+        }
+    }
+
+    static void readLongs(DataInputStream in, long[] words) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK * Long.BYTES);
+        for (int from = 0; from < words.length; from += CHUNK) {
+            int n = Math.min(CHUNK, words.length - from);
+            in.readFully(buffer.array(), 0, n * Long.BYTES);
+            buffer.clear();
+            buffer.asLongBuffer().get(words, from, n);
+        }
+    }
+
+    private static String kindName(byte kind) {
+        return switch (kind) {
+            case BLOOM -> "BloomFilter";
+            case CUCKOO -> "CuckooFilter";
+            case HYPER_LOG_LOG -> "HyperLogLog";
+            default -> "structure of kind " + kind;
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package probabilistic;
+
+import java.util.Objects;
+
+import offheap.Serializer;
+
+/**
+ * 64-bit hash of an element, shared by the filters and sketches in this
+ * package. Every bit of the result is used: the high bits choose a block or
+ * bucket and the low bits the bits, fingerprint or rank within it.
+ *
+ * <p>{@link #objects()} spreads {@code hashCode()} to 64 bits, which is
+ * enough for small sets but has only 2<sup>32</sup> distinct values: past a
+ * few hundred million distinct elements, equal hash codes start to add to
+ * the false-positive rate and make {@link HyperLogLog} under-count. For
+ * larger sets use {@link #strings()}, {@link #longs()} or
+ * {@link #of(Serializer)}, which hash the element's content into 64 bits.
+ *
+ * <p>A filter read back from a stream must be given the hasher it was built
+ * with; the hasher is not recorded in the stream.
+ */
+@FunctionalInterface
+public interface Hasher<E> {
+
+    long hash(E element);
+
+    /** {@code hashCode()} spread to 64 bits. */
+    static <E> Hasher<E> objects() {
+        return e -> mix64(e.hashCode());
+    }
+
+    /** All 64 bits of a {@code Long}; a bijection, so distinct longs never collide. */
+    static Hasher<Long> longs() {
+        return Hasher::mix64;
+    }
+
+    /** The chars of a string, hashed into 64 bits. */
+    static Hasher<String> strings() {
+        return s -> {
+            long h = s.length();
+            for (int i = 0; i < s.length(); i++) {
+                h = (h + s.charAt(i)) * 0x9E3779B97F4A7C15L;
+            }
+            return mix64(h);
+        };
+    }
+
+    /** The bytes of {@code serializer}, hashed into 64 bits eight at a time. */
+    static <E> Hasher<E> of(Serializer<? super E> serializer) {
+        Objects.requireNonNull(serializer, "serializer");
+        return e -> hashBytes(serializer.toBytes(e));
+    }
+
+    /** Final mixing step of SplitMix64: every input bit affects every output bit. */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long hashBytes(byte[] bytes) {
+        long h = bytes.length * 0x9E3779B97F4A7C15L;
+        int i = 0;
+        for (; i + Long.BYTES <= bytes.length; i += Long.BYTES) {
+            long word = 0;
+            for (int j = Long.BYTES - 1; j >= 0; j--) {
+                word = (word << 8) | (bytes[i + j] & 0xFF);
+            }
+            h = mix64(h ^ word);
+        }
+        long tail = 0;
+        for (int j = bytes.length - 1; j >= i; j--) {
+            tail = (tail << 8) | (bytes[j] & 0xFF);
+        }
+        return mix64(h ^ tail);
+    }
+}
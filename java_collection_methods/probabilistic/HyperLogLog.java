@@ -0,0 +1,240 @@
+package probabilistic;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * HyperLogLog cardinality sketch: estimates the number of distinct
+ * elements added, the {@code size()} of a set that is never built, in
+ * {@code 2^precision} bytes.
+ *
+ * <pre>
+ * HyperLogLog&lt;String&gt; visitors = new HyperLogLog&lt;&gt;(Hasher.strings());
+ * requests.forEach(r -&gt; visitors.add(r.userId()));
+ * long distinct = visitors.cardinality(); // within ±0.8% (one standard error) at precision 14
+ * </pre>
+ *
+ * <p>The top {@code precision} bits of an element's 64-bit hash choose a
+ * register, which keeps the largest count of leading zeros (plus one) seen
+ * in the remaining bits. Adding an element twice changes nothing. The
+ * relative standard error is {@code 1.04 / sqrt(2^precision)}: 1.6% at
+ * precision 12 (4 KB), 0.81% at 14 (16 KB), 0.41% at 16 (64 KB).
+ * {@link #cardinality()} uses Ertl's improved estimator ("New cardinality
+ * estimation algorithms for HyperLogLog sketches", 2017), which needs no
+ * switch to linear counting and no bias tables, and with 64-bit hashes
+ * needs no large-range correction either.
+ *
+ * <p>Sketches of the same precision {@link #merge} by taking the larger
+ * register, so per-shard sketches combine into the sketch of the union.
+ * Serialized, registers take 6 bits each. Not thread-safe.
+ */
+public final class HyperLogLog<E> {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+    public static final int DEFAULT_PRECISION = 14;
+
+    private static final int REGISTER_BITS = 6;
+
+    private final Hasher<? super E> hasher;
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(Hasher<? super E> hasher) {
+        this(hasher, DEFAULT_PRECISION);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code precision} is not in
+     *         [{@value #MIN_PRECISION}, {@value #MAX_PRECISION}]
+     */
+    public HyperLogLog(Hasher<? super E> hasher, int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be in [" + MIN_PRECISION + ", " + MAX_PRECISION + "]: "
+                    + precision);
+        }
+        this.hasher = Objects.requireNonNull(hasher, "hasher");
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /** A sketch of the distinct elements of {@code c}. */
+    public static <E> HyperLogLog<E> copyOf(Collection<? extends E> c, Hasher<? super E> hasher, int precision) {
+        HyperLogLog<E> sketch = new HyperLogLog<>(hasher, precision);
+        sketch.addAll(c);
+        return sketch;
+    }
+
+    // ===================================================
+    // Updates
+    // ===================================================
+
+    /** Adds {@code element}; returns whether a register changed. */
+    public boolean add(E element) {
+        long h = hasher.hash(element);
+        int index = (int) (h >>> (Long.SIZE - precision));
+        long rest = h << precision;
+        int rank = rest == 0 ? Long.SIZE - precision + 1 : Long.numberOfLeadingZeros(rest) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+            return true;
+        }
+        return false;
+    }
+
+    public boolean addAll(Collection<? extends E> c) {
+        boolean changed = false;
+        for (E e : c) {
+            changed |= add(e);
+        }
+        return changed;
+    }
+
+    /**
+     * Makes this the sketch of the union of both sketches' elements.
+     *
+     * @throws IllegalArgumentException if the precisions differ
+     */
+    public void merge(HyperLogLog<? extends E> other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Sketches differ in precision: " + precision + " vs " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+
+    // ===================================================
+    // Estimates
+    // ===================================================
+
+    /** Estimated number of distinct elements added. */
+    public long cardinality() {
+        int q = Long.SIZE - precision;
+        int[] counts = new int[q + 2]; // histogram of register values 0..q+1
+        for (byte r : registers) {
+            counts[r]++;
+        }
+        double m = registers.length;
+        double z = m * tau(1 - counts[q + 1] / m);
+        for (int k = q; k >= 1; k--) {
+            z = 0.5 * (z + counts[k]);
+        }
+        z += m * sigma(counts[0] / m);
+        return Math.round(m * m / (2 * Math.log(2)) / z);
+    }
+
+    public boolean isEmpty() {
+        for (byte r : registers) {
+            if (r != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    /** Expected relative standard error of {@link #cardinality()}: {@code 1.04 / sqrt(2^precision)}. */
+    public double relativeStandardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    /** {@code x + Σ x^(2^k) 2^(k-1)}: corrects for registers still at zero. */
+    private static double sigma(double x) {
+        if (x == 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double y = 1;
+        double z = x;
+        double previous;
+        do {
+            x *= x;
+            previous = z;
+            z += x * y;
+            y += y;
+        } while (z != previous);
+        return z;
+    }
+
+    /** {@code (1 - x - Σ (1 - x^(2^-k))^2 2^-k) / 3}: corrects for registers at the maximum. */
+    private static double tau(double x) {
+        if (x == 0 || x == 1) {
+            return 0;
+        }
+        double y = 1;
+        double z = 1 - x;
+        double previous;
+        do {
+            x = Math.sqrt(x);
+            previous = z;
+            y *= 0.5;
+            z -= (1 - x) * (1 - x) * y;
+        } while (z != previous);
+        return z / 3;
+    }
+
+    @Override
+    public String toString() {
+        return "HyperLogLog[precision=" + precision + ", ~" + cardinality() + " distinct]";
+    }
+
+    // ===================================================
+    // Serialization
+    // ===================================================
+
+    /** Writes the precision and the registers packed into 6 bits each: 12 KB at precision 14. */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        Format.writeHeader(data, Format.HYPER_LOG_LOG);
+        data.writeByte(precision);
+        byte[] packed = new byte[(registers.length * REGISTER_BITS + 7) / 8];
+        int bit = 0;
+        for (byte r : registers) {
+            for (int b = REGISTER_BITS - 1; b >= 0; b--, bit++) {
+                packed[bit >>> 3] |= (byte) (((r >>> b) & 1) << (7 - (bit & 7)));
+            }
+        }
+        data.write(packed);
+        data.flush();
+    }
+
+    /** Reads a sketch written by {@link #writeTo}; {@code hasher} must be the one it was built with. */
+    public static <E> HyperLogLog<E> readFrom(InputStream in, Hasher<? super E> hasher) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        Format.readHeader(data, Format.HYPER_LOG_LOG);
+        int precision = data.readUnsignedByte();
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IOException("Corrupt HyperLogLog: precision " + precision);
+        }
+        HyperLogLog<E> sketch = new HyperLogLog<>(hasher, precision);
+        byte[] packed = new byte[(sketch.registers.length * REGISTER_BITS + 7) / 8];
+        data.readFully(packed);
+        int bit = 0;
+        for (int i = 0; i < sketch.registers.length; i++) {
+            int r = 0;
+            for (int b = 0; b < REGISTER_BITS; b++, bit++) {
+                r = (r << 1) | ((packed[bit >>> 3] >>> (7 - (bit & 7))) & 1);
+            }
+            if (r > Long.SIZE - precision + 1) {
+                throw new IOException("Corrupt HyperLogLog: register " + i + " = " + r);
+            }
+            sketch.registers[i] = (byte) r;
+        }
+        return sketch;
+    }
+}
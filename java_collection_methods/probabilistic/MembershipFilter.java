@@ -0,0 +1,70 @@
+package probabilistic;
+
+import java.util.Collection;
+
+/**
+ * Approximate set membership: {@link #mightContain} never answers
+ * {@code false} for an element that was added, and answers {@code true}
+ * for an element that was not with a small probability, the filter's
+ * false-positive rate. A {@code false} is therefore definite, and a
+ * filter in front of a large or remote set ({@link FilteredSet}) answers
+ * most negative lookups without touching the set.
+ *
+ * <p>Elements are never stored, only bits derived from their
+ * {@link Hasher} hash, so a filter cannot be iterated. Implementations are
+ * not thread-safe: build one filter per shard or thread and
+ * {@code merge} them.
+ */
+public interface MembershipFilter<E> {
+
+    /** Adds {@code element}; returns {@code false} only if it was certainly present already. */
+    boolean add(E element);
+
+    /** {@code false} if {@code o} was certainly never added. {@code o} must be an {@code E}. */
+    boolean mightContain(Object o);
+
+    /**
+     * Removes one previous {@link #add} of {@code o}. Removing an element
+     * that was never added may remove another element's bits and cause a
+     * false negative.
+     *
+     * @throws UnsupportedOperationException if the filter cannot delete
+     */
+    default boolean remove(Object o) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support remove");
+    }
+
+    /** Whether {@link #remove} is supported. */
+    default boolean supportsRemove() {
+        return false;
+    }
+
+    default boolean addAll(Collection<? extends E> c) {
+        boolean changed = false;
+        for (E e : c) {
+            changed |= add(e);
+        }
+        return changed;
+    }
+
+    default boolean mightContainAll(Collection<?> c) {
+        for (Object o : c) {
+            if (!mightContain(o)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Empties the filter. */
+    void clear();
+
+    /** Size of the filter in bits, which is also about the size of its serialized form. */
+    long bitSize();
+
+    /** Estimated number of distinct elements added. */
+    long approximateElementCount();
+
+    /** Estimated probability that {@link #mightContain} is {@code true} for an element never added, at the current fill. */
+    double expectedFpp();
+}
@@ -0,0 +1,280 @@
+package seq;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleToIntFunction;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * {@link Seq} of {@code double} values, the floating-point counterpart of
+ * {@link IntSeq}: reached from {@link Seq#mapToDouble},
+ * {@link LongSeq#asDoubleSeq()}, {@link IntSeq#mapToDouble} or a
+ * {@code double[]}.
+ *
+ * <p>{@link #sum()} and {@link #average()} use compensated summation, like
+ * {@code DoubleStream}, so the result does not depend on how many small
+ * values follow a large one. There is no {@code distinct()}: equality of
+ * computed doubles is rarely what a pipeline means.
+ */
+@FunctionalInterface
+public interface DoubleSeq {
+
+    /**
+     * Pushes the values, in order, to {@code action} until it returns
+     * {@code false}. Returns {@code false} if {@code action} stopped the
+     * traversal, {@code true} if every value was pushed.
+     */
+    boolean forEachWhile(DoublePredicate action);
+
+    // ===================================================
+    // Sources
+    // ===================================================
+
+    static DoubleSeq empty() {
+        return action -> true;
+    }
+
+    static DoubleSeq of(double... values) {
+        Objects.requireNonNull(values, "values");
+        return action -> {
+            for (double v : values) {
+                if (!action.test(v)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /** {@code seed, next(seed), ...}: infinite, so follow it with {@code limit} or {@code takeWhile}. */
+    static DoubleSeq iterate(double seed, DoubleUnaryOperator next) {
+        Objects.requireNonNull(next, "next");
+        return action -> {
+            for (double v = seed; ; v = next.applyAsDouble(v)) {
+                if (!action.test(v)) {
+                    return false;
+                }
+            }
+        };
+    }
+
+    // ===================================================
+    // Intermediate operations (lazy)
+    // ===================================================
+
+    default DoubleSeq filter(DoublePredicate predicate) {
+        Objects.requireNonNull(predicate, "predicate");
+        return action -> forEachWhile(v -> !predicate.test(v) || action.test(v));
+    }
+
+    default DoubleSeq map(DoubleUnaryOperator mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> action.test(mapper.applyAsDouble(v)));
+    }
+
+    default DoubleSeq flatMap(DoubleFunction<? extends DoubleSeq> mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> mapper.apply(v).forEachWhile(action));
+    }
+
+    default <R> Seq<R> mapToObj(DoubleFunction<? extends R> mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> action.test(mapper.apply(v)));
+    }
+
+    default IntSeq mapToInt(DoubleToIntFunction mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> action.test(mapper.applyAsInt(v)));
+    }
+
+    default LongSeq mapToLong(DoubleToLongFunction mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> action.test(mapper.applyAsLong(v)));
+    }
+
+    default Seq<Double> boxed() {
+        return mapToObj(Double::valueOf);
+    }
+
+    default DoubleSeq peek(DoubleConsumer consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        return action -> forEachWhile(v -> {
+            consumer.accept(v);
+            return action.test(v);
+        });
+    }
+
+    /** At most the first {@code maxSize} values; the source is not read past them. */
+    default DoubleSeq limit(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must be >= 0: " + maxSize);
+        }
+        return action -> {
+            if (maxSize == 0) {
+                return true;
+            }
+            long[] left = {maxSize};
+            boolean[] stopped = {false};
+            forEachWhile(v -> {
+                if (!action.test(v)) {
+                    stopped[0] = true;
+                    return false;
+                }
+                return --left[0] > 0;
+            });
+            return !stopped[0];
+        };
+    }
+
+    default DoubleSeq skip(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be >= 0: " + n);
+        }
+        return action -> {
+            long[] toSkip = {n};
+            return forEachWhile(v -> toSkip[0] > 0 ? toSkip[0]-- > 0 : action.test(v));
+        };
+    }
+
+    default DoubleSeq takeWhile(DoublePredicate predicate) {
+        Objects.requireNonNull(predicate, "predicate");
+        return action -> {
+            boolean[] stopped = {false};
+            forEachWhile(v -> {
+                if (!predicate.test(v)) {
+                    return false;
+                }
+                if (!action.test(v)) {
+                    stopped[0] = true;
+                    return false;
+                }
+                return true;
+            });
+            return !stopped[0];
+        };
+    }
+
+    /** Buffers the whole sequence, sorts it and then pushes it on; not lazy past this step. */
+    default DoubleSeq sorted() {
+        return action -> {
+            double[] values = toArray();
+            Arrays.sort(values);
+            return of(values).forEachWhile(action);
+        };
+    }
+
+    // ===================================================
+    // Terminal operations (run the pipeline)
+    // ===================================================
+
+    default void forEach(DoubleConsumer consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        forEachWhile(v -> {
+            consumer.accept(v);
+            return true;
+        });
+    }
+
+    default double[] toArray() {
+        double[][] values = {new double[16]};
+        int[] size = {0};
+        forEachWhile(v -> {
+            if (size[0] == values[0].length) {
+                values[0] = Arrays.copyOf(values[0], size[0] * 2);
+            }
+            values[0][size[0]++] = v;
+            return true;
+        });
+        return Arrays.copyOf(values[0], size[0]);
+    }
+
+    default long count() {
+        long[] count = {0};
+        forEachWhile(v -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    /** Sum with Kahan-Babuska compensation, as {@code DoubleStream.sum()} does. */
+    default double sum() {
+        double[] state = summation();
+        return state[0] + state[1];
+    }
+
+    default OptionalDouble average() {
+        double[] state = summation();
+        return state[2] == 0 ? OptionalDouble.empty() : OptionalDouble.of((state[0] + state[1]) / state[2]);
+    }
+
+    /** {@code {sum, compensation, count}}. */
+    private double[] summation() {
+        double[] state = new double[3];
+        forEachWhile(v -> {
+            double t = state[0] + v;
+            state[1] += Math.abs(state[0]) >= Math.abs(v) ? (state[0] - t) + v : (v - t) + state[0];
+            state[0] = t;
+            state[2]++;
+            return true;
+        });
+        return state;
+    }
+
+    default OptionalDouble min() {
+        return reduce(Math::min);
+    }
+
+    default OptionalDouble max() {
+        return reduce(Math::max);
+    }
+
+    default double reduce(double identity, DoubleBinaryOperator accumulator) {
+        Objects.requireNonNull(accumulator, "accumulator");
+        double[] result = {identity};
+        forEachWhile(v -> {
+            result[0] = accumulator.applyAsDouble(result[0], v);
+            return true;
+        });
+        return result[0];
+    }
+
+    default OptionalDouble reduce(DoubleBinaryOperator accumulator) {
+        Objects.requireNonNull(accumulator, "accumulator");
+        double[] result = new double[1];
+        boolean[] found = {false};
+        forEachWhile(v -> {
+            result[0] = found[0] ? accumulator.applyAsDouble(result[0], v) : v;
+            found[0] = true;
+            return true;
+        });
+        return found[0] ? OptionalDouble.of(result[0]) : OptionalDouble.empty();
+    }
+
+    default OptionalDouble first() {
+        double[] first = new double[1];
+        boolean empty = forEachWhile(v -> {
+            first[0] = v;
+            return false;
+        });
+        return empty ? OptionalDouble.empty() : OptionalDouble.of(first[0]);
+    }
+
+    default boolean anyMatch(DoublePredicate predicate) {
+        return !forEachWhile(v -> !predicate.test(v));
+    }
+
+    default boolean allMatch(DoublePredicate predicate) {
+        return forEachWhile(predicate);
+    }
+
+    default boolean noneMatch(DoublePredicate predicate) {
+        return !anyMatch(predicate);
+    }
+}
@@ -0,0 +1,315 @@
+package seq;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+
+import primitive.IntArrayList;
+import primitive.IntIntMap;
+import primitive.IntList;
+
+/**
+ * {@link Seq} of {@code int} values: the same lazy, fused, re-traversable
+ * pipeline, with callbacks that take an {@code int} so no element is boxed.
+ * Reached from {@link Seq#mapToInt}, from an {@code int[]} or
+ * {@link IntList}, or from {@link #range}.
+ *
+ * <p>{@link #sum()} returns a {@code long}, so summing many large values
+ * does not silently overflow as {@code IntStream.sum()} does.
+ * {@link #distinct()} remembers the values in an {@link IntIntMap} rather
+ * than a {@code HashSet<Integer>}.
+ */
+@FunctionalInterface
+public interface IntSeq {
+
+    /**
+     * Pushes the values, in order, to {@code action} until it returns
+     * {@code false}. Returns {@code false} if {@code action} stopped the
+     * traversal, {@code true} if every value was pushed.
+     */
+    boolean forEachWhile(IntPredicate action);
+
+    // ===================================================
+    // Sources
+    // ===================================================
+
+    static IntSeq empty() {
+        return action -> true;
+    }
+
+    static IntSeq of(int... values) {
+        Objects.requireNonNull(values, "values");
+        return action -> {
+            for (int v : values) {
+                if (!action.test(v)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    static IntSeq of(IntList list) {
+        Objects.requireNonNull(list, "list");
+        return action -> {
+            for (int i = 0, n = list.size(); i < n; i++) {
+                if (!action.test(list.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /** {@code from, from + 1, ..., to - 1}. */
+    static IntSeq range(int from, int to) {
+        return action -> {
+            for (int i = from; i < to; i++) {
+                if (!action.test(i)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /** {@code seed, next(seed), ...}: infinite, so follow it with {@code limit} or {@code takeWhile}. */
+    static IntSeq iterate(int seed, IntUnaryOperator next) {
+        Objects.requireNonNull(next, "next");
+        return action -> {
+            for (int v = seed; ; v = next.applyAsInt(v)) {
+                if (!action.test(v)) {
+                    return false;
+                }
+            }
+        };
+    }
+
+    // ===================================================
+    // Intermediate operations (lazy)
+    // ===================================================
+
+    default IntSeq filter(IntPredicate predicate) {
+        Objects.requireNonNull(predicate, "predicate");
+        return action -> forEachWhile(v -> !predicate.test(v) || action.test(v));
+    }
+
+    default IntSeq map(IntUnaryOperator mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> action.test(mapper.applyAsInt(v)));
+    }
+
+    default IntSeq flatMap(IntFunction<? extends IntSeq> mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> mapper.apply(v).forEachWhile(action));
+    }
+
+    default <R> Seq<R> mapToObj(IntFunction<? extends R> mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> action.test(mapper.apply(v)));
+    }
+
+    default LongSeq mapToLong(IntToLongFunction mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> action.test(mapper.applyAsLong(v)));
+    }
+
+    default DoubleSeq mapToDouble(IntToDoubleFunction mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> action.test(mapper.applyAsDouble(v)));
+    }
+
+    default LongSeq asLongSeq() {
+        return action -> forEachWhile(v -> action.test(v));
+    }
+
+    default Seq<Integer> boxed() {
+        return mapToObj(Integer::valueOf);
+    }
+
+    default IntSeq peek(IntConsumer consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        return action -> forEachWhile(v -> {
+            consumer.accept(v);
+            return action.test(v);
+        });
+    }
+
+    /** At most the first {@code maxSize} values; the source is not read past them. */
+    default IntSeq limit(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must be >= 0: " + maxSize);
+        }
+        return action -> {
+            if (maxSize == 0) {
+                return true;
+            }
+            long[] left = {maxSize};
+            boolean[] stopped = {false};
+            forEachWhile(v -> {
+                if (!action.test(v)) {
+                    stopped[0] = true;
+                    return false;
+                }
+                return --left[0] > 0;
+            });
+            return !stopped[0];
+        };
+    }
+
+    default IntSeq skip(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be >= 0: " + n);
+        }
+        return action -> {
+            long[] toSkip = {n};
+            return forEachWhile(v -> toSkip[0] > 0 ? toSkip[0]-- > 0 : action.test(v));
+        };
+    }
+
+    default IntSeq takeWhile(IntPredicate predicate) {
+        Objects.requireNonNull(predicate, "predicate");
+        return action -> {
+            boolean[] stopped = {false};
+            forEachWhile(v -> {
+                if (!predicate.test(v)) {
+                    return false;
+                }
+                if (!action.test(v)) {
+                    stopped[0] = true;
+                    return false;
+                }
+                return true;
+            });
+            return !stopped[0];
+        };
+    }
+
+    /** Drops repeated values, keeping the first. */
+    default IntSeq distinct() {
+        return action -> {
+            IntIntMap seen = new IntIntMap();
+            return forEachWhile(v -> seen.putIfAbsent(v, 1) != 0 || action.test(v));
+        };
+    }
+
+    /** Buffers the whole sequence, sorts it and then pushes it on; not lazy past this step. */
+    default IntSeq sorted() {
+        return action -> {
+            int[] values = toArray();
+            Arrays.sort(values);
+            return of(values).forEachWhile(action);
+        };
+    }
+
+    // ===================================================
+    // Terminal operations (run the pipeline)
+    // ===================================================
+
+    default void forEach(IntConsumer consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        forEachWhile(v -> {
+            consumer.accept(v);
+            return true;
+        });
+    }
+
+    /** A new mutable {@link IntArrayList}. */
+    default IntArrayList toList() {
+        IntArrayList result = new IntArrayList();
+        forEachWhile(result::add);
+        return result;
+    }
+
+    default int[] toArray() {
+        return toList().toArray();
+    }
+
+    default long count() {
+        long[] count = {0};
+        forEachWhile(v -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    default long sum() {
+        long[] sum = {0};
+        forEachWhile(v -> {
+            sum[0] += v;
+            return true;
+        });
+        return sum[0];
+    }
+
+    default OptionalDouble average() {
+        long[] sumAndCount = new long[2];
+        forEachWhile(v -> {
+            sumAndCount[0] += v;
+            sumAndCount[1]++;
+            return true;
+        });
+        return sumAndCount[1] == 0 ? OptionalDouble.empty()
+                : OptionalDouble.of((double) sumAndCount[0] / sumAndCount[1]);
+    }
+
+    default OptionalInt min() {
+        return reduce(Math::min);
+    }
+
+    default OptionalInt max() {
+        return reduce(Math::max);
+    }
+
+    default int reduce(int identity, IntBinaryOperator accumulator) {
+        Objects.requireNonNull(accumulator, "accumulator");
+        int[] result = {identity};
+        forEachWhile(v -> {
+            result[0] = accumulator.applyAsInt(result[0], v);
+            return true;
+        });
+        return result[0];
+    }
+
+    default OptionalInt reduce(IntBinaryOperator accumulator) {
+        Objects.requireNonNull(accumulator, "accumulator");
+        int[] result = new int[1];
+        boolean[] found = {false};
+        forEachWhile(v -> {
+            result[0] = found[0] ? accumulator.applyAsInt(result[0], v) : v;
+            found[0] = true;
+            return true;
+        });
+        return found[0] ? OptionalInt.of(result[0]) : OptionalInt.empty();
+    }
+
+    default OptionalInt first() {
+        int[] first = new int[1];
+        boolean empty = forEachWhile(v -> {
+            first[0] = v;
+            return false;
+        });
+        return empty ? OptionalInt.empty() : OptionalInt.of(first[0]);
+    }
+
+    default boolean anyMatch(IntPredicate predicate) {
+        return !forEachWhile(v -> !predicate.test(v));
+    }
+
+    default boolean allMatch(IntPredicate predicate) {
+        return forEachWhile(predicate);
+    }
+
+    default boolean noneMatch(IntPredicate predicate) {
+        return !anyMatch(predicate);
+    }
+}
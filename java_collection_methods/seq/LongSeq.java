@@ -0,0 +1,311 @@
+package seq;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongToIntFunction;
+import java.util.function.LongUnaryOperator;
+
+import primitive.LongArrayList;
+import primitive.LongList;
+import primitive.LongObjectMap;
+
+/**
+ * {@link Seq} of {@code long} values, the {@code long} counterpart of
+ * {@link IntSeq}: reached from {@link Seq#mapToLong},
+ * {@link IntSeq#asLongSeq()}, a {@code long[]} or {@link LongList}, or
+ * {@link #range}. {@link #distinct()} remembers the values in a
+ * {@link LongObjectMap}.
+ */
+@FunctionalInterface
+public interface LongSeq {
+
+    /**
+     * Pushes the values, in order, to {@code action} until it returns
+     * {@code false}. Returns {@code false} if {@code action} stopped the
+     * traversal, {@code true} if every value was pushed.
+     */
+    boolean forEachWhile(LongPredicate action);
+
+    // ===================================================
+    // Sources
+    // ===================================================
+
+    static LongSeq empty() {
+        return action -> true;
+    }
+
+    static LongSeq of(long... values) {
+        Objects.requireNonNull(values, "values");
+        return action -> {
+            for (long v : values) {
+                if (!action.test(v)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    static LongSeq of(LongList list) {
+        Objects.requireNonNull(list, "list");
+        return action -> {
+            for (int i = 0, n = list.size(); i < n; i++) {
+                if (!action.test(list.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /** {@code from, from + 1, ..., to - 1}. */
+    static LongSeq range(long from, long to) {
+        return action -> {
+            for (long i = from; i < to; i++) {
+                if (!action.test(i)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /** {@code seed, next(seed), ...}: infinite, so follow it with {@code limit} or {@code takeWhile}. */
+    static LongSeq iterate(long seed, LongUnaryOperator next) {
+        Objects.requireNonNull(next, "next");
+        return action -> {
+            for (long v = seed; ; v = next.applyAsLong(v)) {
+                if (!action.test(v)) {
+                    return false;
+                }
+            }
+        };
+    }
+
+    // ===================================================
+    // Intermediate operations (lazy)
+    // ===================================================
+
+    default LongSeq filter(LongPredicate predicate) {
+        Objects.requireNonNull(predicate, "predicate");
+        return action -> forEachWhile(v -> !predicate.test(v) || action.test(v));
+    }
+
+    default LongSeq map(LongUnaryOperator mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> action.test(mapper.applyAsLong(v)));
+    }
+
+    default LongSeq flatMap(LongFunction<? extends LongSeq> mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> mapper.apply(v).forEachWhile(action));
+    }
+
+    default <R> Seq<R> mapToObj(LongFunction<? extends R> mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> action.test(mapper.apply(v)));
+    }
+
+    default IntSeq mapToInt(LongToIntFunction mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> action.test(mapper.applyAsInt(v)));
+    }
+
+    default DoubleSeq mapToDouble(LongToDoubleFunction mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(v -> action.test(mapper.applyAsDouble(v)));
+    }
+
+    default DoubleSeq asDoubleSeq() {
+        return action -> forEachWhile(v -> action.test((double) v));
+    }
+
+    default Seq<Long> boxed() {
+        return mapToObj(Long::valueOf);
+    }
+
+    default LongSeq peek(LongConsumer consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        return action -> forEachWhile(v -> {
+            consumer.accept(v);
+            return action.test(v);
+        });
+    }
+
+    /** At most the first {@code maxSize} values; the source is not read past them. */
+    default LongSeq limit(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must be >= 0: " + maxSize);
+        }
+        return action -> {
+            if (maxSize == 0) {
+                return true;
+            }
+            long[] left = {maxSize};
+            boolean[] stopped = {false};
+            forEachWhile(v -> {
+                if (!action.test(v)) {
+                    stopped[0] = true;
+                    return false;
+                }
+                return --left[0] > 0;
+            });
+            return !stopped[0];
+        };
+    }
+
+    default LongSeq skip(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be >= 0: " + n);
+        }
+        return action -> {
+            long[] toSkip = {n};
+            return forEachWhile(v -> toSkip[0] > 0 ? toSkip[0]-- > 0 : action.test(v));
+        };
+    }
+
+    default LongSeq takeWhile(LongPredicate predicate) {
+        Objects.requireNonNull(predicate, "predicate");
+        return action -> {
+            boolean[] stopped = {false};
+            forEachWhile(v -> {
+                if (!predicate.test(v)) {
+                    return false;
+                }
+                if (!action.test(v)) {
+                    stopped[0] = true;
+                    return false;
+                }
+                return true;
+            });
+            return !stopped[0];
+        };
+    }
+
+    /** Drops repeated values, keeping the first. */
+    default LongSeq distinct() {
+        return action -> {
+            LongObjectMap<Boolean> seen = new LongObjectMap<>();
+            return forEachWhile(v -> seen.putIfAbsent(v, Boolean.TRUE) != null || action.test(v));
+        };
+    }
+
+    /** Buffers the whole sequence, sorts it and then pushes it on; not lazy past this step. */
+    default LongSeq sorted() {
+        return action -> {
+            long[] values = toArray();
+            Arrays.sort(values);
+            return of(values).forEachWhile(action);
+        };
+    }
+
+    // ===================================================
+    // Terminal operations (run the pipeline)
+    // ===================================================
+
+    default void forEach(LongConsumer consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        forEachWhile(v -> {
+            consumer.accept(v);
+            return true;
+        });
+    }
+
+    /** A new mutable {@link LongArrayList}. */
+    default LongArrayList toList() {
+        LongArrayList result = new LongArrayList();
+        forEachWhile(result::add);
+        return result;
+    }
+
+    default long[] toArray() {
+        return toList().toArray();
+    }
+
+    default long count() {
+        long[] count = {0};
+        forEachWhile(v -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    default long sum() {
+        long[] sum = {0};
+        forEachWhile(v -> {
+            sum[0] += v;
+            return true;
+        });
+        return sum[0];
+    }
+
+    default OptionalDouble average() {
+        long[] sumAndCount = new long[2];
+        forEachWhile(v -> {
+            sumAndCount[0] += v;
+            sumAndCount[1]++;
+            return true;
+        });
+        return sumAndCount[1] == 0 ? OptionalDouble.empty()
+                : OptionalDouble.of((double) sumAndCount[0] / sumAndCount[1]);
+    }
+
+    default OptionalLong min() {
+        return reduce(Math::min);
+    }
+
+    default OptionalLong max() {
+        return reduce(Math::max);
+    }
+
+    default long reduce(long identity, LongBinaryOperator accumulator) {
+        Objects.requireNonNull(accumulator, "accumulator");
+        long[] result = {identity};
+        forEachWhile(v -> {
+            result[0] = accumulator.applyAsLong(result[0], v);
+            return true;
+        });
+        return result[0];
+    }
+
+    default OptionalLong reduce(LongBinaryOperator accumulator) {
+        Objects.requireNonNull(accumulator, "accumulator");
+        long[] result = new long[1];
+        boolean[] found = {false};
+        forEachWhile(v -> {
+            result[0] = found[0] ? accumulator.applyAsLong(result[0], v) : v;
+            found[0] = true;
+            return true;
+        });
+        return found[0] ? OptionalLong.of(result[0]) : OptionalLong.empty();
+    }
+
+    default OptionalLong first() {
+        long[] first = new long[1];
+        boolean empty = forEachWhile(v -> {
+            first[0] = v;
+            return false;
+        });
+        return empty ? OptionalLong.empty() : OptionalLong.of(first[0]);
+    }
+
+    default boolean anyMatch(LongPredicate predicate) {
+        return !forEachWhile(v -> !predicate.test(v));
+    }
+
+    default boolean allMatch(LongPredicate predicate) {
+        return forEachWhile(predicate);
+    }
+
+    default boolean noneMatch(LongPredicate predicate) {
+        return !anyMatch(predicate);
+    }
+}
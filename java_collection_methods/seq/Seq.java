@@ -0,0 +1,397 @@
+package seq;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * A lazy, re-traversable pipeline over a collection, map or array: the
+ * single-pass alternative to chaining {@code removeIf}, {@code replaceAll}
+ * and {@code new ArrayList<>(...)} copies between transformation steps.
+ *
+ * <pre>
+ * List&lt;String&gt; shortUpper = Seq.of(fruits)
+ *         .filter(f -&gt; !f.startsWith("O"))
+ *         .map(String::toUpperCase)
+ *         .limit(10)
+ *         .toList();
+ * long stock = Seq.values(prices).mapToInt(Integer::intValue).filter(p -&gt; p &gt; 10).sum();
+ * </pre>
+ *
+ * <p>A {@code Seq} is one method, {@link #forEachWhile}: push every element
+ * to a callback until it returns {@code false}. Each intermediate operation
+ * wraps the callback of the next one, so a whole pipeline runs as one loop
+ * over the source, with no intermediate collection and nothing evaluated
+ * until a terminal operation ({@code toList}, {@code count}, {@code sum}...)
+ * asks for it. {@code limit}, {@code takeWhile}, {@code first} and the
+ * {@code *Match} operations stop the source loop as soon as they have their
+ * answer. {@code mapToInt}, {@code mapToLong} and {@code mapToDouble} switch
+ * to {@link IntSeq}, {@link LongSeq} and {@link DoubleSeq}, whose callbacks
+ * take primitives, so numeric steps do not box.
+ *
+ * <p>Compared with {@code java.util.stream}: there is no spliterator, no
+ * parallel mode and no one-shot restriction. Every terminal operation
+ * traverses the source again, so a {@code Seq} over a collection sees the
+ * collection's current contents. Only {@code distinct} and {@code sorted}
+ * keep state for the length of one traversal. Sources must not be modified
+ * during a traversal; list and map sources fail fast as their iterators do.
+ */
+@FunctionalInterface
+public interface Seq<T> {
+
+    /**
+     * Pushes the elements, in order, to {@code action} until it returns
+     * {@code false}. Returns {@code false} if {@code action} stopped the
+     * traversal, {@code true} if every element was pushed.
+     */
+    boolean forEachWhile(Predicate<? super T> action);
+
+    // ===================================================
+    // Sources
+    // ===================================================
+
+    static <T> Seq<T> empty() {
+        return action -> true;
+    }
+
+    /**
+     * The elements of {@code source} in iteration order. A {@code RandomAccess}
+     * list is walked by index, and fails fast on a change of size during the walk.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Seq<T> of(Iterable<? extends T> source) {
+        Objects.requireNonNull(source, "source");
+        if (source instanceof List<?> list && source instanceof RandomAccess) {
+            List<? extends T> elements = (List<? extends T>) list;
+            return action -> {
+                for (int i = 0, n = elements.size(); i < n; i++) {
+                    if (elements.size() != n) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if (!action.test(elements.get(i))) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+        return action -> {
+            for (T t : source) {
+                if (!action.test(t)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    @SafeVarargs
+    static <T> Seq<T> of(T... elements) {
+        Objects.requireNonNull(elements, "elements");
+        return action -> {
+            for (T t : elements) {
+                if (!action.test(t)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    static <K> Seq<K> keys(Map<K, ?> map) {
+        return of(map.keySet());
+    }
+
+    static <V> Seq<V> values(Map<?, V> map) {
+        return of(map.values());
+    }
+
+    static <K, V> Seq<Map.Entry<K, V>> entries(Map<K, V> map) {
+        return of(map.entrySet());
+    }
+
+    /** {@code seed, next(seed), next(next(seed)), ...}: infinite, so follow it with {@code limit} or {@code takeWhile}. */
+    static <T> Seq<T> iterate(T seed, UnaryOperator<T> next) {
+        Objects.requireNonNull(next, "next");
+        return action -> {
+            for (T t = seed; ; t = next.apply(t)) {
+                if (!action.test(t)) {
+                    return false;
+                }
+            }
+        };
+    }
+
+    // ===================================================
+    // Intermediate operations (lazy)
+    // ===================================================
+
+    default Seq<T> filter(Predicate<? super T> predicate) {
+        Objects.requireNonNull(predicate, "predicate");
+        return action -> forEachWhile(t -> !predicate.test(t) || action.test(t));
+    }
+
+    default <R> Seq<R> map(Function<? super T, ? extends R> mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(t -> action.test(mapper.apply(t)));
+    }
+
+    /** Replaces each element with the elements of the sequence {@code mapper} returns for it. */
+    default <R> Seq<R> flatMap(Function<? super T, ? extends Seq<? extends R>> mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(t -> mapper.apply(t).forEachWhile(action));
+    }
+
+    default IntSeq mapToInt(ToIntFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(t -> action.test(mapper.applyAsInt(t)));
+    }
+
+    default LongSeq mapToLong(ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(t -> action.test(mapper.applyAsLong(t)));
+    }
+
+    default DoubleSeq mapToDouble(ToDoubleFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper, "mapper");
+        return action -> forEachWhile(t -> action.test(mapper.applyAsDouble(t)));
+    }
+
+    default Seq<T> peek(Consumer<? super T> consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        return action -> forEachWhile(t -> {
+            consumer.accept(t);
+            return action.test(t);
+        });
+    }
+
+    /** At most the first {@code maxSize} elements; the source is not read past them. */
+    default Seq<T> limit(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must be >= 0: " + maxSize);
+        }
+        return action -> {
+            if (maxSize == 0) {
+                return true;
+            }
+            long[] left = {maxSize};
+            boolean[] stopped = {false};
+            forEachWhile(t -> {
+                if (!action.test(t)) {
+                    stopped[0] = true;
+                    return false;
+                }
+                return --left[0] > 0;
+            });
+            return !stopped[0];
+        };
+    }
+
+    default Seq<T> skip(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be >= 0: " + n);
+        }
+        return action -> {
+            long[] toSkip = {n};
+            return forEachWhile(t -> toSkip[0] > 0 ? toSkip[0]-- > 0 : action.test(t));
+        };
+    }
+
+    /** The longest prefix whose elements all match {@code predicate}. */
+    default Seq<T> takeWhile(Predicate<? super T> predicate) {
+        Objects.requireNonNull(predicate, "predicate");
+        return action -> {
+            boolean[] stopped = {false};
+            forEachWhile(t -> {
+                if (!predicate.test(t)) {
+                    return false;
+                }
+                if (!action.test(t)) {
+                    stopped[0] = true;
+                    return false;
+                }
+                return true;
+            });
+            return !stopped[0];
+        };
+    }
+
+    /** Drops repeated elements (by {@code equals}), keeping the first; remembers every distinct element seen. */
+    default Seq<T> distinct() {
+        return action -> {
+            Set<T> seen = new HashSet<>();
+            return forEachWhile(t -> !seen.add(t) || action.test(t));
+        };
+    }
+
+    /** Buffers the whole sequence, sorts it and then pushes it on; not lazy past this step. */
+    default Seq<T> sorted(Comparator<? super T> comparator) {
+        return action -> {
+            List<T> buffer = toList();
+            buffer.sort(comparator);
+            return of(buffer).forEachWhile(action);
+        };
+    }
+
+    default Seq<T> concat(Seq<? extends T> next) {
+        Objects.requireNonNull(next, "next");
+        return action -> forEachWhile(action) && next.forEachWhile(action);
+    }
+
+    // ===================================================
+    // Terminal operations (run the pipeline)
+    // ===================================================
+
+    default void forEach(Consumer<? super T> consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        forEachWhile(t -> {
+            consumer.accept(t);
+            return true;
+        });
+    }
+
+    /** Adds every element to {@code target} and returns it; elements {@code target} rejects are skipped, not an end. */
+    default <C extends Collection<? super T>> C into(C target) {
+        forEach(target::add);
+        return target;
+    }
+
+    /** A new mutable {@code ArrayList}. */
+    default List<T> toList() {
+        List<T> result = new ArrayList<>();
+        forEachWhile(result::add);
+        return result;
+    }
+
+    /** A new mutable {@code HashSet}. */
+    default Set<T> toSet() {
+        return into(new HashSet<>());
+    }
+
+    /** A new {@code HashMap}; throws {@code IllegalStateException} on a duplicate key, like {@code Collectors.toMap}. */
+    default <K, V> Map<K, V> toMap(Function<? super T, ? extends K> keyMapper,
+                                   Function<? super T, ? extends V> valueMapper) {
+        return toMap(keyMapper, valueMapper, (a, b) -> {
+            throw new IllegalStateException("Duplicate key (values " + a + " and " + b + ")");
+        });
+    }
+
+    default <K, V> Map<K, V> toMap(Function<? super T, ? extends K> keyMapper,
+                                   Function<? super T, ? extends V> valueMapper,
+                                   BinaryOperator<V> merge) {
+        Map<K, V> result = new HashMap<>();
+        forEach(t -> result.merge(keyMapper.apply(t), valueMapper.apply(t), merge));
+        return result;
+    }
+
+    /** A new {@code HashMap} from each key to the elements with that key, in encounter order. */
+    default <K> Map<K, List<T>> groupBy(Function<? super T, ? extends K> classifier) {
+        Map<K, List<T>> result = new HashMap<>();
+        forEach(t -> result.computeIfAbsent(classifier.apply(t), k -> new ArrayList<>()).add(t));
+        return result;
+    }
+
+    default Object[] toArray() {
+        return toList().toArray();
+    }
+
+    default <A> A[] toArray(IntFunction<A[]> generator) {
+        return toList().toArray(generator);
+    }
+
+    default long count() {
+        long[] count = {0};
+        forEachWhile(t -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    default T reduce(T identity, BinaryOperator<T> accumulator) {
+        Objects.requireNonNull(accumulator, "accumulator");
+        Object[] result = {identity};
+        forEach(t -> result[0] = accumulator.apply(cast(result[0]), t));
+        return cast(result[0]);
+    }
+
+    /** The first element; like {@code Stream.findFirst}, throws {@code NullPointerException} if it is null. */
+    default Optional<T> first() {
+        Object[] first = new Object[1];
+        boolean empty = forEachWhile(t -> {
+            first[0] = Objects.requireNonNull(t, "first element is null");
+            return false;
+        });
+        return empty ? Optional.empty() : Optional.of(cast(first[0]));
+    }
+
+    default Optional<T> min(Comparator<? super T> comparator) {
+        return best(comparator, -1);
+    }
+
+    default Optional<T> max(Comparator<? super T> comparator) {
+        return best(comparator, 1);
+    }
+
+    private Optional<T> best(Comparator<? super T> comparator, int sign) {
+        Objects.requireNonNull(comparator, "comparator");
+        Object[] best = new Object[1];
+        boolean[] found = {false};
+        forEach(t -> {
+            if (!found[0] || Integer.signum(comparator.compare(t, cast(best[0]))) == sign) {
+                best[0] = t;
+                found[0] = true;
+            }
+        });
+        return found[0] ? Optional.of(cast(best[0])) : Optional.empty();
+    }
+
+    default boolean anyMatch(Predicate<? super T> predicate) {
+        return !forEachWhile(t -> !predicate.test(t));
+    }
+
+    default boolean allMatch(Predicate<? super T> predicate) {
+        return forEachWhile(predicate);
+    }
+
+    default boolean noneMatch(Predicate<? super T> predicate) {
+        return !anyMatch(predicate);
+    }
+
+    /** {@code String.valueOf} of each element, separated by {@code delimiter}. */
+    default String join(CharSequence delimiter) {
+        StringBuilder sb = new StringBuilder();
+        boolean[] first = {true};
+        forEach(t -> {
+            if (!first[0]) {
+                sb.append(delimiter);
+            }
+            first[0] = false;
+            sb.append(t);
+        });
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object o) {
+        return (T) o;
+    }
+}
@@ -0,0 +1,103 @@
+package snapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import offheap.Serializer;
+
+/**
+ * How the elements of a snapshot column are stored. {@link #ints()} and
+ * {@link #longs()} are stored as numbers (delta- and varint-encoded, sorted
+ * numerically when they are keys); {@link #strings()} and
+ * {@link #of(Serializer)} are stored as bytes (dictionary-encoded when
+ * values repeat, sorted by unsigned byte order when they are keys, which for
+ * UTF-8 strings is code point order).
+ *
+ * <p>The codec's tag is recorded in the file, and a reader given a codec of
+ * another kind fails instead of misreading the data. A custom codec is only
+ * checked for being custom: reading with a different {@link Serializer}
+ * than the one that wrote the file is the caller's error.
+ */
+public final class Codec<E> {
+
+    static final byte INT = 1;
+    static final byte LONG = 2;
+    static final byte STRING = 3;
+    static final byte CUSTOM = 4;
+
+    private static final Codec<Integer> INTS = new Codec<>(INT, Integer.class, null);
+    private static final Codec<Long> LONGS = new Codec<>(LONG, Long.class, null);
+    private static final Codec<String> STRINGS = new Codec<>(STRING, String.class, Serializer.utf8());
+
+    final byte tag;
+    /** Element class for the built-in codecs, used to answer {@code contains} of another type; null if custom. */
+    private final Class<E> type;
+    private final Serializer<E> serializer;
+
+    private Codec(byte tag, Class<E> type, Serializer<E> serializer) {
+        this.tag = tag;
+        this.type = type;
+        this.serializer = serializer;
+    }
+
+    /** {@code Integer} elements, stored as varints. */
+    public static Codec<Integer> ints() {
+        return INTS;
+    }
+
+    /** {@code Long} elements, stored as varints. */
+    public static Codec<Long> longs() {
+        return LONGS;
+    }
+
+    /** {@code String} elements, stored as UTF-8. */
+    public static Codec<String> strings() {
+        return STRINGS;
+    }
+
+    /** Elements stored as the bytes of {@code serializer}. */
+    public static <E> Codec<E> of(Serializer<E> serializer) {
+        return new Codec<>(CUSTOM, null, Objects.requireNonNull(serializer, "serializer"));
+    }
+
+    boolean numeric() {
+        return serializer == null;
+    }
+
+    /** Whether {@code o} could be an element; false means a lookup can answer "absent" at once. */
+    boolean accepts(Object o) {
+        return o != null && (type == null || type.isInstance(o));
+    }
+
+    long toLong(E element) {
+        return tag == INT ? (Integer) element : (Long) element;
+    }
+
+    @SuppressWarnings("unchecked")
+    E fromLong(long value) {
+        return (E) (tag == INT ? (Object) (int) value : (Object) value);
+    }
+
+    byte[] toBytes(E element) {
+        return tag == STRING ? ((String) element).getBytes(StandardCharsets.UTF_8) : serializer.toBytes(element);
+    }
+
+    E fromBytes(byte[] bytes) {
+        return serializer.fromBytes(bytes);
+    }
+
+    static String name(byte tag) {
+        switch (tag) {
+            case INT:
+                return "ints";
+            case LONG:
+                return "longs";
+            case STRING:
+                return "strings";
+            case CUSTOM:
+                return "custom";
+            default:
+                return "unknown(" + tag + ")";
+        }
+    }
+}
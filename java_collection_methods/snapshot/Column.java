@@ -0,0 +1,351 @@
+package snapshot;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read side of one column of a mapped snapshot: decodes element
+ * {@code index} on demand, straight from the mapping, and for sorted key
+ * columns finds an element by binary search over the encoded form.
+ * Immutable apart from the dictionary's decode cache, so views can be read
+ * from any number of threads.
+ */
+abstract class Column<E> {
+
+    final Codec<E> codec;
+    final int size;
+
+    Column(Codec<E> codec, int size) {
+        this.codec = codec;
+        this.size = size;
+    }
+
+    static <E> Column<E> read(ByteBuffer buffer, int offset, Codec<E> codec) {
+        byte type = buffer.get(offset);
+        switch (type) {
+            case ColumnWriter.LONGS:
+                requireNumeric(codec, true);
+                return new Numbers<>(codec, new LongColumn(buffer, offset));
+            case ColumnWriter.BYTES:
+                requireNumeric(codec, false);
+                return new Blobs<>(codec, new BytesColumn(buffer, offset));
+            case ColumnWriter.DICTIONARY:
+                requireNumeric(codec, false);
+                return new Dictionary<>(codec, buffer, offset);
+            default:
+                throw new IllegalStateException("Corrupt snapshot: unknown column type " + type + " at " + offset);
+        }
+    }
+
+    private static void requireNumeric(Codec<?> codec, boolean numeric) {
+        if (codec.numeric() != numeric) {
+            throw new IllegalStateException("Corrupt snapshot: column does not match the " + Codec.name(codec.tag) + " codec");
+        }
+    }
+
+    abstract E get(int index);
+
+    /** Position of {@code o} in a key column (sorted in codec order), or -1. */
+    abstract int indexOf(Object o);
+
+    /** In-order iteration; cheaper per element than {@link #get} for varint columns. */
+    Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public E next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    // ===================================================
+    // Element columns
+    // ===================================================
+
+    private static final class Numbers<E> extends Column<E> {
+        private final LongColumn values;
+
+        Numbers(Codec<E> codec, LongColumn values) {
+            super(codec, values.count);
+            this.values = values;
+        }
+
+        @Override
+        E get(int index) {
+            return codec.fromLong(values.get(index));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        int indexOf(Object o) {
+            return codec.accepts(o) ? values.find(codec.toLong((E) o)) : -1;
+        }
+
+        @Override
+        Iterator<E> iterator() {
+            LongColumn.Cursor cursor = values.cursor();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return cursor.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    return codec.fromLong(cursor.next());
+                }
+            };
+        }
+    }
+
+    private static final class Blobs<E> extends Column<E> {
+        private final BytesColumn values;
+
+        Blobs(Codec<E> codec, BytesColumn values) {
+            super(codec, values.count);
+            this.values = values;
+        }
+
+        @Override
+        E get(int index) {
+            return codec.fromBytes(values.bytes(index));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        int indexOf(Object o) {
+            return codec.accepts(o) ? values.find(codec.toBytes((E) o)) : -1;
+        }
+    }
+
+    /** Values as ids into a dictionary of distinct values; each distinct value is decoded once. */
+    private static final class Dictionary<E> extends Column<E> {
+        private final BytesColumn dictionary;
+        private final LongColumn ids;
+        private final AtomicReferenceArray<E> decoded;
+
+        Dictionary(Codec<E> codec, ByteBuffer buffer, int offset) {
+            super(codec, buffer.getInt(offset + 1));
+            this.dictionary = new BytesColumn(buffer, offset + 1 + 2 * Integer.BYTES);
+            this.ids = new LongColumn(buffer, offset + buffer.getInt(offset + 1 + Integer.BYTES));
+            this.decoded = new AtomicReferenceArray<>(dictionary.count);
+        }
+
+        @Override
+        E get(int index) {
+            return entry((int) ids.get(index));
+        }
+
+        private E entry(int id) {
+            E value = decoded.get(id);
+            if (value == null) {
+                value = codec.fromBytes(dictionary.bytes(id));
+                decoded.lazySet(id, value);
+            }
+            return value;
+        }
+
+        /** Values columns are not sorted; only key columns are searched. */
+        @Override
+        int indexOf(Object o) {
+            throw new UnsupportedOperationException("Dictionary columns are not sorted");
+        }
+
+        @Override
+        Iterator<E> iterator() {
+            LongColumn.Cursor cursor = ids.cursor();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return cursor.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    return entry((int) cursor.next());
+                }
+            };
+        }
+    }
+
+    // ===================================================
+    // Encoded columns
+    // ===================================================
+
+    /** A {@code LONGS} column (see {@link ColumnWriter#longs}). */
+    static final class LongColumn {
+        private final ByteBuffer buffer;
+        final int count;
+        private final int blocks;
+        private final int index;
+        private final int data;
+
+        LongColumn(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.count = buffer.getInt(offset + 1);
+            this.blocks = buffer.getInt(offset + 1 + Integer.BYTES);
+            this.index = offset + 1 + 2 * Integer.BYTES;
+            this.data = index + blocks * ColumnWriter.INDEX_ENTRY;
+        }
+
+        long get(int i) {
+            int block = i >>> ColumnWriter.BLOCK_SHIFT;
+            long value = head(block);
+            int position = data + buffer.getInt(index + block * ColumnWriter.INDEX_ENTRY + Long.BYTES);
+            for (int k = i & (ColumnWriter.BLOCK - 1); k > 0; k--) {
+                long raw = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = buffer.get(position++);
+                    raw |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                value += (raw >>> 1) ^ -(raw & 1);
+            }
+            return value;
+        }
+
+        private long head(int block) {
+            return buffer.getLong(index + block * ColumnWriter.INDEX_ENTRY);
+        }
+
+        /** Index of {@code key} in an ascending column, or -1: binary search on block heads, then a scan. */
+        int find(long key) {
+            int low = 0;
+            int high = blocks - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (head(mid) <= key) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            if (high < 0) {
+                return -1;
+            }
+            Cursor cursor = new Cursor(high << ColumnWriter.BLOCK_SHIFT);
+            int end = Math.min(count, (high + 1) << ColumnWriter.BLOCK_SHIFT);
+            while (cursor.next < end) {
+                int at = cursor.next;
+                long value = cursor.next();
+                if (value >= key) {
+                    return value == key ? at : -1;
+                }
+            }
+            return -1;
+        }
+
+        Cursor cursor() {
+            return new Cursor(0);
+        }
+
+        /** Sequential decoder: one varint per element instead of re-walking the block. */
+        final class Cursor {
+            private int next;
+            private long value;
+            private int position;
+
+            Cursor(int first) {
+                this.next = first;
+            }
+
+            boolean hasNext() {
+                return next < count;
+            }
+
+            long next() {
+                if (next >= count) {
+                    throw new NoSuchElementException();
+                }
+                if ((next & (ColumnWriter.BLOCK - 1)) == 0) {
+                    int block = next >>> ColumnWriter.BLOCK_SHIFT;
+                    value = head(block);
+                    position = data + buffer.getInt(index + block * ColumnWriter.INDEX_ENTRY + Long.BYTES);
+                } else {
+                    long raw = 0;
+                    int shift = 0;
+                    byte b;
+                    do {
+                        b = buffer.get(position++);
+                        raw |= (long) (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                    value += (raw >>> 1) ^ -(raw & 1);
+                }
+                next++;
+                return value;
+            }
+        }
+    }
+
+    /** A {@code BYTES} column (see {@link ColumnWriter#bytes}). */
+    static final class BytesColumn {
+        private final ByteBuffer buffer;
+        final int count;
+        private final int offsets;
+        private final int blob;
+
+        BytesColumn(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.count = buffer.getInt(offset + 1);
+            this.offsets = offset + 1 + Integer.BYTES;
+            this.blob = offsets + (count + 1) * Integer.BYTES;
+        }
+
+        private int start(int i) {
+            return blob + buffer.getInt(offsets + i * Integer.BYTES);
+        }
+
+        byte[] bytes(int i) {
+            int start = start(i);
+            byte[] result = new byte[start(i + 1) - start];
+            buffer.get(start, result);
+            return result;
+        }
+
+        /** Index of {@code key} in a column sorted by unsigned byte order, or -1; compares in place. */
+        int find(byte[] key) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(mid, key);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private int compare(int i, byte[] key) {
+            int start = start(i);
+            int length = start(i + 1) - start;
+            int common = Math.min(length, key.length);
+            for (int k = 0; k < common; k++) {
+                int cmp = Byte.compareUnsigned(buffer.get(start + k), key[k]);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return Integer.compare(length, key.length);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package snapshot;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes columns (see {@link Snapshot} for the layout) into a growable
+ * little-endian byte buffer. Every offset inside a column is relative to
+ * the column's own start, so columns are built independently and
+ * concatenated.
+ */
+final class ColumnWriter {
+
+    static final byte LONGS = 1;
+    static final byte BYTES = 2;
+    static final byte DICTIONARY = 3;
+
+    /** Elements per block of a {@code LONGS} column: a random read decodes at most this many varints. */
+    static final int BLOCK_SHIFT = 5;
+    static final int BLOCK = 1 << BLOCK_SHIFT;
+    /** Index entry per block: absolute first value (long) and data offset (int). */
+    static final int INDEX_ENTRY = Long.BYTES + Integer.BYTES;
+
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private byte[] bytes = new byte[256];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    // ===================================================
+    // Columns
+    // ===================================================
+
+    /**
+     * {@code [type][count][blockCount][index: (head, offset) per block][data]}:
+     * each block stores its first value in the index and the zigzag-encoded
+     * deltas of the rest as varints, so sorted keys cost one or two bytes
+     * each and any list of numbers stays random-access.
+     */
+    void longs(long[] values, int count) {
+        int blocks = (count + BLOCK - 1) >>> BLOCK_SHIFT;
+        put(LONGS);
+        putInt(count);
+        putInt(blocks);
+        int index = size;
+        ensure(blocks * INDEX_ENTRY);
+        size += blocks * INDEX_ENTRY;
+        int data = size;
+        for (int b = 0; b < blocks; b++) {
+            int from = b << BLOCK_SHIFT;
+            int to = Math.min(count, from + BLOCK);
+            LONG.set(bytes, index + b * INDEX_ENTRY, values[from]);
+            INT.set(bytes, index + b * INDEX_ENTRY + Long.BYTES, size - data);
+            for (int i = from + 1; i < to; i++) {
+                long delta = values[i] - values[i - 1];
+                putVarint((delta << 1) ^ (delta >> 63));
+            }
+        }
+    }
+
+    /** {@code [type][count][offsets: count + 1 ints relative to the blob][blob]}. */
+    void bytes(List<byte[]> values) {
+        int count = values.size();
+        put(BYTES);
+        putInt(count);
+        int offset = 0;
+        for (byte[] value : values) {
+            putInt(offset);
+            offset += value.length;
+            if (offset < 0) {
+                throw tooLarge();
+            }
+        }
+        putInt(offset);
+        for (byte[] value : values) {
+            putBytes(value);
+        }
+    }
+
+    /**
+     * Bytes values, dictionary-encoded when at most half of them are
+     * distinct: {@code [type][count][ids offset][BYTES dictionary][LONGS ids]}.
+     */
+    void values(List<byte[]> values) {
+        Map<ByteKey, Integer> ids = new HashMap<>();
+        long[] idColumn = new long[values.size()];
+        for (int i = 0; i < idColumn.length; i++) {
+            Integer id = ids.putIfAbsent(new ByteKey(values.get(i)), ids.size());
+            idColumn[i] = id != null ? id : ids.size() - 1;
+            if (ids.size() > idColumn.length / 2) {
+                bytes(values);
+                return;
+            }
+        }
+        byte[][] dictionary = new byte[ids.size()][];
+        ids.forEach((key, id) -> dictionary[id] = key.bytes);
+        int start = size;
+        put(DICTIONARY);
+        putInt(idColumn.length);
+        int idsOffset = size;
+        putInt(0);
+        bytes(Arrays.asList(dictionary));
+        INT.set(bytes, idsOffset, size - start);
+        longs(idColumn, idColumn.length);
+    }
+
+    /** {@code byte[]} with content equality, for the dictionary. */
+    private record ByteKey(byte[] bytes) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ByteKey other && Arrays.equals(bytes, other.bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(bytes);
+        }
+    }
+
+    // ===================================================
+    // Primitives
+    // ===================================================
+
+    void put(byte value) {
+        ensure(1);
+        bytes[size++] = value;
+    }
+
+    void putInt(int value) {
+        ensure(Integer.BYTES);
+        INT.set(bytes, size, value);
+        size += Integer.BYTES;
+    }
+
+    void putLong(long value) {
+        ensure(Long.BYTES);
+        LONG.set(bytes, size, value);
+        size += Long.BYTES;
+    }
+
+    void putIntAt(int position, int value) {
+        INT.set(bytes, position, value);
+    }
+
+    void putLongAt(int position, long value) {
+        LONG.set(bytes, position, value);
+    }
+
+    /** Unsigned LEB128: seven bits per byte, high bit set on all but the last. */
+    void putVarint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    void putBytes(byte[] value) {
+        ensure(value.length);
+        System.arraycopy(value, 0, bytes, size, value.length);
+        size += value.length;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > bytes.length || size + extra < 0) {
+            long capacity = Math.max((long) size + extra, (long) bytes.length * 2);
+            if (capacity > Integer.MAX_VALUE - 8) {
+                if ((long) size + extra > Integer.MAX_VALUE - 8) {
+                    throw tooLarge();
+                }
+                capacity = Integer.MAX_VALUE - 8;
+            }
+            bytes = Arrays.copyOf(bytes, (int) capacity);
+        }
+    }
+
+    private static IllegalArgumentException tooLarge() {
+        return new IllegalArgumentException("Snapshot larger than 2 GB");
+    }
+}
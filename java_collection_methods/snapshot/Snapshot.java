@@ -0,0 +1,348 @@
+package snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact, versioned binary snapshots of a {@code List}, {@code Set},
+ * {@code Map} or {@code Deque}, read back as <em>read-only views over the
+ * memory-mapped file</em>: opening one costs a header check, not a rebuild,
+ * and each element is decoded only when it is read. The warm-restart
+ * alternative to Java serialization, whose {@code HashMap} streams are
+ * several times larger and must be fully deserialized before the first
+ * lookup.
+ *
+ * <pre>
+ * Snapshot.writeMap(path, prices, Codec.strings(), Codec.longs());
+ * Map&lt;String, Long&gt; view = Snapshot.readMap(path, Codec.strings(), Codec.longs());
+ * view.get("Apple-17");   // binary search in the mapped keys
+ * </pre>
+ *
+ * <p><b>Format</b> (version {@value #VERSION}, little-endian). A 32-byte
+ * header — magic, version, kind, key and value codec tags, size, column
+ * offsets, file length and a CRC32C of everything after the header — then
+ * one column for list, deque and set elements, or a key column and a value
+ * column for a map, in the same order. A column is one of:
+ * <ul>
+ *   <li><b>numbers</b> ({@link Codec#ints()}, {@link Codec#longs()}): blocks
+ *       of 32, each with its first value in a fixed-width index and the
+ *       rest as zigzag varint deltas. Sorted keys take one or two bytes each;
+ *       a random read decodes at most 31 varints.</li>
+ *   <li><b>bytes</b> ({@link Codec#strings()}, {@link Codec#of}): an offset
+ *       table and the concatenated encodings.</li>
+ *   <li><b>dictionary</b> (bytes values, when at most half are distinct):
+ *       a bytes column of the distinct values plus a numbers column of ids.
+ *       Each distinct value is decoded once per view and shared.</li>
+ * </ul>
+ * Set elements and map keys are stored sorted — numerically, or by unsigned
+ * byte order of their encoding (code point order for strings) — which is
+ * also the views' iteration order, and lookups are binary searches that
+ * compare encoded bytes in place. Lists and deques keep their order.
+ *
+ * <p>Writers encode in memory, write a temporary file and atomically move it
+ * over {@code path}, so readers see the old or the new snapshot, never a
+ * partial one; a view opened earlier keeps reading the version it mapped.
+ * Readers check the header but not the checksum (that would read every
+ * page); call {@link #verify} for that. {@code null} elements, keys and
+ * values are rejected, and one snapshot file is limited to 2 GB — split
+ * larger data sets across files.
+ */
+public final class Snapshot {
+
+    /** Format version written to and required of every file. */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x50414E53; // "SNAP"
+    private static final byte LIST = 1;
+    private static final byte SET = 2;
+    private static final byte MAP = 3;
+    private static final byte DEQUE = 4;
+
+    private static final int KIND = 6;
+    private static final int KEY_TAG = 7;
+    private static final int VALUE_TAG = 8;
+    private static final int SIZE = 12;
+    private static final int KEYS = 16;
+    private static final int VALUES = 20;
+    private static final int LENGTH = 24;
+    private static final int CHECKSUM = 28;
+    private static final int HEADER = 32;
+
+    private Snapshot() {
+    }
+
+    // ===================================================
+    // Writing
+    // ===================================================
+
+    /** Writes {@code list} in order. */
+    public static <E> void writeList(Path path, List<? extends E> list, Codec<E> codec) throws IOException {
+        writeSequence(path, LIST, list, codec);
+    }
+
+    /** Writes {@code deque} from head to tail. */
+    public static <E> void writeDeque(Path path, Deque<? extends E> deque, Codec<E> codec) throws IOException {
+        writeSequence(path, DEQUE, deque, codec);
+    }
+
+    /** Writes the elements of {@code set} sorted in codec order. */
+    public static <E> void writeSet(Path path, Set<? extends E> set, Codec<E> codec) throws IOException {
+        List<Item> items = sortedItems(set, codec, null, null);
+        ColumnWriter out = header(SET, codec, null, items.size());
+        out.putIntAt(KEYS, out.size());
+        keys(out, items, codec);
+        write(path, out);
+    }
+
+    /** Writes the entries of {@code map} sorted by key in codec order. */
+    public static <K, V> void writeMap(Path path, Map<? extends K, ? extends V> map,
+                                       Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+        List<Item> items = sortedItems(map.keySet(), keyCodec, map, valueCodec);
+        ColumnWriter out = header(MAP, keyCodec, valueCodec, items.size());
+        out.putIntAt(KEYS, out.size());
+        keys(out, items, keyCodec);
+        out.putIntAt(VALUES, out.size());
+        List<Object> values = new ArrayList<>(items.size());
+        for (Item item : items) {
+            values.add(item.value);
+        }
+        column(out, values, valueCodec);
+        write(path, out);
+    }
+
+    private static <E> void writeSequence(Path path, byte kind, Collection<? extends E> elements, Codec<E> codec)
+            throws IOException {
+        List<Object> values = new ArrayList<>(elements);
+        for (Object value : values) {
+            Objects.requireNonNull(value, "null elements are not supported");
+        }
+        ColumnWriter out = header(kind, codec, null, values.size());
+        out.putIntAt(KEYS, out.size());
+        column(out, values, codec);
+        write(path, out);
+    }
+
+    /** A key with its encoded form (a number or bytes) and, for maps, its value. */
+    private record Item(long number, byte[] bytes, Object value) {
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E, V> List<Item> sortedItems(Collection<? extends E> keys, Codec<E> codec,
+                                                 Map<?, ?> map, Codec<V> valueCodec) {
+        Objects.requireNonNull(codec, "codec");
+        List<Item> items = new ArrayList<>(keys.size());
+        for (E key : keys) {
+            Objects.requireNonNull(key, "null keys are not supported");
+            Object value = null;
+            if (map != null) {
+                Objects.requireNonNull(valueCodec, "valueCodec");
+                value = Objects.requireNonNull(map.get(key), "null values are not supported");
+            }
+            items.add(codec.numeric() ? new Item(codec.toLong(key), null, value)
+                    : new Item(0, codec.toBytes(key), value));
+        }
+        Comparator<Item> order = codec.numeric() ? Comparator.comparingLong(Item::number)
+                : (a, b) -> Arrays.compareUnsigned(a.bytes, b.bytes);
+        items.sort(order);
+        for (int i = 1; i < items.size(); i++) {
+            if (order.compare(items.get(i - 1), items.get(i)) == 0) {
+                throw new IllegalArgumentException("Two keys have the same encoding under the "
+                        + Codec.name(codec.tag) + " codec");
+            }
+        }
+        return items;
+    }
+
+    private static void keys(ColumnWriter out, List<Item> items, Codec<?> codec) {
+        if (codec.numeric()) {
+            long[] numbers = new long[items.size()];
+            for (int i = 0; i < numbers.length; i++) {
+                numbers[i] = items.get(i).number;
+            }
+            out.longs(numbers, numbers.length);
+        } else {
+            List<byte[]> bytes = new ArrayList<>(items.size());
+            for (Item item : items) {
+                bytes.add(item.bytes);
+            }
+            out.bytes(bytes); // keys are distinct: a dictionary would only add ids
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> void column(ColumnWriter out, List<Object> values, Codec<E> codec) {
+        if (codec.numeric()) {
+            long[] numbers = new long[values.size()];
+            for (int i = 0; i < numbers.length; i++) {
+                numbers[i] = codec.toLong((E) values.get(i));
+            }
+            out.longs(numbers, numbers.length);
+        } else {
+            List<byte[]> bytes = new ArrayList<>(values.size());
+            for (Object value : values) {
+                bytes.add(codec.toBytes((E) value));
+            }
+            out.values(bytes);
+        }
+    }
+
+    private static ColumnWriter header(byte kind, Codec<?> keyCodec, Codec<?> valueCodec, int size) {
+        ColumnWriter out = new ColumnWriter();
+        out.putInt(MAGIC);
+        out.put((byte) VERSION);
+        out.put((byte) 0);
+        out.put(kind);
+        out.put(keyCodec.tag);
+        out.put(valueCodec == null ? 0 : valueCodec.tag);
+        out.put((byte) 0);
+        out.put((byte) 0);
+        out.put((byte) 0);
+        out.putInt(size);
+        while (out.size() < HEADER) {
+            out.put((byte) 0);
+        }
+        return out;
+    }
+
+    private static void write(Path path, ColumnWriter out) throws IOException {
+        out.putIntAt(LENGTH, out.size());
+        CRC32C crc = new CRC32C();
+        crc.update(out.bytes(), HEADER, out.size() - HEADER);
+        out.putIntAt(CHECKSUM, (int) crc.getValue());
+
+        Path absolute = path.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(out.bytes(), 0, out.size());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // ===================================================
+    // Reading
+    // ===================================================
+
+    /** A read-only, random-access view of a list (or deque) snapshot. */
+    public static <E> List<E> readList(Path path, Codec<E> codec) throws IOException {
+        ByteBuffer buffer = open(path, codec, null, LIST, DEQUE);
+        return new Views.ListView<>(Column.read(buffer, buffer.getInt(KEYS), codec));
+    }
+
+    /** A read-only view of a deque (or list) snapshot; every mutator throws. */
+    public static <E> Deque<E> readDeque(Path path, Codec<E> codec) throws IOException {
+        ByteBuffer buffer = open(path, codec, null, DEQUE, LIST);
+        return new Views.DequeView<>(Column.read(buffer, buffer.getInt(KEYS), codec));
+    }
+
+    /** A read-only view of a set snapshot, iterating in codec order. */
+    public static <E> Set<E> readSet(Path path, Codec<E> codec) throws IOException {
+        ByteBuffer buffer = open(path, codec, null, SET, SET);
+        return new Views.SetView<>(Column.read(buffer, buffer.getInt(KEYS), codec));
+    }
+
+    /** A read-only view of a map snapshot, iterating in key codec order. */
+    public static <K, V> Map<K, V> readMap(Path path, Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+        ByteBuffer buffer = open(path, keyCodec, valueCodec, MAP, MAP);
+        return new Views.MapView<>(Column.read(buffer, buffer.getInt(KEYS), keyCodec),
+                Column.read(buffer, buffer.getInt(VALUES), valueCodec));
+    }
+
+    /** Reads the whole file and checks its CRC32C; throws if the snapshot is damaged. */
+    public static void verify(Path path) throws IOException {
+        ByteBuffer buffer = map(path);
+        checkHeader(path, buffer);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(HEADER, buffer.limit() - HEADER));
+        if ((int) crc.getValue() != buffer.getInt(CHECKSUM)) {
+            throw new IOException(path + ": snapshot checksum mismatch");
+        }
+    }
+
+    private static ByteBuffer open(Path path, Codec<?> keyCodec, Codec<?> valueCodec, byte kind, byte alternative)
+            throws IOException {
+        Objects.requireNonNull(keyCodec, "codec");
+        ByteBuffer buffer = map(path);
+        checkHeader(path, buffer);
+        byte actual = buffer.get(KIND);
+        if (actual != kind && actual != alternative) {
+            throw new IOException(path + ": snapshot holds a " + kindName(actual) + ", not a " + kindName(kind));
+        }
+        checkCodec(path, "element", buffer.get(KEY_TAG), keyCodec);
+        if (valueCodec != null) {
+            checkCodec(path, "value", buffer.get(VALUE_TAG), valueCodec);
+        }
+        return buffer;
+    }
+
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER || size > Integer.MAX_VALUE) {
+                throw new IOException(path + ": not a snapshot (" + size + " bytes)");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    private static void checkHeader(Path path, ByteBuffer buffer) throws IOException {
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException(path + ": not a snapshot");
+        }
+        if (buffer.get(4) != VERSION) {
+            throw new IOException(path + ": snapshot version " + buffer.get(4) + ", expected " + VERSION);
+        }
+        if (buffer.getInt(LENGTH) != buffer.limit()) {
+            throw new IOException(path + ": snapshot truncated to " + buffer.limit() + " of "
+                    + buffer.getInt(LENGTH) + " bytes");
+        }
+    }
+
+    private static void checkCodec(Path path, String role, byte tag, Codec<?> codec) throws IOException {
+        if (tag != codec.tag) {
+            throw new IOException(path + ": " + role + "s were written with the " + Codec.name(tag)
+                    + " codec, not " + Codec.name(codec.tag));
+        }
+    }
+
+    private static String kindName(byte kind) {
+        switch (kind) {
+            case LIST:
+                return "list";
+            case SET:
+                return "set";
+            case MAP:
+                return "map";
+            case DEQUE:
+                return "deque";
+            default:
+                return "unknown kind " + kind;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package snapshot;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * The read-only collections returned by {@link Snapshot}'s readers. They
+ * hold no elements, only columns over the mapped file, and every mutator
+ * throws {@link UnsupportedOperationException}.
+ */
+final class Views {
+
+    private Views() {
+    }
+
+    static final class ListView<E> extends AbstractList<E> implements RandomAccess {
+        private final Column<E> elements;
+
+        ListView(Column<E> elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public E get(int index) {
+            return elements.get(Objects.checkIndex(index, elements.size));
+        }
+
+        @Override
+        public int size() {
+            return elements.size;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return elements.iterator();
+        }
+    }
+
+    /** Elements in codec order; {@code contains} is a binary search. */
+    static final class SetView<E> extends AbstractSet<E> {
+        private final Column<E> elements;
+
+        SetView(Column<E> elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return elements.indexOf(o) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return elements.size;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return elements.iterator();
+        }
+    }
+
+    /** Entries in key order; {@code get} is a binary search on the keys and one read of the values. */
+    static final class MapView<K, V> extends AbstractMap<K, V> {
+        private final Column<K> keys;
+        private final Column<V> values;
+
+        MapView(Column<K> keys, Column<V> values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @Override
+        public V get(Object key) {
+            int index = keys.indexOf(key);
+            return index < 0 ? null : values.get(index);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return keys.indexOf(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return keys.size;
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return new SetView<>(keys);
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    Iterator<K> k = keys.iterator();
+                    Iterator<V> v = values.iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return k.hasNext();
+                        }
+
+                        @Override
+                        public Entry<K, V> next() {
+                            return new SimpleImmutableEntry<>(k.next(), v.next());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return keys.size;
+                }
+            };
+        }
+    }
+
+    /** Head first, as written; a read-only {@code Deque} for code that expects one. */
+    static final class DequeView<E> extends AbstractCollection<E> implements Deque<E> {
+        private final Column<E> elements;
+
+        DequeView(Column<E> elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public int size() {
+            return elements.size;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return elements.iterator();
+        }
+
+        @Override
+        public Iterator<E> descendingIterator() {
+            return new Iterator<>() {
+                private int next = elements.size - 1;
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public E next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    return elements.get(next--);
+                }
+            };
+        }
+
+        @Override
+        public E peekFirst() {
+            return elements.size == 0 ? null : elements.get(0);
+        }
+
+        @Override
+        public E peekLast() {
+            return elements.size == 0 ? null : elements.get(elements.size - 1);
+        }
+
+        @Override
+        public E getFirst() {
+            if (elements.size == 0) {
+                throw new NoSuchElementException();
+            }
+            return elements.get(0);
+        }
+
+        @Override
+        public E getLast() {
+            if (elements.size == 0) {
+                throw new NoSuchElementException();
+            }
+            return elements.get(elements.size - 1);
+        }
+
+        @Override
+        public E peek() {
+            return peekFirst();
+        }
+
+        @Override
+        public E element() {
+            return getFirst();
+        }
+
+        @Override
+        public void addFirst(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addLast(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean offerFirst(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean offerLast(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E removeFirst() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E removeLast() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E pollFirst() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E pollLast() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeFirstOccurrence(Object o) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean removeLastOccurrence(Object o) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean offer(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E poll() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void push(E e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public E pop() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package split;
+
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * An {@link Iterable} that can hand out its elements as arrays, for loops
+ * that work on a block of elements at a time (summing a {@code double[]}
+ * view of a batch, writing a batch to a channel, submitting each batch to
+ * an executor) rather than on one element per callback.
+ *
+ * <p>The default method copies from {@link #iterator()}. Implementations
+ * with array storage override it to copy whole ranges with
+ * {@code System.arraycopy}; {@link Splitters#forEachBatch} uses the
+ * override when the source implements this interface.
+ */
+public interface BatchIterable<E> extends Iterable<E> {
+
+    /**
+     * Passes the elements, in iteration order, to {@code action} in arrays
+     * of {@code batchSize} elements; only the last may be shorter. Each
+     * array is new, made by {@code generator} (as in
+     * {@link java.util.Collection#toArray(IntFunction)}), so {@code action}
+     * may keep it or hand it to another thread.
+     *
+     * @throws IllegalArgumentException if {@code batchSize < 1}
+     * @throws ArrayStoreException if an element does not fit the arrays {@code generator} makes
+     */
+    default void forEachBatch(int batchSize, IntFunction<E[]> generator, Consumer<? super E[]> action) {
+        Splitters.forEachBatch(iterator(), batchSize, generator, action);
+    }
+}
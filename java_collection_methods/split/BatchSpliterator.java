@@ -0,0 +1,85 @@
+package split;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Wraps a spliterator that splits badly and splits it into equal batches
+ * instead: each {@link #trySplit()} copies the next {@code batch} elements
+ * into an array and returns a spliterator over that array, which halves
+ * cleanly from there on. Traversal of what is left goes straight to the
+ * source.
+ */
+final class BatchSpliterator<E> implements Spliterator<E> {
+
+    private final Spliterator<E> source;
+    private final int batch;
+    private long remaining;
+
+    BatchSpliterator(Spliterator<E> source, int batch) {
+        this.source = source;
+        this.batch = batch;
+        this.remaining = source.estimateSize();
+    }
+
+    @Override
+    public Spliterator<E> trySplit() {
+        long est = remaining;
+        if (est <= 1) {
+            return null;
+        }
+        int n = (int) Math.min(batch, est);
+        Object[] array = new Object[n];
+        int[] count = new int[1];
+        while (count[0] < n && source.tryAdvance(e -> array[count[0]++] = e)) {
+            // copy the next batch
+        }
+        if (count[0] == 0) {
+            remaining = 0;
+            return null;
+        }
+        if (remaining != Long.MAX_VALUE) {
+            remaining = count[0] < n ? 0 : remaining - n;
+        }
+        // SORTED is dropped: an array spliterator only reports natural order
+        int chars = source.characteristics() & (ORDERED | DISTINCT | NONNULL | IMMUTABLE);
+        return Spliterators.spliterator(array, 0, count[0], chars);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+        if (source.tryAdvance(action)) {
+            if (remaining != Long.MAX_VALUE && remaining > 0) {
+                remaining--;
+            }
+            return true;
+        }
+        remaining = 0;
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super E> action) {
+        source.forEachRemaining(action);
+        remaining = 0;
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining;
+    }
+
+    /** The source's characteristics, plus {@code SUBSIZED} if it is {@code SIZED}: every batch is. */
+    @Override
+    public int characteristics() {
+        int chars = source.characteristics();
+        return (chars & (SIZED | CONCURRENT)) == SIZED ? chars | SUBSIZED : chars & ~SUBSIZED;
+    }
+
+    @Override
+    public Comparator<? super E> getComparator() {
+        return source.getComparator();
+    }
+}
@@ -0,0 +1,188 @@
+package split;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Evenly splitting spliterators for parallel streams over collections whose
+ * own spliterators split badly, and batch iteration over any
+ * {@link Iterable}.
+ *
+ * <p>{@code parallelStream()} is only as parallel as the
+ * {@code trySplit()} calls on the collection's spliterator. Arrays,
+ * {@code ArrayList}, {@code ArrayDeque} and the other array-backed
+ * collections halve their index range and report {@code SUBSIZED}; they
+ * split perfectly. Linked structures cannot jump to their middle:
+ * <ul>
+ *   <li>{@code LinkedList}, {@code LinkedHashMap}/{@code LinkedHashSet}
+ *       views and every collection that inherits
+ *       {@code Collection.spliterator()} copy growing batches (1,024
+ *       elements, then 2,048, 4,096...) off the front into arrays, which
+ *       then split evenly. They report {@code SUBSIZED} and are kept as
+ *       they are: what limits them is the one thread walking the links to
+ *       fill the batches, which no spliterator avoids.</li>
+ *   <li>{@code TreeMap}/{@code TreeSet} views split at the root and report
+ *       no size after the first split, so a stream keeps whole subtrees as
+ *       single tasks: with 100,000 keys and 16 threads, one task gets 14%
+ *       of the keys, where an even split gives none more than 1.5%.</li>
+ *   <li>{@code ConcurrentLinkedQueue} reports no size and splits off
+ *       batches of 1, 2, 3... elements: hundreds of tiny tasks.</li>
+ * </ul>
+ *
+ * <p>{@link #of(Collection)} keeps a {@code SUBSIZED} spliterator and wraps
+ * any other in one that splits off batches of equal size, about
+ * {@code size / (4 * parallelism)} elements each (at least
+ * {@value #MIN_BATCH}), so every worker gets about four batches. The
+ * batches are copied in one sequential walk, a few nanoseconds per
+ * element, overlapped with the workers processing the batches already
+ * split off. The parallelism is that of the pool the spliterator is
+ * created in, or of the common pool outside one: to run on a custom pool,
+ * create the stream inside the submitted task. {@link #snapshot} copies the
+ * whole collection first instead, for a source that is scanned in
+ * parallel several times or must not be held while the stream runs.
+ *
+ * <pre>
+ * long heavy = Splitters.entries(stock, true)
+ *         .filter(e -&gt; score(e.getKey()) &gt; e.getValue())
+ *         .count();
+ * Splitters.forEachBatch(queue, 1024, String[]::new, batch -&gt; writer.write(batch));
+ * </pre>
+ */
+public final class Splitters {
+
+    /** Smallest batch {@link #of} splits off. */
+    public static final int MIN_BATCH = 1 << 8;
+
+    private static final int MAX_BATCH = 1 << 25;
+    private static final int BATCHES_PER_THREAD = 4;
+    /** Batch size for sources of unknown size, as in {@code Spliterators.AbstractSpliterator}. */
+    private static final int UNKNOWN_SIZE_BATCH = 1 << 10;
+
+    private Splitters() {
+    }
+
+    // ===================================================
+    // Spliterators and streams
+    // ===================================================
+
+    /** {@code c}'s spliterator, balanced by {@link #balance(Spliterator)}. */
+    public static <E> Spliterator<E> of(Collection<E> c) {
+        return balance(c.spliterator());
+    }
+
+    /**
+     * {@code s} itself if it reports {@code SUBSIZED}, otherwise a wrapper
+     * that splits it into equal batches. The wrapper keeps {@code s}'s
+     * characteristics and comparator and traverses {@code s} directly, so it
+     * is exactly as fail-fast or weakly consistent as {@code s}.
+     */
+    public static <E> Spliterator<E> balance(Spliterator<E> s) {
+        if (s.hasCharacteristics(Spliterator.SUBSIZED)) {
+            return s;
+        }
+        return new BatchSpliterator<>(s, batchSize(s.estimateSize(), parallelism()));
+    }
+
+    /**
+     * A spliterator over a copy of {@code c} taken now with
+     * {@code toArray()}: it halves perfectly, is {@code IMMUTABLE}, and never
+     * sees later changes to {@code c}. It keeps {@code c}'s
+     * {@code ORDERED}, {@code DISTINCT} and {@code NONNULL}, and
+     * {@code SORTED} when {@code c} is sorted by natural order.
+     */
+    public static <E> Spliterator<E> snapshot(Collection<E> c) {
+        Spliterator<E> s = c.spliterator();
+        int chars = s.characteristics() & (Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        if (s.hasCharacteristics(Spliterator.SORTED) && s.getComparator() == null) {
+            chars |= Spliterator.SORTED;
+        }
+        return Spliterators.spliterator(c.toArray(), chars | Spliterator.IMMUTABLE);
+    }
+
+    /** A stream over {@code c} using {@link #of(Collection)}. */
+    public static <E> Stream<E> stream(Collection<E> c, boolean parallel) {
+        return StreamSupport.stream(of(c), parallel);
+    }
+
+    /** A stream over {@code map.entrySet()} using {@link #of(Collection)}. */
+    public static <K, V> Stream<Map.Entry<K, V>> entries(Map<K, V> map, boolean parallel) {
+        return stream(map.entrySet(), parallel);
+    }
+
+    static int batchSize(long size, int parallelism) {
+        if (size == Long.MAX_VALUE) {
+            return UNKNOWN_SIZE_BATCH;
+        }
+        long per = (size + (long) parallelism * BATCHES_PER_THREAD - 1) / ((long) parallelism * BATCHES_PER_THREAD);
+        return (int) Math.max(MIN_BATCH, Math.min(MAX_BATCH, per));
+    }
+
+    /** Parallelism of the pool a stream started on this thread would run in. */
+    private static int parallelism() {
+        return ForkJoinTask.inForkJoinPool()
+                ? ForkJoinTask.getPool().getParallelism()
+                : ForkJoinPool.getCommonPoolParallelism();
+    }
+
+    // ===================================================
+    // Batch iteration
+    // ===================================================
+
+    /**
+     * {@link BatchIterable#forEachBatch} for any {@link Iterable}: calls the
+     * source's own method if it is a {@code BatchIterable}, otherwise copies
+     * from its iterator.
+     *
+     * @throws IllegalArgumentException if {@code batchSize < 1}
+     */
+    public static <E> void forEachBatch(Iterable<E> source, int batchSize, IntFunction<E[]> generator,
+                                        Consumer<? super E[]> action) {
+        if (source instanceof BatchIterable<E> batches) {
+            batches.forEachBatch(batchSize, generator, action);
+        } else {
+            forEachBatch(source.iterator(), batchSize, generator, action);
+        }
+    }
+
+    static <E> void forEachBatch(Iterator<? extends E> it, int batchSize, IntFunction<E[]> generator,
+                                 Consumer<? super E[]> action) {
+        checkBatchSize(batchSize);
+        Objects.requireNonNull(generator);
+        Objects.requireNonNull(action);
+        while (it.hasNext()) {
+            E[] batch = generator.apply(batchSize);
+            int n = 0;
+            while (n < batchSize && it.hasNext()) {
+                batch[n++] = it.next();
+            }
+            if (n < batchSize) {
+                E[] last = generator.apply(n);
+                System.arraycopy(batch, 0, last, 0, n);
+                batch = last;
+            }
+            action.accept(batch);
+        }
+    }
+
+    /**
+     * Checks the {@code batchSize} argument of a {@code forEachBatch}
+     * implementation.
+     *
+     * @throws IllegalArgumentException if {@code batchSize < 1}
+     */
+    public static void checkBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+    }
+}